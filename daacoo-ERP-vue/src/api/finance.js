@@ -5,10 +5,48 @@ export const getFinance = async (year) => {
   return await request.get(`/api/finance/${year}`)
 }
 
+// 多年度对比，years 为年份数组，如 [2022, 2023, 2024]
+export const compareFinanceYears = async (years) => {
+  return await request.get('/api/finance/compare', { params: { years: years.join(',') } })
+}
+
+// 滚动窗口合计，windows 为天数数组（默认 [7, 30, 90]），end 为截止日期 yyyy-MM-dd（默认今天）
+export const getFinanceRollingWindows = async (windows = [7, 30, 90], end) => {
+  return await request.get('/api/finance/rolling', { params: { windows: windows.join(','), end } })
+}
+
 export const getFinanceStatistics = async () => {
   return await request.get('/api/finance/statistics')
 }
 
 export const getFinanceData = async (params) => {
   return await request.get('/api/finance/data', { params })
-}
\ No newline at end of file
+}
+
+// 图表序列：bucket 为 day/week/month，maxPoints 限制返回点数（服务端分桶并降采样）
+export const getFinanceSeries = async ({ startDate, endDate, bucket = 'day', maxPoints = 200 } = {}) => {
+  return await request.get('/api/finance/data', { params: { startDate, endDate, bucket, maxPoints } })
+}
+
+// 导出财务记录，返回文件Blob；format 为 csv 或 xlsx
+export const exportFinanceRecords = async (params = {}) => {
+  return await request.get('/api/finance/export', {
+    params: { format: 'csv', ...params },
+    responseType: 'blob',
+    timeout: 0
+  })
+}
+
+// 导入财务记录（csv/xlsx），返回导入任务；通过 getFinanceImportJob 轮询进度
+export const importFinanceRecords = async (file) => {
+  const formData = new FormData()
+  formData.append('file', file)
+  return await request.post('/api/finance/import', formData, {
+    headers: { 'Content-Type': 'multipart/form-data' },
+    timeout: 0
+  })
+}
+
+export const getFinanceImportJob = async (jobId) => {
+  return await request.get(`/api/finance/import/${jobId}`)
+}
@@ -1,4 +1,5 @@
 import request from '@/utils/request'
+import { getToken } from '@/utils/auth'
 
 export function useInventoryApi() {
   return {
@@ -68,6 +69,17 @@ export function useInventoryApi() {
       })
     },
 
+    // 批量出入库：data = { mode: 'ALL_OR_NOTHING' | 'BEST_EFFORT', lines: [{ id 或 productCode, delta, unitPrice, location }] }
+    // delta 为正入库、为负出库，返回逐行结果
+    bulkStock(data) {
+      return request({
+        url: '/api/inventory/bulk-stock',
+        method: 'post',
+        data,
+        timeout: 60000
+      })
+    },
+
     // 获取所有商品名称列表（用于自动提示）
     getAllProductNames() {
       return request({
@@ -76,12 +88,160 @@ export function useInventoryApi() {
       })
     },
 
+    // 商品自动补全：按名称、商品编码、拼音首字母前缀匹配，不足时补充包含匹配
+    suggestProducts(q, limit = 10) {
+      return request({
+        url: '/api/inventory/suggest',
+        method: 'get',
+        params: { q, limit }
+      })
+    },
+
+    // 库存流水分页查询，最新的在前
+    getStockMovements(id, params = { page: 0, size: 20 }) {
+      return request({
+        url: `/api/inventory/${id}/movements`,
+        method: 'get',
+        params
+      })
+    },
+
+    // 库存估值：按分类、库位汇总的库存数量与金额
+    getInventoryValuation() {
+      return request({
+        url: '/api/inventory/valuation',
+        method: 'get'
+      })
+    },
+
+    // 商品可承诺量：现存量、销售预留量、可承诺量
+    getAvailability(goodsId) {
+      return request({
+        url: '/api/inventory/available',
+        method: 'get',
+        params: { goodsId }
+      })
+    },
+
+    // 查询指定时刻的库存数量，time 格式：yyyy-MM-ddTHH:mm:ss
+    getStockAt(id, time) {
+      return request({
+        url: `/api/inventory/${id}/stock-at`,
+        method: 'get',
+        params: { time }
+      })
+    },
+
     // 根据商品名称获取库存详情（用于自动填充价格）
     getInventoryByProductName(productName) {
       return request({
         url: `/api/inventory/by-name/${encodeURIComponent(productName)}`,
         method: 'get'
       })
+    },
+
+    // 低库存分页查询（库存数量不高于预警阈值，数量少的在前）
+    getLowStockList(params = { page: 0, size: 20 }) {
+      return request({
+        url: '/api/inventory/low-stock',
+        method: 'get',
+        params
+      })
+    },
+
+    // 当前低库存清单（内存快照）
+    getLowStockWatchlist() {
+      return request({
+        url: '/api/inventory/low-stock/watchlist',
+        method: 'get'
+      })
+    },
+
+    // 订阅低库存推送（SSE）。EventSource 无法携带 Authorization 头，这里用 fetch 读取事件流；
+    // onSnapshot 收到完整清单，onChange 收到变化数组 [{ type: ENTER|UPDATE|LEAVE, item }]，断开后自动重连。
+    // 返回取消订阅函数
+    subscribeLowStock({ onSnapshot, onChange, onError, retryDelay = 5000 } = {}) {
+      const baseURL = import.meta.env.VITE_BASE_API || 'http://localhost:8081'
+      let controller = null
+      let closed = false
+
+      const dispatch = (block) => {
+        let event = 'message'
+        const data = []
+        for (const line of block.split('\n')) {
+          if (line.startsWith('event:')) {
+            event = line.slice(6).trim()
+          } else if (line.startsWith('data:')) {
+            data.push(line.slice(5).trim())
+          }
+        }
+        if (!data.length) {
+          return
+        }
+        const payload = JSON.parse(data.join('\n'))
+        if (event === 'snapshot' && onSnapshot) {
+          onSnapshot(payload)
+        } else if (event === 'change' && onChange) {
+          onChange(payload)
+        }
+      }
+
+      const connect = async () => {
+        controller = new AbortController()
+        try {
+          const response = await fetch(`${baseURL}/api/inventory/low-stock/stream`, {
+            headers: { Authorization: getToken(), Accept: 'text/event-stream' },
+            signal: controller.signal
+          })
+          if (!response.ok) {
+            throw new Error(`低库存推送连接失败: ${response.status}`)
+          }
+          const reader = response.body.getReader()
+          const decoder = new TextDecoder()
+          let buffer = ''
+          for (;;) {
+            const { done, value } = await reader.read()
+            if (done) {
+              break
+            }
+            buffer += decoder.decode(value, { stream: true }).replace(/\r/g, '')
+            let index
+            while ((index = buffer.indexOf('\n\n')) >= 0) {
+              dispatch(buffer.slice(0, index))
+              buffer = buffer.slice(index + 2)
+            }
+          }
+        } catch (error) {
+          if (closed) {
+            return
+          }
+          if (onError) {
+            onError(error)
+          }
+        }
+        if (!closed) {
+          setTimeout(connect, retryDelay)
+        }
+      }
+
+      connect()
+      return () => {
+        closed = true
+        if (controller) {
+          controller.abort()
+        }
+      }
+    },
+
+    // 导出全部库存，返回文件Blob；format 为 csv 或 xlsx
+    exportInventory(format = 'csv') {
+      return request({
+        url: '/api/inventory/export',
+        method: 'get',
+        params: { format },
+        responseType: 'blob',
+        timeout: 0
+      })
     }
   }
 }
\ No newline at end of file
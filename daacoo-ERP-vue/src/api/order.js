@@ -54,6 +54,15 @@ export function confirmOrder(id, data) {
   })
 }
 
+// 批量确认订单，orders: [{ id, freight }]
+export function confirmOrdersBatch(orders) {
+  return request({
+    url: '/api/customer-order/confirm-batch',
+    method: 'post',
+    data: { orders }
+  })
+}
+
 // 按类型获取订单
 export function getOrdersByType(type, params = { page: 0, size: 10 }) {
   return request({
@@ -66,6 +75,48 @@ export function getOrdersByType(type, params = { page: 0, size: 10 }) {
   })
 }
 
+// 按类型获取订单（键集分页），cursor 为上一页返回的 nextCursor
+export function getOrdersByTypeCursor(type, params = { size: 20 }) {
+  return request({
+    url: `/api/customer-order/type/${type}/cursor`,
+    method: 'get',
+    params: {
+      cursor: params.cursor,
+      size: params.size || 20
+    }
+  })
+}
+
+// 按关键词搜索订单（订单号、客户、联系人、商品名称），结果按相关度排序
+export function searchOrders(keyword, params = { page: 0, size: 10 }) {
+  return request({
+    url: '/api/customer-order/search',
+    method: 'get',
+    params: {
+      q: keyword,
+      type: params.type,
+      page: params.page || 0,
+      size: params.size || 10
+    }
+  })
+}
+
+// 导出订单及明细，返回文件Blob；format 为 csv 或 xlsx，日期格式 yyyy-MM-dd
+export function exportOrders(params = {}) {
+  return request({
+    url: '/api/customer-order/export',
+    method: 'get',
+    params: {
+      type: params.type,
+      startDate: params.startDate,
+      endDate: params.endDate,
+      format: params.format || 'csv'
+    },
+    responseType: 'blob',
+    timeout: 0 // 大数据量导出不设超时
+  })
+}
+
 // 统一的API调用接口
 export function useOrderApi() {
   return {
@@ -57,7 +57,8 @@ CREATE TABLE IF NOT EXISTS orders (
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     FOREIGN KEY (operator_id) REFERENCES users(id) ON DELETE SET NULL,
     UNIQUE KEY `idx_order_no` (order_no),
-    INDEX `idx_created_at` (created_at)
+    INDEX `idx_created_at` (created_at),
+    INDEX `idx_type_created` (order_type, created_at, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单表';
 
 -- 订单商品表
@@ -90,7 +91,8 @@ CREATE TABLE IF NOT EXISTS inventory (
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX `idx_product_code` (product_code),
-    INDEX `idx_category` (category)
+    INDEX `idx_category` (category),
+    INDEX `idx_inventory_created` (created_at, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存表';
 
 -- 创建公司表
@@ -142,6 +144,146 @@ CREATE TABLE IF NOT EXISTS finance_record (
     INDEX `idx_record_type` (record_type)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='财务记录表'; 
 
+-- 创建编码号段表（订单号/商品编码按前缀分段分配）
+CREATE TABLE IF NOT EXISTS code_sequence (
+    prefix VARCHAR(20) PRIMARY KEY COMMENT '编码前缀，如 SO、PO、E、G',
+    max_value BIGINT NOT NULL DEFAULT 0 COMMENT '已分配出去的最大序号',
+    step INT NOT NULL DEFAULT 1000 COMMENT '每次领取的号段长度',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='编码号段表';
+
+-- 创建订单日汇总表（按日期、订单类型、商品、客户汇总已完成订单）
+CREATE TABLE IF NOT EXISTS order_daily_rollup (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '汇总ID',
+    stat_date DATE NOT NULL COMMENT '统计日期（下单日期）',
+    order_type VARCHAR(20) NOT NULL COMMENT '订单类型：SALE/PURCHASE',
+    goods_id BIGINT NOT NULL COMMENT '商品ID',
+    product_name VARCHAR(255) COMMENT '商品名称',
+    customer_name VARCHAR(255) NOT NULL DEFAULT '' COMMENT '客户名称',
+    order_count INT NOT NULL DEFAULT 0 COMMENT '订单数（只计在订单第一条明细上）',
+    quantity INT NOT NULL DEFAULT 0 COMMENT '数量',
+    amount DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '金额',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY `uk_rollup_key` (stat_date, order_type, goods_id, customer_name),
+    INDEX `idx_rollup_type_date` (order_type, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单日汇总表';
+
+-- 创建订单搜索文档表（ngram 全文索引，支持中文子串检索）
+CREATE TABLE IF NOT EXISTS order_search_doc (
+    order_id BIGINT PRIMARY KEY COMMENT '订单ID',
+    order_no VARCHAR(255) COMMENT '订单编号',
+    order_type VARCHAR(20) COMMENT '订单类型：SALE/PURCHASE',
+    customer_name VARCHAR(255) COMMENT '客户名称',
+    contact_person VARCHAR(255) COMMENT '联系人',
+    product_names VARCHAR(2000) COMMENT '商品名称（空格分隔）',
+    amount FLOAT COMMENT '订单金额',
+    status VARCHAR(20) COMMENT '订单状态',
+    created_at DATETIME COMMENT '下单时间',
+    search_text TEXT COMMENT '检索文本',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    INDEX `idx_search_type_created` (order_type, created_at),
+    FULLTEXT INDEX `ft_order_search` (search_text) WITH PARSER ngram
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单搜索文档表';
+
+-- 创建订单确认发件箱表（确认事务内写入，后台异步生成财务记录）
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '发件箱ID',
+    order_id BIGINT NOT NULL COMMENT '订单ID',
+    order_no VARCHAR(255) NOT NULL COMMENT '订单编号',
+    order_type VARCHAR(20) COMMENT '订单类型：SALE/PURCHASE',
+    amount DECIMAL(12,2) COMMENT '订单金额',
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态：PENDING/DONE/DEAD',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已投递次数',
+    next_attempt_at DATETIME COMMENT '下次可投递时间',
+    last_error VARCHAR(1000) COMMENT '最近一次失败原因',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间（订单确认时间）',
+    processed_at DATETIME COMMENT '处理完成时间',
+    INDEX `idx_outbox_status_next` (status, next_attempt_at, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单确认发件箱表';
+
+-- 创建订单归档表（已完成/已取消且超过保留期的订单由后台定时移入，保留原订单ID）
+CREATE TABLE IF NOT EXISTS orders_archive (
+    id BIGINT PRIMARY KEY COMMENT '原订单ID',
+    order_no VARCHAR(50) NOT NULL COMMENT '订单编号',
+    order_type VARCHAR(20) NOT NULL COMMENT '订单类型：PURCHASE-采购订单，SALE-销售订单',
+    customer_name VARCHAR(100) COMMENT '客户名称',
+    contact_person VARCHAR(50) COMMENT '联系人',
+    tel VARCHAR(20) COMMENT '联系电话',
+    address VARCHAR(255) COMMENT '地址',
+    delivery_time DATETIME COMMENT '交付时间',
+    amount DECIMAL(10,2) DEFAULT 0 COMMENT '订单金额',
+    freight DECIMAL(10,2) DEFAULT 0 COMMENT '运费',
+    operator_id BIGINT COMMENT '操作员ID',
+    status VARCHAR(20) COMMENT '订单状态：COMPLETED-已完成，CANCELLED-已取消',
+    remarks TEXT COMMENT '备注',
+    created_at DATETIME COMMENT '创建时间',
+    updated_at DATETIME COMMENT '更新时间',
+    archived_at DATETIME COMMENT '归档时间',
+    INDEX `idx_archive_order_no` (order_no),
+    INDEX `idx_archive_type_created` (order_type, created_at, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单归档表';
+
+-- 创建订单商品归档表
+CREATE TABLE IF NOT EXISTS order_goods_archive (
+    id BIGINT PRIMARY KEY COMMENT '原明细ID',
+    order_id BIGINT NOT NULL COMMENT '订单ID',
+    goods_id BIGINT COMMENT '商品ID',
+    quantity INT NOT NULL DEFAULT 0 COMMENT '数量',
+    unit_price DECIMAL(10,2) COMMENT '单价',
+    total_price DECIMAL(10,2) COMMENT '总价',
+    created_at DATETIME COMMENT '创建时间',
+    updated_at DATETIME COMMENT '更新时间',
+    INDEX `idx_goods_archive_order_id` (order_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单商品归档表';
+
+-- 创建库存流水表（只追加，每次库存数量变动一行）
+CREATE TABLE IF NOT EXISTS stock_movement (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '流水ID',
+    inventory_id BIGINT NOT NULL COMMENT '库存ID',
+    product_name VARCHAR(255) COMMENT '商品名称',
+    delta INT NOT NULL COMMENT '数量变动：正数入库，负数出库',
+    reason VARCHAR(20) NOT NULL COMMENT '变动原因：CREATE/STOCK_IN/STOCK_OUT/PURCHASE_ORDER/SALE_ORDER/BULK/ADJUST/DELETE',
+    order_id BIGINT COMMENT '关联订单ID',
+    created_at DATETIME NOT NULL COMMENT '变动时间',
+    INDEX `idx_movement_inventory_time` (inventory_id, created_at, id),
+    INDEX `idx_movement_order` (order_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存流水表';
+
+-- 创建库存快照表（定时按流水生成，查询历史库存时只读最近快照之后的流水）
+CREATE TABLE IF NOT EXISTS stock_snapshot (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '快照ID',
+    inventory_id BIGINT NOT NULL COMMENT '库存ID',
+    quantity INT NOT NULL COMMENT '截至快照时间（含）的库存数量',
+    snapshot_at DATETIME NOT NULL COMMENT '快照时间',
+    UNIQUE KEY `uk_snapshot_inventory_time` (inventory_id, snapshot_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存快照表';
+
+-- 创建库存预留表（销售订单创建时预留，确认时转为出库，删除订单或超时后释放）
+CREATE TABLE IF NOT EXISTS stock_reservation (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '预留ID',
+    order_id BIGINT NOT NULL COMMENT '订单ID',
+    goods_id BIGINT NOT NULL COMMENT '商品ID',
+    quantity INT NOT NULL COMMENT '预留数量',
+    status VARCHAR(20) NOT NULL COMMENT '状态：ACTIVE/CONSUMED/RELEASED/EXPIRED',
+    expires_at DATETIME NOT NULL COMMENT '过期时间',
+    created_at DATETIME NOT NULL COMMENT '创建时间',
+    INDEX `idx_reservation_order` (order_id),
+    INDEX `idx_reservation_status_expires` (status, expires_at),
+    INDEX `idx_reservation_goods_status` (goods_id, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存预留表';
+
+-- 创建财务日汇总表（财务记录增删改时增量维护，区间统计按天累加）
+CREATE TABLE IF NOT EXISTS finance_daily_summary (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '汇总ID',
+    stat_date DATE NOT NULL COMMENT '统计日期（记录日期）',
+    income DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '收入合计',
+    expense DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '支出合计',
+    profit DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '利润合计',
+    record_count INT NOT NULL DEFAULT 0 COMMENT '记录条数',
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY `uk_finance_summary_date` (stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='财务日汇总表';
+
 -- 初始化管理员账户
 INSERT INTO users (username, password, tel, email, role, status, created_at, updated_at)
 VALUES ('admin', '$2a$10$oZUahFN8H9T8RbCtq3cRH.UI/HyWupN8drIgO78kOed20.6EQbC52', '13800000000', 'admin@daacooerp.com', 'admin', 1, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
@@ -151,4 +293,60 @@ updated_at = CURRENT_TIMESTAMP;
 
 -- 注意：密码为 'admin123'，使用BCrypt加密
 ALTER TABLE `users`
-  ADD COLUMN `avatar` VARCHAR(255) NULL COMMENT '头像 URL';
\ No newline at end of file
+  ADD COLUMN `avatar` VARCHAR(255) NULL COMMENT '头像 URL';
+
+-- 财务记录来源订单号，订单确认生成的记录按此去重
+ALTER TABLE `finance_record`
+  ADD COLUMN `source_order_no` VARCHAR(255) NULL COMMENT '来源订单号',
+  ADD UNIQUE KEY `uk_finance_source_order` (source_order_no);
+
+-- 库存按商品名称唯一（每个商品只有一行库存、一个库存位置，不支持同一商品分库位存放），
+-- 采购入库按此唯一键原子累加；先合并历史重复记录再加唯一键。
+-- 合并前把重复组的所有行（含保留行）原样复制到 inventory_merge_backup，
+-- 被删除行的位置、单价、分类、预警阈值等可据此核对和恢复；merged_into_id 为合并后保留的行
+CREATE TABLE IF NOT EXISTS inventory_merge_backup AS
+SELECT i.*, d.keep_id AS merged_into_id, CURRENT_TIMESTAMP AS backed_up_at FROM inventory i
+  JOIN (SELECT product_name, MIN(id) AS keep_id FROM inventory
+        GROUP BY product_name HAVING COUNT(*) > 1) d ON i.product_name = d.product_name;
+UPDATE inventory i
+  JOIN (SELECT MIN(id) AS keep_id, SUM(quantity) AS total FROM inventory
+        GROUP BY product_name HAVING COUNT(*) > 1) d ON i.id = d.keep_id
+  SET i.quantity = d.total;
+DELETE i FROM inventory i
+  JOIN (SELECT product_name, MIN(id) AS keep_id FROM inventory
+        GROUP BY product_name HAVING COUNT(*) > 1) d ON i.product_name = d.product_name AND i.id <> d.keep_id;
+ALTER TABLE `inventory`
+  ADD UNIQUE KEY `uk_inventory_product_name` (product_name);
+
+-- 创建订单时按名称批量解析商品
+ALTER TABLE `goods`
+  ADD INDEX `idx_goods_name` (name);
+
+-- 低库存标记：生成列 + 索引，按索引直接查询低库存商品，无需逐行计算
+ALTER TABLE `inventory`
+  ADD COLUMN `low_stock` TINYINT(1) AS (quantity <= warning_threshold) STORED COMMENT '是否低库存（库存数量不高于预警阈值）',
+  ADD INDEX `idx_inventory_low_stock` (low_stock, quantity);
+
+-- 库存期初快照：已有库存没有流水，以当前数量作为流水起点
+INSERT INTO stock_snapshot (inventory_id, quantity, snapshot_at)
+SELECT id, COALESCE(quantity, 0), CURRENT_TIMESTAMP FROM inventory
+WHERE NOT EXISTS (SELECT 1 FROM stock_snapshot);
+
+-- 库存按外键关联商品：库存数量只保存在 inventory 表，商品库存改为读取时派生
+ALTER TABLE `inventory`
+  ADD COLUMN `goods_id` BIGINT NULL COMMENT '商品ID' AFTER `id`,
+  ADD UNIQUE KEY `uk_inventory_goods` (goods_id),
+  ADD CONSTRAINT `fk_inventory_goods` FOREIGN KEY (goods_id) REFERENCES goods (id) ON DELETE SET NULL;
+UPDATE inventory i
+  JOIN (SELECT name, MIN(id) AS goods_id FROM goods GROUP BY name) g ON g.name = i.product_name
+  SET i.goods_id = g.goods_id;
+ALTER TABLE `goods` DROP COLUMN `stock`;
+
+-- 库存预留数量：由应用按内存计数批量回写，可承诺量 = quantity - reserved_quantity
+ALTER TABLE `inventory`
+  ADD COLUMN `reserved_quantity` INT NOT NULL DEFAULT 0 COMMENT '未过期的销售预留数量' AFTER `quantity`;
+
+-- 财务按月汇总只读覆盖索引，不回表；原 record_date 单列索引是其前缀，一并替换
+ALTER TABLE `finance_record`
+  DROP INDEX `idx_record_date`,
+  ADD INDEX `idx_finance_date_amounts` (record_date, income, expense, profit);
@@ -10,6 +10,8 @@ import java.util.Random;
 public class CodeGenerator {
     
     private static final Random random = new Random();
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
     
     /**
      * 生成商品编码
@@ -17,7 +19,7 @@ public class CodeGenerator {
      * 例：P20241125001234
      */
     public static String generateProductCode() {
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        String dateStr = LocalDateTime.now().format(DATE_FORMATTER);
         String randomStr = String.format("%04d", random.nextInt(10000));
         return "P" + dateStr + randomStr;
     }
@@ -28,7 +30,7 @@ public class CodeGenerator {
      */
     public static String generateProductCodeByCategory(String category) {
         String prefix = getCategoryPrefix(category);
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        String dateStr = LocalDateTime.now().format(DATE_FORMATTER);
         String randomStr = String.format("%04d", random.nextInt(10000));
         return prefix + dateStr + randomStr;
     }
@@ -36,7 +38,7 @@ public class CodeGenerator {
     /**
      * 根据分类获取前缀
      */
-    private static String getCategoryPrefix(String category) {
+    public static String getCategoryPrefix(String category) {
         if (category == null || category.trim().isEmpty()) {
             return "P"; // 默认前缀
         }
@@ -83,7 +85,7 @@ public class CodeGenerator {
      */
     public static String generateOrderCode(String orderType) {
         String prefix = "sales".equalsIgnoreCase(orderType) ? "SO" : "PO";
-        String dateStr = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        String dateStr = LocalDateTime.now().format(DATE_FORMATTER);
         String randomStr = String.format("%06d", random.nextInt(1000000));
         return prefix + dateStr + randomStr;
     }
@@ -0,0 +1,86 @@
+package com.daacooerp.erp.common;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 键集分页结果
+ * 不执行COUNT查询，只返回当前页数据和下一页游标
+ */
+public class CursorPage<T> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** 单页最大条数 */
+    public static final int MAX_SIZE = 200;
+
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasMore;
+    private int size;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> content, String nextCursor, boolean hasMore, int size) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.size = size;
+    }
+
+    /**
+     * 根据多取一条的查询结果构建分页：结果数超过size说明还有下一页
+     * @param rows 按排序键查询的size+1条结果
+     * @param size 每页大小
+     * @param cursorOf 根据当前页最后一条记录生成下一页游标
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, SeekCursor> cursorOf) {
+        boolean hasMore = rows.size() > size;
+        List<T> content = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? cursorOf.apply(content.get(content.size() - 1)).encode() : null;
+        return new CursorPage<>(content, nextCursor, hasMore, size);
+    }
+
+    /**
+     * 把请求的每页大小限制在 [1, MAX_SIZE] 之间
+     */
+    public static int clampSize(Integer size) {
+        if (size == null || size < 1) {
+            return 1;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,33 @@
+package com.daacooerp.erp.common;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 导出下载响应：按格式设置内容类型和附件文件名，响应体边查边写
+ */
+public class ExportResponse {
+
+    private static final MediaType XLSX =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private ExportResponse() {
+    }
+
+    public static ResponseEntity<StreamingResponseBody> of(String fileName, String format, StreamingResponseBody body) {
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(fileName + "." + format, StandardCharsets.UTF_8)
+                .build();
+        return ResponseEntity.ok()
+                .contentType("xlsx".equals(format) ? XLSX : CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,143 @@
+package com.daacooerp.erp.common;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 进程内有界缓存：按最近使用淘汰（LRU），条目写入后经过 ttlMillis 过期。
+ * 用于缓存可以从数据库重新得到的结果；数据变动时由调用方失效（通常在事务提交后的事件中），
+ * 多实例部署时其他实例的变动不会通知到本地，过期时间是唯一的兜底，应按可接受的陈旧时间设置。
+ * 加载在锁外执行；加载期间发生过任何失效时，结果只返回给本次调用而不写入缓存，避免旧值覆盖失效。
+ * 加载结果为 null 时不缓存；ttlMillis 为 0 时不缓存任何结果。
+ */
+public class LocalCache<K, V> {
+
+    private final int maxSize;
+
+    private final long ttlMillis;
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private long generation;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    public LocalCache(int maxSize, long ttlMillis) {
+        this.maxSize = Math.max(maxSize, 1);
+        this.ttlMillis = Math.max(ttlMillis, 0);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > LocalCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 读取未过期的条目；未命中时通过 loader 加载并放入缓存
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                hits++;
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        V value = loader.apply(key);
+        if (value != null) {
+            synchronized (this) {
+                if (loadGeneration == generation && ttlMillis > 0) {
+                    entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 未过期的条目，不存在时返回 null，不计入命中统计
+     */
+    public synchronized V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && entry.expiresAt > System.currentTimeMillis() ? entry.value : null;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (entries.remove(key) != null) {
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidateAll(Collection<? extends K> keys) {
+        generation++;
+        for (K key : keys) {
+            if (entries.remove(key) != null) {
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * 失效值满足条件的条目（如按用户ID失效，键已变化时使用）
+     */
+    public synchronized void invalidateIf(Predicate<? super V> predicate) {
+        generation++;
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (predicate.test(iterator.next().value)) {
+                iterator.remove();
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 命中统计：hits, misses, evictions（主动失效的条目数）, size
+     */
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("size", (long) entries.size());
+        return stats;
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.daacooerp.erp.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 键集分页游标
+ * 由排序键和主键ID组成，对外编码为不透明的URL安全Base64字符串
+ */
+public class SeekCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final String key;
+    private final long id;
+
+    private SeekCursor(String key, long id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    public static SeekCursor of(LocalDateTime key, Long id) {
+        return new SeekCursor(key.toString(), id);
+    }
+
+    public static SeekCursor of(LocalDate key, Long id) {
+        return new SeekCursor(key.toString(), id);
+    }
+
+    /**
+     * 编码为不透明游标字符串
+     */
+    public String encode() {
+        String raw = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标字符串，空字符串返回null（表示第一页）
+     * @throws IllegalArgumentException 游标格式无效
+     */
+    public static SeekCursor decode(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            if (index <= 0) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new SeekCursor(raw.substring(0, index), Long.parseLong(raw.substring(index + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
+    public LocalDateTime getDateTimeKey() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
+    public LocalDate getDateKey() {
+        try {
+            return LocalDate.parse(key);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,201 @@
+package com.daacooerp.erp.common;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段（hi/lo）编码分配器
+ * 每个前缀从数据库序列表一次领取一段号码 [start, end)，段内取号只做一次 CAS 自增，
+ * 不加锁、不创建对象；剩余不足 20% 时异步预取下一段，用完后直接切换（双缓冲）。
+ * 不同节点领取的号段互不重叠，因此同一前缀的序号在集群内全局唯一。
+ * 编码格式：前缀 + yyyyMMdd + 至少6位序号，例：SO20241125000123
+ */
+public class SegmentCodeAllocator {
+
+    /**
+     * 号段加载器：为指定前缀原子地领取下一段号码
+     */
+    public interface SegmentLoader {
+        Segment load(String prefix);
+    }
+
+    /**
+     * 一个号段，包含 start，不包含 end
+     */
+    public static final class Segment {
+        private final long start;
+        private final long end;
+        private final AtomicLong cursor;
+
+        public Segment(long start, long end) {
+            if (end <= start) {
+                throw new IllegalArgumentException("号段范围无效: [" + start + ", " + end + ")");
+            }
+            this.start = start;
+            this.end = end;
+            this.cursor = new AtomicLong(start);
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        long remaining() {
+            return end - cursor.get();
+        }
+    }
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final int MIN_SEQ_DIGITS = 6;
+    private static final int PREFETCH_PERCENT = 20;
+
+    private final SegmentLoader loader;
+    private final Executor prefetchExecutor;
+    private final ZoneId zone;
+    private final ConcurrentHashMap<String, Buffer> buffers = new ConcurrentHashMap<>();
+
+    // 日期部分按天缓存，跨天时才重新格式化
+    private volatile DayStamp dayStamp;
+
+    public SegmentCodeAllocator(SegmentLoader loader, Executor prefetchExecutor) {
+        this(loader, prefetchExecutor, ZoneId.systemDefault());
+    }
+
+    public SegmentCodeAllocator(SegmentLoader loader, Executor prefetchExecutor, ZoneId zone) {
+        this.loader = loader;
+        this.prefetchExecutor = prefetchExecutor;
+        this.zone = zone;
+        this.dayStamp = DayStamp.of(LocalDate.now(zone), zone);
+    }
+
+    /**
+     * 取指定前缀的下一个序号
+     */
+    public long next(String prefix) {
+        Buffer buffer = buffers.get(prefix);
+        if (buffer == null) {
+            buffer = buffers.computeIfAbsent(prefix, Buffer::new);
+        }
+        while (true) {
+            Segment segment = buffer.current;
+            if (segment != null) {
+                long value = segment.cursor.getAndIncrement();
+                if (value < segment.end) {
+                    if (segment.end - value <= buffer.prefetchThreshold) {
+                        prefetch(buffer, segment);
+                    }
+                    return value;
+                }
+            }
+            switchSegment(buffer, segment);
+        }
+    }
+
+    /**
+     * 取指定前缀的下一个完整编码
+     */
+    public String nextCode(String prefix) {
+        long seq = next(prefix);
+        String date = currentDate();
+        StringBuilder sb = new StringBuilder(prefix.length() + date.length() + 12);
+        sb.append(prefix).append(date);
+        int digits = digits(seq);
+        for (int i = digits; i < MIN_SEQ_DIGITS; i++) {
+            sb.append('0');
+        }
+        return sb.append(seq).toString();
+    }
+
+    private void prefetch(Buffer buffer, Segment segment) {
+        if (buffer.next != null || !buffer.loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    if (buffer.current == segment && buffer.next == null) {
+                        buffer.next = loader.load(buffer.prefix);
+                    }
+                } finally {
+                    buffer.loading.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 预取失败不影响当前号段，用完时会同步加载
+            buffer.loading.set(false);
+        }
+    }
+
+    private void switchSegment(Buffer buffer, Segment exhausted) {
+        synchronized (buffer) {
+            if (buffer.current != exhausted) {
+                return; // 其他线程已切换
+            }
+            Segment next = buffer.next;
+            if (next == null) {
+                next = loader.load(buffer.prefix);
+            }
+            buffer.next = null;
+            buffer.prefetchThreshold = Math.max(1, (next.end - next.start) * PREFETCH_PERCENT / 100);
+            buffer.current = next;
+        }
+    }
+
+    private String currentDate() {
+        DayStamp stamp = dayStamp;
+        long now = System.currentTimeMillis();
+        if (now >= stamp.nextDayMillis || now < stamp.dayStartMillis) {
+            stamp = DayStamp.of(LocalDate.now(zone), zone);
+            dayStamp = stamp;
+        }
+        return stamp.text;
+    }
+
+    private static int digits(long value) {
+        int n = 1;
+        while (value >= 10) {
+            value /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    private static final class Buffer {
+        private final String prefix;
+        private final AtomicBoolean loading = new AtomicBoolean(false);
+        private volatile Segment current;
+        private volatile Segment next;
+        private volatile long prefetchThreshold = 1;
+
+        Buffer(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private static final class DayStamp {
+        private final String text;
+        private final long dayStartMillis;
+        private final long nextDayMillis;
+
+        private DayStamp(String text, long dayStartMillis, long nextDayMillis) {
+            this.text = text;
+            this.dayStartMillis = dayStartMillis;
+            this.nextDayMillis = nextDayMillis;
+        }
+
+        static DayStamp of(LocalDate day, ZoneId zone) {
+            return new DayStamp(day.format(DATE_FORMATTER),
+                    day.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.daacooerp.erp.config;
 
-import com.daacooerp.erp.entity.User;
+import com.daacooerp.erp.service.PrincipalCache;
 import com.daacooerp.erp.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -20,6 +20,9 @@ public class JwtInterceptor implements HandlerInterceptor {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         String requestURI = request.getRequestURI();
@@ -46,18 +49,18 @@ public class JwtInterceptor implements HandlerInterceptor {
                     System.out.println("👤 从token中解析的用户名: " + username);
                     
                     if (username != null && !username.trim().isEmpty()) {
-                        // 验证用户是否存在于数据库中
-                        Optional<User> userOpt = userService.findByUsername(username);
-                        System.out.println("🔍 数据库中查找用户结果: " + (userOpt.isPresent() ? "找到" : "未找到"));
+                        // 验证用户是否存在且启用（先查认证缓存，未命中再查数据库）
+                        Optional<PrincipalCache.Principal> userOpt = principalCache.get(username, userService::findByUsername);
+                        System.out.println("🔍 查找用户结果: " + (userOpt.isPresent() ? "找到" : "未找到"));
                         
                         if (userOpt.isPresent()) {
-                            User user = userOpt.get();
-                            System.out.println("👤 用户状态: " + (user.getStatus() ? "活跃" : "禁用"));
+                            PrincipalCache.Principal user = userOpt.get();
+                            System.out.println("👤 用户状态: " + (user.isActive() ? "活跃" : "禁用"));
                             
-                            if (user.getStatus()) {
+                            if (user.isActive()) {
                                 // 设置用户信息到请求属性中
                                 request.setAttribute("username", username);
-                                request.setAttribute("userId", user.getId());
+                                request.setAttribute("userId", user.getUserId());
                                 System.out.println("✅ JWT认证成功，允许访问");
                                 return true;
                             } else {
@@ -3,6 +3,7 @@ package com.daacooerp.erp.controller;
 import com.daacooerp.erp.common.Result;
 import com.daacooerp.erp.config.JwtConfig;
 import com.daacooerp.erp.entity.User;
+import com.daacooerp.erp.service.PrincipalCache;
 import com.daacooerp.erp.service.UserService;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpServletRequest;
@@ -29,6 +30,9 @@ public class AuthController {
     @Autowired
     private JwtConfig jwtConfig;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
     @Autowired
     private ServletContext servletContext;
 
@@ -209,6 +213,47 @@ public class AuthController {
         return Result.success("注销成功");
     }
     
+    // 启用或禁用用户（仅管理员），请求体 {"status": true|false}；禁用后该用户下一次请求即被拒绝
+    @PutMapping("/users/{id}/status")
+    public Result<Void> updateUserStatus(@PathVariable Long id, @RequestBody Map<String, Boolean> statusRequest,
+                                         HttpServletRequest request) {
+        try {
+            if (!isAdmin(request)) {
+                return Result.error(403, "仅管理员可以启用或禁用用户");
+            }
+            Boolean status = statusRequest.get("status");
+            if (status == null) {
+                return Result.error(400, "status 不能为空");
+            }
+            Optional<User> userOpt = userService.findById(id);
+            if (userOpt.isEmpty()) {
+                return Result.error(404, "用户不存在");
+            }
+            if (!status && userOpt.get().getUsername().equals(request.getAttribute("username"))) {
+                return Result.error(400, "不能禁用当前登录的用户");
+            }
+            userService.updateStatus(userOpt.get(), status);
+            return Result.success(status ? "用户已启用" : "用户已禁用");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "更新用户状态失败: " + e.getMessage());
+        }
+    }
+    
+    // 认证缓存命中统计（仅管理员）：hits、misses、evictions、size
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Long>> getPrincipalCacheStats(HttpServletRequest request) {
+        try {
+            if (!isAdmin(request)) {
+                return Result.error(403, "仅管理员可以查看认证缓存统计");
+            }
+            return Result.success(principalCache.getStats());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "获取认证缓存统计失败: " + e.getMessage());
+        }
+    }
+    
     @PostMapping("/register")
     public Result<Void> register(@RequestBody Map<String, String> registerRequest) {
         try {
@@ -250,4 +295,14 @@ public class AuthController {
             return Result.error(500, "注册失败：" + e.getMessage());
         }
     }
+
+    /**
+     * 当前请求用户（由JWT拦截器设置）是否为管理员
+     */
+    private boolean isAdmin(HttpServletRequest request) {
+        String username = (String) request.getAttribute("username");
+        return username != null && userService.findByUsername(username)
+                .map(user -> "admin".equalsIgnoreCase(user.getRole()))
+                .orElse(false);
+    }
 }
\ No newline at end of file
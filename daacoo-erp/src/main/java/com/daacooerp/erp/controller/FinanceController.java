@@ -1,15 +1,31 @@
 package com.daacooerp.erp.controller;
 
+import com.daacooerp.erp.common.CursorPage;
+import com.daacooerp.erp.common.ExportResponse;
 import com.daacooerp.erp.common.Result;
+import com.daacooerp.erp.dto.FinanceImportJob;
 import com.daacooerp.erp.entity.Finance;
 import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.entity.OrderOutbox;
+import com.daacooerp.erp.service.ExportService;
+import com.daacooerp.erp.service.FinanceCompareService;
+import com.daacooerp.erp.service.FinanceImportService;
+import com.daacooerp.erp.service.FinancePrefixSumIndex;
+import com.daacooerp.erp.service.FinanceSeriesService;
 import com.daacooerp.erp.service.FinanceService;
+import com.daacooerp.erp.service.FinanceSummaryService;
+import com.daacooerp.erp.service.OrderOutboxService;
+import com.daacooerp.erp.service.OrderRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -23,6 +39,67 @@ public class FinanceController {
     @Autowired
     private FinanceService financeService;
 
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private OrderOutboxService orderOutboxService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private FinanceCompareService financeCompareService;
+
+    @Autowired
+    private FinanceImportService financeImportService;
+
+    @Autowired
+    private FinancePrefixSumIndex financePrefixSumIndex;
+
+    @Autowired
+    private FinanceSeriesService financeSeriesService;
+
+    // 多年度对比，如 ?years=2022,2023,2024：各年份并行计算，已结束年份读缓存
+    @GetMapping("/compare")
+    public Result<Map<String, Object>> compareYears(@RequestParam List<Integer> years) {
+        try {
+            return Result.success(financeCompareService.compare(years));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "获取多年度财务数据失败: " + e.getMessage());
+        }
+    }
+
+    // 滚动窗口合计，如 ?windows=7,30,90&end=2024-06-30（默认近7/30/90天，截至今天），由前缀和索引计算
+    @GetMapping("/rolling")
+    public Result<Map<String, Object>> getRollingWindows(
+            @RequestParam(defaultValue = "7,30,90") List<Integer> windows,
+            @RequestParam(required = false) String end) {
+        try {
+            if (windows.isEmpty() || windows.size() > 10) {
+                return Result.error(400, "窗口数量应为 1 到 10 个");
+            }
+            for (Integer window : windows) {
+                if (window == null || window < 1 || window > 3660) {
+                    return Result.error(400, "窗口天数应在 1 到 3660 之间");
+                }
+            }
+            java.time.LocalDate endDate = end != null ? java.time.LocalDate.parse(end) : java.time.LocalDate.now();
+            Map<String, Object> result = new HashMap<>();
+            result.put("end", endDate);
+            result.put("windows", financePrefixSumIndex.getRollingWindows(endDate, windows));
+            return Result.success(result);
+        } catch (java.time.format.DateTimeParseException e) {
+            return Result.error(400, "日期格式应为 yyyy-MM-dd");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "获取滚动窗口财务数据失败: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{year}")
     public Result<Finance> getFinanceByYear(@PathVariable Integer year) {
         try {
@@ -117,10 +194,14 @@ public class FinanceController {
         }
     }
     
+    // 不传 bucket、maxPoints 时返回区间内的明细记录；
+    // 传入时返回按 day/week/month 分桶的图表序列（来自日汇总表），maxPoints 限制点数并用 LTTB 降采样
     @GetMapping("/data")
     public Result<List<Map<String, Object>>> getFinanceData(
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String bucket,
+            @RequestParam(required = false) Integer maxPoints) {
         try {
             Date start = parseDate(startDate);
             Date end = parseDate(endDate);
@@ -134,7 +215,12 @@ public class FinanceController {
             if (end == null) {
                 end = new Date();
             }
-            
+
+            if (bucket != null || maxPoints != null) {
+                return Result.success(financeSeriesService.getSeries(FinanceSummaryService.toLocalDate(start),
+                        FinanceSummaryService.toLocalDate(end), bucket, maxPoints));
+            }
+
             // 获取财务记录
             List<FinanceRecord> records = financeService.getFinanceRecords(start, end);
             
@@ -155,12 +241,44 @@ public class FinanceController {
             }
             
             return Result.success(result);
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
         } catch (Exception e) {
             e.printStackTrace();
             return Result.error(500, "获取财务数据失败: " + e.getMessage());
         }
     }
     
+    // 键集分页获取财务记录，翻页时传入上一页返回的nextCursor
+    @GetMapping("/records/cursor")
+    public Result<CursorPage<FinanceRecord>> getFinanceRecordsByCursor(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") Integer size) {
+        try {
+            Date start = parseDate(startDate);
+            Date end = parseDate(endDate);
+            
+            if (start == null) {
+                Calendar cal = Calendar.getInstance();
+                cal.add(Calendar.YEAR, -1); // 默认查询最近一年
+                start = cal.getTime();
+            }
+            
+            if (end == null) {
+                end = new Date();
+            }
+            
+            return Result.success(financeService.getFinanceRecordsByCursor(start, end, cursor, CursorPage.clampSize(size)));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "获取财务记录失败: " + e.getMessage());
+        }
+    }
+    
     // 创建财务记录
     @PostMapping
     public Result<FinanceRecord> createFinanceRecord(@RequestBody FinanceRecord record) {
@@ -173,6 +291,31 @@ public class FinanceController {
         }
     }
     
+    // 导入财务记录（csv/xlsx），后台逐行解析并分批写入，返回任务ID用于查询进度
+    @PostMapping("/import")
+    public Result<FinanceImportJob> importFinanceRecords(@RequestParam("file") MultipartFile file,
+                                                         HttpServletRequest request) {
+        try {
+            String username = (String) request.getAttribute("username");
+            return Result.success(financeImportService.submit(file, username));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "提交导入任务失败: " + e.getMessage());
+        }
+    }
+    
+    // 查询导入任务进度和行级错误
+    @GetMapping("/import/{jobId}")
+    public Result<FinanceImportJob> getImportJob(@PathVariable String jobId) {
+        FinanceImportJob job = financeImportService.getJob(jobId);
+        if (job == null) {
+            return Result.error(404, "导入任务不存在或已过期: " + jobId);
+        }
+        return Result.success(job);
+    }
+    
     // 更新财务记录
     @PutMapping("/{id}")
     public Result<FinanceRecord> updateFinanceRecord(
@@ -199,6 +342,85 @@ public class FinanceController {
         }
     }
     
+    /**
+     * 导出财务记录（csv/xlsx），按记录日期筛选，默认导出本年度
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFinanceRecords(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "csv") String format) {
+        String normalizedFormat = ExportService.normalizeFormat(format);
+        java.time.LocalDate from = startDate != null ? java.time.LocalDate.parse(startDate) : java.time.LocalDate.now().withDayOfYear(1);
+        java.time.LocalDate to = endDate != null ? java.time.LocalDate.parse(endDate) : java.time.LocalDate.now();
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("开始日期不能晚于结束日期");
+        }
+        return ExportResponse.of("finance-records-" + from + "-" + to, normalizedFormat,
+                out -> exportService.exportFinanceRecords(from, to, normalizedFormat, out));
+    }
+
+    // 重建订单日汇总（不传日期则全量重建），用于回填历史数据或修复统计
+    @PostMapping("/rollup/rebuild")
+    public Result<Map<String, Object>> rebuildOrderRollup(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        try {
+            int rows;
+            if (startDate == null && endDate == null) {
+                rows = orderRollupService.rebuildAll();
+            } else {
+                java.time.LocalDate from = startDate != null ? java.time.LocalDate.parse(startDate) : java.time.LocalDate.parse(endDate);
+                java.time.LocalDate to = endDate != null ? java.time.LocalDate.parse(endDate) : java.time.LocalDate.now();
+                rows = orderRollupService.rebuild(from, to);
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("rows", rows);
+            return Result.success(result);
+        } catch (java.time.format.DateTimeParseException e) {
+            return Result.error(400, "日期格式应为 yyyy-MM-dd");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "重建订单汇总失败: " + e.getMessage());
+        }
+    }
+    
+    // 订单确认发件箱各状态数量
+    @GetMapping("/outbox/stats")
+    public Result<Map<String, Long>> getOutboxStats() {
+        try {
+            return Result.success(orderOutboxService.getStatusCounts());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "获取发件箱状态失败: " + e.getMessage());
+        }
+    }
+    
+    // 发件箱死信列表（超过重试次数仍未生成财务记录的订单确认事件）
+    @GetMapping("/outbox/dead")
+    public Result<Page<OrderOutbox>> getOutboxDeadLetters(
+            @RequestParam(defaultValue = "0") Integer page,
+            @RequestParam(defaultValue = "20") Integer size) {
+        try {
+            return Result.success(orderOutboxService.getDeadLetters(page, size));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "获取发件箱死信失败: " + e.getMessage());
+        }
+    }
+    
+    // 死信重新入队
+    @PostMapping("/outbox/{id}/retry")
+    public Result<Void> retryOutboxDeadLetter(@PathVariable Long id) {
+        try {
+            orderOutboxService.retryDeadLetter(id);
+            return Result.success();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "重新投递失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 解析日期字符串
      */
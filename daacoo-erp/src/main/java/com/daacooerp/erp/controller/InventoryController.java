@@ -1,11 +1,33 @@
 package com.daacooerp.erp.controller;
 
+import com.daacooerp.erp.common.CursorPage;
+import com.daacooerp.erp.common.ExportResponse;
 import com.daacooerp.erp.common.Result;
+import com.daacooerp.erp.dto.BulkStockRequest;
+import com.daacooerp.erp.dto.BulkStockResult;
+import com.daacooerp.erp.dto.LowStockItem;
+import com.daacooerp.erp.dto.ProductSuggestion;
 import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.entity.StockMovement;
+import com.daacooerp.erp.service.ExportService;
 import com.daacooerp.erp.service.InventoryService;
+import com.daacooerp.erp.service.InventoryValuationService;
+import com.daacooerp.erp.service.LowStockWatchlist;
+import com.daacooerp.erp.service.ProductSuggestIndex;
+import com.daacooerp.erp.service.StockLedgerService;
+import com.daacooerp.erp.service.StockReservationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/inventory")
@@ -16,6 +38,24 @@ public class InventoryController {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private LowStockWatchlist lowStockWatchlist;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private InventoryValuationService inventoryValuationService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
     /**
      * 获取库存列表
      */
@@ -57,6 +97,117 @@ public class InventoryController {
         }
     }
 
+    /**
+     * 导出全部库存（csv/xlsx）
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInventory(
+            @RequestParam(value = "format", defaultValue = "csv") String format) {
+        String normalizedFormat = ExportService.normalizeFormat(format);
+        log.info("接收到库存导出请求: format={}", normalizedFormat);
+        return ExportResponse.of("inventory-" + java.time.LocalDate.now(), normalizedFormat,
+                out -> exportService.exportInventory(normalizedFormat, out));
+    }
+
+    /**
+     * 键集分页获取库存列表，翻页时传入上一页返回的nextCursor
+     */
+    @GetMapping("/cursor")
+    public Result<CursorPage<Inventory>> getInventoryByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        try {
+            log.info("接收到键集分页库存请求: size={}", size);
+            return Result.success(inventoryService.getInventoryByCursor(cursor, CursorPage.clampSize(size)));
+        } catch (IllegalArgumentException e) {
+            log.warn("分页游标无效: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("获取库存列表失败: {}", e.getMessage(), e);
+            return Result.error("获取库存列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 低库存分页查询（库存数量不高于预警阈值），库存最少的排在前面
+     */
+    @GetMapping("/low-stock")
+    public Result<Page<Inventory>> getLowStockList(
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        try {
+            log.info("接收到低库存查询请求: page={}, size={}", page, size);
+            return Result.success(inventoryService.getLowStockList(Math.max(page, 0), CursorPage.clampSize(size)));
+        } catch (Exception e) {
+            log.error("获取低库存列表失败: {}", e.getMessage(), e);
+            return Result.error("获取低库存列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 当前内存低库存清单（看板首屏使用，之后订阅 /low-stock/stream 获取变化）
+     */
+    @GetMapping("/low-stock/watchlist")
+    public Result<java.util.List<LowStockItem>> getLowStockWatchlist() {
+        try {
+            return Result.success(lowStockWatchlist.getItems());
+        } catch (Exception e) {
+            log.error("获取低库存清单失败: {}", e.getMessage(), e);
+            return Result.error("获取低库存清单失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 低库存推送（Server-Sent Events）：连接后推送 snapshot 事件（完整清单），
+     * 之后库存进入、更新、移出低库存时推送 change 事件
+     */
+    @GetMapping(value = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLowStock() {
+        log.info("接收到低库存推送订阅请求");
+        return lowStockWatchlist.subscribe();
+    }
+
+    /**
+     * 库存估值报表：按分类、库位汇总库存数量与金额（数量 × 单价），库存变动后重新汇总
+     */
+    @GetMapping("/valuation")
+    public Result<Map<String, Object>> getValuation() {
+        try {
+            return Result.success(inventoryValuationService.getValuation());
+        } catch (Exception e) {
+            log.error("获取库存估值失败: {}", e.getMessage(), e);
+            return Result.error("获取库存估值失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 商品可承诺量：现存量、未过期的销售预留量、可承诺量（读内存计数）
+     */
+    @GetMapping("/available")
+    public Result<Map<String, Object>> getAvailability(@RequestParam("goodsId") Long goodsId) {
+        try {
+            return Result.success(stockReservationService.getAvailability(goodsId));
+        } catch (Exception e) {
+            log.error("查询可承诺量失败: {}", e.getMessage(), e);
+            return Result.error("查询可承诺量失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 商品自动补全：按名称、商品编码、拼音首字母前缀匹配，不足时补充包含匹配
+     */
+    @GetMapping("/suggest")
+    public Result<java.util.List<ProductSuggestion>> suggestProducts(
+            @RequestParam(value = "q", defaultValue = "") String q,
+            @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+        try {
+            return Result.success(productSuggestIndex.suggest(q, limit));
+        } catch (Exception e) {
+            log.error("商品自动补全失败: {}", e.getMessage(), e);
+            return Result.error("商品自动补全失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取所有商品名称列表（用于自动提示）
      */
@@ -113,6 +264,41 @@ public class InventoryController {
         }
     }
 
+    /**
+     * 库存流水分页查询，最新的在前
+     */
+    @GetMapping("/{id}/movements")
+    public Result<Page<StockMovement>> getMovements(
+            @PathVariable Long id,
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        try {
+            return Result.success(stockLedgerService.getMovements(id, Math.max(page, 0), CursorPage.clampSize(size)));
+        } catch (Exception e) {
+            log.error("获取库存流水失败: {}", e.getMessage(), e);
+            return Result.error("获取库存流水失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询指定时刻的库存数量（time 格式：yyyy-MM-ddTHH:mm:ss）
+     */
+    @GetMapping("/{id}/stock-at")
+    public Result<Map<String, Object>> getStockAt(
+            @PathVariable Long id,
+            @RequestParam("time") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time) {
+        try {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("inventoryId", id);
+            data.put("time", time);
+            data.put("quantity", stockLedgerService.getStockAt(id, time));
+            return Result.success(data);
+        } catch (Exception e) {
+            log.error("查询历史库存失败: {}", e.getMessage(), e);
+            return Result.error("查询历史库存失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 创建库存
      */
@@ -209,4 +395,30 @@ public class InventoryController {
         }
     }
 
+    /**
+     * 批量出入库：每行按库存ID或商品编码定位，delta 为正入库、为负出库，逐行返回结果
+     */
+    @PostMapping("/bulk-stock")
+    public Result<java.util.List<BulkStockResult>> bulkAdjustStock(@RequestBody BulkStockRequest request) {
+        try {
+            if (request == null || request.getLines() == null || request.getLines().isEmpty()) {
+                return Result.error("出入库明细不能为空");
+            }
+            if (request.getLines().size() > BulkStockRequest.MAX_LINES) {
+                return Result.error("单次最多提交 " + BulkStockRequest.MAX_LINES + " 行");
+            }
+            log.info("接收到批量出入库请求: mode={}, 行数={}", request.getMode(), request.getLines().size());
+            java.util.List<BulkStockResult> results = inventoryService.bulkAdjustStock(request);
+            long succeeded = results.stream().filter(BulkStockResult::isSuccess).count();
+            log.info("批量出入库完成: 成功 {}, 失败 {}", succeeded, results.size() - succeeded);
+            return Result.success(results);
+        } catch (IllegalArgumentException e) {
+            log.warn("批量出入库参数错误: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("批量出入库失败: {}", e.getMessage(), e);
+            return Result.error("批量出入库失败: " + e.getMessage());
+        }
+    }
+
 }
\ No newline at end of file
@@ -1,14 +1,25 @@
 package com.daacooerp.erp.controller;
 
+import com.daacooerp.erp.common.CursorPage;
+import com.daacooerp.erp.common.ExportResponse;
 import com.daacooerp.erp.common.Result;
+import com.daacooerp.erp.dto.BatchConfirmRequest;
+import com.daacooerp.erp.dto.BatchConfirmResult;
+import com.daacooerp.erp.dto.OrderSearchHit;
+import com.daacooerp.erp.dto.OrderSummary;
 import com.daacooerp.erp.entity.Order;
 import com.daacooerp.erp.entity.OrderGoods;
+import com.daacooerp.erp.service.ExportService;
+import com.daacooerp.erp.service.OrderSearchService;
 import com.daacooerp.erp.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -19,17 +30,23 @@ public class OrderController {
     
     @Autowired
     private OrderService orderService;
+
+    @Autowired
+    private OrderSearchService orderSearchService;
+
+    @Autowired
+    private ExportService exportService;
     
     /**
-     * 获取订单列表，支持分页
+     * 获取订单列表（摘要，不含商品明细），支持分页
      */
     @GetMapping("/list")
-    public Result<Page<Order>> getOrderList(
+    public Result<Page<OrderSummary>> getOrderList(
             @RequestParam(value = "page", defaultValue = "0") Integer page,
             @RequestParam(value = "size", defaultValue = "10") Integer size) {
         try {
             log.info("接收到获取订单列表请求: page={}, size={}", page, size);
-            Page<Order> orderPage = orderService.getOrderList(page, size);
+            Page<OrderSummary> orderPage = orderService.getOrderSummaries(page, size);
             log.info("成功返回订单列表，总数: {}, 当前页数量: {}", 
                 orderPage.getTotalElements(), orderPage.getContent().size());
             return Result.success(orderPage);
@@ -39,6 +56,49 @@ public class OrderController {
         }
     }
     
+    /**
+     * 按关键词搜索订单（订单号、客户、联系人、商品名称），按相关度排序分页返回
+     */
+    @GetMapping("/search")
+    public Result<Page<OrderSearchHit>> searchOrders(
+            @RequestParam("q") String keyword,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "10") Integer size) {
+        try {
+            log.info("接收到订单搜索请求: q={}, type={}, page={}, size={}", keyword, type, page, size);
+            return Result.success(orderSearchService.search(keyword, type, page, size));
+        } catch (Exception e) {
+            log.error("搜索订单失败: {}", e.getMessage(), e);
+            return Result.error("搜索订单失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 导出订单及明细（csv/xlsx），按创建日期筛选，默认导出本年度
+     * 参数错误时在开始写出前抛出，由全局异常处理返回错误信息
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "startDate", required = false) String startDate,
+            @RequestParam(value = "endDate", required = false) String endDate,
+            @RequestParam(value = "format", defaultValue = "csv") String format) {
+        String normalizedFormat = ExportService.normalizeFormat(format);
+        String orderType = type != null && !type.isEmpty() ? orderService.resolveOrderType(type) : null;
+        if (type != null && !type.isEmpty() && orderType == null) {
+            throw new IllegalArgumentException("未知的订单类型: " + type);
+        }
+        LocalDate from = startDate != null ? LocalDate.parse(startDate) : LocalDate.now().withDayOfYear(1);
+        LocalDate to = endDate != null ? LocalDate.parse(endDate) : LocalDate.now();
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("开始日期不能晚于结束日期");
+        }
+        log.info("接收到订单导出请求: type={}, {} ~ {}, format={}", orderType, from, to, normalizedFormat);
+        return ExportResponse.of("orders-" + from + "-" + to, normalizedFormat,
+                out -> exportService.exportOrders(orderType, from, to, normalizedFormat, out));
+    }
+
     @PostMapping
     public Result<Order> createOrder(@RequestBody Order order) {
         try {
@@ -115,14 +175,35 @@ public class OrderController {
         return Result.success(orderService.confirmOrder(id, freight));
     }
     
+    /**
+     * 批量确认订单，逐单返回确认结果
+     */
+    @PostMapping("/confirm-batch")
+    public Result<List<BatchConfirmResult>> confirmOrders(@RequestBody BatchConfirmRequest request) {
+        try {
+            if (request == null || request.getOrders() == null || request.getOrders().isEmpty()) {
+                return Result.error("待确认订单不能为空");
+            }
+            log.info("接收到批量确认订单请求，数量: {}", request.getOrders().size());
+            List<BatchConfirmResult> results = orderService.confirmOrders(request.getOrders());
+            return Result.success(results);
+        } catch (Exception e) {
+            log.error("批量确认订单失败: {}", e.getMessage(), e);
+            return Result.error("批量确认订单失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 按类型获取订单列表（摘要，不含商品明细），支持分页
+     */
     @GetMapping("/type/{type}")
-    public Result<Page<Order>> getOrdersByType(
+    public Result<Page<OrderSummary>> getOrdersByType(
             @PathVariable String type,
             @RequestParam(value = "page", defaultValue = "0") Integer page,
             @RequestParam(value = "size", defaultValue = "10") Integer size) {
         try {
             log.info("接收到获取特定类型订单的请求: type={}, page={}, size={}", type, page, size);
-            Page<Order> orderPage = orderService.getOrdersByType(type, page, size);
+            Page<OrderSummary> orderPage = orderService.getOrderSummariesByType(type, page, size);
             log.info("成功返回{}类型订单列表，总数: {}, 当前页数量: {}", 
                 type, orderPage.getTotalElements(), orderPage.getContent().size());
             return Result.success(orderPage);
@@ -132,6 +213,26 @@ public class OrderController {
         }
     }
 
+    /**
+     * 按类型获取订单列表（键集分页），按创建时间倒序，翻页时传入上一页返回的nextCursor
+     */
+    @GetMapping("/type/{type}/cursor")
+    public Result<CursorPage<OrderSummary>> getOrdersByTypeCursor(
+            @PathVariable String type,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        try {
+            log.info("接收到键集分页订单请求: type={}, size={}", type, size);
+            return Result.success(orderService.getOrderSummariesByCursor(type, cursor, CursorPage.clampSize(size)));
+        } catch (IllegalArgumentException e) {
+            log.warn("分页游标无效: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("获取{}类型订单列表失败: {}", type, e.getMessage(), e);
+            return Result.error("获取订单列表失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 获取订单详情
      */
@@ -0,0 +1,54 @@
+package com.daacooerp.erp.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量确认订单请求DTO
+ */
+public class BatchConfirmRequest {
+
+    private List<Item> orders = new ArrayList<>();
+
+    public BatchConfirmRequest() {}
+
+    public List<Item> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<Item> orders) {
+        this.orders = orders;
+    }
+
+    /**
+     * 单个待确认订单：订单ID + 运费
+     */
+    public static class Item {
+
+        private Long id;
+        private Float freight;
+
+        public Item() {}
+
+        public Item(Long id, Float freight) {
+            this.id = id;
+            this.freight = freight;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Float getFreight() {
+            return freight;
+        }
+
+        public void setFreight(Float freight) {
+            this.freight = freight;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.daacooerp.erp.dto;
+
+/**
+ * 批量确认订单结果DTO（每个订单一条）
+ */
+public class BatchConfirmResult {
+
+    private Long orderId;
+    private String orderNo;
+    private boolean success;
+    private String message;
+
+    public BatchConfirmResult() {}
+
+    public BatchConfirmResult(Long orderId, String orderNo, boolean success, String message) {
+        this.orderId = orderId;
+        this.orderNo = orderNo;
+        this.success = success;
+        this.message = message;
+    }
+
+    public static BatchConfirmResult success(Long orderId, String orderNo) {
+        return new BatchConfirmResult(orderId, orderNo, true, "确认成功");
+    }
+
+    public static BatchConfirmResult failure(Long orderId, String orderNo, String message) {
+        return new BatchConfirmResult(orderId, orderNo, false, message);
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,98 @@
+package com.daacooerp.erp.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量出入库请求DTO
+ * mode：ALL_OR_NOTHING-任一行失败则整批不执行（默认），BEST_EFFORT-只执行校验通过的行
+ */
+public class BulkStockRequest {
+
+    public static final String MODE_ALL_OR_NOTHING = "ALL_OR_NOTHING";
+    public static final String MODE_BEST_EFFORT = "BEST_EFFORT";
+
+    // 单次请求最多行数
+    public static final int MAX_LINES = 5000;
+
+    private String mode = MODE_ALL_OR_NOTHING;
+    private List<Line> lines = new ArrayList<>();
+
+    public BulkStockRequest() {}
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * 单行库存变动：按库存ID或商品编码定位，delta 为正入库、为负出库，单价和位置为空时保持原值
+     */
+    public static class Line {
+
+        private Long id;
+        private String productCode;
+        private Integer delta;
+        private Double unitPrice;
+        private String location;
+
+        public Line() {}
+
+        public Line(Long id, String productCode, Integer delta) {
+            this.id = id;
+            this.productCode = productCode;
+            this.delta = delta;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getProductCode() {
+            return productCode;
+        }
+
+        public void setProductCode(String productCode) {
+            this.productCode = productCode;
+        }
+
+        public Integer getDelta() {
+            return delta;
+        }
+
+        public void setDelta(Integer delta) {
+            this.delta = delta;
+        }
+
+        public Double getUnitPrice() {
+            return unitPrice;
+        }
+
+        public void setUnitPrice(Double unitPrice) {
+            this.unitPrice = unitPrice;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public void setLocation(String location) {
+            this.location = location;
+        }
+    }
+}
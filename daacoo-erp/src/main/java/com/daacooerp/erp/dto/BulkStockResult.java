@@ -0,0 +1,97 @@
+package com.daacooerp.erp.dto;
+
+/**
+ * 批量出入库结果DTO（每个请求行一条，lineNo 从1开始）
+ * quantity 为该行执行后的库存数量，未执行时为空
+ */
+public class BulkStockResult {
+
+    private int lineNo;
+    private Long inventoryId;
+    private String productCode;
+    private String productName;
+    private boolean success;
+    private Integer quantity;
+    private String message;
+
+    public BulkStockResult() {}
+
+    public static BulkStockResult success(int lineNo, Long inventoryId, String productCode, String productName,
+                                          Integer quantity) {
+        BulkStockResult result = new BulkStockResult();
+        result.lineNo = lineNo;
+        result.inventoryId = inventoryId;
+        result.productCode = productCode;
+        result.productName = productName;
+        result.success = true;
+        result.quantity = quantity;
+        result.message = "执行成功";
+        return result;
+    }
+
+    public static BulkStockResult failure(int lineNo, Long inventoryId, String productCode, String message) {
+        BulkStockResult result = new BulkStockResult();
+        result.lineNo = lineNo;
+        result.inventoryId = inventoryId;
+        result.productCode = productCode;
+        result.success = false;
+        result.message = message;
+        return result;
+    }
+
+    public int getLineNo() {
+        return lineNo;
+    }
+
+    public void setLineNo(int lineNo) {
+        this.lineNo = lineNo;
+    }
+
+    public Long getInventoryId() {
+        return inventoryId;
+    }
+
+    public void setInventoryId(Long inventoryId) {
+        this.inventoryId = inventoryId;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    public void setProductCode(String productCode) {
+        this.productCode = productCode;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,155 @@
+package com.daacooerp.erp.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 财务记录导入任务DTO：由导入线程更新进度，查询接口读取快照
+ * processedRows 为已解析的数据行数，importedRows 为实际插入的行数，
+ * duplicateRows 为来源订单号已存在、按幂等规则跳过的行数，errorCount 为校验失败的行数
+ * errors 只保留前若干条行级错误，rowNo 为文件中的行号（表头为第1行）
+ */
+public class FinanceImportJob {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private final String jobId;
+    private final String fileName;
+    private final String format;
+    private final LocalDateTime createdAt;
+    private final int maxErrors;
+    private final List<RowError> errors = new ArrayList<>();
+    private volatile String status = STATUS_QUEUED;
+    private volatile long processedRows;
+    private volatile long importedRows;
+    private volatile long duplicateRows;
+    private volatile long errorCount;
+    private volatile String message;
+    private volatile LocalDateTime finishedAt;
+
+    public FinanceImportJob(String jobId, String fileName, String format, int maxErrors) {
+        this.jobId = jobId;
+        this.fileName = fileName;
+        this.format = format;
+        this.maxErrors = maxErrors;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public void start() {
+        status = STATUS_RUNNING;
+    }
+
+    public void rowProcessed() {
+        processedRows++;
+    }
+
+    public void rowsImported(int imported, int duplicates) {
+        importedRows += imported;
+        duplicateRows += duplicates;
+    }
+
+    public synchronized void rowFailed(Integer sheet, long rowNo, String message) {
+        errorCount++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(sheet, rowNo, message));
+        }
+    }
+
+    public void complete() {
+        finish(STATUS_COMPLETED, null);
+    }
+
+    public void fail(String message) {
+        finish(STATUS_FAILED, message);
+    }
+
+    private void finish(String status, String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+    }
+
+    public boolean isFinished() {
+        return STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getProcessedRows() {
+        return processedRows;
+    }
+
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public long getDuplicateRows() {
+        return duplicateRows;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public synchronized List<RowError> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * 行级错误：sheet 为工作表序号，从1开始（CSV 为空）
+     */
+    public static class RowError {
+
+        private final Integer sheet;
+        private final long rowNo;
+        private final String message;
+
+        public RowError(Integer sheet, long rowNo, String message) {
+            this.sheet = sheet;
+            this.rowNo = rowNo;
+            this.message = message;
+        }
+
+        public Integer getSheet() {
+            return sheet;
+        }
+
+        public long getRowNo() {
+            return rowNo;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.daacooerp.erp.dto;
+
+/**
+ * 库存估值分组（按分类、库位汇总的库存数量与金额，金额 = 数量 × 单价）
+ */
+public class InventoryValuation {
+
+    private String category;
+    private String location;
+    private Long itemCount;
+    private Long totalQuantity;
+    private Double totalValue;
+
+    public InventoryValuation() {}
+
+    public InventoryValuation(String category, String location, Long itemCount, Long totalQuantity, Double totalValue) {
+        this.category = category;
+        this.location = location;
+        this.itemCount = itemCount;
+        this.totalQuantity = totalQuantity != null ? totalQuantity : 0L;
+        this.totalValue = totalValue != null ? totalValue : 0.0;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public Long getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Long itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public Long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(Long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+
+    public Double getTotalValue() {
+        return totalValue;
+    }
+
+    public void setTotalValue(Double totalValue) {
+        this.totalValue = totalValue;
+    }
+}
@@ -0,0 +1,106 @@
+package com.daacooerp.erp.dto;
+
+import com.daacooerp.erp.entity.Inventory;
+
+import java.util.Objects;
+
+/**
+ * 低库存清单条目（库存数量不高于预警阈值的商品快照）
+ */
+public class LowStockItem {
+
+    private Long id;
+    private String productCode;
+    private String productName;
+    private Integer quantity;
+    private Integer warningThreshold;
+    private String unit;
+    private String location;
+
+    public static LowStockItem of(Inventory inventory) {
+        LowStockItem item = new LowStockItem();
+        item.setId(inventory.getId());
+        item.setProductCode(inventory.getProductCode());
+        item.setProductName(inventory.getProductName());
+        item.setQuantity(inventory.getQuantity());
+        item.setWarningThreshold(inventory.getWarningThreshold());
+        item.setUnit(inventory.getUnit());
+        item.setLocation(inventory.getLocation());
+        return item;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    public void setProductCode(String productCode) {
+        this.productCode = productCode;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Integer getWarningThreshold() {
+        return warningThreshold;
+    }
+
+    public void setWarningThreshold(Integer warningThreshold) {
+        this.warningThreshold = warningThreshold;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LowStockItem that)) {
+            return false;
+        }
+        return Objects.equals(id, that.id) && Objects.equals(productCode, that.productCode)
+                && Objects.equals(productName, that.productName) && Objects.equals(quantity, that.quantity)
+                && Objects.equals(warningThreshold, that.warningThreshold) && Objects.equals(unit, that.unit)
+                && Objects.equals(location, that.location);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, productCode, productName, quantity, warningThreshold, unit, location);
+    }
+}
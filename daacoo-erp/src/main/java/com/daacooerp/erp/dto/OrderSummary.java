@@ -0,0 +1,140 @@
+package com.daacooerp.erp.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单列表摘要DTO
+ * 只包含列表页需要的订单头字段，不加载商品明细和操作员
+ */
+public class OrderSummary {
+
+    private Long id;
+    private String orderNo;
+    private String orderType;
+    private String customerName;
+    private String contactPerson;
+    private String tel;
+    private Float amount;
+    private Float freight;
+    private String status;
+
+    @JsonProperty("createTime")
+    private LocalDateTime createdAt;
+
+    @JsonProperty("updateTime")
+    private LocalDateTime updatedAt;
+
+    public OrderSummary() {}
+
+    public OrderSummary(Long id, String orderNo, String orderType, String customerName, String contactPerson,
+                        String tel, Float amount, Float freight, String status,
+                        LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.orderNo = orderNo;
+        this.orderType = orderType;
+        this.customerName = customerName;
+        this.contactPerson = contactPerson;
+        this.tel = tel;
+        this.amount = amount;
+        this.freight = freight;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public String getOrderType() {
+        return orderType;
+    }
+
+    public void setOrderType(String orderType) {
+        this.orderType = orderType;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public String getContactPerson() {
+        return contactPerson;
+    }
+
+    public void setContactPerson(String contactPerson) {
+        this.contactPerson = contactPerson;
+    }
+
+    public String getTel() {
+        return tel;
+    }
+
+    public void setTel(String tel) {
+        this.tel = tel;
+    }
+
+    public Float getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Float amount) {
+        this.amount = amount;
+    }
+
+    // 与Order实体保持一致，前端列表使用totalAmount字段
+    @JsonProperty("totalAmount")
+    public Float getTotalAmount() {
+        return amount;
+    }
+
+    public Float getFreight() {
+        return freight;
+    }
+
+    public void setFreight(Float freight) {
+        this.freight = freight;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
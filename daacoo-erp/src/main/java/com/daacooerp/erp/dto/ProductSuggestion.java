@@ -0,0 +1,54 @@
+package com.daacooerp.erp.dto;
+
+/**
+ * 商品自动补全结果
+ * matchType：NAME_PREFIX-名称前缀，CODE_PREFIX-编码前缀，PINYIN_PREFIX-拼音首字母前缀，INFIX-包含匹配
+ */
+public class ProductSuggestion {
+
+    private Long id;
+    private String productName;
+    private String productCode;
+    private String matchType;
+
+    public ProductSuggestion() {}
+
+    public ProductSuggestion(Long id, String productName, String productCode, String matchType) {
+        this.id = id;
+        this.productName = productName;
+        this.productCode = productCode;
+        this.matchType = matchType;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    public void setProductCode(String productCode) {
+        this.productCode = productCode;
+    }
+
+    public String getMatchType() {
+        return matchType;
+    }
+
+    public void setMatchType(String matchType) {
+        this.matchType = matchType;
+    }
+}
@@ -0,0 +1,57 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 编码号段：每个前缀一行，max_value 为已分配出去的最大序号
+ */
+@Entity
+@Table(name = "code_sequence")
+public class CodeSequence {
+
+    @Id
+    @Column(length = 20)
+    private String prefix;
+
+    @Column(name = "max_value", nullable = false)
+    private Long maxValue = 0L;
+
+    @Column(nullable = false)
+    private Integer step = 1000;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public Long getMaxValue() {
+        return maxValue;
+    }
+
+    public void setMaxValue(Long maxValue) {
+        this.maxValue = maxValue;
+    }
+
+    public Integer getStep() {
+        return step;
+    }
+
+    public void setStep(Integer step) {
+        this.step = step;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,41 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 财务日汇总表：按记录日期汇总财务记录的收入、支出、利润和条数
+ * 由 FinanceServiceImpl 新增、修改、删除记录时在同一事务内增量维护，也可由 FinanceSummaryService.rebuild 重建
+ */
+@Data
+@Entity
+@Table(name = "finance_daily_summary",
+    uniqueConstraints = @UniqueConstraint(name = "uk_finance_summary_date", columnNames = "stat_date"))
+public class FinanceDailySummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal income = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal expense = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal profit = BigDecimal.ZERO;
+
+    @Column(name = "record_count", nullable = false)
+    private Integer recordCount = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
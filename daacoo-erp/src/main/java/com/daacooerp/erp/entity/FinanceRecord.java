@@ -5,7 +5,9 @@ import java.math.BigDecimal;
 import java.util.Date;
 
 @Entity
-@Table(name = "finance_record")
+@Table(name = "finance_record", indexes = {
+    @Index(name = "idx_finance_date_amounts", columnList = "record_date, income, expense, profit")
+})
 public class FinanceRecord {
     
     @Id
@@ -34,6 +36,10 @@ public class FinanceRecord {
     @Column(name = "created_by")
     private String createdBy;
     
+    // 来源订单号：订单确认自动生成的记录按此去重，手工录入的记录为空
+    @Column(name = "source_order_no", unique = true)
+    private String sourceOrderNo;
+    
     @Column(name = "created_at")
     @Temporal(TemporalType.TIMESTAMP)
     private Date createdAt;
@@ -111,6 +117,14 @@ public class FinanceRecord {
         this.createdBy = createdBy;
     }
     
+    public String getSourceOrderNo() {
+        return sourceOrderNo;
+    }
+    
+    public void setSourceOrderNo(String sourceOrderNo) {
+        this.sourceOrderNo = sourceOrderNo;
+    }
+    
     public Date getCreatedAt() {
         return createdAt;
     }
@@ -2,11 +2,16 @@ package com.daacooerp.erp.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Formula;
 import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "goods")
+@Table(name = "goods", indexes = {
+    @Index(name = "idx_goods_name", columnList = "name")
+})
+@BatchSize(size = 50)
 public class Goods {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -24,7 +29,8 @@ public class Goods {
     @Column(name = "selling_price")
     private Float sellingPrice;
     
-    @Column(name = "stock")
+    // 库存只保存在 inventory 表（按 goods_id 关联），这里是只读的派生值，不写回数据库
+    @Formula("COALESCE((SELECT i.quantity FROM inventory i WHERE i.goods_id = id), 0)")
     private Integer stock = 0;
     
     private Integer status = 1;
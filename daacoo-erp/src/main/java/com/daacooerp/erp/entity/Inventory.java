@@ -4,13 +4,23 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "inventory")
+@Table(name = "inventory", indexes = {
+    @Index(name = "idx_inventory_created", columnList = "created_at, id"),
+    @Index(name = "idx_inventory_low_stock", columnList = "low_stock, quantity")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_inventory_product_name", columnNames = "product_name"),
+    @UniqueConstraint(name = "uk_inventory_goods", columnNames = "goods_id")
+})
 public class Inventory {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // 对应商品（外键 goods.id），商品库存只以本表数量为准；建立关联后不随整实体保存修改
+    @Column(name = "goods_id", updatable = false)
+    private Long goodsId;
+
     @Column(nullable = false)
     private String productName;
 
@@ -33,6 +43,16 @@ public class Inventory {
     @Column(name = "warning_threshold")
     private Integer warningThreshold = 5; // 默认预警阈值为5
 
+    // 数据库生成列，与 isLowStock() 同义，只用于按索引查询低库存，不由应用写入
+    @Column(name = "low_stock", insertable = false, updatable = false,
+            columnDefinition = "BOOLEAN GENERATED ALWAYS AS (quantity <= warning_threshold)")
+    private Boolean lowStock;
+
+    // 未过期的销售预留数量，由 StockReservationService 按内存计数批量回写，不随整实体保存修改
+    @Column(name = "reserved_quantity", insertable = false, updatable = false,
+            columnDefinition = "INT DEFAULT 0")
+    private Integer reservedQuantity;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -48,6 +68,14 @@ public class Inventory {
         this.id = id;
     }
 
+    public Long getGoodsId() {
+        return goodsId;
+    }
+
+    public void setGoodsId(Long goodsId) {
+        this.goodsId = goodsId;
+    }
+
     public String getProductName() {
         return productName;
     }
@@ -120,6 +148,14 @@ public class Inventory {
         this.warningThreshold = warningThreshold;
     }
 
+    public Integer getReservedQuantity() {
+        return reservedQuantity;
+    }
+
+    public void setReservedQuantity(Integer reservedQuantity) {
+        this.reservedQuantity = reservedQuantity;
+    }
+
     /**
      * 判断是否需要库存预警
      */
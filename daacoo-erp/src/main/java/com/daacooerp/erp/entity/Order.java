@@ -1,15 +1,19 @@
 package com.daacooerp.erp.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_type_created", columnList = "order_type, created_at, id")
+})
 @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Order {
     @Id
@@ -54,8 +58,9 @@ public class Order {
     
     private Float freight = 0.0f;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "operator_id")
+    @JsonIgnore
     private User operator;
     
     private String status = "PENDING"; // 订单状态：PENDING-待处理，PROCESSING-处理中，COMPLETED-已完成，CANCELLED-已取消
@@ -71,6 +76,7 @@ public class Order {
     
     @OneToMany(mappedBy = "order", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.EAGER)
     @JsonManagedReference
+    @BatchSize(size = 50) // 分页加载订单时按批次加载明细，避免N+1查询
     private List<OrderGoods> goods = new java.util.ArrayList<>();
     
     @PrePersist
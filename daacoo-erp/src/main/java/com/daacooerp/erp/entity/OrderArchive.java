@@ -0,0 +1,61 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单归档：已完成/已取消且超过保留期的订单由 OrderArchiveService 从 orders 移入，
+ * 列与 orders 一致（保留原订单ID），另记归档时间
+ */
+@Data
+@Entity
+@Table(name = "orders_archive", indexes = {
+    @Index(name = "idx_archive_order_no", columnList = "order_no"),
+    @Index(name = "idx_archive_type_created", columnList = "order_type, created_at, id")
+})
+public class OrderArchive {
+
+    @Id
+    private Long id;
+
+    @Column(name = "order_no", nullable = false)
+    private String orderNo;
+
+    @Column(name = "order_type")
+    private String orderType;
+
+    @Column(name = "customer_name")
+    private String customerName;
+
+    @Column(name = "contact_person")
+    private String contactPerson;
+
+    private String tel;
+
+    private String address;
+
+    @Column(name = "delivery_time")
+    private LocalDateTime deliveryTime;
+
+    private Float amount;
+
+    private Float freight;
+
+    @Column(name = "operator_id")
+    private Long operatorId;
+
+    private String status;
+
+    private String remarks;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+}
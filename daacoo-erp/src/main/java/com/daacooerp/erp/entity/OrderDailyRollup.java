@@ -0,0 +1,53 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 订单日汇总表：按 日期 + 订单类型 + 商品 + 客户 汇总已确认订单
+ * 由订单确认时增量维护，也可由 OrderRollupService.rebuild 按日期范围重建
+ * order_count 只记在每个订单的第一条明细上，因此任意维度求和都不会重复计数
+ */
+@Data
+@Entity
+@Table(name = "order_daily_rollup",
+    uniqueConstraints = @UniqueConstraint(name = "uk_rollup_key",
+        columnNames = {"stat_date", "order_type", "goods_id", "customer_name"}),
+    indexes = @Index(name = "idx_rollup_type_date", columnList = "order_type, stat_date"))
+public class OrderDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    @Column(name = "order_type", nullable = false, length = 20)
+    private String orderType;
+
+    @Column(name = "goods_id", nullable = false)
+    private Long goodsId;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "customer_name", nullable = false)
+    private String customerName = "";
+
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount = 0;
+
+    @Column(nullable = false)
+    private Integer quantity = 0;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
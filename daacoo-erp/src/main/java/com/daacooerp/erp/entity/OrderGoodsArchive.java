@@ -0,0 +1,40 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单明细归档：随订单一起从 order_goods 移入，保留原明细ID
+ */
+@Data
+@Entity
+@Table(name = "order_goods_archive", indexes = {
+    @Index(name = "idx_goods_archive_order_id", columnList = "order_id")
+})
+public class OrderGoodsArchive {
+
+    @Id
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "goods_id")
+    private Long goodsId;
+
+    private Integer quantity;
+
+    @Column(name = "unit_price")
+    private Float unitPrice;
+
+    @Column(name = "total_price")
+    private Float totalPrice;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
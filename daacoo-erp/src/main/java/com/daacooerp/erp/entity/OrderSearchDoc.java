@@ -0,0 +1,51 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单搜索文档：每个订单一行，search_text 汇总订单号、客户、联系人和商品名称，
+ * MySQL 下在 search_text 上建立 ngram 全文索引（由 OrderSearchService 启动时创建）
+ */
+@Data
+@Entity
+@Table(name = "order_search_doc", indexes = {
+    @Index(name = "idx_search_type_created", columnList = "order_type, created_at")
+})
+public class OrderSearchDoc {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "order_no")
+    private String orderNo;
+
+    @Column(name = "order_type", length = 20)
+    private String orderType;
+
+    @Column(name = "customer_name")
+    private String customerName;
+
+    @Column(name = "contact_person")
+    private String contactPerson;
+
+    @Column(name = "product_names", length = 2000)
+    private String productNames;
+
+    private Float amount;
+
+    @Column(length = 20)
+    private String status;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "search_text", columnDefinition = "TEXT")
+    private String searchText;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,59 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存流水（只追加）：每次库存数量变动记录一行，delta 为正表示入库、为负表示出库
+ */
+@Data
+@Entity
+@Table(name = "stock_movement", indexes = {
+    @Index(name = "idx_movement_inventory_time", columnList = "inventory_id, created_at, id"),
+    @Index(name = "idx_movement_order", columnList = "order_id")
+})
+public class StockMovement {
+
+    public static final String REASON_CREATE = "CREATE";
+    public static final String REASON_STOCK_IN = "STOCK_IN";
+    public static final String REASON_STOCK_OUT = "STOCK_OUT";
+    public static final String REASON_PURCHASE_ORDER = "PURCHASE_ORDER";
+    public static final String REASON_SALE_ORDER = "SALE_ORDER";
+    public static final String REASON_BULK = "BULK";
+    public static final String REASON_ADJUST = "ADJUST";
+    public static final String REASON_DELETE = "DELETE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "inventory_id", nullable = false)
+    private Long inventoryId;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(nullable = false)
+    private Integer delta;
+
+    @Column(nullable = false, length = 20)
+    private String reason;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public static StockMovement of(Long inventoryId, String productName, int delta, String reason, Long orderId) {
+        StockMovement movement = new StockMovement();
+        movement.setInventoryId(inventoryId);
+        movement.setProductName(productName);
+        movement.setDelta(delta);
+        movement.setReason(reason);
+        movement.setOrderId(orderId);
+        return movement;
+    }
+}
@@ -0,0 +1,46 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存预留：创建销售订单时按商品预留数量，确认订单时转为出库，删除订单或超时后释放
+ */
+@Data
+@Entity
+@Table(name = "stock_reservation", indexes = {
+    @Index(name = "idx_reservation_order", columnList = "order_id"),
+    @Index(name = "idx_reservation_status_expires", columnList = "status, expires_at"),
+    @Index(name = "idx_reservation_goods_status", columnList = "goods_id, status")
+})
+public class StockReservation {
+
+    public static final String STATUS_ACTIVE = "ACTIVE";
+    public static final String STATUS_CONSUMED = "CONSUMED";
+    public static final String STATUS_RELEASED = "RELEASED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "goods_id", nullable = false)
+    private Long goodsId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
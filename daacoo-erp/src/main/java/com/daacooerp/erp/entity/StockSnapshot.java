@@ -0,0 +1,31 @@
+package com.daacooerp.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存快照：某商品截至 snapshot_at（含）的库存数量
+ * 某一时刻的库存 = 该时刻之前最近的快照 + 快照之后到该时刻的流水之和
+ */
+@Data
+@Entity
+@Table(name = "stock_snapshot", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_snapshot_inventory_time", columnNames = {"inventory_id", "snapshot_at"})
+})
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "inventory_id", nullable = false)
+    private Long inventoryId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "snapshot_at", nullable = false)
+    private LocalDateTime snapshotAt;
+}
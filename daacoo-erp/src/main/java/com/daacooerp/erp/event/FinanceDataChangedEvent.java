@@ -0,0 +1,47 @@
+package com.daacooerp.erp.event;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 财务数据变动事件：财务日汇总或订单日汇总写入时发布，
+ * 只携带受影响的年份，监听方据此丢弃对应年份的按月统计缓存
+ */
+public class FinanceDataChangedEvent {
+
+    private final Set<Integer> years;
+
+    private FinanceDataChangedEvent(Collection<Integer> years) {
+        this.years = Collections.unmodifiableSet(new TreeSet<>(years));
+    }
+
+    public static FinanceDataChangedEvent ofYears(Collection<Integer> years) {
+        return new FinanceDataChangedEvent(years);
+    }
+
+    public static FinanceDataChangedEvent ofDates(Collection<LocalDate> dates) {
+        return new FinanceDataChangedEvent(dates.stream().map(LocalDate::getYear).toList());
+    }
+
+    /**
+     * 日期范围 [from, to] 覆盖的所有年份
+     */
+    public static FinanceDataChangedEvent ofRange(LocalDate from, LocalDate to) {
+        Set<Integer> years = new TreeSet<>();
+        for (int year = from.getYear(); year <= to.getYear(); year++) {
+            years.add(year);
+        }
+        return new FinanceDataChangedEvent(years);
+    }
+
+    public Set<Integer> getYears() {
+        return years;
+    }
+
+    public boolean isEmpty() {
+        return years.isEmpty();
+    }
+}
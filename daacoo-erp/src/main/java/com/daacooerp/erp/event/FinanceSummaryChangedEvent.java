@@ -0,0 +1,43 @@
+package com.daacooerp.erp.event;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 财务日汇总变动事件：FinanceSummaryService 写入日汇总时发布，
+ * 携带受影响的日期；整段重建时不逐日列出，reloadAll 为 true，监听方重新加载全部
+ */
+public class FinanceSummaryChangedEvent {
+
+    private final Set<LocalDate> days;
+
+    private final boolean reloadAll;
+
+    private FinanceSummaryChangedEvent(Collection<LocalDate> days, boolean reloadAll) {
+        this.days = Collections.unmodifiableSet(new TreeSet<>(days));
+        this.reloadAll = reloadAll;
+    }
+
+    public static FinanceSummaryChangedEvent ofDays(Collection<LocalDate> days) {
+        return new FinanceSummaryChangedEvent(days, false);
+    }
+
+    public static FinanceSummaryChangedEvent ofAll() {
+        return new FinanceSummaryChangedEvent(Collections.emptySet(), true);
+    }
+
+    public Set<LocalDate> getDays() {
+        return days;
+    }
+
+    public boolean isReloadAll() {
+        return reloadAll;
+    }
+
+    public boolean isEmpty() {
+        return !reloadAll && days.isEmpty();
+    }
+}
@@ -0,0 +1,42 @@
+package com.daacooerp.erp.event;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 库存变动事件：库存数量、预警阈值变化或库存被删除时由 InventoryServiceImpl 发布，
+ * 只携带受影响的库存ID或商品名称（按名称累加的入库无法预知ID），监听方按需重新读取
+ */
+public class InventoryChangedEvent {
+
+    private final Set<Long> inventoryIds;
+
+    private final Set<String> productNames;
+
+    private InventoryChangedEvent(Collection<Long> inventoryIds, Collection<String> productNames) {
+        this.inventoryIds = Collections.unmodifiableSet(new LinkedHashSet<>(inventoryIds));
+        this.productNames = Collections.unmodifiableSet(new LinkedHashSet<>(productNames));
+    }
+
+    public static InventoryChangedEvent ofIds(Collection<Long> inventoryIds) {
+        return new InventoryChangedEvent(inventoryIds, Collections.emptySet());
+    }
+
+    public static InventoryChangedEvent ofProductNames(Collection<String> productNames) {
+        return new InventoryChangedEvent(Collections.emptySet(), productNames);
+    }
+
+    public Set<Long> getInventoryIds() {
+        return inventoryIds;
+    }
+
+    public Set<String> getProductNames() {
+        return productNames;
+    }
+
+    public boolean isEmpty() {
+        return inventoryIds.isEmpty() && productNames.isEmpty();
+    }
+}
@@ -0,0 +1,24 @@
+package com.daacooerp.erp.repository;
+
+import com.daacooerp.erp.entity.CodeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CodeSequenceRepository extends JpaRepository<CodeSequence, String> {
+
+    // 前缀不存在时初始化，已存在则忽略（多节点并发初始化安全）
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO code_sequence (prefix, max_value, step, updated_at) " +
+            "VALUES (:prefix, 0, :step, CURRENT_TIMESTAMP)", nativeQuery = true)
+    int initIfAbsent(@Param("prefix") String prefix, @Param("step") int step);
+
+    // 原子地把 max_value 推进一个号段，行锁保证各节点领取的号段互不重叠
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE code_sequence SET max_value = max_value + step, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE prefix = :prefix", nativeQuery = true)
+    int advance(@Param("prefix") String prefix);
+}
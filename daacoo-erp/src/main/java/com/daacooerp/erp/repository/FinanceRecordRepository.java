@@ -1,6 +1,7 @@
 package com.daacooerp.erp.repository;
 
 import com.daacooerp.erp.entity.FinanceRecord;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,7 +11,6 @@ import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 
 @Repository
 public interface FinanceRecordRepository extends JpaRepository<FinanceRecord, Long> {
@@ -21,9 +21,15 @@ public interface FinanceRecordRepository extends JpaRepository<FinanceRecord, Lo
     // 分页查询
     Page<FinanceRecord> findByRecordDateBetween(Date startDate, Date endDate, Pageable pageable);
     
-    // 获取指定日期范围内的财务统计数据
-    @Query("SELECT SUM(f.income) as totalIncome, SUM(f.expense) as totalExpense, " +
-           "SUM(f.profit) as totalProfit, COUNT(f) as recordCount " +
-           "FROM FinanceRecord f WHERE f.recordDate BETWEEN :startDate AND :endDate")
-    Map<String, Object> getFinanceStatistics(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+    // 键集分页：日期范围内按 (record_date, id) 正序取第一页
+    @Query("SELECT f FROM FinanceRecord f WHERE f.recordDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY f.recordDate ASC, f.id ASC")
+    List<FinanceRecord> findFirstByCursor(@Param("startDate") Date startDate, @Param("endDate") Date endDate, Limit limit);
+    
+    // 键集分页：从游标位置 (recordDate, id) 之后继续取，不执行COUNT
+    @Query("SELECT f FROM FinanceRecord f WHERE f.recordDate BETWEEN :startDate AND :endDate " +
+           "AND (f.recordDate > :recordDate OR (f.recordDate = :recordDate AND f.id > :id)) " +
+           "ORDER BY f.recordDate ASC, f.id ASC")
+    List<FinanceRecord> findAfterCursor(@Param("startDate") Date startDate, @Param("endDate") Date endDate,
+                                        @Param("recordDate") Date recordDate, @Param("id") Long id, Limit limit);
 } 
\ No newline at end of file
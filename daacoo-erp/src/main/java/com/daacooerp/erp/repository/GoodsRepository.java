@@ -1,14 +1,28 @@
 package com.daacooerp.erp.repository;
 
 import com.daacooerp.erp.entity.Goods;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface GoodsRepository extends JpaRepository<Goods, Long> {
     List<Goods> findByName(String name);
-    
+
+    // 一次查询解析整张订单的商品名称
+    List<Goods> findByNameIn(Collection<String> names);
+
     List<Goods> findByCode(String code);
+
+    // 一次查询加载并锁定商品及其对应库存（按 inventory.goods_id 外键关联），按商品ID升序加锁
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g, i FROM Goods g LEFT JOIN Inventory i ON i.goodsId = g.id " +
+           "WHERE g.id IN :ids ORDER BY g.id, i.id")
+    List<Object[]> lockWithInventoryByIdIn(@Param("ids") Collection<Long> ids);
 } 
\ No newline at end of file
@@ -1,11 +1,21 @@
 package com.daacooerp.erp.repository;
 
 import com.daacooerp.erp.entity.Inventory;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     // 根据产品名称查询
@@ -20,7 +30,146 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     // 根据商品名称精确查找
     java.util.Optional<Inventory> findByProductName(String productName);
 
+    // 按商品ID查找（goods_id 唯一）
+    java.util.Optional<Inventory> findByGoodsId(Long goodsId);
+
+    boolean existsByGoodsId(Long goodsId);
+
+    // 手工新建库存时按名称关联已有商品，同名商品取ID最小的一条（与创建订单时的名称解析一致）
+    @Query("SELECT MIN(g.id) FROM Goods g WHERE g.name = :name")
+    Long findGoodsIdByName(@Param("name") String name);
+
+    // 按商品名称批量查找
+    List<Inventory> findByProductNameIn(Collection<String> productNames);
+
+    // 批量出入库：一次查询加载并锁定按ID或商品编码定位的库存行，按ID升序加锁
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.id IN :ids OR i.productCode IN :codes ORDER BY i.id")
+    List<Inventory> lockByIdInOrProductCodeIn(@Param("ids") Collection<Long> ids,
+                                              @Param("codes") Collection<String> codes);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.id IN :ids ORDER BY i.id")
+    List<Inventory> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.productCode IN :codes ORDER BY i.id")
+    List<Inventory> lockByProductCodeIn(@Param("codes") Collection<String> codes);
+
+    /**
+     * 按ID和商品编码加载并锁定库存行，只执行一次查询（空集合不参与条件）
+     */
+    default List<Inventory> lockForBulkAdjust(Collection<Long> ids, Collection<String> codes) {
+        if (ids.isEmpty() && codes.isEmpty()) {
+            return List.of();
+        }
+        if (codes.isEmpty()) {
+            return lockByIdIn(ids);
+        }
+        if (ids.isEmpty()) {
+            return lockByProductCodeIn(codes);
+        }
+        return lockByIdInOrProductCodeIn(ids, codes);
+    }
+
+    // 低库存分页：走 (low_stock, quantity) 索引，库存最少的排在前面
+    @Query(value = "SELECT i FROM Inventory i WHERE i.lowStock = true ORDER BY i.quantity ASC, i.id ASC",
+           countQuery = "SELECT COUNT(i) FROM Inventory i WHERE i.lowStock = true")
+    Page<Inventory> findLowStock(Pageable pageable);
+
+    // 全部低库存商品（用于加载内存低库存清单）
+    @Query("SELECT i FROM Inventory i WHERE i.lowStock = true")
+    List<Inventory> findAllLowStock();
+
+    // 手工修改库存前读取原数量，用于记录调整流水
+    @Query("SELECT i.quantity FROM Inventory i WHERE i.id = :id")
+    Integer findQuantityById(@Param("id") Long id);
+
+    // 可承诺量计数加载：按商品ID批量读取库存ID、名称、现存量
+    @Query("SELECT i.goodsId, i.id, i.productName, i.quantity FROM Inventory i WHERE i.goodsId IN :goodsIds")
+    List<Object[]> findStockByGoodsIdIn(@Param("goodsIds") Collection<Long> goodsIds);
+
+    // 库存估值：按分类、库位在数据库侧汇总数量与金额（数量 × 单价，缺失按0计）
+    @Query("SELECT new com.daacooerp.erp.dto.InventoryValuation(i.category, i.location, COUNT(i), " +
+           "SUM(COALESCE(i.quantity, 0)), SUM(COALESCE(i.quantity, 0) * COALESCE(i.unitPrice, 0.0))) " +
+           "FROM Inventory i GROUP BY i.category, i.location ORDER BY i.category, i.location")
+    List<com.daacooerp.erp.dto.InventoryValuation> summarizeValuation();
+
+    // 商品补全索引构建：只取ID、名称、编码
+    @Query("SELECT i.id, i.productName, i.productCode FROM Inventory i")
+    List<Object[]> findAllSuggestKeys();
+
     // 获取所有商品名称（去重）
     @org.springframework.data.jpa.repository.Query("SELECT DISTINCT i.productName FROM Inventory i")
     java.util.List<String> findAllDistinctProductNames();
-}
\ No newline at end of file
+
+    // 键集分页：按 (created_at, id) 正序取第一页
+    @Query("SELECT i FROM Inventory i ORDER BY i.createdAt ASC, i.id ASC")
+    List<Inventory> findFirstByCursor(Limit limit);
+
+    // 键集分页：从游标位置 (createdAt, id) 之后继续取，不执行COUNT
+    @Query("SELECT i FROM Inventory i WHERE i.createdAt > :createdAt OR (i.createdAt = :createdAt AND i.id > :id) " +
+           "ORDER BY i.createdAt ASC, i.id ASC")
+    List<Inventory> findAfterCursor(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    // 原子出库：仅当库存足够时扣减，返回受影响行数（0 表示不存在或库存不足）
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity = quantity - :qty, updated_at = :now WHERE id = :id AND quantity >= :qty",
+           nativeQuery = true)
+    int decrementIfSufficient(@Param("id") Long id, @Param("qty") int qty, @Param("now") LocalDateTime now);
+
+    // 原子出库（手工、批量）：扣减后不能低于销售订单的预留量
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity = quantity - :qty, updated_at = :now WHERE id = :id AND quantity - :reserved >= :qty",
+           nativeQuery = true)
+    int decrementIfAvailable(@Param("id") Long id, @Param("qty") int qty, @Param("reserved") int reserved,
+                             @Param("now") LocalDateTime now);
+
+    // 原子入库：按ID增加数量，单价和位置为空时保持原值
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity = quantity + :qty, unit_price = COALESCE(:unitPrice, unit_price), " +
+                   "location = COALESCE(:location, location), updated_at = :now WHERE id = :id",
+           nativeQuery = true)
+    int increment(@Param("id") Long id, @Param("qty") int qty, @Param("unitPrice") Double unitPrice,
+                  @Param("location") String location, @Param("now") LocalDateTime now);
+
+    // 原子入库：按商品名称增加数量
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity = quantity + :qty, unit_price = COALESCE(:unitPrice, unit_price), " +
+                   "updated_at = :now WHERE product_name = :productName",
+           nativeQuery = true)
+    int incrementByProductName(@Param("productName") String productName, @Param("qty") int qty,
+                               @Param("unitPrice") Double unitPrice, @Param("now") LocalDateTime now);
+
+    // 原子入库：按商品ID增加数量
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE inventory SET quantity = quantity + :qty, unit_price = COALESCE(:unitPrice, unit_price), " +
+                   "updated_at = :now WHERE goods_id = :goodsId",
+           nativeQuery = true)
+    int incrementByGoodsId(@Param("goodsId") Long goodsId, @Param("qty") int qty,
+                           @Param("unitPrice") Double unitPrice, @Param("now") LocalDateTime now);
+
+    // 采购入库（按商品）：不存在则插入并关联商品；同名库存已存在但尚未关联时补上关联并累加
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO inventory (goods_id, product_name, product_code, quantity, unit, unit_price, location, " +
+                   "warning_threshold, created_at, updated_at) " +
+                   "VALUES (:goodsId, :productName, :productCode, :qty, '个', :unitPrice, '默认仓库', 5, :now, :now) " +
+                   "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), " +
+                   "goods_id = COALESCE(goods_id, VALUES(goods_id)), " +
+                   "unit_price = COALESCE(VALUES(unit_price), unit_price), updated_at = VALUES(updated_at)",
+           nativeQuery = true)
+    int upsertReceiptForGoods(@Param("goodsId") Long goodsId, @Param("productName") String productName,
+                              @Param("productCode") String productCode, @Param("qty") int qty,
+                              @Param("unitPrice") Double unitPrice, @Param("now") LocalDateTime now);
+
+    // 采购入库：依赖 product_name 唯一键，不存在则插入，并发插入冲突时转为累加
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO inventory (product_name, product_code, quantity, unit, unit_price, location, " +
+                   "warning_threshold, created_at, updated_at) " +
+                   "VALUES (:productName, :productCode, :qty, '个', :unitPrice, '默认仓库', 5, :now, :now) " +
+                   "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), " +
+                   "unit_price = COALESCE(VALUES(unit_price), unit_price), updated_at = VALUES(updated_at)",
+           nativeQuery = true)
+    int upsertReceipt(@Param("productName") String productName, @Param("productCode") String productCode,
+                      @Param("qty") int qty, @Param("unitPrice") Double unitPrice, @Param("now") LocalDateTime now);
+}
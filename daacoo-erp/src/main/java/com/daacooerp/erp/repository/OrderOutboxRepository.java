@@ -0,0 +1,27 @@
+package com.daacooerp.erp.repository;
+
+import com.daacooerp.erp.entity.OrderOutbox;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OrderOutboxRepository extends JpaRepository<OrderOutbox, Long> {
+
+    // 按状态分页查看（死信视图）
+    Page<OrderOutbox> findByStatusOrderByIdDesc(String status, Pageable pageable);
+
+    long countByStatus(String status);
+
+    // 死信重新入队：重置重试次数并立即可投递
+    @Modifying
+    @Query("UPDATE OrderOutbox o SET o.status = 'PENDING', o.attempts = 0, o.nextAttemptAt = :now, o.lastError = NULL " +
+           "WHERE o.id = :id AND o.status = 'DEAD'")
+    int requeueDead(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
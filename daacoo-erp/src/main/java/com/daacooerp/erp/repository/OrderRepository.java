@@ -1,16 +1,21 @@
 package com.daacooerp.erp.repository;
 
+import com.daacooerp.erp.dto.OrderSummary;
 import com.daacooerp.erp.entity.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -18,13 +23,46 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     Page<Order> findByOrderType(String orderType, Pageable pageable);
 
+    String SUMMARY_SELECT = "SELECT new com.daacooerp.erp.dto.OrderSummary(o.id, o.orderNo, o.orderType, " +
+            "o.customerName, o.contactPerson, o.tel, o.amount, o.freight, o.status, o.createdAt, o.updatedAt) " +
+            "FROM Order o";
+
+    // 订单列表摘要（不加载商品明细）
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderSummary> findAllSummaries(Pageable pageable);
+
+    // 按类型查询订单列表摘要（不加载商品明细）
+    @Query(value = SUMMARY_SELECT + " WHERE o.orderType = :orderType",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.orderType = :orderType")
+    Page<OrderSummary> findSummariesByOrderType(@Param("orderType") String orderType, Pageable pageable);
+
+    // 键集分页：按 (created_at, id) 倒序取第一页
+    @Query(SUMMARY_SELECT + " WHERE o.orderType = :orderType ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesByOrderTypeFirst(@Param("orderType") String orderType, Limit limit);
+
+    // 键集分页：从游标位置 (createdAt, id) 之后继续取，不执行COUNT
+    @Query(SUMMARY_SELECT + " WHERE o.orderType = :orderType " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> findSummariesByOrderTypeAfter(@Param("orderType") String orderType,
+                                                     @Param("createdAt") LocalDateTime createdAt,
+                                                     @Param("id") Long id,
+                                                     Limit limit);
+
+    // 订单详情：一次查询取回订单、商品明细及商品信息
+    @EntityGraph(attributePaths = {"goods", "goods.goods"})
+    Optional<Order> findDetailById(Long id);
+
     // @Query("SELECT function('MONTH', o.createdAt) as month, COUNT(o) as orderCount, SUM(o.amount) as totalAmount " +
     //        "FROM Order o WHERE function('YEAR', o.createdAt) = :year AND o.orderType = 'SALE' " +
     //        "GROUP BY function('MONTH', o.createdAt)")
     // List<Map<String, Object>> getMonthlySalesOrderStatistics(@Param("year") int year);
 
-    @Query("SELECT function('MONTH', o.createdAt) as month, o.orderType as orderType, COUNT(o) as orderCount, SUM(o.amount) as totalAmount " +
-           "FROM Order o WHERE function('YEAR', o.createdAt) = :year AND o.orderType IN ('SALE', 'PURCHASE') " +
-           "GROUP BY function('MONTH', o.createdAt), o.orderType")
-    List<Map<String, Object>> getMonthlyOrderStatisticsByType(@Param("year") int year);
+    // 按ID升序锁定订单行（批量确认时固定加锁顺序，避免并发批次死锁）
+    @Query(value = "SELECT id FROM orders WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsForUpdate(@Param("ids") Collection<Long> ids);
+
+    // 一次性加载订单及其商品明细
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.goods og LEFT JOIN FETCH og.goods WHERE o.id IN :ids")
+    List<Order> findAllWithGoodsByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.daacooerp.erp.repository;
+
+import com.daacooerp.erp.entity.StockMovement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    // 某商品的流水，最新的在前
+    Page<StockMovement> findByInventoryIdOrderByCreatedAtDescIdDesc(Long inventoryId, Pageable pageable);
+
+    // 快照之后到指定时刻的流水合计（走 idx_movement_inventory_time 索引的区间扫描）
+    @Query("SELECT COALESCE(SUM(m.delta), 0) FROM StockMovement m " +
+           "WHERE m.inventoryId = :inventoryId AND m.createdAt > :after AND m.createdAt <= :until")
+    long sumDelta(@Param("inventoryId") Long inventoryId,
+                  @Param("after") LocalDateTime after,
+                  @Param("until") LocalDateTime until);
+}
@@ -0,0 +1,20 @@
+package com.daacooerp.erp.repository;
+
+import com.daacooerp.erp.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+
+    // 指定时刻之前（含）最近的一次快照
+    Optional<StockSnapshot> findFirstByInventoryIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(
+            Long inventoryId, LocalDateTime at);
+
+    @Query("SELECT MAX(s.snapshotAt) FROM StockSnapshot s")
+    LocalDateTime findLatestSnapshotAt();
+}
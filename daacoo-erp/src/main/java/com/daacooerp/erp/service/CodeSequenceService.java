@@ -0,0 +1,98 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.common.CodeGenerator;
+import com.daacooerp.erp.common.SegmentCodeAllocator;
+import com.daacooerp.erp.entity.CodeSequence;
+import com.daacooerp.erp.repository.CodeSequenceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 业务编码服务：订单号、商品编码统一从号段分配器取号
+ * 号段来自 code_sequence 表，每个节点每次领取 step 个号码，取号本身不访问数据库
+ */
+@Service
+public class CodeSequenceService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CodeSequenceService.class);
+
+    public static final String GOODS_PREFIX = "G";
+
+    @Autowired
+    private CodeSequenceRepository codeSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${erp.code.segment-step:1000}")
+    private int segmentStep;
+
+    private TransactionTemplate requiresNew;
+    private ExecutorService prefetchExecutor;
+    private SegmentCodeAllocator allocator;
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "code-segment-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+        allocator = new SegmentCodeAllocator(this::loadSegment, prefetchExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 生成订单编号：销售单 SO、采购单 PO
+     */
+    public String nextOrderNo(String orderType) {
+        return allocator.nextCode("PURCHASE".equalsIgnoreCase(orderType) ? "PO" : "SO");
+    }
+
+    /**
+     * 根据分类生成商品（库存）编码，前缀规则与 CodeGenerator 一致
+     */
+    public String nextProductCode(String category) {
+        return allocator.nextCode(CodeGenerator.getCategoryPrefix(category));
+    }
+
+    /**
+     * 生成订单中新建商品的编码
+     */
+    public String nextGoodsCode() {
+        return allocator.nextCode(GOODS_PREFIX);
+    }
+
+    /**
+     * 在独立事务中领取下一个号段，避免号段行锁被调用方的长事务持有
+     */
+    SegmentCodeAllocator.Segment loadSegment(String prefix) {
+        CodeSequence sequence = requiresNew.execute(status -> {
+            codeSequenceRepository.initIfAbsent(prefix, segmentStep);
+            codeSequenceRepository.advance(prefix);
+            return codeSequenceRepository.findById(prefix)
+                    .orElseThrow(() -> new RuntimeException("编码序列不存在: " + prefix));
+        });
+        long max = sequence.getMaxValue();
+        long start = max - sequence.getStep() + 1;
+        log.info("领取编码号段: prefix={}, range=[{}, {}]", prefix, start, max);
+        return new SegmentCodeAllocator.Segment(start, max + 1);
+    }
+}
@@ -0,0 +1,262 @@
+package com.daacooerp.erp.service;
+
+import cn.hutool.core.text.csv.CsvUtil;
+import cn.hutool.core.text.csv.CsvWriter;
+import cn.hutool.poi.excel.BigExcelWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 数据导出（订单明细、财务记录、库存）
+ * 通过只进游标逐行读取（MySQL 下 fetchSize=Integer.MIN_VALUE 为逐行流式读取），
+ * 每行读出后立即写入响应流：CSV 直接写出，XLSX 使用 BigExcelWriter（SXSSF）只在内存保留一个窗口的行，
+ * 因此内存占用与导出行数无关。
+ */
+@Service
+public class ExportService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ExportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_XLSX = "xlsx";
+
+    // 非 MySQL 数据库（如测试用的 H2）使用普通的批量抓取
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    // xlsx 单个工作表最多 1048576 行，超出后换新工作表
+    private static final int XLSX_ROWS_PER_SHEET = 1_000_000;
+
+    // SXSSF 在内存中保留的行数
+    private static final int XLSX_WINDOW_SIZE = 200;
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String ORDER_SQL =
+            "SELECT o.order_no, o.order_type, o.status, o.customer_name, o.contact_person, o.tel, o.created_at, " +
+            "o.amount, o.freight, g.code AS goods_code, g.name AS goods_name, og.quantity, og.unit_price, og.total_price " +
+            "FROM orders o LEFT JOIN order_goods og ON og.order_id = o.id LEFT JOIN goods g ON g.id = og.goods_id " +
+            "WHERE o.created_at >= ? AND o.created_at < ? ";
+
+    private static final List<String> ORDER_HEADERS = Arrays.asList(
+            "订单编号", "订单类型", "状态", "客户名称", "联系人", "联系电话", "创建时间",
+            "订单金额", "运费", "商品编码", "商品名称", "数量", "单价", "小计");
+
+    private static final String FINANCE_SQL =
+            "SELECT record_date, record_type, income, expense, profit, description, source_order_no, created_by, created_at " +
+            "FROM finance_record WHERE record_date >= ? AND record_date < ? ORDER BY record_date, id";
+
+    private static final List<String> FINANCE_HEADERS = Arrays.asList(
+            "记录日期", "记录类型", "收入", "支出", "利润", "描述", "来源订单号", "创建人", "创建时间");
+
+    private static final String INVENTORY_SQL =
+            "SELECT product_code, product_name, category, quantity, unit, unit_price, location, warning_threshold, updated_at " +
+            "FROM inventory ORDER BY id";
+
+    private static final List<String> INVENTORY_HEADERS = Arrays.asList(
+            "商品编码", "商品名称", "分类", "库存数量", "单位", "单价", "库存位置", "预警阈值", "更新时间");
+
+    @Autowired
+    private DataSource dataSource;
+
+    // 首次导出时按数据库类型创建，启动时不访问数据库
+    private volatile JdbcTemplate streamingJdbcTemplate;
+
+    /**
+     * 校验导出格式，返回规范化后的格式
+     */
+    public static String normalizeFormat(String format) {
+        String normalized = format == null ? FORMAT_CSV : format.trim().toLowerCase();
+        if (!FORMAT_CSV.equals(normalized) && !FORMAT_XLSX.equals(normalized)) {
+            throw new IllegalArgumentException("不支持的导出格式: " + format + "，仅支持 csv 或 xlsx");
+        }
+        return normalized;
+    }
+
+    /**
+     * 导出订单及明细，每个订单行一行，无明细的订单也输出一行
+     * @param type SALE / PURCHASE，为空时导出全部
+     * @return 导出行数
+     */
+    public long exportOrders(String type, LocalDate startDate, LocalDate endDate, String format, OutputStream out) {
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(startDate.atStartOfDay()));
+        args.add(Timestamp.valueOf(endDate.plusDays(1).atStartOfDay()));
+        String sql = ORDER_SQL;
+        if (type != null && !type.isEmpty()) {
+            sql += "AND o.order_type = ? ";
+            args.add(type);
+        }
+        sql += "ORDER BY o.id, og.id";
+        return export("订单明细", sql, args.toArray(), ORDER_HEADERS, format, out);
+    }
+
+    /**
+     * 导出财务记录
+     * @return 导出行数
+     */
+    public long exportFinanceRecords(LocalDate startDate, LocalDate endDate, String format, OutputStream out) {
+        Object[] args = {java.sql.Date.valueOf(startDate), java.sql.Date.valueOf(endDate.plusDays(1))};
+        return export("财务记录", FINANCE_SQL, args, FINANCE_HEADERS, format, out);
+    }
+
+    /**
+     * 导出库存
+     * @return 导出行数
+     */
+    public long exportInventory(String format, OutputStream out) {
+        return export("库存", INVENTORY_SQL, new Object[0], INVENTORY_HEADERS, format, out);
+    }
+
+    private long export(String name, String sql, Object[] args, List<String> headers, String format, OutputStream out) {
+        long start = System.currentTimeMillis();
+        long[] count = {0};
+        try (RowSink sink = FORMAT_XLSX.equals(normalizeFormat(format)) ? new XlsxSink(name, out) : new CsvSink(out)) {
+            sink.write(new ArrayList<>(headers));
+            streamingJdbcTemplate().query(sql, rs -> {
+                sink.write(readRow(rs));
+                count[0]++;
+            }, args);
+        } catch (IOException e) {
+            throw new UncheckedIOException("导出" + name + "失败: " + e.getMessage(), e);
+        }
+        log.info("导出{}完成: 格式={}, 行数={}, 耗时={}ms", name, format, count[0], System.currentTimeMillis() - start);
+        return count[0];
+    }
+
+    /**
+     * MySQL 下 fetchSize=Integer.MIN_VALUE 逐行流式读取，其他数据库按 DEFAULT_FETCH_SIZE 批量抓取；
+     * 检测失败时不缓存，下次导出重新检测
+     */
+    private JdbcTemplate streamingJdbcTemplate() {
+        JdbcTemplate template = streamingJdbcTemplate;
+        if (template == null) {
+            template = new JdbcTemplate(dataSource);
+            String product = template.execute((java.sql.Connection con) -> con.getMetaData().getDatabaseProductName());
+            template.setFetchSize(product != null && product.toLowerCase().contains("mysql")
+                    ? Integer.MIN_VALUE : DEFAULT_FETCH_SIZE);
+            streamingJdbcTemplate = template;
+        }
+        return template;
+    }
+
+    private List<Object> readRow(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        List<Object> row = new ArrayList<>(meta.getColumnCount());
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            Object value = rs.getObject(i);
+            if (value instanceof Timestamp timestamp) {
+                value = timestamp.toLocalDateTime().format(DATE_TIME_FORMATTER);
+            } else if (value instanceof java.sql.Date date) {
+                value = date.toLocalDate().toString();
+            } else if (value instanceof java.time.LocalDateTime dateTime) {
+                value = dateTime.format(DATE_TIME_FORMATTER);
+            } else if (value instanceof java.time.LocalDate date) {
+                value = date.toString();
+            }
+            row.add(value);
+        }
+        return row;
+    }
+
+    /**
+     * 逐行写出目标
+     */
+    private interface RowSink extends AutoCloseable {
+        void write(List<Object> row);
+
+        @Override
+        void close() throws IOException;
+    }
+
+    /**
+     * CSV：UTF-8 带 BOM，Excel 打开中文不乱码
+     */
+    private static class CsvSink implements RowSink {
+        private final Writer writer;
+        private final CsvWriter csvWriter;
+
+        CsvSink(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            this.writer.write('\uFEFF');
+            this.csvWriter = CsvUtil.getWriter(writer);
+        }
+
+        @Override
+        public void write(List<Object> row) {
+            String[] values = new String[row.size()];
+            for (int i = 0; i < values.length; i++) {
+                Object value = row.get(i);
+                values[i] = value == null ? "" : value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+            }
+            csvWriter.writeLine(values);
+        }
+
+        @Override
+        public void close() throws IOException {
+            csvWriter.flush();
+            writer.flush();
+        }
+    }
+
+    /**
+     * XLSX：BigExcelWriter 只在内存保留窗口内的行，其余写入压缩的临时文件，结束时整体写出
+     */
+    private static class XlsxSink implements RowSink {
+        private final String sheetName;
+        private final OutputStream out;
+        private final BigExcelWriter excelWriter;
+        private List<Object> headers;
+        private int rowsInSheet;
+        private int sheetCount = 1;
+
+        XlsxSink(String sheetName, OutputStream out) {
+            this.sheetName = sheetName;
+            this.out = out;
+            this.excelWriter = new BigExcelWriter(XLSX_WINDOW_SIZE, true, false, sheetName);
+        }
+
+        @Override
+        public void write(List<Object> row) {
+            if (headers == null) {
+                headers = row;
+            } else if (rowsInSheet >= XLSX_ROWS_PER_SHEET) {
+                sheetCount++;
+                excelWriter.setSheet(sheetName + sheetCount);
+                excelWriter.writeRow(headers);
+                rowsInSheet = 0;
+            }
+            excelWriter.writeRow(row);
+            rowsInSheet++;
+        }
+
+        @Override
+        public void close() {
+            try {
+                excelWriter.flush(out, false);
+            } finally {
+                // 释放 SXSSF 临时文件
+                excelWriter.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.common.LocalCache;
+import com.daacooerp.erp.event.FinanceDataChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多年度财务对比：每个年份的按月财务和订单统计在有界线程池上并行计算，合并为一次响应。
+ * 已结束年份的结果缓存在内存中（过期时间默认1小时），财务数据变动事件（事务提交后）丢弃对应年份；
+ * 当年及以后的年份每次重新计算。
+ */
+@Service
+public class FinanceCompareService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FinanceCompareService.class);
+
+    private static final String[] TOTAL_KEYS = {"income", "expense", "profit",
+            "salesOrderQuantity", "purchaseOrderQuantity", "salesTotalAmounts", "purchaseTotalAmounts"};
+
+    private static final int CLOSED_YEAR_CACHE_SIZE = 100;
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Value("${erp.finance-compare.threads:4}")
+    private int threads;
+
+    @Value("${erp.finance-compare.max-years:10}")
+    private int maxYears;
+
+    @Value("${erp.finance-compare.timeout-ms:30000}")
+    private long timeoutMillis;
+
+    @Value("${erp.finance-compare.closed-year-ttl-ms:3600000}")
+    private long closedYearTtlMillis;
+
+    private ThreadPoolExecutor executor;
+
+    private LocalCache<Integer, Map<String, Object>> closedYears;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        // 线程数和队列都有上限，队列满时由请求线程自己计算，避免无界堆积
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(maxYears, 1) * 4), r -> {
+                    Thread t = new Thread(r, "finance-compare-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        closedYears = new LocalCache<>(CLOSED_YEAR_CACHE_SIZE, closedYearTtlMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 多年度对比：years（去重后按请求顺序）、monthly（年份 -> 按月序列，结构同 getMonthlyFinanceData）、
+     * totals（年份 -> 全年合计）
+     */
+    public Map<String, Object> compare(Collection<Integer> requestedYears) {
+        List<Integer> years = validate(requestedYears);
+        int currentYear = Year.now().getValue();
+
+        Map<Integer, CompletableFuture<Map<String, Object>>> futures = new LinkedHashMap<>();
+        for (Integer year : years) {
+            Map<String, Object> cached = year < currentYear ? closedYears.getIfPresent(year) : null;
+            futures.put(year, cached != null
+                    ? CompletableFuture.completedFuture(cached)
+                    : CompletableFuture.supplyAsync(() -> year < currentYear
+                            ? closedYears.get(year, this::computeYear)
+                            : computeYear(year), executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futures.values().forEach(future -> future.cancel(true));
+            throw new RuntimeException("多年度财务统计超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("多年度财务统计被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("多年度财务统计失败: " + cause.getMessage(), cause);
+        }
+
+        Map<String, Object> monthly = new LinkedHashMap<>();
+        Map<String, Object> totals = new LinkedHashMap<>();
+        futures.forEach((year, future) -> {
+            Map<String, Object> data = future.join();
+            monthly.put(String.valueOf(year), data);
+            totals.put(String.valueOf(year), totals(data));
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("years", years);
+        result.put("monthly", monthly);
+        result.put("totals", totals);
+        return result;
+    }
+
+    /**
+     * 财务日汇总或订单日汇总变动后（事务提交后）丢弃对应年份的缓存；没有事务时立即执行
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFinanceDataChanged(FinanceDataChangedEvent event) {
+        if (!event.isEmpty()) {
+            invalidate(event.getYears());
+        }
+    }
+
+    public void invalidate(Collection<Integer> years) {
+        closedYears.invalidateAll(years);
+    }
+
+    private List<Integer> validate(Collection<Integer> requestedYears) {
+        if (requestedYears == null || requestedYears.isEmpty()) {
+            throw new IllegalArgumentException("请至少指定一个年份");
+        }
+        List<Integer> years = new ArrayList<>(new LinkedHashSet<>(requestedYears));
+        if (years.size() > maxYears) {
+            throw new IllegalArgumentException("一次最多对比 " + maxYears + " 个年份");
+        }
+        for (Integer year : years) {
+            if (year == null || year < 1900 || year > 9999) {
+                throw new IllegalArgumentException("年份无效: " + year);
+            }
+        }
+        return years;
+    }
+
+    private Map<String, Object> computeYear(int year) {
+        Map<String, Object> data = Collections.unmodifiableMap(financeService.getMonthlyFinanceData(year));
+        log.debug("年度财务统计完成: {}", year);
+        return data;
+    }
+
+    private static Map<String, Object> totals(Map<String, Object> data) {
+        Map<String, Object> totals = new LinkedHashMap<>();
+        for (String key : TOTAL_KEYS) {
+            Object series = data.get(key);
+            if (!(series instanceof List<?> values)) {
+                continue;
+            }
+            if (!values.isEmpty() && values.get(0) instanceof Integer) {
+                totals.put(key, values.stream().mapToLong(v -> v != null ? ((Integer) v).longValue() : 0L).sum());
+            } else {
+                totals.put(key, values.stream().map(v -> v != null ? (BigDecimal) v : BigDecimal.ZERO)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add));
+            }
+        }
+        return totals;
+    }
+}
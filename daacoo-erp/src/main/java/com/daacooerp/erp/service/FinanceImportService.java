@@ -0,0 +1,385 @@
+package com.daacooerp.erp.service;
+
+import cn.hutool.core.text.csv.CsvReadConfig;
+import cn.hutool.core.text.csv.CsvReader;
+import cn.hutool.core.text.csv.CsvUtil;
+import cn.hutool.poi.excel.ExcelUtil;
+import com.daacooerp.erp.dto.FinanceImportJob;
+import com.daacooerp.erp.entity.FinanceRecord;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 财务记录导入（CSV/XLSX，如银行流水迁移）
+ * 上传文件先落到临时文件，由单个后台线程逐行解析：CSV 用 CsvReader 逐行回调，XLSX 用 SAX 方式读取，
+ * 内存中只保留一个批次的记录；每个批次通过 batchCreateFinanceRecords 以 JDBC 批量插入并在独立事务中提交，
+ * 同时维护财务日汇总。行级校验失败的行跳过并记录错误，进度和错误通过任务ID查询。
+ * 表头与财务记录导出一致（记录日期、记录类型、收入、支出、描述、来源订单号、创建人），利润按收入减支出计算。
+ */
+@Service
+public class FinanceImportService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FinanceImportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_XLSX = "xlsx";
+
+    private static final String COL_DATE = "date";
+    private static final String COL_TYPE = "type";
+    private static final String COL_INCOME = "income";
+    private static final String COL_EXPENSE = "expense";
+    private static final String COL_DESCRIPTION = "description";
+    private static final String COL_SOURCE_ORDER_NO = "sourceOrderNo";
+    private static final String COL_CREATED_BY = "createdBy";
+
+    // 表头别名（小写）-> 列；未识别的列（如利润、创建时间）忽略
+    private static final Map<String, String> HEADER_ALIASES = new HashMap<>();
+
+    static {
+        for (String alias : new String[]{"记录日期", "日期", "交易日期", "date", "recorddate", "record_date"}) {
+            HEADER_ALIASES.put(alias, COL_DATE);
+        }
+        for (String alias : new String[]{"记录类型", "类型", "type", "recordtype", "record_type"}) {
+            HEADER_ALIASES.put(alias, COL_TYPE);
+        }
+        for (String alias : new String[]{"收入", "income"}) {
+            HEADER_ALIASES.put(alias, COL_INCOME);
+        }
+        for (String alias : new String[]{"支出", "expense"}) {
+            HEADER_ALIASES.put(alias, COL_EXPENSE);
+        }
+        for (String alias : new String[]{"描述", "摘要", "description"}) {
+            HEADER_ALIASES.put(alias, COL_DESCRIPTION);
+        }
+        for (String alias : new String[]{"来源订单号", "sourceorderno", "source_order_no"}) {
+            HEADER_ALIASES.put(alias, COL_SOURCE_ORDER_NO);
+        }
+        for (String alias : new String[]{"创建人", "createdby", "created_by"}) {
+            HEADER_ALIASES.put(alias, COL_CREATED_BY);
+        }
+    }
+
+    // STRICT 解析，2月30日等不存在的日期视为无效
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ofPattern("uuuu-M-d").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("uuuu/M/d").withResolverStyle(ResolverStyle.STRICT),
+            DateTimeFormatter.ofPattern("uuuuMMdd").withResolverStyle(ResolverStyle.STRICT)
+    };
+
+    private static final Pattern EXCEL_SERIAL = Pattern.compile("[1-9]\\d{0,6}(\\.\\d+)?");
+
+    // Excel 支持的最大日期 9999-12-31 对应的序列号
+    private static final double MAX_EXCEL_SERIAL = 2958466;
+
+    // 金额列为 DECIMAL(12,2)
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("9999999999.99");
+
+    // 文本列按 finance_record 的列宽校验（VARCHAR 按字符计），超长的行记为行级错误，不让整批写入失败
+    private static final int MAX_TYPE_LENGTH = 20;
+    private static final int MAX_DESCRIPTION_LENGTH = 255;
+    private static final int MAX_SOURCE_ORDER_NO_LENGTH = 255;
+    private static final int MAX_CREATED_BY_LENGTH = 50;
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Value("${erp.finance-import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${erp.finance-import.max-errors:500}")
+    private int maxErrors;
+
+    @Value("${erp.finance-import.queue-capacity:4}")
+    private int queueCapacity;
+
+    @Value("${erp.finance-import.retention-minutes:60}")
+    private long retentionMinutes;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, FinanceImportJob> jobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        // 导入按提交顺序逐个执行，排队数有上限
+        executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "finance-import");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交导入任务，立即返回任务（状态为排队中），通过 getJob 查询进度
+     * @param operator 未指定创建人列时写入的创建人
+     */
+    public FinanceImportJob submit(MultipartFile file, String operator) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("请选择要导入的文件");
+        }
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename() : "";
+        String format = fileName.toLowerCase(Locale.ROOT).endsWith(".xlsx") ? FORMAT_XLSX
+                : fileName.toLowerCase(Locale.ROOT).endsWith(".csv") ? FORMAT_CSV : null;
+        if (format == null) {
+            throw new IllegalArgumentException("仅支持 csv 或 xlsx 文件");
+        }
+        pruneFinishedJobs();
+
+        Path temp = Files.createTempFile("finance-import-", "." + format);
+        file.transferTo(temp);
+        FinanceImportJob job = new FinanceImportJob(UUID.randomUUID().toString(), fileName, format, maxErrors);
+        jobs.put(job.getJobId(), job);
+        try {
+            executor.execute(() -> run(job, temp, operator));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            Files.deleteIfExists(temp);
+            throw new IllegalStateException("导入任务排队已满，请稍后再试");
+        }
+        log.info("财务记录导入任务已提交: {}, 文件 {}", job.getJobId(), fileName);
+        return job;
+    }
+
+    public FinanceImportJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private void run(FinanceImportJob job, Path file, String operator) {
+        job.start();
+        Importer importer = new Importer(job, operator);
+        try {
+            if (FORMAT_XLSX.equals(job.getFormat())) {
+                // -1 读取所有工作表，每个工作表第一行为表头
+                ExcelUtil.readBySax(file.toFile(), -1, (sheetIndex, rowIndex, cells) ->
+                        importer.row(sheetIndex + 1, rowIndex + 1, cells));
+            } else {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    CsvReader csvReader = CsvUtil.getReader(reader, CsvReadConfig.defaultConfig().setSkipEmptyRows(false));
+                    long[] rowNo = {0};
+                    csvReader.read(row -> importer.row(null, ++rowNo[0], row.getRawList()));
+                }
+            }
+            importer.flush();
+            job.complete();
+            log.info("财务记录导入完成: {}, 解析 {} 行, 导入 {} 行, 错误 {} 行",
+                    job.getJobId(), job.getProcessedRows(), job.getImportedRows(), job.getErrorCount());
+        } catch (Exception e) {
+            log.error("财务记录导入失败: {}, 已导入 {} 行: {}", job.getJobId(), job.getImportedRows(), e.getMessage(), e);
+            job.fail("导入中断，已导入 " + job.getImportedRows() + " 行: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("删除导入临时文件失败: {}", file);
+            }
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    /**
+     * 单个导入任务的解析状态：当前工作表的列位置和待提交的批次
+     */
+    private class Importer {
+
+        private final FinanceImportJob job;
+        private final String operator;
+        private final List<FinanceRecord> batch = new ArrayList<>(batchSize);
+        private Map<String, Integer> columns;
+        private Integer currentSheet;
+
+        private Importer(FinanceImportJob job, String operator) {
+            this.job = job;
+            this.operator = operator;
+        }
+
+        private void row(Integer sheet, long rowNo, List<?> cells) {
+            if (columns == null || rowNo == 1 || (sheet != null && !sheet.equals(currentSheet))) {
+                columns = header(cells);
+                currentSheet = sheet;
+                return;
+            }
+            if (cells.stream().allMatch(cell -> text(cell) == null)) {
+                return;
+            }
+            job.rowProcessed();
+            try {
+                batch.add(toRecord(cells));
+            } catch (IllegalArgumentException e) {
+                job.rowFailed(sheet, rowNo, e.getMessage());
+            }
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            int inserted = financeService.batchCreateFinanceRecords(new ArrayList<>(batch));
+            job.rowsImported(inserted, batch.size() - inserted);
+            batch.clear();
+        }
+
+        private Map<String, Integer> header(List<?> cells) {
+            Map<String, Integer> result = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                String name = text(cells.get(i));
+                if (name == null) {
+                    continue;
+                }
+                String column = HEADER_ALIASES.get(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+                if (column != null) {
+                    result.putIfAbsent(column, i);
+                }
+            }
+            if (!result.containsKey(COL_DATE)) {
+                throw new IllegalArgumentException("表头缺少记录日期列");
+            }
+            if (!result.containsKey(COL_INCOME) && !result.containsKey(COL_EXPENSE)) {
+                throw new IllegalArgumentException("表头缺少收入或支出列");
+            }
+            return result;
+        }
+
+        private FinanceRecord toRecord(List<?> cells) {
+            FinanceRecord record = new FinanceRecord();
+            record.setRecordDate(java.sql.Date.valueOf(date(cell(cells, COL_DATE))));
+            BigDecimal income = amount(cell(cells, COL_INCOME), "收入");
+            BigDecimal expense = amount(cell(cells, COL_EXPENSE), "支出");
+            if (income == null && expense == null) {
+                throw new IllegalArgumentException("收入和支出不能同时为空");
+            }
+            record.setIncome(income != null ? income : BigDecimal.ZERO);
+            record.setExpense(expense != null ? expense : BigDecimal.ZERO);
+            String type = limited(cell(cells, COL_TYPE), "记录类型", MAX_TYPE_LENGTH);
+            record.setRecordType(type != null ? type
+                    : record.getIncome().compareTo(record.getExpense()) >= 0 ? "OTHER_INCOME" : "OTHER_EXPENSE");
+            record.setDescription(limited(cell(cells, COL_DESCRIPTION), "描述", MAX_DESCRIPTION_LENGTH));
+            record.setSourceOrderNo(limited(cell(cells, COL_SOURCE_ORDER_NO), "来源订单号", MAX_SOURCE_ORDER_NO_LENGTH));
+            String createdBy = limited(cell(cells, COL_CREATED_BY), "创建人", MAX_CREATED_BY_LENGTH);
+            record.setCreatedBy(createdBy != null ? createdBy : operator);
+            return record;
+        }
+
+        private Object cell(List<?> cells, String column) {
+            Integer index = columns.get(column);
+            return index != null && index < cells.size() ? cells.get(index) : null;
+        }
+    }
+
+    private static LocalDate date(Object value) {
+        if (value instanceof Date date) {
+            return LocalDate.ofInstant(date.toInstant(), ZoneId.systemDefault());
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.toLocalDate();
+        }
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        String text = text(value);
+        if (text == null) {
+            throw new IllegalArgumentException("记录日期不能为空");
+        }
+        // 未被识别为日期格式的 XLSX 日期单元格读出的是 Excel 序列号（1900 起的天数），yyyyMMdd 形式的数字按文本解析
+        if (EXCEL_SERIAL.matcher(text).matches() && Double.parseDouble(text) < MAX_EXCEL_SERIAL) {
+            return DateUtil.getLocalDateTime(Double.parseDouble(text)).toLocalDate();
+        }
+        // 带时间的日期只取日期部分
+        String datePart = text.split("[ T]")[0];
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(datePart, format);
+            } catch (DateTimeParseException ignored) {
+                // 尝试下一种格式
+            }
+        }
+        throw new IllegalArgumentException("记录日期格式无效: " + text);
+    }
+
+    private static BigDecimal amount(Object value, String label) {
+        String text = text(value);
+        if (text == null) {
+            return null;
+        }
+        BigDecimal amount;
+        try {
+            amount = value instanceof Number ? new BigDecimal(value.toString()) : new BigDecimal(text.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(label + "不是有效的金额: " + text);
+        }
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException(label + "不能为负数: " + text);
+        }
+        if (amount.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException(label + "最多两位小数: " + text);
+        }
+        if (amount.compareTo(MAX_AMOUNT) > 0) {
+            throw new IllegalArgumentException(label + "超出范围: " + text);
+        }
+        return amount;
+    }
+
+    private static String limited(Object value, String label, int maxLength) {
+        String text = text(value);
+        if (text != null && text.codePointCount(0, text.length()) > maxLength) {
+            throw new IllegalArgumentException(label + "超过 " + maxLength + " 个字符");
+        }
+        return text;
+    }
+
+    private static String text(Object value) {
+        if (value == null) {
+            return null;
+        }
+        // 数字单元格（如 20240101.0）按不带科学计数法和多余小数的形式转为文本
+        String text = value instanceof Number && !(value instanceof BigDecimal)
+                ? new BigDecimal(value.toString()).stripTrailingZeros().toPlainString()
+                : value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+}
@@ -0,0 +1,279 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.event.FinanceSummaryChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 财务日合计前缀和索引：按天保存收入、支出、利润（单位：分）和记录数的前缀和，
+ * 任意日期区间的合计为两次数组读取相减，滚动窗口（近7/30/90天等）不再查询数据库。
+ * 启动时从财务日汇总表加载；日汇总变动后（事务提交后）重新读取受影响日期并把差额累加到其后的前缀和，
+ * 其他实例的变动由定时全量重载覆盖。
+ */
+@Service
+public class FinancePrefixSumIndex {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FinancePrefixSumIndex.class);
+
+    // 覆盖的日期跨度上限（约100年），超出范围的日期不进索引，区间查询改走日汇总表
+    private static final int MAX_SPAN_DAYS = 36525;
+
+    private static final int INCOME = 0;
+    private static final int EXPENSE = 1;
+    private static final int PROFIT = 2;
+    private static final int COUNT = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FinanceSummaryService financeSummaryService;
+
+    // 第一个被索引的日期；prefix[k][i] 为 [base, base + i) 的合计，i 取 0..days
+    private LocalDate base;
+
+    private int days;
+
+    private long[][] prefix = new long[4][1];
+
+    private boolean loaded;
+
+    // 有日期超出跨度上限时置位，查询改走日汇总表
+    private boolean overflow;
+
+    /**
+     * 启动时从日汇总表加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("财务前缀和索引加载失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时全量重载（默认10分钟），覆盖其他实例或直接改库造成的变化
+     */
+    @Scheduled(fixedDelayString = "${erp.finance-prefix.reload-ms:600000}",
+               initialDelayString = "${erp.finance-prefix.reload-ms:600000}")
+    public void scheduledReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("财务前缀和索引重载失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 日汇总变动后（事务提交后）重新读取受影响的日期；没有事务时立即执行
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onSummaryChanged(FinanceSummaryChangedEvent event) {
+        if (event.isEmpty()) {
+            return;
+        }
+        try {
+            if (event.isReloadAll()) {
+                reload();
+            } else {
+                refresh(event.getDays());
+            }
+        } catch (Exception e) {
+            log.warn("更新财务前缀和索引失败，等待定时重载: {}", e.getMessage());
+        }
+    }
+
+    public synchronized void reload() {
+        base = null;
+        days = 0;
+        prefix = new long[4][1];
+        overflow = false;
+        jdbcTemplate.query("SELECT stat_date, income, expense, profit, record_count FROM finance_daily_summary " +
+                "ORDER BY stat_date", rs -> {
+            set(rs.getDate("stat_date").toLocalDate(), cents(rs.getBigDecimal("income")),
+                    cents(rs.getBigDecimal("expense")), cents(rs.getBigDecimal("profit")), rs.getLong("record_count"));
+        });
+        loaded = true;
+        log.info("财务前缀和索引加载完成: {} 天, 起始 {}", days, base);
+    }
+
+    /**
+     * 从日汇总表重新读取指定日期并写入索引（持锁读取，保证按提交顺序生效）
+     */
+    public synchronized void refresh(Collection<LocalDate> changedDays) {
+        if (changedDays.isEmpty()) {
+            return;
+        }
+        if (!loaded) {
+            reload();
+            return;
+        }
+        List<Date> dates = changedDays.stream().map(Date::valueOf).toList();
+        String placeholders = String.join(", ", Collections.nCopies(dates.size(), "?"));
+        Map<LocalDate, long[]> rows = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT stat_date, income, expense, profit, record_count FROM finance_daily_summary " +
+                "WHERE stat_date IN (" + placeholders + ")", rs -> {
+            rows.put(rs.getDate("stat_date").toLocalDate(), new long[]{cents(rs.getBigDecimal("income")),
+                    cents(rs.getBigDecimal("expense")), cents(rs.getBigDecimal("profit")), rs.getLong("record_count")});
+        }, dates.toArray());
+        for (LocalDate day : changedDays) {
+            long[] row = rows.getOrDefault(day, new long[4]);
+            set(day, row[INCOME], row[EXPENSE], row[PROFIT], row[COUNT]);
+        }
+    }
+
+    /**
+     * 日期区间 [from, to] 的合计：income、expense、profit（元）和 recordCount
+     */
+    public Map<String, Object> getTotals(LocalDate from, LocalDate to) {
+        long[] totals;
+        synchronized (this) {
+            totals = loaded && !overflow ? sum(from, to) : null;
+        }
+        if (totals == null) {
+            Map<String, Object> statistics = financeSummaryService.getStatistics(Date.valueOf(from), Date.valueOf(to));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("income", statistics.get("totalIncome"));
+            result.put("expense", statistics.get("totalExpense"));
+            result.put("profit", statistics.get("totalProfit"));
+            result.put("recordCount", statistics.get("recordCount"));
+            return result;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("income", BigDecimal.valueOf(totals[INCOME], 2));
+        result.put("expense", BigDecimal.valueOf(totals[EXPENSE], 2));
+        result.put("profit", BigDecimal.valueOf(totals[PROFIT], 2));
+        result.put("recordCount", totals[COUNT]);
+        return result;
+    }
+
+    /**
+     * 截至 end（含）的多个滚动窗口合计，windowDays 如 7、30、90
+     */
+    public List<Map<String, Object>> getRollingWindows(LocalDate end, Collection<Integer> windowDays) {
+        List<Map<String, Object>> windows = new ArrayList<>();
+        for (Integer window : windowDays) {
+            LocalDate from = end.minusDays(window - 1L);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("days", window);
+            item.put("from", from);
+            item.put("to", end);
+            item.putAll(getTotals(from, end));
+            windows.add(item);
+        }
+        return windows;
+    }
+
+    private long[] sum(LocalDate from, LocalDate to) {
+        long[] totals = new long[4];
+        if (base == null || from.isAfter(to)) {
+            return totals;
+        }
+        int lo = clamp(ChronoUnit.DAYS.between(base, from));
+        int hi = clamp(ChronoUnit.DAYS.between(base, to) + 1);
+        for (int k = 0; k < 4; k++) {
+            totals[k] = prefix[k][hi] - prefix[k][lo];
+        }
+        return totals;
+    }
+
+    private int clamp(long index) {
+        return (int) Math.max(0, Math.min(days, index));
+    }
+
+    /**
+     * 把某天的合计设为给定值：与当前值的差额累加到该天之后的所有前缀和
+     * 变动多为近期日期，需要移动的前缀和很少
+     */
+    private void set(LocalDate day, long income, long expense, long profit, long count) {
+        boolean covered = base != null && !day.isBefore(base) && ChronoUnit.DAYS.between(base, day) < days;
+        if (!covered && income == 0 && expense == 0 && profit == 0 && count == 0) {
+            return;
+        }
+        if (!ensureCovered(day)) {
+            overflow = true;
+            log.warn("财务记录日期超出前缀和索引跨度，区间统计改读日汇总表: {}", day);
+            return;
+        }
+        int index = (int) ChronoUnit.DAYS.between(base, day);
+        long[] values = {income, expense, profit, count};
+        for (int k = 0; k < 4; k++) {
+            long delta = values[k] - (prefix[k][index + 1] - prefix[k][index]);
+            if (delta == 0) {
+                continue;
+            }
+            long[] sums = prefix[k];
+            for (int i = index + 1; i <= days; i++) {
+                sums[i] += delta;
+            }
+        }
+    }
+
+    /**
+     * 扩展索引使其覆盖该日期（向前扩展时整体平移，向后扩展时沿用最后的前缀和）
+     */
+    private boolean ensureCovered(LocalDate day) {
+        if (base == null) {
+            base = day;
+            days = 1;
+            prefix = new long[4][64];
+            return true;
+        }
+        long offset = ChronoUnit.DAYS.between(base, day);
+        if (offset >= 0 && offset < days) {
+            return true;
+        }
+        long newDays = offset < 0 ? days - offset : offset + 1;
+        if (newDays > MAX_SPAN_DAYS) {
+            return false;
+        }
+        int shift = offset < 0 ? (int) -offset : 0;
+        int capacity = prefix[0].length;
+        if (newDays + 1 > capacity || shift > 0) {
+            capacity = (int) Math.max(newDays + 1, Math.min((long) capacity * 2, MAX_SPAN_DAYS + 1L));
+            for (int k = 0; k < 4; k++) {
+                long[] grown = new long[capacity];
+                System.arraycopy(prefix[k], 0, grown, shift, days + 1);
+                prefix[k] = grown;
+            }
+        }
+        for (int k = 0; k < 4; k++) {
+            long last = prefix[k][shift + days];
+            for (int i = shift + days + 1; i <= newDays; i++) {
+                prefix[k][i] = last;
+            }
+        }
+        if (shift > 0) {
+            base = day;
+        }
+        days = (int) newDays;
+        return true;
+    }
+
+    private static long cents(BigDecimal value) {
+        return value != null ? value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : 0L;
+    }
+}
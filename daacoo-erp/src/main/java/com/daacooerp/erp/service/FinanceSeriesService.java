@@ -0,0 +1,187 @@
+package com.daacooerp.erp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * 财务图表时间序列：按天、周（周一开始）或月分桶，数据取自财务日汇总表，
+ * 返回的点数只与区间长度和分桶有关，与明细记录数无关；
+ * 指定 maxPoints 时再用 LTTB（Largest-Triangle-Three-Buckets）降采样，保留曲线的峰谷形状。
+ */
+@Service
+public class FinanceSeriesService {
+
+    public static final String BUCKET_DAY = "day";
+    public static final String BUCKET_WEEK = "week";
+    public static final String BUCKET_MONTH = "month";
+
+    // 分桶数上限（约100年的天数），防止超长区间生成过大的序列
+    private static final int MAX_BUCKETS = 36600;
+
+    private static final int MAX_POINTS = 10000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 区间 [from, to] 的分桶序列，无数据的桶补零；每个点包含 date（桶起始日）、income、expense、profit、recordCount
+     * @param bucket day、week 或 month，为空时按天
+     * @param maxPoints 最多返回的点数（不小于3），为空时不降采样
+     */
+    public List<Map<String, Object>> getSeries(LocalDate from, LocalDate to, String bucket, Integer maxPoints) {
+        String unit = bucket == null || bucket.isBlank() ? BUCKET_DAY : bucket.trim().toLowerCase(Locale.ROOT);
+        if (!BUCKET_DAY.equals(unit) && !BUCKET_WEEK.equals(unit) && !BUCKET_MONTH.equals(unit)) {
+            throw new IllegalArgumentException("bucket 只支持 day、week、month");
+        }
+        if (maxPoints != null && (maxPoints < 3 || maxPoints > MAX_POINTS)) {
+            throw new IllegalArgumentException("maxPoints 应在 3 到 " + MAX_POINTS + " 之间");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("开始日期不能晚于结束日期");
+        }
+
+        LocalDate first = bucketStart(from, unit);
+        long size = bucketIndex(first, to, unit) + 1;
+        if (size > MAX_BUCKETS) {
+            throw new IllegalArgumentException("区间过长，请缩小日期范围或使用更大的分桶");
+        }
+
+        int n = (int) size;
+        BigDecimal[] income = new BigDecimal[n];
+        BigDecimal[] expense = new BigDecimal[n];
+        BigDecimal[] profit = new BigDecimal[n];
+        long[] count = new long[n];
+        Arrays.fill(income, BigDecimal.ZERO);
+        Arrays.fill(expense, BigDecimal.ZERO);
+        Arrays.fill(profit, BigDecimal.ZERO);
+
+        // 日汇总每天一行，区间内行数不超过天数
+        jdbcTemplate.query("SELECT stat_date, income, expense, profit, record_count FROM finance_daily_summary " +
+                "WHERE stat_date >= ? AND stat_date <= ?", rs -> {
+            int i = (int) bucketIndex(first, rs.getDate("stat_date").toLocalDate(), unit);
+            income[i] = income[i].add(decimal(rs.getBigDecimal("income")));
+            expense[i] = expense[i].add(decimal(rs.getBigDecimal("expense")));
+            profit[i] = profit[i].add(decimal(rs.getBigDecimal("profit")));
+            count[i] += rs.getLong("record_count");
+        }, Date.valueOf(from), Date.valueOf(to));
+
+        int[] selected;
+        if (maxPoints != null && n > maxPoints) {
+            double[][] values = new double[3][n];
+            for (int i = 0; i < n; i++) {
+                values[0][i] = income[i].doubleValue();
+                values[1][i] = expense[i].doubleValue();
+                values[2][i] = profit[i].doubleValue();
+            }
+            selected = largestTriangleThreeBuckets(values, maxPoints);
+        } else {
+            selected = IntStream.range(0, n).toArray();
+        }
+
+        List<Map<String, Object>> series = new ArrayList<>(selected.length);
+        for (int i : selected) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", bucketDate(first, i, unit).toString());
+            point.put("income", income[i]);
+            point.put("expense", expense[i]);
+            point.put("profit", profit[i]);
+            point.put("recordCount", count[i]);
+            series.add(point);
+        }
+        return series;
+    }
+
+    /**
+     * LTTB 降采样，返回保留的下标（升序，首尾必选）。
+     * 横轴为下标；多条序列同时参与时，三角形面积取各序列面积之和，使任一曲线的峰谷都尽量被保留
+     */
+    static int[] largestTriangleThreeBuckets(double[][] series, int threshold) {
+        int n = series[0].length;
+        if (threshold >= n || threshold < 3) {
+            return IntStream.range(0, n).toArray();
+        }
+        int[] selected = new int[threshold];
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            // 下一个桶的平均点作为三角形第三个顶点
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0;
+            double[] avgY = new double[series.length];
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += j;
+                for (int s = 0; s < series.length; s++) {
+                    avgY[s] += series[s][j];
+                }
+            }
+            int avgLength = avgEnd - avgStart;
+            avgX /= avgLength;
+            for (int s = 0; s < series.length; s++) {
+                avgY[s] /= avgLength;
+            }
+
+            int rangeStart = (int) Math.floor(i * every) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = 0;
+                for (int s = 0; s < series.length; s++) {
+                    area += Math.abs((a - avgX) * (series[s][j] - series[s][a]) - (a - j) * (avgY[s] - series[s][a]));
+                }
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            selected[i + 1] = next;
+            a = next;
+        }
+        selected[threshold - 1] = n - 1;
+        return selected;
+    }
+
+    private static LocalDate bucketStart(LocalDate day, String unit) {
+        return switch (unit) {
+            case BUCKET_WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case BUCKET_MONTH -> day.withDayOfMonth(1);
+            default -> day;
+        };
+    }
+
+    private static long bucketIndex(LocalDate first, LocalDate day, String unit) {
+        return switch (unit) {
+            case BUCKET_WEEK -> ChronoUnit.DAYS.between(first, day) / 7;
+            case BUCKET_MONTH -> ChronoUnit.MONTHS.between(first, day.withDayOfMonth(1));
+            default -> ChronoUnit.DAYS.between(first, day);
+        };
+    }
+
+    private static LocalDate bucketDate(LocalDate first, int index, String unit) {
+        return switch (unit) {
+            case BUCKET_WEEK -> first.plusWeeks(index);
+            case BUCKET_MONTH -> first.plusMonths(index);
+            default -> first.plusDays(index);
+        };
+    }
+
+    private static BigDecimal decimal(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -1,5 +1,6 @@
 package com.daacooerp.erp.service;
 
+import com.daacooerp.erp.common.CursorPage;
 import com.daacooerp.erp.entity.FinanceRecord;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,12 +17,18 @@ public interface FinanceService {
     // 分页获取财务记录
     Page<FinanceRecord> getFinanceRecordsPaged(Date startDate, Date endDate, Pageable pageable);
     
+    // 键集分页获取财务记录（按记录日期正序，不执行COUNT）
+    CursorPage<FinanceRecord> getFinanceRecordsByCursor(Date startDate, Date endDate, String cursor, int size);
+    
     // 获取财务统计数据
     Map<String, Object> getFinanceStatistics(Date startDate, Date endDate);
     
     // 创建财务记录
     FinanceRecord createFinanceRecord(FinanceRecord record);
     
+    // 批量创建财务记录（JDBC批处理，来源订单号已存在的记录跳过），返回实际插入的记录数
+    int batchCreateFinanceRecords(List<FinanceRecord> records);
+    
     // 更新财务记录
     FinanceRecord updateFinanceRecord(Long id, FinanceRecord record);
     
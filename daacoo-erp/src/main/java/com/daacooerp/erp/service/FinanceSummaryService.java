@@ -0,0 +1,216 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.event.FinanceDataChangedEvent;
+import com.daacooerp.erp.event.FinanceSummaryChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 财务日汇总服务
+ * 财务记录新增、修改、删除时在同一事务内把金额增量写入 finance_daily_summary，
+ * 区间统计只累加汇总表中的日期行（一年最多366行），不再对 finance_record 做全区间 SUM/COUNT。
+ */
+@Service
+public class FinanceSummaryService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FinanceSummaryService.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO finance_daily_summary (stat_date, income, expense, profit, record_count, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE income = income + VALUES(income), expense = expense + VALUES(expense), " +
+            "profit = profit + VALUES(profit), record_count = record_count + VALUES(record_count), " +
+            "updated_at = VALUES(updated_at)";
+
+    // 按记录日期从明细重新汇总，%s 为附加的日期条件
+    private static final String REBUILD_SQL =
+            "INSERT INTO finance_daily_summary (stat_date, income, expense, profit, record_count, updated_at) " +
+            "SELECT record_date, COALESCE(SUM(income), 0), COALESCE(SUM(expense), 0), COALESCE(SUM(profit), 0), " +
+            "COUNT(*), CURRENT_TIMESTAMP FROM finance_record WHERE %s GROUP BY record_date";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${erp.finance-summary.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    /**
+     * 把记录的金额累加（sign=1）或扣减（sign=-1）到日汇总（需在写记录的事务内调用）
+     */
+    public void apply(Collection<FinanceRecord> records, int sign) {
+        // 同一批次内相同日期先在内存合并，减少写入行数
+        Map<LocalDate, Object[]> rows = new TreeMap<>();
+        for (FinanceRecord record : records) {
+            if (record == null || record.getRecordDate() == null) {
+                continue;
+            }
+            Object[] row = rows.computeIfAbsent(toLocalDate(record.getRecordDate()),
+                    day -> new Object[]{BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0});
+            row[0] = ((BigDecimal) row[0]).add(signed(record.getIncome(), sign));
+            row[1] = ((BigDecimal) row[1]).add(signed(record.getExpense(), sign));
+            row[2] = ((BigDecimal) row[2]).add(signed(record.getProfit(), sign));
+            row[3] = (Integer) row[3] + sign;
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new ArrayList<>(rows.entrySet()), 500, (ps, entry) -> {
+            Object[] row = entry.getValue();
+            ps.setDate(1, Date.valueOf(entry.getKey()));
+            ps.setBigDecimal(2, (BigDecimal) row[0]);
+            ps.setBigDecimal(3, (BigDecimal) row[1]);
+            ps.setBigDecimal(4, (BigDecimal) row[2]);
+            ps.setInt(5, (Integer) row[3]);
+            ps.setTimestamp(6, now);
+        });
+        eventPublisher.publishEvent(FinanceDataChangedEvent.ofDates(rows.keySet()));
+        eventPublisher.publishEvent(FinanceSummaryChangedEvent.ofDays(rows.keySet()));
+    }
+
+    /**
+     * 从明细重新汇总指定日期，用于无法确定增量的场景（如批量写入未返回逐行结果）
+     */
+    public void refreshDays(Collection<LocalDate> days) {
+        if (days == null || days.isEmpty()) {
+            return;
+        }
+        List<Date> dates = new TreeSet<>(days).stream().map(Date::valueOf).toList();
+        String placeholders = String.join(", ", Collections.nCopies(dates.size(), "?"));
+        Object[] args = dates.toArray();
+        jdbcTemplate.update("DELETE FROM finance_daily_summary WHERE stat_date IN (" + placeholders + ")", args);
+        jdbcTemplate.update(String.format(REBUILD_SQL, "record_date IN (" + placeholders + ")"), args);
+        eventPublisher.publishEvent(FinanceDataChangedEvent.ofDates(days));
+        eventPublisher.publishEvent(FinanceSummaryChangedEvent.ofDays(days));
+    }
+
+    /**
+     * 按日期范围重建日汇总 [from, to]，可用于初次回填或修复数据
+     * @return 重建后的汇总行数
+     */
+    @Transactional
+    public int rebuild(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new RuntimeException("重建日期范围无效");
+        }
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM finance_daily_summary WHERE stat_date >= ? AND stat_date <= ?",
+                Date.valueOf(from), Date.valueOf(to));
+        int inserted = jdbcTemplate.update(String.format(REBUILD_SQL, "record_date >= ? AND record_date <= ?"),
+                Date.valueOf(from), Date.valueOf(to));
+        eventPublisher.publishEvent(FinanceDataChangedEvent.ofRange(from, to));
+        eventPublisher.publishEvent(FinanceSummaryChangedEvent.ofAll());
+        log.info("财务日汇总重建完成: {} ~ {}, 删除 {} 行, 写入 {} 行", from, to, deleted, inserted);
+        return inserted;
+    }
+
+    /**
+     * 全量重建：覆盖所有财务记录的日期范围
+     */
+    @Transactional
+    public int rebuildAll() {
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(record_date) AS min_date, MAX(record_date) AS max_date FROM finance_record");
+        Object min = range.get("min_date");
+        Object max = range.get("max_date");
+        if (min == null || max == null) {
+            return 0;
+        }
+        return rebuild(((Date) min).toLocalDate(), ((Date) max).toLocalDate());
+    }
+
+    /**
+     * 启动时若汇总表为空则自动回填历史财务记录
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM (SELECT 1 FROM finance_daily_summary LIMIT 1) t", Integer.class);
+            if (existing != null && existing == 0) {
+                log.info("财务日汇总为空，开始回填历史财务记录");
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            log.error("财务日汇总回填失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 区间统计，口径与原来的 record_date BETWEEN startDate AND endDate 一致：
+     * 起始时间不是零点时从次日算起，截止时间所在的日期包含在内
+     * @return totalIncome、totalExpense、totalProfit、recordCount
+     */
+    public Map<String, Object> getStatistics(java.util.Date startDate, java.util.Date endDate) {
+        LocalDate firstDay = toLocalDate(startDate);
+        if (!(startDate instanceof Date)
+                && !LocalDateTime.ofInstant(startDate.toInstant(), ZoneId.systemDefault()).toLocalTime().equals(LocalTime.MIDNIGHT)) {
+            firstDay = firstDay.plusDays(1);
+        }
+        LocalDate lastDay = toLocalDate(endDate);
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT SUM(income) AS total_income, SUM(expense) AS total_expense, SUM(profit) AS total_profit, " +
+                "SUM(record_count) AS record_count FROM finance_daily_summary WHERE stat_date >= ? AND stat_date <= ?",
+                Date.valueOf(firstDay), Date.valueOf(lastDay));
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalIncome", decimal(row.get("total_income")));
+        statistics.put("totalExpense", decimal(row.get("total_expense")));
+        statistics.put("totalProfit", decimal(row.get("total_profit")));
+        Object count = row.get("record_count");
+        statistics.put("recordCount", count != null ? ((Number) count).longValue() : 0L);
+        return statistics;
+    }
+
+    public static LocalDate toLocalDate(java.util.Date date) {
+        if (date instanceof Date sqlDate) {
+            return sqlDate.toLocalDate();
+        }
+        return LocalDate.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+
+    private static BigDecimal signed(BigDecimal value, int sign) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return sign < 0 ? value.negate() : value;
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
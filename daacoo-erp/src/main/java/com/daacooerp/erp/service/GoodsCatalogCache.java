@@ -0,0 +1,153 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Goods;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 商品名称 -> 商品 的有界LRU缓存，用于创建订单时按名称解析商品
+ * 缓存保存的是快照，读取时返回副本，调用方修改不会影响缓存；
+ * 写入和失效都在事务提交后生效，回滚的新商品不会进入缓存，
+ * 商品库存变动时由调用方按ID失效，避免返回过期的库存。
+ */
+@Service
+public class GoodsCatalogCache {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(GoodsCatalogCache.class);
+
+    private final int maxSize;
+
+    private final LinkedHashMap<String, Goods> byName;
+
+    private long hits;
+
+    private long misses;
+
+    public GoodsCatalogCache(@Value("${erp.goods-cache.max-size:5000}") int maxSize) {
+        this.maxSize = Math.max(maxSize, 1);
+        this.byName = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Goods> eldest) {
+                return size() > GoodsCatalogCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 批量读取，只返回命中的名称
+     */
+    public synchronized Map<String, Goods> getAll(Collection<String> names) {
+        Map<String, Goods> found = new HashMap<>();
+        for (String name : names) {
+            Goods goods = byName.get(name);
+            if (goods != null) {
+                found.put(name, copyOf(goods));
+            }
+        }
+        hits += found.size();
+        misses += names.size() - found.size();
+        return found;
+    }
+
+    /**
+     * 放入缓存；在事务中调用时等提交后再放入
+     */
+    public void putAll(Collection<Goods> goods) {
+        if (goods.isEmpty()) {
+            return;
+        }
+        List<Goods> snapshots = new ArrayList<>();
+        for (Goods item : goods) {
+            if (item.getId() != null && item.getName() != null) {
+                snapshots.add(copyOf(item));
+            }
+        }
+        afterCommit(() -> {
+            synchronized (this) {
+                for (Goods snapshot : snapshots) {
+                    byName.put(snapshot.getName(), snapshot);
+                }
+            }
+        });
+    }
+
+    /**
+     * 按商品ID失效：立即失效一次，事务提交后再失效一次，
+     * 防止提交前被并发请求用旧数据重新放入
+     */
+    public void evictByIds(Collection<Long> goodsIds) {
+        if (goodsIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(goodsIds);
+        Runnable evict = () -> {
+            synchronized (this) {
+                byName.values().removeIf(goods -> ids.contains(goods.getId()));
+            }
+        };
+        evict.run();
+        afterCommit(evict);
+    }
+
+    public synchronized void clear() {
+        byName.clear();
+        log.info("商品名称缓存已清空");
+    }
+
+    public synchronized int size() {
+        return byName.size();
+    }
+
+    /**
+     * 命中统计：hits, misses, size
+     */
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("size", (long) byName.size());
+        return stats;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static Goods copyOf(Goods source) {
+        Goods copy = new Goods();
+        copy.setId(source.getId());
+        copy.setCode(source.getCode());
+        copy.setName(source.getName());
+        copy.setCategory(source.getCategory());
+        copy.setSpecification(source.getSpecification());
+        copy.setUnit(source.getUnit());
+        copy.setPurchasePrice(source.getPurchasePrice());
+        copy.setSellingPrice(source.getSellingPrice());
+        copy.setStock(source.getStock());
+        copy.setStatus(source.getStatus());
+        copy.setDescription(source.getDescription());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+}
@@ -1,5 +1,9 @@
 package com.daacooerp.erp.service;
 
+import com.daacooerp.erp.common.CursorPage;
+import com.daacooerp.erp.dto.BulkStockRequest;
+import com.daacooerp.erp.dto.BulkStockResult;
+import com.daacooerp.erp.entity.Goods;
 import com.daacooerp.erp.entity.Inventory;
 import org.springframework.data.domain.Page;
 
@@ -9,6 +13,12 @@ public interface InventoryService {
      */
     Page<Inventory> getInventoryList(Integer page, Integer size);
 
+    /**
+     * 键集分页获取库存列表（按创建时间正序，不执行COUNT）
+     * @param cursor 上一页返回的游标，为空表示第一页
+     */
+    CursorPage<Inventory> getInventoryByCursor(String cursor, int size);
+
     /**
      * 获取单个库存详情
      */
@@ -34,11 +44,21 @@ public interface InventoryService {
      */
     Inventory stockIn(Inventory inventory);
 
+    /**
+     * 库存入库，并按指定原因和关联订单记录库存流水
+     */
+    Inventory stockIn(Inventory inventory, String reason, Long orderId);
+
     /**
      * 库存出库
      */
     Inventory stockOut(Inventory inventory);
 
+    /**
+     * 库存出库，并按指定原因和关联订单记录库存流水
+     */
+    Inventory stockOut(Inventory inventory, String reason, Long orderId);
+
     /**
      * 根据商品名称查找库存
      */
@@ -49,8 +69,49 @@ public interface InventoryService {
      */
     Inventory createOrUpdateInventoryFromGoods(String productName, String productCode, Integer quantity, Double unitPrice);
 
+    /**
+     * 按商品ID（inventory.goods_id）入库：已关联的库存直接累加，否则新建并关联，
+     * 同时按指定原因和关联订单记录库存流水
+     */
+    Inventory createOrUpdateInventoryFromGoods(Goods goods, Integer quantity, Double unitPrice,
+                                               String reason, Long orderId);
+
+    /**
+     * 根据商品ID查找库存
+     */
+    Inventory findByGoodsId(Long goodsId);
+
+    /**
+     * 新建商品后关联同名且尚未关联商品的库存
+     */
+    void linkGoods(java.util.List<Goods> goods);
+
     /**
      * 获取所有商品名称列表（用于自动提示）
      */
     java.util.List<String> getAllProductNames();
-}
\ No newline at end of file
+
+    /**
+     * 批量调整库存数量（JDBC批处理）
+     * 每条记录携带库存ID、数量增量（可为负）以及可选的新单价
+     * 不记录库存流水，调用方按业务明细通过 StockLedgerService.recordAll 记录
+     */
+    void batchAdjustStock(java.util.List<Inventory> adjustments);
+
+    /**
+     * 批量创建库存记录（JDBC批处理，同名商品已存在时累加数量）
+     * 不记录库存流水，调用方按业务明细通过 StockLedgerService.recordAll 记录
+     */
+    void batchCreateInventory(java.util.List<Inventory> inventories);
+
+    /**
+     * 低库存分页查询（库存数量不高于预警阈值，按数量升序，走 low_stock 索引）
+     */
+    Page<Inventory> getLowStockList(Integer page, Integer size);
+
+    /**
+     * 批量出入库：一次查询锁定全部涉及的库存行，单个事务内JDBC批量写入，逐行返回结果
+     * ALL_OR_NOTHING 模式下任一行失败整批不执行，BEST_EFFORT 模式下只执行校验通过的行
+     */
+    java.util.List<BulkStockResult> bulkAdjustStock(BulkStockRequest request);
+}
@@ -0,0 +1,84 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.common.LocalCache;
+import com.daacooerp.erp.dto.InventoryValuation;
+import com.daacooerp.erp.event.InventoryChangedEvent;
+import com.daacooerp.erp.repository.InventoryRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存估值报表：按分类、库位汇总库存数量与金额
+ * 汇总由数据库 GROUP BY 完成，结果缓存在内存中（过期时间默认5分钟），看板刷新直接返回缓存；
+ * 库存变动事件（事务提交后）使缓存失效，下次读取时重新汇总。
+ */
+@Service
+public class InventoryValuationService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InventoryValuationService.class);
+
+    private static final String REPORT_KEY = "valuation";
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Value("${erp.inventory-valuation.ttl-ms:300000}")
+    private long ttlMillis;
+
+    private LocalCache<String, Map<String, Object>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>(1, ttlMillis);
+    }
+
+    /**
+     * 库存估值报表：groups（按分类、库位的分组明细）、totalQuantity、totalValue、computedAt
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getValuation() {
+        return cache.get(REPORT_KEY, key -> summarize());
+    }
+
+    /**
+     * 库存变动后（事务提交后）使缓存失效；没有事务时立即执行
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (!event.isEmpty()) {
+            invalidate();
+        }
+    }
+
+    public void invalidate() {
+        cache.invalidateAll();
+    }
+
+    private Map<String, Object> summarize() {
+        List<InventoryValuation> groups = inventoryRepository.summarizeValuation();
+        long totalQuantity = 0;
+        double totalValue = 0;
+        for (InventoryValuation group : groups) {
+            totalQuantity += group.getTotalQuantity();
+            totalValue += group.getTotalValue();
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("groups", Collections.unmodifiableList(groups));
+        report.put("totalQuantity", totalQuantity);
+        report.put("totalValue", totalValue);
+        report.put("computedAt", LocalDateTime.now());
+        log.debug("库存估值汇总完成: {} 个分组", groups.size());
+        return Collections.unmodifiableMap(report);
+    }
+}
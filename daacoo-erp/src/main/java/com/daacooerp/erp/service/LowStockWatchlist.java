@@ -0,0 +1,233 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.LowStockItem;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.event.InventoryChangedEvent;
+import com.daacooerp.erp.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 内存低库存清单
+ * 启动时按 low_stock 索引加载一次，之后随库存变动事件（事务提交后）增量维护：只重新读取受影响的库存行，
+ * 进入、更新、移出清单的变化通过 SSE 推送给订阅的看板，看板不再需要轮询整个库存列表。
+ * 其他实例的变动不会产生本地事件，因此定时与数据库全量对账一次。
+ */
+@Service
+public class LowStockWatchlist {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(LowStockWatchlist.class);
+
+    public static final String CHANGE_ENTER = "ENTER";
+    public static final String CHANGE_UPDATE = "UPDATE";
+    public static final String CHANGE_LEAVE = "LEAVE";
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Value("${erp.low-stock.sse-timeout-ms:1800000}")
+    private long sseTimeoutMillis;
+
+    private final Map<Long, LowStockItem> items = new HashMap<>();
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            List<Map<String, Object>> changes = replaceAll(inventoryRepository.findAllLowStock());
+            log.info("低库存清单加载完成: {} 个商品, 变化 {} 条", size(), changes.size());
+        } catch (Exception e) {
+            log.warn("低库存清单加载失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时全量对账（默认5分钟），覆盖其他实例或直接改库造成的变化
+     */
+    @Scheduled(fixedDelayString = "${erp.low-stock.resync-ms:300000}",
+               initialDelayString = "${erp.low-stock.resync-ms:300000}")
+    public void resync() {
+        try {
+            List<Map<String, Object>> changes = replaceAll(inventoryRepository.findAllLowStock());
+            if (!changes.isEmpty()) {
+                log.info("低库存清单对账: 修正 {} 条", changes.size());
+                broadcast(changes);
+            }
+        } catch (Exception e) {
+            log.warn("低库存清单对账失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 库存变动后（事务提交后）重新读取受影响的库存行并更新清单；没有事务时立即执行
+     * 在新的只读事务中读取，避免命中原事务持久化上下文中被 JDBC 批量更新绕过的旧实体
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, Inventory> current = new HashMap<>();
+            if (!event.getInventoryIds().isEmpty()) {
+                for (Inventory inventory : inventoryRepository.findAllById(event.getInventoryIds())) {
+                    current.put(inventory.getId(), inventory);
+                }
+            }
+            if (!event.getProductNames().isEmpty()) {
+                for (Inventory inventory : inventoryRepository.findByProductNameIn(event.getProductNames())) {
+                    current.put(inventory.getId(), inventory);
+                }
+            }
+            List<Map<String, Object>> changes = apply(event.getInventoryIds(), current.values());
+            if (!changes.isEmpty()) {
+                broadcast(changes);
+            }
+        } catch (Exception e) {
+            log.warn("更新低库存清单失败，等待定时对账: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 当前低库存清单，库存最少的排在前面
+     */
+    public synchronized List<LowStockItem> getItems() {
+        List<LowStockItem> list = new ArrayList<>(items.values());
+        list.sort(Comparator.comparing(LowStockItem::getQuantity, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(LowStockItem::getId));
+        return list;
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    /**
+     * 订阅低库存推送：连接后先推送一次完整清单（snapshot），之后推送变化（change）
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMillis);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").data(getItems()));
+        } catch (IOException | IllegalStateException e) {
+            emitters.remove(emitter);
+        }
+        log.info("低库存推送订阅: 当前订阅数 {}", emitters.size());
+        return emitter;
+    }
+
+    /**
+     * 定时心跳（SSE 注释行），及时发现断开的连接，也避免代理因空闲断开
+     */
+    @Scheduled(fixedDelayString = "${erp.low-stock.heartbeat-ms:20000}")
+    public void heartbeat() {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    /**
+     * 按读取到的最新库存更新清单；checkedIds 中未读取到的库存视为已删除
+     */
+    synchronized List<Map<String, Object>> apply(Set<Long> checkedIds, Iterable<Inventory> current) {
+        List<Map<String, Object>> changes = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Inventory inventory : current) {
+            seen.add(inventory.getId());
+            if (inventory.isLowStock()) {
+                put(LowStockItem.of(inventory), changes);
+            } else {
+                remove(inventory.getId(), changes);
+            }
+        }
+        for (Long id : checkedIds) {
+            if (!seen.contains(id)) {
+                remove(id, changes);
+            }
+        }
+        return changes;
+    }
+
+    private synchronized List<Map<String, Object>> replaceAll(List<Inventory> lowStock) {
+        List<Map<String, Object>> changes = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        for (Inventory inventory : lowStock) {
+            ids.add(inventory.getId());
+            put(LowStockItem.of(inventory), changes);
+        }
+        for (Long id : new ArrayList<>(items.keySet())) {
+            if (!ids.contains(id)) {
+                remove(id, changes);
+            }
+        }
+        return changes;
+    }
+
+    private void put(LowStockItem item, List<Map<String, Object>> changes) {
+        LowStockItem previous = items.put(item.getId(), item);
+        if (previous == null) {
+            changes.add(change(CHANGE_ENTER, item));
+        } else if (!previous.equals(item)) {
+            changes.add(change(CHANGE_UPDATE, item));
+        }
+    }
+
+    private void remove(Long id, List<Map<String, Object>> changes) {
+        LowStockItem previous = items.remove(id);
+        if (previous != null) {
+            changes.add(change(CHANGE_LEAVE, previous));
+        }
+    }
+
+    private Map<String, Object> change(String type, LowStockItem item) {
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("type", type);
+        change.put("item", item);
+        return change;
+    }
+
+    private void broadcast(List<Map<String, Object>> changes) {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, SseEmitter.event().name("change").data(changes));
+        }
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开，连接由容器结束
+            emitters.remove(emitter);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderGoods;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单冷归档
+ * 已完成/已取消且创建时间早于保留期的订单，按块从 orders/order_goods 移入 orders_archive/order_goods_archive：
+ * 每块一个短事务，用 FOR UPDATE SKIP LOCKED 领取一块订单ID（跳过正在被其他事务处理的订单），
+ * INSERT ... SELECT 复制到归档表后删除原行，块之间短暂停顿，避免长时间持锁和主从延迟。
+ * 归档后订单保留原ID，搜索文档不删除，详情查询由 OrderService 回退到归档表，订单日汇总重建也包含归档表。
+ */
+@Service
+public class OrderArchiveService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderArchiveService.class);
+
+    private static final String ORDER_COLUMNS =
+            "id, order_no, order_type, customer_name, contact_person, tel, address, delivery_time, amount, freight, " +
+            "operator_id, status, remarks, created_at, updated_at";
+
+    private static final String ORDER_GOODS_COLUMNS =
+            "id, order_id, goods_id, quantity, unit_price, total_price, created_at, updated_at";
+
+    private static final String CLAIM_SQL =
+            "SELECT id FROM orders WHERE status IN ('COMPLETED', 'CANCELLED') AND created_at < ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${erp.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${erp.archive.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${erp.archive.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${erp.archive.max-chunks-per-run:200}")
+    private int maxChunksPerRun;
+
+    @Value("${erp.archive.pause-ms:200}")
+    private long pauseMillis;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 定时归档（默认每天凌晨 2:30）
+     */
+    @Scheduled(cron = "${erp.archive.cron:0 30 2 * * *}")
+    public void archiveScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveOlderThan(LocalDateTime.now().minusDays(minAgeDays));
+        } catch (Exception e) {
+            log.error("订单归档失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 归档创建时间早于 cutoff 的已完成/已取消订单，直到没有可归档订单或达到单次块数上限
+     * @return 归档的订单数
+     */
+    public int archiveOlderThan(LocalDateTime cutoff) {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        for (int i = 0; i < maxChunksPerRun; i++) {
+            int archived = archiveChunk(cutoff);
+            total += archived;
+            if (archived < chunkSize) {
+                break;
+            }
+            pause();
+        }
+        if (total > 0) {
+            log.info("订单归档完成: 截止 {}, 归档 {} 单, 耗时 {}ms", cutoff, total, System.currentTimeMillis() - start);
+        }
+        return total;
+    }
+
+    /**
+     * 归档一块订单（单个短事务）
+     * @return 本块归档的订单数
+     */
+    public int archiveChunk(LocalDateTime cutoff) {
+        Integer archived = transactionTemplate.execute(status -> {
+            List<Long> ids = jdbcTemplate.queryForList(CLAIM_SQL, Long.class, Timestamp.valueOf(cutoff), chunkSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+            Object[] idArgs = ids.toArray();
+            List<Object> orderArgs = new ArrayList<>();
+            orderArgs.add(Timestamp.valueOf(LocalDateTime.now()));
+            orderArgs.addAll(ids);
+
+            jdbcTemplate.update("INSERT INTO orders_archive (" + ORDER_COLUMNS + ", archived_at) " +
+                    "SELECT " + ORDER_COLUMNS + ", ? FROM orders WHERE id IN (" + in + ")", orderArgs.toArray());
+            jdbcTemplate.update("INSERT INTO order_goods_archive (" + ORDER_GOODS_COLUMNS + ") " +
+                    "SELECT " + ORDER_GOODS_COLUMNS + " FROM order_goods WHERE order_id IN (" + in + ")", idArgs);
+            jdbcTemplate.update("DELETE FROM order_goods WHERE order_id IN (" + in + ")", idArgs);
+            jdbcTemplate.update("DELETE FROM orders WHERE id IN (" + in + ")", idArgs);
+            return ids.size();
+        });
+        return archived != null ? archived : 0;
+    }
+
+    /**
+     * 从归档表读取订单详情（含明细和商品），不存在返回 null
+     * 返回的订单为游离对象，仅用于展示
+     */
+    public Order findArchivedOrder(Long id) {
+        List<Order> orders = jdbcTemplate.query(
+                "SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE id = ?", (rs, rowNum) -> mapOrder(rs), id);
+        if (orders.isEmpty()) {
+            return null;
+        }
+        Order order = orders.get(0);
+        List<OrderGoods> lines = jdbcTemplate.query(
+                "SELECT og.id, og.quantity, og.unit_price, og.total_price, og.created_at, og.updated_at, " +
+                "g.id AS goods_id, g.code, g.name, g.category, g.specification, g.unit " +
+                "FROM order_goods_archive og LEFT JOIN goods g ON g.id = og.goods_id " +
+                "WHERE og.order_id = ? ORDER BY og.id",
+                (rs, rowNum) -> mapOrderGoods(rs, order), id);
+        order.setGoods(lines);
+        return order;
+    }
+
+    /**
+     * 归档订单数
+     */
+    public long countArchived() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders_archive", Long.class);
+        return count != null ? count : 0L;
+    }
+
+    private Order mapOrder(ResultSet rs) throws SQLException {
+        Order order = new Order();
+        order.setId(rs.getLong("id"));
+        order.setOrderNo(rs.getString("order_no"));
+        order.setOrderType(rs.getString("order_type"));
+        order.setCustomerName(rs.getString("customer_name"));
+        order.setContactPerson(rs.getString("contact_person"));
+        order.setTel(rs.getString("tel"));
+        order.setAddress(rs.getString("address"));
+        order.setDeliveryTime(toLocalDateTime(rs.getTimestamp("delivery_time")));
+        order.setAmount(rs.getFloat("amount"));
+        order.setFreight(rs.getFloat("freight"));
+        order.setStatus(rs.getString("status"));
+        order.setRemarks(rs.getString("remarks"));
+        order.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        order.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+        return order;
+    }
+
+    private OrderGoods mapOrderGoods(ResultSet rs, Order order) throws SQLException {
+        OrderGoods line = new OrderGoods();
+        line.setId(rs.getLong("id"));
+        line.setOrder(order);
+        line.setQuantity(rs.getInt("quantity"));
+        line.setUnitPrice(rs.getFloat("unit_price"));
+        line.setTotalPrice(rs.getFloat("total_price"));
+        line.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        line.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+        long goodsId = rs.getLong("goods_id");
+        if (!rs.wasNull()) {
+            Goods goods = new Goods();
+            goods.setId(goodsId);
+            goods.setCode(rs.getString("code"));
+            goods.setName(rs.getString("name"));
+            goods.setCategory(rs.getString("category"));
+            goods.setSpecification(rs.getString("specification"));
+            goods.setUnit(rs.getString("unit"));
+            line.setGoods(goods);
+        }
+        return line;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
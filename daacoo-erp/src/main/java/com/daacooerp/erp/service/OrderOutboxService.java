@@ -0,0 +1,300 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderGoods;
+import com.daacooerp.erp.entity.OrderOutbox;
+import com.daacooerp.erp.repository.OrderOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单确认发件箱
+ * 订单确认事务内只写一行 order_outbox，后台投递器按批领取并生成财务记录：
+ * 1. 短事务内用 FOR UPDATE SKIP LOCKED 领取一批到期记录，attempts+1 并把 next_attempt_at 推后一个租约期；
+ * 2. 批量写入财务记录（按来源订单号幂等），成功后置为 DONE；
+ * 3. 批量失败时逐条重试，失败的记录按指数退避重新排队，超过最大次数置为 DEAD。
+ * 进程在第2步和第3步之间崩溃时，租约到期后记录会被再次投递，因此语义为至少一次。
+ */
+@Service
+public class OrderOutboxService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderOutboxService.class);
+
+    private static final String CLAIM_SQL =
+            "SELECT id, order_id, order_no, order_type, amount, attempts, created_at FROM order_outbox " +
+            "WHERE status = 'PENDING' AND next_attempt_at <= ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final RowMapper<OrderOutbox> OUTBOX_MAPPER = (rs, rowNum) -> {
+        OrderOutbox outbox = new OrderOutbox();
+        outbox.setId(rs.getLong("id"));
+        outbox.setOrderId(rs.getLong("order_id"));
+        outbox.setOrderNo(rs.getString("order_no"));
+        outbox.setOrderType(rs.getString("order_type"));
+        outbox.setAmount(rs.getBigDecimal("amount"));
+        outbox.setAttempts(rs.getInt("attempts"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        outbox.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        return outbox;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderOutboxRepository orderOutboxRepository;
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${erp.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${erp.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${erp.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${erp.outbox.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${erp.outbox.backoff-base-seconds:5}")
+    private int backoffBaseSeconds;
+
+    @Value("${erp.outbox.dispatcher-enabled:true}")
+    private boolean dispatcherEnabled;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 写入订单确认事件（需在确认事务内调用，与订单状态一起提交）
+     */
+    public void enqueue(Collection<Order> orders) {
+        if (orders == null || orders.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (Order order : orders) {
+            if (!"SALE".equals(order.getOrderType()) && !"PURCHASE".equals(order.getOrderType())) {
+                continue;
+            }
+            rows.add(new Object[]{order.getId(), order.getOrderNo(), order.getOrderType(), lineTotal(order)});
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO order_outbox (order_id, order_no, order_type, amount, status, attempts, " +
+                "next_attempt_at, created_at) VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)",
+                rows, 500, (ps, row) -> {
+                    ps.setLong(1, (Long) row[0]);
+                    ps.setString(2, (String) row[1]);
+                    ps.setString(3, (String) row[2]);
+                    ps.setBigDecimal(4, (BigDecimal) row[3]);
+                    ps.setTimestamp(5, now);
+                    ps.setTimestamp(6, now);
+                });
+        log.info("写入订单确认发件箱 {} 条", rows.size());
+    }
+
+    /**
+     * 定时投递：循环领取批次直到没有到期记录或达到单次上限
+     */
+    @Scheduled(fixedDelayString = "${erp.outbox.poll-interval-ms:2000}",
+               initialDelayString = "${erp.outbox.initial-delay-ms:10000}")
+    public void dispatchPending() {
+        if (!dispatcherEnabled) {
+            return;
+        }
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                if (dispatchBatch() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("订单发件箱投递失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 领取并投递一批记录
+     * @return 本批领取的记录数
+     */
+    public int dispatchBatch() {
+        List<OrderOutbox> claimed = claimBatch();
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, FinanceRecord> records = new LinkedHashMap<>();
+        for (OrderOutbox outbox : claimed) {
+            records.put(outbox.getId(), toFinanceRecord(outbox));
+        }
+
+        try {
+            financeService.batchCreateFinanceRecords(new ArrayList<>(records.values()));
+            markDone(new ArrayList<>(records.keySet()));
+        } catch (Exception batchError) {
+            log.warn("发件箱批量投递失败，逐条重试: {}", batchError.getMessage());
+            List<Long> done = new ArrayList<>();
+            for (OrderOutbox outbox : claimed) {
+                try {
+                    financeService.batchCreateFinanceRecords(List.of(records.get(outbox.getId())));
+                    done.add(outbox.getId());
+                } catch (Exception e) {
+                    markFailed(outbox, e);
+                }
+            }
+            markDone(done);
+        }
+        return claimed.size();
+    }
+
+    private List<OrderOutbox> claimBatch() {
+        List<OrderOutbox> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OrderOutbox> rows = jdbcTemplate.query(CLAIM_SQL, OUTBOX_MAPPER, Timestamp.valueOf(now), batchSize);
+            if (!rows.isEmpty()) {
+                Timestamp leaseUntil = Timestamp.valueOf(now.plusSeconds(leaseSeconds));
+                jdbcTemplate.batchUpdate(
+                        "UPDATE order_outbox SET attempts = attempts + 1, next_attempt_at = ? WHERE id = ?",
+                        rows, 500, (ps, row) -> {
+                            ps.setTimestamp(1, leaseUntil);
+                            ps.setLong(2, row.getId());
+                        });
+                rows.forEach(row -> row.setAttempts(row.getAttempts() + 1));
+            }
+            return rows;
+        });
+        return claimed != null ? claimed : new ArrayList<>();
+    }
+
+    private void markDone(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "UPDATE order_outbox SET status = 'DONE', processed_at = ?, last_error = NULL WHERE id = ?",
+                ids, 500, (ps, id) -> {
+                    ps.setTimestamp(1, now);
+                    ps.setLong(2, id);
+                });
+    }
+
+    private void markFailed(OrderOutbox outbox, Exception e) {
+        boolean dead = outbox.getAttempts() >= maxAttempts;
+        long delay = (long) backoffBaseSeconds << Math.min(outbox.getAttempts() - 1, 7); // 最长约 backoff*128 秒
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        jdbcTemplate.update(
+                "UPDATE order_outbox SET status = ?, next_attempt_at = ?, last_error = ? WHERE id = ?",
+                dead ? OrderOutbox.STATUS_DEAD : OrderOutbox.STATUS_PENDING,
+                Timestamp.valueOf(LocalDateTime.now().plusSeconds(delay)), error, outbox.getId());
+        if (dead) {
+            log.error("发件箱记录进入死信: id={}, 订单号={}, 重试次数={}, 错误={}",
+                    outbox.getId(), outbox.getOrderNo(), outbox.getAttempts(), error);
+        } else {
+            log.warn("发件箱记录投递失败，{} 秒后重试: id={}, 订单号={}, 错误={}",
+                    delay, outbox.getId(), outbox.getOrderNo(), error);
+        }
+    }
+
+    /**
+     * 构建财务记录（采购记支出，销售记收入），记录日期为订单确认日期
+     */
+    private FinanceRecord toFinanceRecord(OrderOutbox outbox) {
+        FinanceRecord financeRecord = new FinanceRecord();
+        LocalDateTime confirmedAt = outbox.getCreatedAt() != null ? outbox.getCreatedAt() : LocalDateTime.now();
+        financeRecord.setRecordDate(Timestamp.valueOf(confirmedAt));
+        financeRecord.setCreatedBy("system"); // 系统自动创建
+        financeRecord.setSourceOrderNo(outbox.getOrderNo());
+        BigDecimal amount = outbox.getAmount() != null ? outbox.getAmount() : BigDecimal.ZERO;
+
+        if ("PURCHASE".equals(outbox.getOrderType())) {
+            financeRecord.setExpense(amount);
+            financeRecord.setIncome(BigDecimal.ZERO);
+            financeRecord.setRecordType("PURCHASE");
+            financeRecord.setDescription("采购订单自动记录 - 订单号: " + outbox.getOrderNo());
+        } else {
+            financeRecord.setIncome(amount);
+            financeRecord.setExpense(BigDecimal.ZERO);
+            financeRecord.setRecordType("SALES");
+            financeRecord.setDescription("销售订单自动记录 - 订单号: " + outbox.getOrderNo());
+        }
+        financeRecord.setCreatedAt(new Date());
+        return financeRecord;
+    }
+
+    private BigDecimal lineTotal(Order order) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderGoods line : order.getGoods()) {
+            if (line.getTotalPrice() != null) {
+                total = total.add(BigDecimal.valueOf(line.getTotalPrice()));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 死信列表
+     */
+    public Page<OrderOutbox> getDeadLetters(int page, int size) {
+        return orderOutboxRepository.findByStatusOrderByIdDesc(OrderOutbox.STATUS_DEAD,
+                PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100))));
+    }
+
+    /**
+     * 各状态记录数
+     */
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String status : List.of(OrderOutbox.STATUS_PENDING, OrderOutbox.STATUS_DONE, OrderOutbox.STATUS_DEAD)) {
+            counts.put(status, orderOutboxRepository.countByStatus(status));
+        }
+        return counts;
+    }
+
+    /**
+     * 死信重新入队
+     */
+    @Transactional
+    public void retryDeadLetter(Long id) {
+        if (orderOutboxRepository.requeueDead(id, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("死信记录不存在或已重新入队: " + id);
+        }
+    }
+}
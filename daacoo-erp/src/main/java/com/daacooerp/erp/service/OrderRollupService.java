@@ -0,0 +1,212 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderGoods;
+import com.daacooerp.erp.event.FinanceDataChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单日汇总服务
+ * 订单确认时在同一事务内把订单明细增量写入 order_daily_rollup，
+ * 月度/年度统计只读汇总表的日期区间，不再扫描订单表。
+ * 统计口径：已完成订单，按下单日期（orders.created_at）归属，金额为明细小计之和。
+ */
+@Service
+public class OrderRollupService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderRollupService.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO order_daily_rollup (stat_date, order_type, goods_id, product_name, customer_name, " +
+            "order_count, quantity, amount, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "quantity = quantity + VALUES(quantity), amount = amount + VALUES(amount), " +
+            "product_name = VALUES(product_name), updated_at = VALUES(updated_at)";
+
+    // 订单表和归档表分别执行一次（%1$s 为订单表，%2$s 为明细表），同一订单只存在于其中之一，结果按键累加；
+    // 订单数记在首个有商品的明细上，与增量写入一致
+    private static final String REBUILD_SQL =
+            "INSERT INTO order_daily_rollup (stat_date, order_type, goods_id, product_name, customer_name, " +
+            "order_count, quantity, amount, updated_at) " +
+            "SELECT DATE(o.created_at), o.order_type, og.goods_id, MAX(g.name), COALESCE(o.customer_name, ''), " +
+            "SUM(CASE WHEN f.first_id IS NULL THEN 0 ELSE 1 END), SUM(COALESCE(og.quantity, 0)), " +
+            "SUM(COALESCE(og.total_price, 0)), CURRENT_TIMESTAMP " +
+            "FROM %1$s o " +
+            "JOIN %2$s og ON og.order_id = o.id " +
+            "LEFT JOIN goods g ON g.id = og.goods_id " +
+            "LEFT JOIN (SELECT order_id, MIN(id) AS first_id FROM %2$s WHERE goods_id IS NOT NULL GROUP BY order_id) f " +
+            "ON f.first_id = og.id " +
+            "WHERE o.status = 'COMPLETED' AND o.order_type IN ('SALE', 'PURCHASE') AND og.goods_id IS NOT NULL " +
+            "AND o.created_at >= ? AND o.created_at < ? " +
+            "GROUP BY DATE(o.created_at), o.order_type, og.goods_id, COALESCE(o.customer_name, '') " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "quantity = quantity + VALUES(quantity), amount = amount + VALUES(amount)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${erp.rollup.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    /**
+     * 订单确认后累加到日汇总（需在确认事务内调用）
+     */
+    public void recordConfirmedOrders(Collection<Order> orders) {
+        applyOrders(orders, 1);
+    }
+
+    /**
+     * 删除已完成订单时从日汇总中扣减
+     */
+    public void removeConfirmedOrder(Order order) {
+        if (order != null && "COMPLETED".equals(order.getStatus())) {
+            applyOrders(List.of(order), -1);
+        }
+    }
+
+    private void applyOrders(Collection<Order> orders, int sign) {
+        // 同一批次内相同键先在内存合并，减少写入行数
+        Map<String, Object[]> rows = new LinkedHashMap<>();
+        for (Order order : orders) {
+            if (!"SALE".equals(order.getOrderType()) && !"PURCHASE".equals(order.getOrderType())) {
+                continue;
+            }
+            LocalDate statDate = order.getCreatedAt() != null ? order.getCreatedAt().toLocalDate() : LocalDate.now();
+            String customer = order.getCustomerName() != null ? order.getCustomerName() : "";
+            OrderGoods firstLine = order.getGoods().stream()
+                    .filter(line -> line.getGoods() != null && line.getGoods().getId() != null)
+                    .min(Comparator.comparing(OrderGoods::getId, Comparator.nullsLast(Comparator.naturalOrder())))
+                    .orElse(null);
+
+            for (OrderGoods line : order.getGoods()) {
+                if (line.getGoods() == null || line.getGoods().getId() == null) {
+                    continue;
+                }
+                Long goodsId = line.getGoods().getId();
+                String key = statDate + "|" + order.getOrderType() + "|" + goodsId + "|" + customer;
+                Object[] row = rows.computeIfAbsent(key, k -> new Object[]{
+                        statDate, order.getOrderType(), goodsId, line.getGoods().getName(), customer,
+                        0, 0, BigDecimal.ZERO});
+                row[5] = (Integer) row[5] + (line == firstLine ? sign : 0);
+                row[6] = (Integer) row[6] + sign * (line.getQuantity() != null ? line.getQuantity() : 0);
+                BigDecimal lineAmount = line.getTotalPrice() != null
+                        ? BigDecimal.valueOf(line.getTotalPrice()) : BigDecimal.ZERO;
+                row[7] = ((BigDecimal) row[7]).add(sign > 0 ? lineAmount : lineAmount.negate());
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new ArrayList<>(rows.values()), 500, (ps, row) -> {
+            ps.setDate(1, Date.valueOf((LocalDate) row[0]));
+            ps.setString(2, (String) row[1]);
+            ps.setLong(3, (Long) row[2]);
+            ps.setString(4, (String) row[3]);
+            ps.setString(5, (String) row[4]);
+            ps.setInt(6, (Integer) row[5]);
+            ps.setInt(7, (Integer) row[6]);
+            ps.setBigDecimal(8, (BigDecimal) row[7]);
+            ps.setTimestamp(9, now);
+        });
+        eventPublisher.publishEvent(FinanceDataChangedEvent.ofDates(
+                rows.values().stream().map(row -> (LocalDate) row[0]).toList()));
+    }
+
+    /**
+     * 按日期范围重建日汇总 [from, to]，可用于初次回填或修复数据
+     * @return 重建后的汇总行数
+     */
+    @Transactional
+    public int rebuild(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new RuntimeException("重建日期范围无效");
+        }
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM order_daily_rollup WHERE stat_date >= ? AND stat_date <= ?",
+                Date.valueOf(from), Date.valueOf(to));
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+        int inserted = jdbcTemplate.update(String.format(REBUILD_SQL, "orders", "order_goods"), start, end)
+                + jdbcTemplate.update(String.format(REBUILD_SQL, "orders_archive", "order_goods_archive"), start, end);
+        eventPublisher.publishEvent(FinanceDataChangedEvent.ofRange(from, to));
+        log.info("订单日汇总重建完成: {} ~ {}, 删除 {} 行, 写入 {} 行", from, to, deleted, inserted);
+        return inserted;
+    }
+
+    /**
+     * 全量重建：覆盖所有已完成订单的日期范围
+     */
+    @Transactional
+    public int rebuildAll() {
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(min_at) AS min_at, MAX(max_at) AS max_at FROM (" +
+                "SELECT MIN(created_at) AS min_at, MAX(created_at) AS max_at FROM orders WHERE status = 'COMPLETED' " +
+                "UNION ALL " +
+                "SELECT MIN(created_at), MAX(created_at) FROM orders_archive WHERE status = 'COMPLETED') t");
+        Object min = range.get("min_at");
+        Object max = range.get("max_at");
+        if (min == null || max == null) {
+            return 0;
+        }
+        return rebuild(((Timestamp) min).toLocalDateTime().toLocalDate(),
+                ((Timestamp) max).toLocalDateTime().toLocalDate());
+    }
+
+    /**
+     * 启动时若汇总表为空则自动回填历史订单
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM (SELECT 1 FROM order_daily_rollup LIMIT 1) t", Integer.class);
+            if (existing != null && existing == 0) {
+                log.info("订单日汇总为空，开始回填历史订单");
+                rebuildAll();
+            }
+        } catch (Exception e) {
+            log.error("订单日汇总回填失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按月汇总指定年份的订单数和金额（只扫描汇总表的日期区间）
+     * @return 每行包含 month、orderType、orderCount、totalAmount
+     */
+    public List<Map<String, Object>> getMonthlyStatistics(int year) {
+        return jdbcTemplate.queryForList(
+                "SELECT MONTH(stat_date) AS `month`, order_type AS orderType, " +
+                "SUM(order_count) AS orderCount, SUM(amount) AS totalAmount " +
+                "FROM order_daily_rollup WHERE order_type IN ('SALE', 'PURCHASE') " +
+                "AND stat_date >= ? AND stat_date < ? " +
+                "GROUP BY MONTH(stat_date), order_type",
+                Date.valueOf(LocalDate.of(year, 1, 1)), Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+    }
+}
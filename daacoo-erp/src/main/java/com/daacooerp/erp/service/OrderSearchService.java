@@ -0,0 +1,277 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.OrderSearchHit;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderGoods;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 订单全文搜索服务
+ * 每个订单在 order_search_doc 中维护一行搜索文档（订单号、客户、联系人、商品名称），
+ * MySQL 下使用 ngram 分词的 FULLTEXT 索引按相关度排序；不支持全文索引的数据库
+ * 或关键词短于分词长度时降级为 LIKE 模糊匹配。
+ * 文档在订单创建时写入、确认时更新状态、删除时移除。
+ */
+@Service
+public class OrderSearchService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderSearchService.class);
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // 与 MySQL 默认 ngram_token_size 一致，短于此长度的词无法走全文索引
+    private static final int NGRAM_TOKEN_SIZE = 2;
+
+    private static final String FULLTEXT_INDEX = "ft_order_search";
+
+    private static final String SELECT_COLUMNS =
+            "SELECT order_id, order_no, order_type, customer_name, contact_person, product_names, amount, status, created_at";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO order_search_doc (order_id, order_no, order_type, customer_name, contact_person, " +
+            "product_names, amount, status, created_at, search_text, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE order_no = VALUES(order_no), order_type = VALUES(order_type), " +
+            "customer_name = VALUES(customer_name), contact_person = VALUES(contact_person), " +
+            "product_names = VALUES(product_names), amount = VALUES(amount), status = VALUES(status), " +
+            "search_text = VALUES(search_text), updated_at = VALUES(updated_at)";
+
+    private static final String BACKFILL_SQL =
+            "INSERT INTO order_search_doc (order_id, order_no, order_type, customer_name, contact_person, " +
+            "product_names, amount, status, created_at, search_text, updated_at) " +
+            "SELECT o.id, o.order_no, o.order_type, o.customer_name, o.contact_person, p.names, o.amount, " +
+            "o.status, o.created_at, CONCAT_WS(' ', o.order_no, o.customer_name, o.contact_person, p.names), " +
+            "CURRENT_TIMESTAMP FROM orders o " +
+            "LEFT JOIN (SELECT og.order_id, GROUP_CONCAT(DISTINCT g.name SEPARATOR ' ') AS names " +
+            "FROM order_goods og JOIN goods g ON g.id = og.goods_id GROUP BY og.order_id) p ON p.order_id = o.id " +
+            "WHERE NOT EXISTS (SELECT 1 FROM order_search_doc d WHERE d.order_id = o.id)";
+
+    private static final RowMapper<OrderSearchHit> HIT_MAPPER = (rs, rowNum) -> {
+        OrderSearchHit hit = new OrderSearchHit();
+        hit.setId(rs.getLong("order_id"));
+        hit.setOrderNo(rs.getString("order_no"));
+        hit.setOrderType(rs.getString("order_type"));
+        hit.setCustomerName(rs.getString("customer_name"));
+        hit.setContactPerson(rs.getString("contact_person"));
+        hit.setProductNames(rs.getString("product_names"));
+        hit.setAmount(rs.getFloat("amount"));
+        hit.setStatus(rs.getString("status"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        hit.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        hit.setScore(rs.getDouble("score"));
+        return hit;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean fulltextEnabled = false;
+
+    /**
+     * 启动时确保全文索引存在，并为尚无搜索文档的历史订单补建文档
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initIndex() {
+        try {
+            String product = jdbcTemplate.execute((java.sql.Connection con) -> con.getMetaData().getDatabaseProductName());
+            if (product != null && product.toLowerCase().contains("mysql")) {
+                Integer exists = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() " +
+                        "AND table_name = 'order_search_doc' AND index_name = ?", Integer.class, FULLTEXT_INDEX);
+                if (exists == null || exists == 0) {
+                    log.info("创建订单搜索全文索引 {}", FULLTEXT_INDEX);
+                    jdbcTemplate.execute("ALTER TABLE order_search_doc ADD FULLTEXT INDEX " + FULLTEXT_INDEX +
+                            " (search_text) WITH PARSER ngram");
+                }
+                fulltextEnabled = true;
+            } else {
+                log.info("数据库 {} 不支持 ngram 全文索引，订单搜索使用模糊匹配", product);
+            }
+        } catch (Exception e) {
+            log.error("订单搜索全文索引初始化失败，降级为模糊匹配: {}", e.getMessage(), e);
+        }
+        backfill();
+    }
+
+    /**
+     * 为缺少搜索文档的订单补建文档
+     * @return 补建的文档数
+     */
+    public int backfill() {
+        try {
+            int rows = jdbcTemplate.update(BACKFILL_SQL);
+            if (rows > 0) {
+                log.info("补建订单搜索文档 {} 条", rows);
+            }
+            return rows;
+        } catch (Exception e) {
+            log.error("补建订单搜索文档失败: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * 写入或刷新订单的搜索文档（需在订单保存后调用，订单须已有ID）
+     */
+    public void index(Order order) {
+        if (order == null || order.getId() == null) {
+            return;
+        }
+        Set<String> productNames = new LinkedHashSet<>();
+        for (OrderGoods line : order.getGoods()) {
+            if (line.getGoods() != null && line.getGoods().getName() != null) {
+                productNames.add(line.getGoods().getName());
+            }
+        }
+        String products = String.join(" ", productNames);
+        String searchText = joinNonEmpty(order.getOrderNo(), order.getCustomerName(), order.getContactPerson(), products);
+        LocalDateTime createdAt = order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
+
+        jdbcTemplate.update(UPSERT_SQL,
+                order.getId(), order.getOrderNo(), order.getOrderType(), order.getCustomerName(),
+                order.getContactPerson(), products, order.getAmount(), order.getStatus(),
+                Timestamp.valueOf(createdAt), searchText, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 同步订单状态到搜索文档
+     */
+    public void updateStatus(Collection<Long> orderIds, String status) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("UPDATE order_search_doc SET status = ?, updated_at = ? WHERE order_id = ?",
+                new ArrayList<>(orderIds), 500, (ps, id) -> {
+                    ps.setString(1, status);
+                    ps.setTimestamp(2, now);
+                    ps.setLong(3, id);
+                });
+    }
+
+    /**
+     * 删除订单的搜索文档
+     */
+    public void remove(Long orderId) {
+        jdbcTemplate.update("DELETE FROM order_search_doc WHERE order_id = ?", orderId);
+    }
+
+    /**
+     * 按关键词搜索订单，结果按相关度降序、下单时间降序分页返回
+     * @param keyword 关键词，多个词以空格分隔时需全部命中
+     * @param type    订单类型 SALE/customer、PURCHASE/purchase，为空则不限
+     */
+    public Page<OrderSearchHit> search(String keyword, String type, int page, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNo = Math.max(page, 0);
+        PageRequest pageable = PageRequest.of(pageNo, pageSize);
+
+        List<String> terms = splitTerms(keyword);
+        if (terms.isEmpty()) {
+            return new PageImpl<>(new ArrayList<>(), pageable, 0);
+        }
+        String orderType = resolveOrderType(type);
+
+        boolean useFulltext = fulltextEnabled && terms.stream().allMatch(t -> t.length() >= NGRAM_TOKEN_SIZE);
+        List<Object> params = new ArrayList<>();
+        String where;
+        String scoreColumn;
+        String orderBy;
+        if (useFulltext) {
+            // 布尔模式下每个词作为短语必须命中，ngram 分词保证中文子串可检索
+            StringBuilder against = new StringBuilder();
+            for (String term : terms) {
+                against.append("+\"").append(term.replace("\"", "")).append("\" ");
+            }
+            scoreColumn = "MATCH(search_text) AGAINST (? IN BOOLEAN MODE)";
+            where = " WHERE MATCH(search_text) AGAINST (? IN BOOLEAN MODE)";
+            orderBy = " ORDER BY score DESC, created_at DESC, order_id DESC";
+            params.add(against.toString().trim());
+        } else {
+            StringBuilder sb = new StringBuilder(" WHERE 1 = 1");
+            for (String term : terms) {
+                sb.append(" AND search_text LIKE ? ESCAPE '!'");
+                params.add("%" + escapeLike(term) + "%");
+            }
+            scoreColumn = "0";
+            where = sb.toString();
+            orderBy = " ORDER BY created_at DESC, order_id DESC";
+        }
+        if (orderType != null) {
+            where += " AND order_type = ?";
+            params.add(orderType);
+        }
+
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM order_search_doc" + where, Long.class, params.toArray());
+        if (total == null || total == 0 || (long) pageNo * pageSize >= total) {
+            return new PageImpl<>(new ArrayList<>(), pageable, total != null ? total : 0);
+        }
+
+        List<Object> pageParams = new ArrayList<>();
+        if (useFulltext) {
+            pageParams.add(params.get(0)); // score 列的参数
+        }
+        pageParams.addAll(params);
+        pageParams.add(pageSize);
+        pageParams.add((long) pageNo * pageSize);
+        List<OrderSearchHit> hits = jdbcTemplate.query(
+                SELECT_COLUMNS + ", " + scoreColumn + " AS score FROM order_search_doc" + where + orderBy + " LIMIT ? OFFSET ?",
+                HIT_MAPPER, pageParams.toArray());
+        return new PageImpl<>(hits, pageable, total);
+    }
+
+    private static List<String> splitTerms(String keyword) {
+        List<String> terms = new ArrayList<>();
+        if (keyword == null) {
+            return terms;
+        }
+        for (String term : keyword.trim().split("\\s+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static String resolveOrderType(String type) {
+        if ("customer".equalsIgnoreCase(type) || "SALE".equalsIgnoreCase(type)) {
+            return "SALE";
+        } else if ("purchase".equalsIgnoreCase(type) || "PURCHASE".equalsIgnoreCase(type)) {
+            return "PURCHASE";
+        }
+        return null;
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static String joinNonEmpty(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (part != null && !part.isBlank()) {
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(part);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -1,19 +1,28 @@
 package com.daacooerp.erp.service;
 
+import com.daacooerp.erp.common.CursorPage;
+import com.daacooerp.erp.common.SeekCursor;
+import com.daacooerp.erp.dto.BatchConfirmRequest;
+import com.daacooerp.erp.dto.BatchConfirmResult;
+import com.daacooerp.erp.dto.OrderSummary;
 import com.daacooerp.erp.entity.Order;
 import com.daacooerp.erp.entity.OrderGoods;
 import com.daacooerp.erp.entity.User;
 import com.daacooerp.erp.entity.Goods;
 import com.daacooerp.erp.entity.Inventory;
-import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.entity.StockMovement;
 import com.daacooerp.erp.repository.OrderRepository;
 import com.daacooerp.erp.repository.GoodsRepository;
 import com.daacooerp.erp.service.InventoryService;
-import com.daacooerp.erp.service.FinanceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,7 +30,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
-import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 
 @Service
 public class OrderService {
@@ -37,7 +56,31 @@ public class OrderService {
     private InventoryService inventoryService;
 
     @Autowired
-    private FinanceService financeService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CodeSequenceService codeSequenceService;
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private OrderSearchService orderSearchService;
+
+    @Autowired
+    private OrderOutboxService orderOutboxService;
+
+    @Autowired
+    private GoodsCatalogCache goodsCatalogCache;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
 
     /**
      * 获取订单列表，支持分页
@@ -55,18 +98,66 @@ public class OrderService {
         }
     }
 
+    /**
+     * 获取订单摘要列表（不含商品明细），支持分页
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderSummary> getOrderSummaries(Integer page, Integer size) {
+        log.info("获取订单摘要列表: page={}, size={}", page, size);
+        return orderRepository.findAllSummaries(PageRequest.of(page, size));
+    }
+
+    /**
+     * 按类型获取订单摘要列表（不含商品明细），支持分页
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderSummary> getOrderSummariesByType(String type, Integer page, Integer size) {
+        log.info("获取类型为{}的订单摘要: page={}, size={}", type, page, size);
+        String orderType = resolveOrderType(type);
+        if (orderType == null) {
+            log.warn("未知的订单类型: {}", type);
+            return Page.empty();
+        }
+        return orderRepository.findSummariesByOrderType(orderType, PageRequest.of(page, size));
+    }
+
+    /**
+     * 按类型获取订单摘要（键集分页），按创建时间倒序，不执行COUNT查询
+     * @param cursor 上一页返回的游标，为空表示第一页
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummary> getOrderSummariesByCursor(String type, String cursor, int size) {
+        log.info("键集分页获取类型为{}的订单: size={}", type, size);
+        String orderType = resolveOrderType(type);
+        if (orderType == null) {
+            log.warn("未知的订单类型: {}", type);
+            return new CursorPage<>(new ArrayList<>(), null, false, size);
+        }
+        SeekCursor seek = SeekCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<OrderSummary> rows = seek == null
+                ? orderRepository.findSummariesByOrderTypeFirst(orderType, limit)
+                : orderRepository.findSummariesByOrderTypeAfter(orderType, seek.getDateTimeKey(), seek.getId(), limit);
+        return CursorPage.of(rows, size, last -> SeekCursor.of(last.getCreatedAt(), last.getId()));
+    }
+
+    /**
+     * 把前端订单类型（customer/purchase）或内部类型（SALE/PURCHASE）统一为内部类型
+     */
+    public String resolveOrderType(String type) {
+        if ("customer".equalsIgnoreCase(type) || "SALE".equalsIgnoreCase(type)) {
+            return "SALE";
+        } else if ("purchase".equalsIgnoreCase(type) || "PURCHASE".equalsIgnoreCase(type)) {
+            return "PURCHASE";
+        }
+        return null;
+    }
+
     @Transactional
     public Order createOrder(Order order, List<OrderGoods> goods) {
         log.info("开始创建订单，前端type: {}, orderType: {}", order.getType(), order.getOrderType());
 
         try {
-            // 生成订单编号
-            if (order.getOrderNo() == null || order.getOrderNo().isEmpty()) {
-                String orderNoPrefix = "ORD";
-                order.setOrderNo(orderNoPrefix + System.currentTimeMillis());
-                log.info("生成订单编号: {}", order.getOrderNo());
-            }
-
             // 确保订单类型正确设置 - 这是关键修复
             String orderType = order.getOrderType();
             if (orderType == null || orderType.isEmpty()) {
@@ -91,6 +182,12 @@ public class OrderService {
                     }
                 }
             }
+
+            // 生成订单编号（号段分配，多节点下不重复）
+            if (order.getOrderNo() == null || order.getOrderNo().isEmpty()) {
+                order.setOrderNo(codeSequenceService.nextOrderNo(order.getOrderType()));
+                log.info("生成订单编号: {}", order.getOrderNo());
+            }
             
             log.info("最终订单类型: {}", order.getOrderType());
 
@@ -100,41 +197,9 @@ public class OrderService {
             // 设置商品关联
             if (goods != null && !goods.isEmpty()) {
                 log.info("处理订单商品，数量: {}", goods.size());
+                resolveGoods(goods);
                 for (OrderGoods item : goods) {
-                    if (item.getGoods() == null) {
-                        throw new RuntimeException("订单商品中的商品对象不能为空");
-                    }
-
-                    // 处理商品关联 - 如果只有名称没有ID，尝试根据名称查找或创建商品
                     Goods goodsItem = item.getGoods();
-                    if (goodsItem.getId() == null && goodsItem.getName() != null) {
-                        List<Goods> existingGoods = goodsRepository.findByName(goodsItem.getName());
-
-                        if (!existingGoods.isEmpty()) {
-                            goodsItem = existingGoods.get(0);
-                            log.info("使用现有商品: {}", goodsItem.getName());
-                            
-                            // 如果是销售订单，检查库存是否足够
-                            if ("SALE".equals(orderType) && goodsItem.getStock() < item.getQuantity()) {
-                                log.warn("商品库存不足: {}, 当前库存: {}, 需要: {}", 
-                                    goodsItem.getName(), goodsItem.getStock(), item.getQuantity());
-                                // 销售订单创建时只警告，不阻止创建，等确认时再严格检查
-                            }
-                        } else {
-                            // 创建新商品
-                            goodsItem.setCode("G" + System.currentTimeMillis());
-                            goodsItem.setStock(0); // 新商品初始库存为0
-                            goodsItem.setStatus(1);
-                            // 设置商品价格为订单中的单价
-                            if (item.getUnitPrice() != null) {
-                                goodsItem.setSellingPrice(item.getUnitPrice());
-                                goodsItem.setPurchasePrice(item.getUnitPrice());
-                            }
-                            goodsItem = goodsRepository.save(goodsItem);
-                            log.info("创建新商品: {}", goodsItem.getName());
-                        }
-                        item.setGoods(goodsItem);
-                    }
 
                     // 确保订单商品的价格信息正确
                     if (item.getUnitPrice() != null && item.getQuantity() != null) {
@@ -164,6 +229,13 @@ public class OrderService {
             Order savedOrder = orderRepository.save(order);
             log.info("订单保存成功: ID={}, 类型={}, 金额={}, 状态={}", 
                     savedOrder.getId(), savedOrder.getOrderType(), savedOrder.getAmount(), savedOrder.getStatus());
+
+            // 销售订单按可承诺量预留库存，不足时拒绝创建，避免同一批库存被重复承诺；
+            // 新商品、零库存商品的可承诺量为0，需先采购入库再销售
+            stockReservationService.reserve(savedOrder);
+
+            // 同一事务内写入搜索文档
+            orderSearchService.index(savedOrder);
             
             // 🆕 移除自动确认功能，保持订单在PENDING状态
             // 用户需要手动确认订单才会更新库存和财务记录
@@ -176,6 +248,127 @@ public class OrderService {
         }
     }
 
+    /**
+     * 批量解析订单行的商品：先查名称缓存，未命中的名称一次IN查询，
+     * 仍不存在的新商品分配编码后一次批量插入。同一订单内同名的新商品只创建一次。
+     */
+    private void resolveGoods(List<OrderGoods> goods) {
+        Set<String> names = new LinkedHashSet<>();
+        for (OrderGoods item : goods) {
+            if (item.getGoods() == null) {
+                throw new RuntimeException("订单商品中的商品对象不能为空");
+            }
+            if (item.getGoods().getId() == null && item.getGoods().getName() != null) {
+                names.add(item.getGoods().getName());
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+
+        Map<String, Goods> resolved = new HashMap<>(goodsCatalogCache.getAll(names));
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            if (!resolved.containsKey(name)) {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Goods> loaded = goodsRepository.findByNameIn(missing);
+            // 同名商品取ID最小的一条，与原先按名称查询取第一条一致
+            loaded.sort(Comparator.comparing(Goods::getId));
+            for (Goods existing : loaded) {
+                resolved.putIfAbsent(existing.getName(), existing);
+            }
+            goodsCatalogCache.putAll(loaded);
+        }
+        log.info("解析订单商品: 名称数={}, 缓存命中={}, 查询={}", names.size(),
+                names.size() - missing.size(), missing.size());
+
+        Map<String, Goods> created = new LinkedHashMap<>();
+        for (OrderGoods item : goods) {
+            Goods goodsItem = item.getGoods();
+            if (goodsItem.getId() != null || goodsItem.getName() == null) {
+                continue;
+            }
+            String name = goodsItem.getName();
+            Goods existing = resolved.get(name);
+            if (existing == null) {
+                existing = created.get(name);
+            }
+            if (existing != null) {
+                item.setGoods(existing);
+                continue;
+            }
+
+            // 创建新商品
+            goodsItem.setCode(codeSequenceService.nextGoodsCode());
+            goodsItem.setStock(0); // 新商品尚无库存记录
+            goodsItem.setStatus(1);
+            // 设置商品价格为订单中的单价
+            if (item.getUnitPrice() != null) {
+                goodsItem.setSellingPrice(item.getUnitPrice());
+                goodsItem.setPurchasePrice(item.getUnitPrice());
+            }
+            created.put(name, goodsItem);
+        }
+
+        if (!created.isEmpty()) {
+            batchInsertGoods(new ArrayList<>(created.values()));
+            // 已有同名库存（手工建档）的，关联到新商品
+            inventoryService.linkGoods(new ArrayList<>(created.values()));
+            goodsCatalogCache.putAll(created.values());
+            log.info("批量创建新商品 {} 个: {}", created.size(), created.keySet());
+        }
+    }
+
+    /**
+     * JDBC批量插入新商品并回填自增ID
+     */
+    private void batchInsertGoods(List<Goods> newGoods) {
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(
+                        "INSERT INTO goods (code, name, category, specification, unit, purchase_price, selling_price, " +
+                        "status, description, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                        new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Goods goods = newGoods.get(i);
+                        ps.setString(1, goods.getCode());
+                        ps.setString(2, goods.getName());
+                        ps.setString(3, goods.getCategory());
+                        ps.setString(4, goods.getSpecification());
+                        ps.setString(5, goods.getUnit());
+                        ps.setObject(6, goods.getPurchasePrice());
+                        ps.setObject(7, goods.getSellingPrice());
+                        ps.setInt(8, goods.getStatus());
+                        ps.setString(9, goods.getDescription());
+                        ps.setTimestamp(10, Timestamp.valueOf(now));
+                        ps.setTimestamp(11, Timestamp.valueOf(now));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return newGoods.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != newGoods.size()) {
+            throw new RuntimeException("批量创建商品失败：返回主键数量不符");
+        }
+        for (int i = 0; i < newGoods.size(); i++) {
+            Goods goods = newGoods.get(i);
+            goods.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            goods.setCreatedAt(now);
+            goods.setUpdatedAt(now);
+        }
+    }
+
     @Transactional(readOnly = true)
     public Page<Order> getOrdersByType(String type, Integer page, Integer size) {
         try {
@@ -207,7 +400,11 @@ public class OrderService {
 
     @Transactional
     public void deleteOrder(Long id) {
+        // 已完成订单需同步从日汇总中扣减
+        orderRepository.findById(id).ifPresent(orderRollupService::removeConfirmedOrder);
         orderRepository.deleteById(id);
+        orderSearchService.remove(id);
+        stockReservationService.release(List.of(id));
     }
 
     @Transactional
@@ -221,16 +418,24 @@ public class OrderService {
         
         // 如果是销售订单，先检查所有商品库存是否足够
         if ("SALE".equals(order.getOrderType())) {
+            // 本订单自己的预留可以直接使用，其他订单的预留不能占用
+            Map<Long, Integer> ownReserved = stockReservationService.findActiveByOrderIds(List.of(id))
+                    .getOrDefault(id, Collections.emptyMap());
             for (OrderGoods orderGoods : order.getGoods()) {
                 Goods goods = orderGoods.getGoods();
                 Integer quantity = orderGoods.getQuantity();
                 
-                // 检查库存
-                Inventory inventory = inventoryService.findByProductName(goods.getName());
-                if (inventory == null || inventory.getQuantity() < quantity) {
+                // 检查库存（按商品ID关联）
+                Inventory inventory = inventoryService.findByGoodsId(goods.getId());
+                int reservedByOthers = Math.max(stockReservationService.reservedQuantity(goods.getId())
+                        - ownReserved.getOrDefault(goods.getId(), 0), 0);
+                if (inventory == null || inventory.getQuantity() - reservedByOthers < quantity) {
                     String errorMsg = "库存不足，无法确认订单。商品: " + goods.getName();
                     if (inventory != null) {
                         errorMsg += ", 当前库存: " + inventory.getQuantity() + ", 需要: " + quantity;
+                        if (reservedByOthers > 0) {
+                            errorMsg += ", 其他订单已预留: " + reservedByOthers;
+                        }
                     } else {
                         errorMsg += ", 库存中未找到该商品";
                     }
@@ -240,11 +445,18 @@ public class OrderService {
             }
         }
 
-        // 订单确认后自动更新库存
+        // 订单确认后自动更新库存，预留转为出库
         updateInventoryOnOrderConfirm(order);
+        if ("SALE".equals(order.getOrderType())) {
+            stockReservationService.consume(List.of(order.getId()));
+        }
 
-        // 订单确认后自动创建财务记录
-        createFinanceRecordOnOrderConfirm(order);
+        // 财务记录由发件箱异步生成，确认事务内只写一行事件
+        orderOutboxService.enqueue(List.of(order));
+
+        // 同一事务内累加订单日汇总
+        orderRollupService.recordConfirmedOrders(List.of(order));
+        orderSearchService.updateStatus(List.of(order.getId()), "COMPLETED");
 
         order.setStatus("COMPLETED");
         order.setFreight(freight);
@@ -267,20 +479,16 @@ public class OrderService {
                     // 采购订单确认：增加库存
                     log.info("采购订单确认，增加库存: 商品={}, 数量={}", goods.getName(), quantity);
                     inventoryService.createOrUpdateInventoryFromGoods(
-                        goods.getName(),
-                        goods.getCode(),
+                        goods,
                         quantity,
-                        unitPrice
+                        unitPrice,
+                        StockMovement.REASON_PURCHASE_ORDER,
+                        order.getId()
                     );
-                    
-                    // 同步更新Goods表中的库存数量
-                    goods.setStock(goods.getStock() + quantity);
-                    goodsRepository.save(goods);
-                    log.info("更新商品库存: 商品={}, 新库存={}", goods.getName(), goods.getStock());
                 } else if ("SALE".equals(order.getOrderType())) {
                     // 销售订单确认：减少库存
                     log.info("销售订单确认，减少库存: 商品={}, 数量={}", goods.getName(), quantity);
-                    Inventory inventory = inventoryService.findByProductName(goods.getName());
+                    Inventory inventory = inventoryService.findByGoodsId(goods.getId());
                     if (inventory != null) {
                         if (inventory.getQuantity() < quantity) {
                             throw new RuntimeException("库存不足，商品: " + goods.getName() +
@@ -291,23 +499,20 @@ public class OrderService {
                         Inventory stockOutData = new Inventory();
                         stockOutData.setId(inventory.getId());
                         stockOutData.setQuantity(quantity);
-                        inventoryService.stockOut(stockOutData);
-                        
-                        // 同步更新Goods表中的库存数量
-                        if (goods.getStock() < quantity) {
-                            goods.setStock(0);
-                            log.warn("商品表库存数据不一致，已重置为0: 商品={}", goods.getName());
-                        } else {
-                            goods.setStock(goods.getStock() - quantity);
-                        }
-                        goodsRepository.save(goods);
-                        log.info("更新商品库存: 商品={}, 新库存={}", goods.getName(), goods.getStock());
+                        inventoryService.stockOut(stockOutData, StockMovement.REASON_SALE_ORDER, order.getId());
                     } else {
                         throw new RuntimeException("库存中未找到商品: " + goods.getName());
                     }
                 }
             }
 
+            // 商品库存已变动，失效名称缓存中的旧快照
+            List<Long> changedGoodsIds = new ArrayList<>();
+            for (OrderGoods orderGoods : order.getGoods()) {
+                changedGoodsIds.add(orderGoods.getGoods().getId());
+            }
+            goodsCatalogCache.evictByIds(changedGoodsIds);
+
             log.info("订单库存更新完成，订单ID: {}", order.getId());
         } catch (Exception e) {
             log.error("订单库存更新失败，订单ID: {}, 错误: {}", order.getId(), e.getMessage(), e);
@@ -316,106 +521,235 @@ public class OrderService {
     }
 
     /**
-     * 订单确认时自动创建财务记录
+     * 批量确认订单
+     * 先按ID升序锁定订单，再用一次查询加载并按商品ID升序锁定所有涉及的商品及库存行，
+     * 固定的加锁顺序保证并发批次之间不会死锁。随后在内存中逐单校验库存，
+     * 最后以JDBC批处理统一写入库存变动、订单状态和发件箱事件（商品库存由库存表派生，不再单独写入）。
+     * 单个订单校验失败不影响同批次其他订单，结果按请求顺序逐单返回。
      */
-    private void createFinanceRecordOnOrderConfirm(Order order) {
-        try {
-            log.info("开始创建订单财务记录，订单ID: {}, 订单类型: {}", order.getId(), order.getOrderType());
+    @Transactional
+    public List<BatchConfirmResult> confirmOrders(List<BatchConfirmRequest.Item> items) {
+        List<BatchConfirmResult> results = new ArrayList<>();
+        if (items == null || items.isEmpty()) {
+            return results;
+        }
 
-            FinanceRecord financeRecord = new FinanceRecord();
-            financeRecord.setRecordDate(new java.util.Date());
-            financeRecord.setCreatedBy("system"); // 系统自动创建
+        // 去重，保持请求顺序
+        Map<Long, Float> freightById = new LinkedHashMap<>();
+        for (BatchConfirmRequest.Item item : items) {
+            if (item.getId() != null) {
+                freightById.putIfAbsent(item.getId(), item.getFreight() != null ? item.getFreight() : 0.0f);
+            }
+        }
+        if (freightById.isEmpty()) {
+            return results;
+        }
+        log.info("开始批量确认订单，数量: {}", freightById.size());
 
-            // 计算订单总金额
-            java.math.BigDecimal totalAmount = java.math.BigDecimal.ZERO;
+        // 1. 锁定订单行，防止同一订单被并发批次重复确认
+        orderRepository.lockIdsForUpdate(freightById.keySet());
+
+        // 2. 一次查询加载订单及商品明细
+        Map<Long, Order> orders = new HashMap<>();
+        for (Order order : orderRepository.findAllWithGoodsByIdIn(freightById.keySet())) {
+            orders.put(order.getId(), order);
+        }
+
+        // 3. 一次查询加载并锁定涉及的商品及库存
+        Set<Long> goodsIds = new TreeSet<>();
+        for (Order order : orders.values()) {
             for (OrderGoods orderGoods : order.getGoods()) {
-                log.info("财务记录计算 - 商品: {}, 单价: {}, 数量: {}, 总价: {}", 
-                    orderGoods.getGoods() != null ? orderGoods.getGoods().getName() : "null",
-                    orderGoods.getUnitPrice(),
-                    orderGoods.getQuantity(),
-                    orderGoods.getTotalPrice());
-                if (orderGoods.getTotalPrice() != null) {
-                    totalAmount = totalAmount.add(java.math.BigDecimal.valueOf(orderGoods.getTotalPrice()));
+                if (orderGoods.getGoods() != null && orderGoods.getGoods().getId() != null) {
+                    goodsIds.add(orderGoods.getGoods().getId());
                 }
             }
-            
-            log.info("财务记录总金额计算结果: {}", totalAmount);
-
-            if ("PURCHASE".equals(order.getOrderType())) {
-                // 采购订单：记录为支出
-                financeRecord.setExpense(totalAmount);
-                financeRecord.setIncome(java.math.BigDecimal.ZERO);
-                financeRecord.setRecordType("PURCHASE");
-                financeRecord.setDescription("采购订单自动记录 - 订单号: " + order.getOrderNo());
-                log.info("采购订单确认，记录支出: 金额={}", totalAmount);
-            } else if ("SALE".equals(order.getOrderType())) {
-                // 销售订单：记录为收入
-                financeRecord.setIncome(totalAmount);
-                financeRecord.setExpense(java.math.BigDecimal.ZERO);
-                financeRecord.setRecordType("SALES");
-                financeRecord.setDescription("销售订单自动记录 - 订单号: " + order.getOrderNo());
-                log.info("销售订单确认，记录收入: 金额={}", totalAmount);
+        }
+        Map<Long, Inventory> inventoryByGoodsId = new HashMap<>();
+        if (!goodsIds.isEmpty()) {
+            for (Object[] row : goodsRepository.lockWithInventoryByIdIn(goodsIds)) {
+                Goods goods = (Goods) row[0];
+                Inventory inventory = (Inventory) row[1];
+                if (inventory != null) {
+                    inventoryByGoodsId.putIfAbsent(goods.getId(), inventory);
+                }
+            }
+        }
+
+        // 4. 内存中逐单校验，累计各行变动
+        Map<Long, Map<Long, Integer>> reservedByOrder = stockReservationService.findActiveByOrderIds(orders.keySet());
+        Map<Long, Integer> available = new HashMap<>();          // 库存ID -> 考虑本批次已确认订单后的可承诺量
+        Map<Long, Inventory> inventoryDeltas = new TreeMap<>();   // 库存ID -> 数量增量及单价
+        Map<Long, Inventory> newInventories = new LinkedHashMap<>(); // 商品ID -> 采购入库需新建的库存
+        Set<Long> changedGoodsIds = new TreeSet<>();              // 库存有变动的商品ID，用于失效名称缓存
+        List<StockMovement> movements = new ArrayList<>();        // 逐单逐商品的库存流水
+        List<Long> confirmedIds = new ArrayList<>();
+        List<Order> confirmedOrders = new ArrayList<>();
+
+        for (Map.Entry<Long, Float> entry : freightById.entrySet()) {
+            Long orderId = entry.getKey();
+            Order order = orders.get(orderId);
+            if (order == null) {
+                results.add(BatchConfirmResult.failure(orderId, null, "订单不存在"));
+                continue;
+            }
+            if ("COMPLETED".equals(order.getStatus())) {
+                results.add(BatchConfirmResult.failure(orderId, order.getOrderNo(), "订单请勿重复确认"));
+                continue;
             }
 
-            // 保存财务记录
-            financeService.createFinanceRecord(financeRecord);
-            log.info("订单财务记录创建完成，订单ID: {}", order.getId());
+            String error = applyOrderStockChanges(order, inventoryByGoodsId,
+                    reservedByOrder.getOrDefault(orderId, Collections.emptyMap()), available,
+                    inventoryDeltas, newInventories, changedGoodsIds, movements);
+            if (error != null) {
+                log.warn("批量确认跳过订单 {}: {}", order.getOrderNo(), error);
+                results.add(BatchConfirmResult.failure(orderId, order.getOrderNo(), error));
+                continue;
+            }
 
-        } catch (Exception e) {
-            log.error("订单财务记录创建失败，订单ID: {}, 错误: {}", order.getId(), e.getMessage(), e);
-            // 财务记录创建失败不影响订单确认，只记录日志
+            confirmedIds.add(orderId);
+            confirmedOrders.add(order);
+            results.add(BatchConfirmResult.success(orderId, order.getOrderNo()));
         }
+
+        // 5. JDBC批量写入
+        inventoryService.batchAdjustStock(new ArrayList<>(inventoryDeltas.values()));
+        inventoryService.batchCreateInventory(new ArrayList<>(newInventories.values()));
+        stockLedgerService.recordAll(movements);
+        stockReservationService.consume(confirmedIds);
+        goodsCatalogCache.evictByIds(changedGoodsIds);
+        orderOutboxService.enqueue(confirmedOrders);
+        batchCompleteOrders(confirmedIds, freightById);
+        orderRollupService.recordConfirmedOrders(confirmedOrders);
+        orderSearchService.updateStatus(confirmedIds, "COMPLETED");
+
+        log.info("批量确认订单完成，成功: {}, 失败: {}", confirmedIds.size(), results.size() - confirmedIds.size());
+        return results;
     }
 
-    @Transactional(readOnly = true)
-    public Map<String, List<?>> getMonthlyTypedOrderData(int year) {
-        List<Map<String, Object>> monthlyStats = orderRepository.getMonthlyOrderStatisticsByType(year);
-        
-        List<Integer> salesOrderCounts = new ArrayList<>(12);
-        List<BigDecimal> salesTotalAmounts = new ArrayList<>(12);
-        List<Integer> purchaseOrderCounts = new ArrayList<>(12);
-        List<BigDecimal> purchaseTotalAmounts = new ArrayList<>(12);
-
-        for (int i = 0; i < 12; i++) {
-            salesOrderCounts.add(0);
-            salesTotalAmounts.add(BigDecimal.ZERO);
-            purchaseOrderCounts.add(0);
-            purchaseTotalAmounts.add(BigDecimal.ZERO);
+    /**
+     * 校验单个订单的库存并把其变动累加到批次中
+     * 可承诺量 = 库存 - 所有未过期预留，本订单自己的预留在校验时加回
+     * @return 校验失败原因；校验通过返回null
+     */
+    private String applyOrderStockChanges(Order order,
+                                          Map<Long, Inventory> inventoryByGoodsId,
+                                          Map<Long, Integer> ownReserved,
+                                          Map<Long, Integer> available,
+                                          Map<Long, Inventory> inventoryDeltas,
+                                          Map<Long, Inventory> newInventories,
+                                          Set<Long> changedGoodsIds,
+                                          List<StockMovement> movements) {
+        boolean isSale = "SALE".equals(order.getOrderType());
+        boolean isPurchase = "PURCHASE".equals(order.getOrderType());
+        if (!isSale && !isPurchase) {
+            return null;
+        }
+
+        // 先汇总本订单对每个商品的需求量，校验通过后才修改批次状态
+        Map<Long, Integer> required = new LinkedHashMap<>();
+        Map<Long, OrderGoods> lineByGoodsId = new HashMap<>();
+        for (OrderGoods orderGoods : order.getGoods()) {
+            Goods goods = orderGoods.getGoods();
+            if (goods == null || goods.getId() == null) {
+                return "订单商品缺少商品信息";
+            }
+            int quantity = orderGoods.getQuantity() != null ? orderGoods.getQuantity() : 0;
+            required.merge(goods.getId(), quantity, Integer::sum);
+            lineByGoodsId.put(goods.getId(), orderGoods);
+        }
+
+        if (isSale) {
+            for (Map.Entry<Long, Integer> need : required.entrySet()) {
+                Goods goods = lineByGoodsId.get(need.getKey()).getGoods();
+                Inventory inventory = inventoryByGoodsId.get(need.getKey());
+                if (inventory == null) {
+                    return "库存不足，无法确认订单。商品: " + goods.getName() + ", 库存中未找到该商品";
+                }
+                int current = available.computeIfAbsent(inventory.getId(),
+                        k -> inventory.getQuantity() - stockReservationService.reservedQuantity(need.getKey()))
+                        + ownReserved.getOrDefault(need.getKey(), 0);
+                if (current < need.getValue()) {
+                    return "库存不足，无法确认订单。商品: " + goods.getName()
+                            + ", 当前库存: " + current + ", 需要: " + need.getValue();
+                }
+            }
         }
 
-        for (Map<String, Object> stat : monthlyStats) {
-            Integer month = (Integer) stat.get("month");
-            String orderType = (String) stat.get("orderType");
-            Long count = (Long) stat.get("orderCount");
-            Double amount = (Double) stat.get("totalAmount"); 
-
-            if (month != null && month >= 1 && month <= 12) {
-                if ("SALE".equals(orderType)) {
-                    salesOrderCounts.set(month - 1, count != null ? count.intValue() : 0);
-                    salesTotalAmounts.set(month - 1, amount != null ? BigDecimal.valueOf(amount) : BigDecimal.ZERO);
-                } else if ("PURCHASE".equals(orderType)) {
-                    purchaseOrderCounts.set(month - 1, count != null ? count.intValue() : 0);
-                    purchaseTotalAmounts.set(month - 1, amount != null ? BigDecimal.valueOf(amount) : BigDecimal.ZERO);
+        int sign = isSale ? -1 : 1;
+        for (Map.Entry<Long, Integer> change : required.entrySet()) {
+            Long goodsId = change.getKey();
+            int delta = sign * change.getValue();
+            OrderGoods line = lineByGoodsId.get(goodsId);
+            Double unitPrice = isPurchase && line.getUnitPrice() != null ? line.getUnitPrice().doubleValue() : null;
+            Inventory inventory = inventoryByGoodsId.get(goodsId);
+
+            if (inventory != null) {
+                available.computeIfAbsent(inventory.getId(),
+                        k -> inventory.getQuantity() - stockReservationService.reservedQuantity(goodsId));
+                // 销售出库先释放本订单自己的预留
+                available.merge(inventory.getId(), isSale ? delta + ownReserved.getOrDefault(goodsId, 0) : delta,
+                        Integer::sum);
+                Inventory adjustment = inventoryDeltas.computeIfAbsent(inventory.getId(), id -> {
+                    Inventory data = new Inventory();
+                    data.setId(id);
+                    data.setQuantity(0);
+                    return data;
+                });
+                adjustment.setQuantity(adjustment.getQuantity() + delta);
+                if (unitPrice != null) {
+                    adjustment.setUnitPrice(unitPrice);
+                }
+            } else {
+                // 采购入库的新商品：本批次内合并为一条新库存记录
+                Goods goods = line.getGoods();
+                Inventory created = newInventories.computeIfAbsent(goodsId, id -> {
+                    Inventory data = new Inventory();
+                    data.setGoodsId(goods.getId());
+                    data.setProductName(goods.getName());
+                    data.setProductCode(goods.getCode());
+                    data.setQuantity(0);
+                    data.setUnit("个"); // 默认单位
+                    data.setLocation("默认仓库"); // 默认位置
+                    return data;
+                });
+                created.setQuantity(created.getQuantity() + delta);
+                if (unitPrice != null) {
+                    created.setUnitPrice(unitPrice);
                 }
             }
+            changedGoodsIds.add(goodsId);
+            // 新建的库存没有ID，记录流水时按商品名称回查
+            movements.add(StockMovement.of(inventory != null ? inventory.getId() : null, line.getGoods().getName(),
+                    delta, isSale ? StockMovement.REASON_SALE_ORDER : StockMovement.REASON_PURCHASE_ORDER, order.getId()));
         }
+        return null;
+    }
 
-        Map<String, List<?>> result = new HashMap<>();
-        result.put("salesOrderCounts", salesOrderCounts);
-        result.put("salesTotalAmounts", salesTotalAmounts);
-        result.put("purchaseOrderCounts", purchaseOrderCounts);
-        result.put("purchaseTotalAmounts", purchaseTotalAmounts);
-        return result;
+    /**
+     * 批量把订单置为已完成并写入运费
+     */
+    private void batchCompleteOrders(List<Long> orderIds, Map<Long, Float> freightById) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "UPDATE orders SET status = 'COMPLETED', freight = ?, updated_at = ? WHERE id = ?",
+                orderIds, 500, (ps, orderId) -> {
+                    ps.setFloat(1, freightById.get(orderId));
+                    ps.setTimestamp(2, now);
+                    ps.setLong(3, orderId);
+                });
     }
 
     /**
-     * 根据ID获取订单详情
+     * 根据ID获取订单详情，订单表中不存在时回退到归档表
      */
     @Transactional(readOnly = true)
     public Order getOrderById(Long id) {
         log.info("获取订单详情: id={}", id);
         try {
-            return orderRepository.findById(id).orElse(null);
+            return orderRepository.findDetailById(id).orElseGet(() -> orderArchiveService.findArchivedOrder(id));
         } catch (Exception e) {
             log.error("获取订单详情失败: {}", e.getMessage(), e);
             throw new RuntimeException("获取订单详情失败: " + e.getMessage(), e);
@@ -0,0 +1,139 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.common.LocalCache;
+import com.daacooerp.erp.entity.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * 已认证用户的有界LRU缓存（用户名 -> 用户ID、启用状态），供JWT拦截器校验用户时使用，
+ * 避免每个请求都查询用户表；条目在TTL（默认30秒）后过期。
+ * 用户信息或状态变更时由 UserService 失效，被禁用的账号下一次请求即被拒绝；
+ * 不存在的用户不缓存，新注册的用户不受影响。
+ * 命中、未命中、失效次数注册到 Micrometer（erp.principal.cache.*），管理员也可通过 /api/auth/cache/stats 查看。
+ */
+@Service
+public class PrincipalCache {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PrincipalCache.class);
+
+    private final LocalCache<String, Principal> byUsername;
+
+    public PrincipalCache(@Value("${erp.principal-cache.max-size:10000}") int maxSize,
+                          @Value("${erp.principal-cache.ttl-ms:30000}") long ttlMillis,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
+        this.byUsername = new LocalCache<>(maxSize, ttlMillis);
+        meterRegistry.ifAvailable(this::bindTo);
+    }
+
+    /**
+     * 按用户名读取；未命中或已过期时通过 loader 查询并放入缓存
+     */
+    public Optional<Principal> get(String username, Function<String, Optional<User>> loader) {
+        return Optional.ofNullable(byUsername.get(username, name -> loader.apply(name)
+                .map(user -> new Principal(user.getId(), user.getUsername(), Boolean.TRUE.equals(user.getStatus())))
+                .orElse(null)));
+    }
+
+    /**
+     * 失效该用户（按ID和用户名，用户名可能已被修改）：立即失效一次，事务提交后再失效一次，
+     * 防止提交前被并发请求用旧数据重新放入
+     */
+    public void evict(User user) {
+        if (user == null) {
+            return;
+        }
+        Long userId = user.getId();
+        String username = user.getUsername();
+        Runnable evict = () -> {
+            if (username != null) {
+                byUsername.invalidate(username);
+            }
+            if (userId != null) {
+                byUsername.invalidateIf(principal -> userId.equals(principal.getUserId()));
+            }
+        };
+        evict.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        byUsername.invalidateAll();
+        log.info("用户认证缓存已清空");
+    }
+
+    public int size() {
+        return byUsername.size();
+    }
+
+    /**
+     * 命中统计：hits, misses, evictions, size
+     */
+    public Map<String, Long> getStats() {
+        return byUsername.getStats();
+    }
+
+    private void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("erp.principal.cache.requests", this, cache -> cache.getStats().get("hits"))
+                .tag("result", "hit")
+                .description("用户认证缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("erp.principal.cache.requests", this, cache -> cache.getStats().get("misses"))
+                .tag("result", "miss")
+                .description("用户认证缓存未命中次数")
+                .register(registry);
+        FunctionCounter.builder("erp.principal.cache.evictions", this, cache -> cache.getStats().get("evictions"))
+                .description("用户认证缓存失效次数")
+                .register(registry);
+        Gauge.builder("erp.principal.cache.size", this, PrincipalCache::size)
+                .description("用户认证缓存条目数")
+                .register(registry);
+    }
+
+    /**
+     * 缓存的认证信息快照，不包含密码等敏感字段
+     */
+    public static class Principal {
+
+        private final Long userId;
+
+        private final String username;
+
+        private final boolean active;
+
+        public Principal(Long userId, String username, boolean active) {
+            this.userId = userId;
+            this.username = username;
+            this.active = active;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+}
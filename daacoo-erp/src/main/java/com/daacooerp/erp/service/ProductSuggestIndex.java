@@ -0,0 +1,452 @@
+package com.daacooerp.erp.service;
+
+import cn.hutool.extra.pinyin.PinyinUtil;
+import com.daacooerp.erp.dto.ProductSuggestion;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.event.InventoryChangedEvent;
+import com.daacooerp.erp.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品名称/编码自动补全索引（内存）
+ * 每个库存商品以三个检索键入索引：名称、商品编码、名称的拼音首字母（如“打印纸”-> dyz），均转为小写：
+ * 1. 前缀树：输入为某个键的前缀时，从前缀节点按层遍历，短键优先；
+ * 2. 单字/双字 n-gram 倒排表：前缀结果不足时做包含匹配，取各双字组倒排表的交集后再校验。
+ * 启动时全量构建，之后随库存变动事件（事务提交后）增量更新，并定时全量重建兜底。
+ */
+@Service
+public class ProductSuggestIndex {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    public static final String MATCH_NAME_PREFIX = "NAME_PREFIX";
+    public static final String MATCH_CODE_PREFIX = "CODE_PREFIX";
+    public static final String MATCH_PINYIN_PREFIX = "PINYIN_PREFIX";
+    public static final String MATCH_INFIX = "INFIX";
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    // 输入超过此长度时截断
+    private static final int MAX_QUERY_LENGTH = 64;
+
+    // 每种匹配方式最多取 limit 的多少倍候选参与排序
+    private static final int CANDIDATE_FACTOR = 4;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Index index = new Index();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("商品补全索引构建失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时全量重建（默认10分钟），覆盖其他实例或直接改库造成的变化
+     */
+    @Scheduled(fixedDelayString = "${erp.suggest.rebuild-ms:600000}",
+               initialDelayString = "${erp.suggest.rebuild-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.warn("商品补全索引重建失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 全量重建：在锁外构建新索引，再整体替换
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Index rebuilt = new Index();
+        for (Object[] row : inventoryRepository.findAllSuggestKeys()) {
+            rebuilt.put((Long) row[0], (String) row[1], (String) row[2]);
+        }
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("商品补全索引构建完成: {} 个商品, 耗时 {}ms", rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 库存新增、修改、删除后（事务提交后）重新读取受影响的行并增量更新
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.isEmpty()) {
+            return;
+        }
+        try {
+            Map<Long, Inventory> current = new HashMap<>();
+            if (!event.getInventoryIds().isEmpty()) {
+                for (Inventory inventory : inventoryRepository.findAllById(event.getInventoryIds())) {
+                    current.put(inventory.getId(), inventory);
+                }
+            }
+            if (!event.getProductNames().isEmpty()) {
+                for (Inventory inventory : inventoryRepository.findByProductNameIn(event.getProductNames())) {
+                    current.put(inventory.getId(), inventory);
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                for (Long id : event.getInventoryIds()) {
+                    if (!current.containsKey(id)) {
+                        index.remove(id);
+                    }
+                }
+                for (Inventory inventory : current.values()) {
+                    index.put(inventory.getId(), inventory.getProductName(), inventory.getProductCode());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (Exception e) {
+            log.warn("更新商品补全索引失败，等待定时重建: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 自动补全：前缀匹配优先（名称 > 编码 > 拼音首字母，短的在前），不足时补充包含匹配
+     */
+    public List<ProductSuggestion> suggest(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (q.length() > MAX_QUERY_LENGTH) {
+            q = q.substring(0, MAX_QUERY_LENGTH);
+        }
+        int k = Math.max(1, Math.min(limit, MAX_LIMIT));
+        lock.readLock().lock();
+        try {
+            return index.search(q, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 拼音首字母（小写），名称不含汉字时为空
+     */
+    static String initialsOf(String name) {
+        if (name == null || name.chars().noneMatch(c -> PinyinUtil.isChinese((char) c))) {
+            return "";
+        }
+        try {
+            return normalize(PinyinUtil.getFirstLetter(name, ""));
+        } catch (Exception e) {
+            log.debug("获取拼音首字母失败: {}", name);
+            return "";
+        }
+    }
+
+    /**
+     * 索引数据结构，调用方负责加锁
+     */
+    private static final class Index {
+
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final Map<String, Long> idByName = new HashMap<>();
+        private final TrieNode root = new TrieNode();
+        private final Map<String, Set<Long>> grams = new HashMap<>();
+
+        int size() {
+            return entries.size();
+        }
+
+        void put(Long id, String name, String code) {
+            if (id == null || name == null) {
+                return;
+            }
+            remove(id);
+            Long previous = idByName.get(name);
+            if (previous != null) {
+                remove(previous);
+            }
+            Entry entry = new Entry(id, name, code);
+            entries.put(id, entry);
+            idByName.put(name, id);
+            for (String key : entry.keys()) {
+                trieNode(key, true).addId(id);
+                for (String gram : gramsOf(key)) {
+                    grams.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+                }
+            }
+        }
+
+        void remove(Long id) {
+            Entry entry = entries.remove(id);
+            if (entry == null) {
+                return;
+            }
+            idByName.remove(entry.name, id);
+            for (String key : entry.keys()) {
+                TrieNode node = trieNode(key, false);
+                if (node != null) {
+                    node.removeId(id);
+                }
+                for (String gram : gramsOf(key)) {
+                    Set<Long> posting = grams.get(gram);
+                    if (posting != null) {
+                        posting.remove(id);
+                        if (posting.isEmpty()) {
+                            grams.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<ProductSuggestion> search(String q, int k) {
+            Map<Long, String> matched = new LinkedHashMap<>();
+
+            // 1. 前缀：从前缀节点按层遍历，收集候选后按匹配方式和键长排序
+            TrieNode start = trieNode(q, false);
+            if (start != null) {
+                List<Entry> candidates = new ArrayList<>();
+                Set<Long> seen = new HashSet<>();
+                Deque<TrieNode> queue = new ArrayDeque<>();
+                queue.add(start);
+                while (!queue.isEmpty() && candidates.size() < k * CANDIDATE_FACTOR) {
+                    TrieNode node = queue.poll();
+                    for (Long id : node.ids()) {
+                        if (seen.add(id)) {
+                            candidates.add(entries.get(id));
+                        }
+                    }
+                    for (TrieNode child : node.children()) {
+                        queue.add(child);
+                    }
+                }
+                candidates.sort(Comparator.comparingInt((Entry e) -> prefixRank(e, q))
+                        .thenComparingInt(e -> e.name.length())
+                        .thenComparing(e -> e.name));
+                for (Entry entry : candidates) {
+                    if (matched.size() >= k) {
+                        break;
+                    }
+                    matched.put(entry.id, prefixMatchType(entry, q));
+                }
+            }
+
+            // 2. 包含：n-gram 倒排表求交集后校验
+            if (matched.size() < k) {
+                List<Entry> candidates = new ArrayList<>();
+                for (Long id : infixCandidates(q)) {
+                    if (candidates.size() >= k * CANDIDATE_FACTOR) {
+                        break;
+                    }
+                    Entry entry = entries.get(id);
+                    if (entry != null && !matched.containsKey(id) && entry.contains(q)) {
+                        candidates.add(entry);
+                    }
+                }
+                candidates.sort(Comparator.comparingInt((Entry e) -> e.name.length()).thenComparing(e -> e.name));
+                for (Entry entry : candidates) {
+                    if (matched.size() >= k) {
+                        break;
+                    }
+                    matched.put(entry.id, MATCH_INFIX);
+                }
+            }
+
+            List<ProductSuggestion> results = new ArrayList<>(matched.size());
+            for (Map.Entry<Long, String> match : matched.entrySet()) {
+                Entry entry = entries.get(match.getKey());
+                results.add(new ProductSuggestion(entry.id, entry.name, entry.code, match.getValue()));
+            }
+            return results;
+        }
+
+        private Set<Long> infixCandidates(String q) {
+            if (q.length() == 1) {
+                return grams.getOrDefault(q, Set.of());
+            }
+            List<Set<Long>> postings = new ArrayList<>();
+            for (String gram : bigramsOf(q)) {
+                Set<Long> posting = grams.get(gram);
+                if (posting == null) {
+                    return Set.of();
+                }
+                postings.add(posting);
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+            Set<Long> result = new LinkedHashSet<>(postings.get(0));
+            for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+                result.retainAll(postings.get(i));
+            }
+            return result;
+        }
+
+        private TrieNode trieNode(String key, boolean create) {
+            TrieNode node = root;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                TrieNode child = node.child(c);
+                if (child == null) {
+                    if (!create) {
+                        return null;
+                    }
+                    child = node.addChild(c);
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        private static int prefixRank(Entry entry, String q) {
+            if (entry.nameKey.startsWith(q)) {
+                return entry.nameKey.equals(q) ? 0 : 1;
+            }
+            return entry.codeKey.startsWith(q) ? 2 : 3;
+        }
+
+        private static String prefixMatchType(Entry entry, String q) {
+            if (entry.nameKey.startsWith(q)) {
+                return MATCH_NAME_PREFIX;
+            }
+            return entry.codeKey.startsWith(q) ? MATCH_CODE_PREFIX : MATCH_PINYIN_PREFIX;
+        }
+
+        private static Set<String> gramsOf(String key) {
+            Set<String> result = new HashSet<>();
+            for (int i = 0; i < key.length(); i++) {
+                result.add(key.substring(i, i + 1));
+            }
+            result.addAll(bigramsOf(key));
+            return result;
+        }
+
+        private static Set<String> bigramsOf(String key) {
+            Set<String> result = new LinkedHashSet<>();
+            for (int i = 0; i + 2 <= key.length(); i++) {
+                result.add(key.substring(i, i + 2));
+            }
+            return result;
+        }
+    }
+
+    private static final class Entry {
+        private final Long id;
+        private final String name;
+        private final String code;
+        private final String nameKey;
+        private final String codeKey;
+        private final String initials;
+
+        Entry(Long id, String name, String code) {
+            this.id = id;
+            this.name = name;
+            this.code = code;
+            this.nameKey = normalize(name);
+            this.codeKey = normalize(code);
+            this.initials = initialsOf(name);
+        }
+
+        Set<String> keys() {
+            Set<String> keys = new LinkedHashSet<>();
+            keys.add(nameKey);
+            if (!codeKey.isEmpty()) {
+                keys.add(codeKey);
+            }
+            if (!initials.isEmpty()) {
+                keys.add(initials);
+            }
+            return keys;
+        }
+
+        boolean contains(String q) {
+            return nameKey.contains(q) || codeKey.contains(q) || initials.contains(q);
+        }
+    }
+
+    /**
+     * 前缀树节点，子节点表和ID集合按需创建，大部分节点只占一个对象
+     */
+    private static final class TrieNode {
+        private Map<Character, TrieNode> children;
+        private Set<Long> ids;
+
+        TrieNode child(char c) {
+            return children == null ? null : children.get(c);
+        }
+
+        TrieNode addChild(char c) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(c, key -> new TrieNode());
+        }
+
+        Iterable<TrieNode> children() {
+            return children == null ? List.of() : children.values();
+        }
+
+        Set<Long> ids() {
+            return ids == null ? Set.of() : ids;
+        }
+
+        void addId(Long id) {
+            if (ids == null) {
+                ids = new HashSet<>(2);
+            }
+            ids.add(id);
+        }
+
+        void removeId(Long id) {
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.StockMovement;
+import com.daacooerp.erp.entity.StockSnapshot;
+import com.daacooerp.erp.repository.StockMovementRepository;
+import com.daacooerp.erp.repository.StockSnapshotRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 库存流水与快照服务
+ * 库存数量每次变动都在同一事务内追加一行流水（stock_movement），库存表仍只保存当前数量。
+ * 定时按流水生成快照（stock_snapshot）：每个有变动的商品一行，数量 = 上一快照 + 两次快照之间的流水。
+ * 查询某一时刻的库存只读该时刻之前最近的一个快照，再加上快照之后的一段流水，不扫描全部历史。
+ * 上线前已有的库存由迁移脚本写入期初快照，早于期初快照的时刻无法回溯，按0计。
+ */
+@Service
+public class StockLedgerService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StockLedgerService.class);
+
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    // 首次生成快照且没有期初快照时，从最早的流水开始累计
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO stock_movement (inventory_id, product_name, delta, reason, order_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // 新建库存的ID在批量插入前未知，按商品名称（唯一键）回查
+    private static final String INSERT_BY_NAME_SQL =
+            "INSERT INTO stock_movement (inventory_id, product_name, delta, reason, order_id, created_at) " +
+            "SELECT id, product_name, ?, ?, ?, ? FROM inventory WHERE product_name = ?";
+
+    // 上次快照之后、截止时间之前（含）有变动的商品各生成一个快照；
+    // 基数只取上次快照时刻之前的快照，即使两个实例同时执行，各自生成的快照也都正确
+    private static final String SNAPSHOT_SQL =
+            "INSERT INTO stock_snapshot (inventory_id, quantity, snapshot_at) " +
+            "SELECT m.inventory_id, SUM(m.delta) + COALESCE((SELECT s.quantity FROM stock_snapshot s " +
+            "WHERE s.inventory_id = m.inventory_id AND s.snapshot_at <= ? ORDER BY s.snapshot_at DESC LIMIT 1), 0), ? " +
+            "FROM stock_movement m WHERE m.created_at > ? AND m.created_at <= ? GROUP BY m.inventory_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    // 快照截止时间比当前时间提前的分钟数，给尚未提交的事务留出余量
+    @Value("${erp.stock-snapshot.lag-minutes:10}")
+    private long lagMinutes;
+
+    /**
+     * 记录一条库存流水（需在库存变动事务内调用），变动为0时不记录
+     */
+    public void record(Long inventoryId, String productName, int delta, String reason, Long orderId) {
+        if (inventoryId == null || delta == 0) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_SQL, inventoryId, productName, delta, reason, orderId,
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 批量记录库存流水；未设置库存ID的按商品名称回查（用于同一事务内刚批量新建的库存）
+     */
+    public void recordAll(List<StockMovement> movements) {
+        if (movements == null || movements.isEmpty()) {
+            return;
+        }
+        List<StockMovement> byId = new ArrayList<>();
+        List<StockMovement> byName = new ArrayList<>();
+        for (StockMovement movement : movements) {
+            if (movement.getDelta() == null || movement.getDelta() == 0) {
+                continue;
+            }
+            if (movement.getInventoryId() != null) {
+                byId.add(movement);
+            } else if (movement.getProductName() != null) {
+                byName.add(movement);
+            }
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (!byId.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, byId, JDBC_BATCH_SIZE, (ps, movement) -> {
+                ps.setLong(1, movement.getInventoryId());
+                ps.setString(2, movement.getProductName());
+                ps.setInt(3, movement.getDelta());
+                ps.setString(4, movement.getReason());
+                ps.setObject(5, movement.getOrderId());
+                ps.setTimestamp(6, now);
+            });
+        }
+        if (!byName.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_BY_NAME_SQL, byName, JDBC_BATCH_SIZE, (ps, movement) -> {
+                ps.setInt(1, movement.getDelta());
+                ps.setString(2, movement.getReason());
+                ps.setObject(3, movement.getOrderId());
+                ps.setTimestamp(4, now);
+                ps.setString(5, movement.getProductName());
+            });
+        }
+    }
+
+    /**
+     * 定时生成库存快照（默认每天凌晨1点）
+     */
+    @Scheduled(cron = "${erp.stock-snapshot.cron:0 0 1 * * *}")
+    public void scheduledSnapshot() {
+        try {
+            takeSnapshot(LocalDateTime.now().minusMinutes(lagMinutes));
+        } catch (Exception e) {
+            log.error("生成库存快照失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 生成截至 cutoff（含）的库存快照，只为上次快照之后有流水的商品生成
+     * @return 生成的快照数量
+     */
+    @Transactional
+    public int takeSnapshot(LocalDateTime cutoff) {
+        LocalDateTime previous = stockSnapshotRepository.findLatestSnapshotAt();
+        if (previous != null && !cutoff.isAfter(previous)) {
+            return 0;
+        }
+        Timestamp from = Timestamp.valueOf(previous != null ? previous : LEDGER_START);
+        Timestamp to = Timestamp.valueOf(cutoff);
+        int created = jdbcTemplate.update(SNAPSHOT_SQL, from, to, from, to);
+        log.info("生成库存快照完成: 截止 {}, {} 个商品", cutoff, created);
+        return created;
+    }
+
+    /**
+     * 查询某商品在指定时刻的库存：最近一个快照 + 快照之后到该时刻的流水
+     */
+    @Transactional(readOnly = true)
+    public int getStockAt(Long inventoryId, LocalDateTime at) {
+        Optional<StockSnapshot> snapshot = stockSnapshotRepository
+                .findFirstByInventoryIdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(inventoryId, at);
+        int base = snapshot.map(StockSnapshot::getQuantity).orElse(0);
+        LocalDateTime after = snapshot.map(StockSnapshot::getSnapshotAt).orElse(LEDGER_START);
+        return base + (int) stockMovementRepository.sumDelta(inventoryId, after, at);
+    }
+
+    /**
+     * 某商品的库存流水，最新的在前
+     */
+    public Page<StockMovement> getMovements(Long inventoryId, int page, int size) {
+        return stockMovementRepository.findByInventoryIdOrderByCreatedAtDescIdDesc(inventoryId, PageRequest.of(page, size));
+    }
+}
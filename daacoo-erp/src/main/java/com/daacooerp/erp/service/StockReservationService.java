@@ -0,0 +1,523 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderGoods;
+import com.daacooerp.erp.entity.StockReservation;
+import com.daacooerp.erp.event.InventoryChangedEvent;
+import com.daacooerp.erp.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 销售库存预留
+ * 创建销售订单时按商品预留数量，可承诺量 = 现存量 - 未过期的预留量，不足时拒绝创建；
+ * 确认订单时预留转为出库，删除订单时释放，超时未确认的预留由定时任务置为过期。
+ * 可承诺量校验只读内存中的按商品计数：现存量首次使用时批量加载，库存变动事件（事务提交后）使其失效；
+ * 预留量随预留、转出库、释放、过期在内存中增减，定时批量回写到库存表的 reserved_quantity。
+ * 预留明细（stock_reservation）在订单事务内批量写入，启动时按明细重建预留量计数；
+ * 计数减为负数说明重复扣减等记账错误，此时记录警告，并在下次回写时按明细重新统计该商品。
+ * 计数只反映本实例的预留，多实例部署时确认订单仍以数据库库存为准。
+ * 没有库存记录的新商品现存量按0计，因此销售订单中的新商品、零库存商品会使创建失败（包括AI对话建单），需先采购入库。
+ */
+@Service
+public class StockReservationService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StockReservationService.class);
+
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO stock_reservation (order_id, goods_id, quantity, status, expires_at, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    // 只关闭仍为 ACTIVE 的预留，并发的确认、删除、过期之间只有一方生效
+    private static final String CLOSE_SQL =
+            "UPDATE stock_reservation SET status = ? WHERE id = ? AND status = '" + StockReservation.STATUS_ACTIVE + "'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Value("${erp.reservation.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private final Map<Long, Counter> counters = new HashMap<>();
+
+    // 库存ID、商品名称 -> 商品ID，按库存变动事件定位需要失效的现存量
+    private final Map<Long, Long> goodsIdByInventoryId = new HashMap<>();
+    private final Map<String, Long> goodsIdByName = new HashMap<>();
+
+    // 预留量有变化、尚未回写库存表的商品ID
+    private final Set<Long> dirty = new HashSet<>();
+
+    // 预留量计数出现过负数、需要按明细重新统计的商品ID
+    private final Set<Long> drifted = new HashSet<>();
+
+    // 每次现存量失效加1；加载期间发生失效时，加载结果只用于本次校验，不写入计数
+    private long invalidations;
+
+    private static final class Counter {
+        Integer onHand; // null 表示未加载或已失效
+        int reserved;
+        int inFlight; // 尚未结束的事务中的预留、关闭，此时计数与明细不一致
+        long version; // 每次调整预留量加1
+    }
+
+    /**
+     * 按未过期的预留明细重建预留量计数，并校正库存表中的预留数量
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            Map<Long, Integer> reserved = new HashMap<>();
+            jdbcTemplate.query("SELECT goods_id, SUM(quantity) FROM stock_reservation WHERE status = ? GROUP BY goods_id",
+                    rs -> {
+                        reserved.put(rs.getLong(1), rs.getInt(2));
+                    }, StockReservation.STATUS_ACTIVE);
+            synchronized (this) {
+                for (Long goodsId : drifted) {
+                    counter(goodsId).reserved = 0;
+                }
+                drifted.clear();
+                for (Map.Entry<Long, Integer> entry : reserved.entrySet()) {
+                    counter(entry.getKey()).reserved = entry.getValue();
+                    dirty.add(entry.getKey());
+                }
+            }
+            jdbcTemplate.update("UPDATE inventory SET reserved_quantity = 0 WHERE reserved_quantity <> 0");
+            flush();
+            log.info("库存预留计数加载完成: {} 个商品", reserved.size());
+        } catch (Exception e) {
+            log.warn("库存预留计数加载失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 为销售订单预留库存（需在创建订单的事务内调用），事务回滚时自动撤销
+     * @throws IllegalArgumentException 任一商品可承诺量不足，此时不预留任何商品
+     */
+    public void reserve(Order order) {
+        if (order == null || order.getId() == null || !"SALE".equals(order.getOrderType()) || order.getGoods() == null) {
+            return;
+        }
+        Map<Long, Integer> required = new TreeMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (OrderGoods line : order.getGoods()) {
+            Goods goods = line.getGoods();
+            if (goods == null || goods.getId() == null || line.getQuantity() == null || line.getQuantity() <= 0) {
+                continue;
+            }
+            required.merge(goods.getId(), line.getQuantity(), Integer::sum);
+            names.put(goods.getId(), goods.getName());
+        }
+        if (required.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> loaded = loadMissingOnHand(required.keySet());
+        synchronized (this) {
+            for (Map.Entry<Long, Integer> need : required.entrySet()) {
+                int available = available(need.getKey(), loaded);
+                if (available < need.getValue()) {
+                    throw new IllegalArgumentException("可用库存不足，商品: " + names.get(need.getKey())
+                            + ", 可用: " + Math.max(available, 0) + ", 需要: " + need.getValue());
+                }
+            }
+            for (Map.Entry<Long, Integer> need : required.entrySet()) {
+                adjustReserved(need.getKey(), need.getValue());
+                counter(need.getKey()).inFlight++;
+            }
+        }
+        afterCompletion(committed -> {
+            synchronized (this) {
+                for (Map.Entry<Long, Integer> need : required.entrySet()) {
+                    if (!committed) {
+                        adjustReserved(need.getKey(), -need.getValue());
+                    }
+                    counter(need.getKey()).inFlight--;
+                }
+            }
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp createdAt = Timestamp.valueOf(now);
+        Timestamp expiresAt = Timestamp.valueOf(now.plusMinutes(ttlMinutes));
+        List<Map.Entry<Long, Integer>> rows = new ArrayList<>(required.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, JDBC_BATCH_SIZE, (ps, row) -> {
+            ps.setLong(1, order.getId());
+            ps.setLong(2, row.getKey());
+            ps.setInt(3, row.getValue());
+            ps.setString(4, StockReservation.STATUS_ACTIVE);
+            ps.setTimestamp(5, expiresAt);
+            ps.setTimestamp(6, createdAt);
+        });
+        log.info("订单 {} 预留库存: {}", order.getOrderNo(), required);
+    }
+
+    /**
+     * 订单仍有效的预留：订单ID -> (商品ID -> 预留数量)
+     */
+    public Map<Long, Map<Long, Integer>> findActiveByOrderIds(Collection<Long> orderIds) {
+        Map<Long, Map<Long, Integer>> result = new HashMap<>();
+        for (ReservationRow row : findActiveRows(orderIds)) {
+            result.computeIfAbsent(row.orderId, k -> new HashMap<>()).merge(row.goodsId, row.quantity, Integer::sum);
+        }
+        return result;
+    }
+
+    /**
+     * 订单确认后把预留转为出库（需在确认事务内调用），提交后扣减预留量计数
+     */
+    public void consume(Collection<Long> orderIds) {
+        close(findActiveRows(orderIds), StockReservation.STATUS_CONSUMED);
+    }
+
+    /**
+     * 释放订单的预留（删除订单时调用）
+     */
+    public void release(Collection<Long> orderIds) {
+        close(findActiveRows(orderIds), StockReservation.STATUS_RELEASED);
+    }
+
+    /**
+     * 定时把超时未确认的预留置为过期（默认每分钟）
+     * @return 过期的预留条数
+     */
+    @Scheduled(fixedDelayString = "${erp.reservation.expire-ms:60000}",
+               initialDelayString = "${erp.reservation.expire-ms:60000}")
+    public int expireDue() {
+        try {
+            List<ReservationRow> rows = jdbcTemplate.query(
+                    "SELECT id, order_id, goods_id, quantity FROM stock_reservation WHERE status = ? AND expires_at <= ?",
+                    (rs, i) -> new ReservationRow(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getInt(4)),
+                    StockReservation.STATUS_ACTIVE, Timestamp.valueOf(LocalDateTime.now()));
+            int expired = close(rows, StockReservation.STATUS_EXPIRED);
+            if (expired > 0) {
+                log.info("库存预留过期: {} 条", expired);
+            }
+            return expired;
+        } catch (Exception e) {
+            log.warn("处理过期库存预留失败: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * 定时把有变化的预留量批量回写到库存表（默认5秒）
+     */
+    @Scheduled(fixedDelayString = "${erp.reservation.flush-ms:5000}")
+    public void flush() {
+        recountDrifted();
+        Map<Long, Integer> pending = new TreeMap<>();
+        synchronized (this) {
+            for (Long goodsId : dirty) {
+                // 尚未校正的负数计数不回写，保留在 dirty 中等待校正
+                if (!drifted.contains(goodsId)) {
+                    Counter counter = counters.get(goodsId);
+                    pending.put(goodsId, counter != null ? counter.reserved : 0);
+                }
+            }
+            dirty.removeAll(pending.keySet());
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            List<Map.Entry<Long, Integer>> rows = new ArrayList<>(pending.entrySet());
+            jdbcTemplate.batchUpdate("UPDATE inventory SET reserved_quantity = ? WHERE goods_id = ?",
+                    rows, JDBC_BATCH_SIZE, (ps, row) -> {
+                        ps.setInt(1, row.getValue());
+                        ps.setLong(2, row.getKey());
+                    });
+        } catch (Exception e) {
+            log.warn("回写库存预留数量失败，稍后重试: {}", e.getMessage());
+            synchronized (this) {
+                dirty.addAll(pending.keySet());
+            }
+        }
+    }
+
+    /**
+     * 库存变动后（事务提交后）使受影响商品的现存量失效，下次校验时重新加载
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            invalidations++;
+            for (Long inventoryId : event.getInventoryIds()) {
+                invalidateOnHand(goodsIdByInventoryId.get(inventoryId));
+            }
+            for (String productName : event.getProductNames()) {
+                invalidateOnHand(goodsIdByName.get(productName));
+            }
+        }
+    }
+
+    /**
+     * 当前内存中的预留量
+     */
+    public synchronized int reservedQuantity(Long goodsId) {
+        Counter counter = counters.get(goodsId);
+        return counter != null ? counter.reserved : 0;
+    }
+
+    /**
+     * 商品可承诺量：onHand（现存量）、reserved（预留量）、available（可承诺量）
+     */
+    public Map<String, Object> getAvailability(Long goodsId) {
+        Map<Long, Integer> loaded = loadMissingOnHand(List.of(goodsId));
+        Map<String, Object> data = new LinkedHashMap<>();
+        synchronized (this) {
+            int reserved = reservedQuantity(goodsId);
+            data.put("goodsId", goodsId);
+            data.put("onHand", onHand(goodsId, loaded));
+            data.put("reserved", reserved);
+            data.put("available", available(goodsId, loaded));
+        }
+        return data;
+    }
+
+    private List<ReservationRow> findActiveRows(Collection<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(orderIds);
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(StockReservation.STATUS_ACTIVE);
+        args.addAll(ids);
+        return jdbcTemplate.query(
+                "SELECT id, order_id, goods_id, quantity FROM stock_reservation WHERE status = ? AND order_id IN (" +
+                placeholders + ")",
+                (rs, i) -> new ReservationRow(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getInt(4)),
+                args.toArray());
+    }
+
+    /**
+     * 关闭预留并在提交后扣减预留量；只扣减本次实际由 ACTIVE 改为目标状态的行
+     */
+    private int close(List<ReservationRow> rows, String status) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Set<Long> goodsIds = new HashSet<>();
+        for (ReservationRow row : rows) {
+            goodsIds.add(row.goodsId);
+        }
+        synchronized (this) {
+            goodsIds.forEach(goodsId -> counter(goodsId).inFlight++);
+        }
+        int[][] counts;
+        try {
+            counts = jdbcTemplate.batchUpdate(CLOSE_SQL, rows, JDBC_BATCH_SIZE, (ps, row) -> {
+                ps.setString(1, status);
+                ps.setLong(2, row.id);
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                goodsIds.forEach(goodsId -> counter(goodsId).inFlight--);
+            }
+            throw e;
+        }
+        Map<Long, Integer> released = new HashMap<>();
+        int closed = 0;
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                ReservationRow row = rows.get(index++);
+                // 驱动无法返回逐行结果时（SUCCESS_NO_INFO）按已更新处理
+                if (count > 0 || count == java.sql.Statement.SUCCESS_NO_INFO) {
+                    released.merge(row.goodsId, row.quantity, Integer::sum);
+                    closed++;
+                }
+            }
+        }
+        afterCompletion(committed -> {
+            synchronized (this) {
+                if (committed) {
+                    for (Map.Entry<Long, Integer> entry : released.entrySet()) {
+                        adjustReserved(entry.getKey(), -entry.getValue());
+                    }
+                }
+                goodsIds.forEach(goodsId -> counter(goodsId).inFlight--);
+            }
+        });
+        return closed;
+    }
+
+    /**
+     * 按预留明细重新统计计数出现过负数的商品；统计期间预留量有变化、或仍有未结束事务的商品留到下次回写
+     */
+    private void recountDrifted() {
+        Map<Long, Long> versions = new TreeMap<>();
+        synchronized (this) {
+            for (Long goodsId : drifted) {
+                Counter counter = counter(goodsId);
+                if (counter.inFlight == 0) {
+                    versions.put(goodsId, counter.version);
+                }
+            }
+        }
+        if (versions.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> actual = new HashMap<>();
+        try {
+            List<Object> args = new ArrayList<>();
+            args.add(StockReservation.STATUS_ACTIVE);
+            args.addAll(versions.keySet());
+            jdbcTemplate.query("SELECT goods_id, SUM(quantity) FROM stock_reservation WHERE status = ? AND goods_id IN (" +
+                    String.join(",", Collections.nCopies(versions.size(), "?")) + ") GROUP BY goods_id",
+                    rs -> {
+                        actual.put(rs.getLong(1), rs.getInt(2));
+                    }, args.toArray());
+        } catch (Exception e) {
+            log.warn("重新统计库存预留数量失败，稍后重试: {}", e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            for (Map.Entry<Long, Long> entry : versions.entrySet()) {
+                Counter counter = counter(entry.getKey());
+                if (counter.inFlight != 0 || counter.version != entry.getValue()) {
+                    continue;
+                }
+                int reserved = actual.getOrDefault(entry.getKey(), 0);
+                log.warn("商品 {} 的预留量计数已按预留明细校正: {} -> {}", entry.getKey(), counter.reserved, reserved);
+                counter.reserved = reserved;
+                drifted.remove(entry.getKey());
+                dirty.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 批量加载尚未缓存的现存量（不持锁访问数据库）；没有库存记录的商品现存量按0计，不缓存
+     */
+    private Map<Long, Integer> loadMissingOnHand(Collection<Long> goodsIds) {
+        List<Long> missing = new ArrayList<>();
+        long startInvalidations;
+        synchronized (this) {
+            for (Long goodsId : goodsIds) {
+                Counter counter = counters.get(goodsId);
+                if (counter == null || counter.onHand == null) {
+                    missing.add(goodsId);
+                }
+            }
+            startInvalidations = invalidations;
+        }
+        if (missing.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Integer> loaded = new HashMap<>();
+        List<Object[]> rows = inventoryRepository.findStockByGoodsIdIn(missing);
+        synchronized (this) {
+            boolean cacheable = invalidations == startInvalidations;
+            for (Object[] row : rows) {
+                Long goodsId = (Long) row[0];
+                Long inventoryId = (Long) row[1];
+                String productName = (String) row[2];
+                int quantity = row[3] != null ? (Integer) row[3] : 0;
+                loaded.put(goodsId, quantity);
+                if (cacheable) {
+                    counter(goodsId).onHand = quantity;
+                    goodsIdByInventoryId.put(inventoryId, goodsId);
+                    goodsIdByName.put(productName, goodsId);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private int onHand(Long goodsId, Map<Long, Integer> loaded) {
+        Counter counter = counters.get(goodsId);
+        if (counter != null && counter.onHand != null) {
+            return counter.onHand;
+        }
+        return loaded.getOrDefault(goodsId, 0);
+    }
+
+    private int available(Long goodsId, Map<Long, Integer> loaded) {
+        // 负数计数校正前按0计，不放大可承诺量
+        return onHand(goodsId, loaded) - Math.max(reservedQuantity(goodsId), 0);
+    }
+
+    private void adjustReserved(Long goodsId, int delta) {
+        Counter counter = counter(goodsId);
+        counter.reserved += delta;
+        counter.version++;
+        if (counter.reserved < 0 && drifted.add(goodsId)) {
+            log.warn("商品 {} 的预留量计数为负数: {}（本次调整 {}），将按预留明细重新统计", goodsId, counter.reserved, delta);
+        }
+        dirty.add(goodsId);
+    }
+
+    private void invalidateOnHand(Long goodsId) {
+        Counter counter = goodsId != null ? counters.get(goodsId) : null;
+        if (counter != null) {
+            counter.onHand = null;
+        }
+    }
+
+    private Counter counter(Long goodsId) {
+        return counters.computeIfAbsent(goodsId, k -> new Counter());
+    }
+
+    /**
+     * 事务结束后执行，参数为是否已提交；没有事务时立即按已提交执行
+     */
+    private void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            action.accept(true);
+        }
+    }
+
+    private static final class ReservationRow {
+        final long id;
+        final long orderId;
+        final long goodsId;
+        final int quantity;
+
+        ReservationRow(long id, long orderId, long goodsId, int quantity) {
+            this.id = id;
+            this.orderId = orderId;
+            this.goodsId = goodsId;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -17,6 +17,9 @@ public class UserService {
     @Autowired
     private PasswordService passwordService;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
     /**
      * 根据用户名查找用户
      * @param username 用户名
@@ -26,6 +29,15 @@ public class UserService {
         return userRepository.findByUsername(username);
     }
     
+    /**
+     * 根据ID查找用户
+     * @param id 用户ID
+     * @return 用户对象
+     */
+    public Optional<User> findById(Long id) {
+        return userRepository.findById(id);
+    }
+    
     /**
      * 根据电话号码查找用户
      * @param tel 电话号码
@@ -52,12 +64,25 @@ public class UserService {
     }
     
     /**
-     * 更新用户信息
+     * 更新用户信息（同时失效认证缓存）
      * @param user 用户对象
      * @return 更新后的用户对象
      */
     public User updateUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        principalCache.evict(user);
+        return saved;
+    }
+    
+    /**
+     * 启用或禁用用户，认证缓存立即失效，禁用后下一次请求即被拒绝
+     * @param user 用户对象
+     * @param status true 启用，false 禁用
+     * @return 更新后的用户对象
+     */
+    public User updateStatus(User user, boolean status) {
+        user.setStatus(status);
+        return updateUser(user);
     }
     
     /**
@@ -100,5 +125,6 @@ public class UserService {
     public void updateAvatar(User user, String avatarUrl) {
         user.setAvatar(avatarUrl);
         userRepository.save(user);
+        principalCache.evict(user);
     }
 }
\ No newline at end of file
@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.daacooerp.erp.entity.Goods;
 import com.daacooerp.erp.entity.Order;
 import com.daacooerp.erp.entity.OrderGoods;
+import com.daacooerp.erp.dto.OrderSearchHit;
+import com.daacooerp.erp.dto.OrderSummary;
+import com.daacooerp.erp.service.OrderSearchService;
 import com.daacooerp.erp.service.OrderService;
 import com.daacooerp.erp.service.CommandExecutorService;
 import com.daacooerp.erp.service.external.DeepSeekAIService;
@@ -39,6 +42,9 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderSearchService orderSearchService;
+
     @Autowired
     private DeepSeekAIService deepSeekAIService;
 
@@ -441,8 +447,13 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
             return result.toString();
 
         } catch (Exception e) {
+            // 销售订单只能承诺现有的可用库存：新商品、库存不足时不创建订单，提示先采购入库
+            if (e.getCause() instanceof IllegalArgumentException && "SALE".equals(context.getOrderType())) {
+                return "❌ 创建订单失败：" + e.getCause().getMessage() +
+                    "\n\n💡 销售订单只能使用现有的可用库存，新商品或库存不足的商品请先采购入库";
+            }
             e.printStackTrace();
-            return "❌ 创建订单失败：" + e.getMessage() + 
+            return "❌ 创建订单失败：" + e.getMessage() +
                 "\n\n💡 请尝试更清晰的表达，如：'为张三创建订单，商品苹果10个单价5元'";
         }
     }
@@ -1257,32 +1268,29 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
             int limit = getIntValue(root, "limit", "count", "数量");
             if (limit <= 0) limit = 10; // 默认返回10条
 
-            // 获取订单
-            List<Order> allOrders = new ArrayList<>();
-            
-            if (orderType.isEmpty() || orderType.equalsIgnoreCase("SALE")) {
-                Page<Order> salesOrders = orderService.getOrdersByType("SALE", 0, limit);
-                allOrders.addAll(salesOrders.getContent());
-            }
-            
-            if (orderType.isEmpty() || orderType.equalsIgnoreCase("PURCHASE")) {
-                Page<Order> purchaseOrders = orderService.getOrdersByType("PURCHASE", 0, limit);
-                allOrders.addAll(purchaseOrders.getContent());
-            }
+            List<OrderSearchHit> rows = new ArrayList<>();
+            long total;
 
-            // 关键词筛选
             if (!keyword.isEmpty()) {
-                allOrders = allOrders.stream()
-                    .filter(order -> matchesKeyword(order, keyword))
-                    .collect(Collectors.toList());
-            }
-
-            // 限制数量
-            if (allOrders.size() > limit) {
-                allOrders = allOrders.subList(0, limit);
+                // 关键词走搜索索引，可命中任意时间的订单并按相关度排序
+                Page<OrderSearchHit> hits = orderSearchService.search(keyword, orderType, 0, limit);
+                rows.addAll(hits.getContent());
+                total = hits.getTotalElements();
+            } else {
+                // 无关键词时只取最新订单摘要，不加载商品明细
+                if (orderType.isEmpty() || orderType.equalsIgnoreCase("SALE")) {
+                    orderService.getOrderSummariesByType("SALE", 0, limit).forEach(o -> rows.add(toHit(o)));
+                }
+                if (orderType.isEmpty() || orderType.equalsIgnoreCase("PURCHASE")) {
+                    orderService.getOrderSummariesByType("PURCHASE", 0, limit).forEach(o -> rows.add(toHit(o)));
+                }
+                if (rows.size() > limit) {
+                    rows.subList(limit, rows.size()).clear();
+                }
+                total = rows.size();
             }
 
-            if (allOrders.isEmpty()) {
+            if (rows.isEmpty()) {
                 String searchInfo = keyword.isEmpty() ? "" : "关键词'" + keyword + "'";
                 return "📭 没有找到相关订单" + (searchInfo.isEmpty() ? "" : "（" + searchInfo + "）") + 
                     "\n\n💡 试试：\n• 查询所有订单\n• 查询销售订单\n• 查询客户张三的订单";
@@ -1290,21 +1298,21 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
 
             // 生成简洁的订单列表
             StringBuilder result = new StringBuilder();
-            result.append("🔍 查询到 ").append(allOrders.size()).append(" 个订单：\n\n");
+            result.append("🔍 查询到 ").append(total).append(" 个订单：\n\n");
 
-            for (int i = 0; i < Math.min(allOrders.size(), 5); i++) { // 最多显示5个
-                Order order = allOrders.get(i);
-                String typeIcon = order.getOrderType().equals("SALE") ? "💰" : "📦";
+            for (int i = 0; i < Math.min(rows.size(), 5); i++) { // 最多显示5个
+                OrderSearchHit order = rows.get(i);
+                String typeIcon = "SALE".equals(order.getOrderType()) ? "💰" : "📦";
                 String statusIcon = getStatusIcon(order.getStatus());
                 
                 result.append(typeIcon).append(" ").append(order.getOrderNo())
                     .append(" | ").append(order.getCustomerName())
-                    .append(" | ¥").append(String.format("%.2f", order.getAmount()))
+                    .append(" | ¥").append(String.format("%.2f", order.getAmount() != null ? order.getAmount() : 0.0f))
                     .append(" ").append(statusIcon).append("\n");
             }
 
-            if (allOrders.size() > 5) {
-                result.append("\n... 还有 ").append(allOrders.size() - 5).append(" 个订单\n");
+            if (total > 5) {
+                result.append("\n... 还有 ").append(total - 5).append(" 个订单\n");
             }
 
             result.append("\n💡 如需详细分析，请说：'分析这些订单'");
@@ -1316,6 +1324,19 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
         }
     }
 
+    private OrderSearchHit toHit(OrderSummary summary) {
+        OrderSearchHit hit = new OrderSearchHit();
+        hit.setId(summary.getId());
+        hit.setOrderNo(summary.getOrderNo());
+        hit.setOrderType(summary.getOrderType());
+        hit.setCustomerName(summary.getCustomerName());
+        hit.setContactPerson(summary.getContactPerson());
+        hit.setAmount(summary.getAmount());
+        hit.setStatus(summary.getStatus());
+        hit.setCreatedAt(summary.getCreatedAt());
+        return hit;
+    }
+
     /**
      * 确认订单
      */
@@ -1724,17 +1745,6 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
         return mapper.createArrayNode(); // 返回空数组
     }
 
-    // 辅助方法：检查订单是否匹配关键词
-    private boolean matchesKeyword(Order order, String keyword) {
-        String lowerKeyword = keyword.toLowerCase();
-        
-        return (order.getCustomerName() != null && order.getCustomerName().toLowerCase().contains(lowerKeyword)) ||
-               (order.getOrderNo() != null && order.getOrderNo().toLowerCase().contains(lowerKeyword)) ||
-               (order.getGoods() != null && order.getGoods().stream().anyMatch(og -> 
-                   og.getGoods() != null && og.getGoods().getName() != null && 
-                   og.getGoods().getName().toLowerCase().contains(lowerKeyword)));
-    }
-
     // 辅助方法：获取状态图标
     private String getStatusIcon(Object status) {
         if (status == null) return "⏳";
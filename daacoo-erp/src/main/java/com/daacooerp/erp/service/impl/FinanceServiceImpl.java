@@ -1,29 +1,57 @@
 package com.daacooerp.erp.service.impl;
 
+import com.daacooerp.erp.common.CursorPage;
+import com.daacooerp.erp.common.SeekCursor;
 import com.daacooerp.erp.entity.FinanceRecord;
 import com.daacooerp.erp.repository.FinanceRecordRepository;
 import com.daacooerp.erp.service.FinanceService;
-import com.daacooerp.erp.service.OrderService;
+import com.daacooerp.erp.service.FinanceSummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.*;
 
 @Service
 public class FinanceServiceImpl implements FinanceService {
 
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    // 财务记录按 (record_date, income, expense, profit) 覆盖索引扫描，订单数和金额取自订单日汇总表
+    private static final String MONTHLY_SUMMARY_SQL =
+            "SELECT t.month_no, SUM(t.income) AS income, SUM(t.expense) AS expense, SUM(t.profit) AS profit, " +
+            "SUM(t.sales_count) AS sales_count, SUM(t.purchase_count) AS purchase_count, " +
+            "SUM(t.sales_amount) AS sales_amount, SUM(t.purchase_amount) AS purchase_amount FROM (" +
+            "SELECT MONTH(record_date) AS month_no, SUM(income) AS income, SUM(expense) AS expense, SUM(profit) AS profit, " +
+            "0 AS sales_count, 0 AS purchase_count, 0 AS sales_amount, 0 AS purchase_amount " +
+            "FROM finance_record WHERE record_date >= ? AND record_date < ? GROUP BY MONTH(record_date) " +
+            "UNION ALL " +
+            "SELECT MONTH(stat_date), 0, 0, 0, " +
+            "SUM(CASE WHEN order_type = 'SALE' THEN order_count ELSE 0 END), " +
+            "SUM(CASE WHEN order_type = 'PURCHASE' THEN order_count ELSE 0 END), " +
+            "SUM(CASE WHEN order_type = 'SALE' THEN amount ELSE 0 END), " +
+            "SUM(CASE WHEN order_type = 'PURCHASE' THEN amount ELSE 0 END) " +
+            "FROM order_daily_rollup WHERE order_type IN ('SALE', 'PURCHASE') AND stat_date >= ? AND stat_date < ? " +
+            "GROUP BY MONTH(stat_date)" +
+            ") t GROUP BY t.month_no";
+
     @Autowired
     private FinanceRecordRepository financeRecordRepository;
 
     @Autowired
-    @Lazy
-    private OrderService orderService;
-    
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FinanceSummaryService financeSummaryService;
+
     @Override
     public List<FinanceRecord> getFinanceRecords(Date startDate, Date endDate) {
         return financeRecordRepository.findByRecordDateBetweenOrderByRecordDateAsc(startDate, endDate);
@@ -34,20 +62,24 @@ public class FinanceServiceImpl implements FinanceService {
         return financeRecordRepository.findByRecordDateBetween(startDate, endDate, pageable);
     }
     
+    @Override
+    public CursorPage<FinanceRecord> getFinanceRecordsByCursor(Date startDate, Date endDate, String cursor, int size) {
+        SeekCursor seek = SeekCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<FinanceRecord> rows = seek == null
+                ? financeRecordRepository.findFirstByCursor(startDate, endDate, limit)
+                : financeRecordRepository.findAfterCursor(startDate, endDate,
+                        java.sql.Date.valueOf(seek.getDateKey()), seek.getId(), limit);
+        return CursorPage.of(rows, size, last -> SeekCursor.of(
+                new java.sql.Date(last.getRecordDate().getTime()).toLocalDate(), last.getId()));
+    }
+    
+    /**
+     * 区间统计读财务日汇总表，按天累加，不再对明细做全区间 SUM/COUNT
+     */
     @Override
     public Map<String, Object> getFinanceStatistics(Date startDate, Date endDate) {
-        Map<String, Object> statistics = financeRecordRepository.getFinanceStatistics(startDate, endDate);
-        
-        // 如果没有数据，返回默认值
-        if (statistics == null || statistics.isEmpty()) {
-            statistics = new HashMap<>();
-            statistics.put("totalIncome", BigDecimal.ZERO);
-            statistics.put("totalExpense", BigDecimal.ZERO);
-            statistics.put("totalProfit", BigDecimal.ZERO);
-            statistics.put("recordCount", 0L);
-        }
-        
-        return statistics;
+        return financeSummaryService.getStatistics(startDate, endDate);
     }
     
     @Override
@@ -64,7 +96,98 @@ public class FinanceServiceImpl implements FinanceService {
             record.setProfit(record.getIncome().subtract(record.getExpense()));
         }
         
-        return financeRecordRepository.save(record);
+        FinanceRecord saved = financeRecordRepository.save(record);
+        financeSummaryService.apply(List.of(saved), 1);
+        return saved;
+    }
+    
+    @Override
+    @Transactional
+    public int batchCreateFinanceRecords(List<FinanceRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return 0;
+        }
+        // source_order_no 唯一，同一订单重复投递时保留已有记录（幂等）：
+        // 先按唯一键查出已存在的来源订单号并跳过，批次内重复的只保留第一条。
+        // 不能依赖 ON DUPLICATE KEY UPDATE 的影响行数判断是否插入——连接未开启 useAffectedRows 时重复行同样返回1
+        Set<String> existing = findExistingSourceOrderNos(records);
+        List<FinanceRecord> fresh = new ArrayList<>();
+        for (FinanceRecord record : records) {
+            String sourceOrderNo = record.getSourceOrderNo();
+            if (sourceOrderNo == null || existing.add(sourceOrderNo)) {
+                fresh.add(record);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        Date now = new Date();
+        for (FinanceRecord record : fresh) {
+            if (record.getCreatedAt() == null) {
+                record.setCreatedAt(now);
+            }
+            record.setUpdatedAt(now);
+            record.calculateProfit();
+        }
+        // 查询之后被并发写入的同号记录由 INSERT IGNORE 跳过，被忽略的行影响行数为0
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO finance_record (record_date, income, expense, profit, record_type, description, " +
+                "created_by, created_at, updated_at, source_order_no) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                fresh, JDBC_BATCH_SIZE, (ps, record) -> {
+                    ps.setDate(1, new java.sql.Date(record.getRecordDate().getTime()));
+                    ps.setBigDecimal(2, record.getIncome());
+                    ps.setBigDecimal(3, record.getExpense());
+                    ps.setBigDecimal(4, record.getProfit());
+                    ps.setString(5, record.getRecordType());
+                    ps.setString(6, record.getDescription());
+                    ps.setString(7, record.getCreatedBy());
+                    ps.setTimestamp(8, new Timestamp(record.getCreatedAt().getTime()));
+                    ps.setTimestamp(9, new Timestamp(record.getUpdatedAt().getTime()));
+                    ps.setString(10, record.getSourceOrderNo());
+                });
+
+        // 只把实际插入的记录（影响行数为1）计入日汇总；驱动未返回逐行结果时（如批量改写）按涉及日期从明细重算，
+        // 这些行已经过唯一键预查，计为已插入
+        List<FinanceRecord> inserted = new ArrayList<>();
+        Set<LocalDate> unknownDays = new HashSet<>();
+        int insertedCount = 0;
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                FinanceRecord record = fresh.get(index++);
+                if (count == 1) {
+                    inserted.add(record);
+                    insertedCount++;
+                } else if (count == Statement.SUCCESS_NO_INFO) {
+                    unknownDays.add(FinanceSummaryService.toLocalDate(record.getRecordDate()));
+                    insertedCount++;
+                }
+            }
+        }
+        inserted.removeIf(record -> unknownDays.contains(FinanceSummaryService.toLocalDate(record.getRecordDate())));
+        financeSummaryService.apply(inserted, 1);
+        financeSummaryService.refreshDays(unknownDays);
+        return insertedCount;
+    }
+
+    /**
+     * 查询已存在的来源订单号（按唯一键 IN 查询，分批）
+     */
+    private Set<String> findExistingSourceOrderNos(List<FinanceRecord> records) {
+        List<String> sourceOrderNos = records.stream()
+                .map(FinanceRecord::getSourceOrderNo)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < sourceOrderNos.size(); from += JDBC_BATCH_SIZE) {
+            List<String> chunk = sourceOrderNos.subList(from, Math.min(from + JDBC_BATCH_SIZE, sourceOrderNos.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            existing.addAll(jdbcTemplate.queryForList(
+                    "SELECT source_order_no FROM finance_record WHERE source_order_no IN (" + placeholders + ")",
+                    String.class, chunk.toArray()));
+        }
+        return existing;
     }
     
     @Override
@@ -72,6 +195,12 @@ public class FinanceServiceImpl implements FinanceService {
     public FinanceRecord updateFinanceRecord(Long id, FinanceRecord record) {
         FinanceRecord existingRecord = financeRecordRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("财务记录不存在: " + id));
+        // 修改前的金额和日期，用于从日汇总中扣减
+        FinanceRecord previous = new FinanceRecord();
+        previous.setRecordDate(existingRecord.getRecordDate());
+        previous.setIncome(existingRecord.getIncome());
+        previous.setExpense(existingRecord.getExpense());
+        previous.setProfit(existingRecord.getProfit());
         
         // 更新字段
         existingRecord.setRecordDate(record.getRecordDate());
@@ -86,71 +215,52 @@ public class FinanceServiceImpl implements FinanceService {
             existingRecord.setProfit(existingRecord.getIncome().subtract(existingRecord.getExpense()));
         }
         
-        return financeRecordRepository.save(existingRecord);
+        FinanceRecord saved = financeRecordRepository.save(existingRecord);
+        financeSummaryService.apply(List.of(previous), -1);
+        financeSummaryService.apply(List.of(saved), 1);
+        return saved;
     }
     
     @Override
     @Transactional
     public void deleteFinanceRecord(Long id) {
-        financeRecordRepository.deleteById(id);
+        financeRecordRepository.findById(id).ifPresent(record -> {
+            financeSummaryService.apply(List.of(record), -1);
+            financeRecordRepository.delete(record);
+        });
     }
     
+    /**
+     * 全年按月汇总：财务记录和订单日汇总各自在数据库中按月分组，一条语句返回最多12行，
+     * 不再把全年的财务记录逐条加载到内存中累加，也不再单独查询订单统计
+     */
     @Override
     public Map<String, Object> getMonthlyFinanceData(int year) {
-        // 创建包含12个月数据的结果
+        List<BigDecimal> incomeList = zeros(BigDecimal.ZERO);
+        List<BigDecimal> expenseList = zeros(BigDecimal.ZERO);
+        List<BigDecimal> profitList = zeros(BigDecimal.ZERO);
+        List<Integer> salesOrderQuantityList = zeros(0);
+        List<Integer> purchaseOrderQuantityList = zeros(0);
+        List<BigDecimal> salesTotalAmountList = zeros(BigDecimal.ZERO);
+        List<BigDecimal> purchaseTotalAmountList = zeros(BigDecimal.ZERO);
+
+        java.sql.Date start = java.sql.Date.valueOf(LocalDate.of(year, 1, 1));
+        java.sql.Date end = java.sql.Date.valueOf(LocalDate.of(year + 1, 1, 1));
+        jdbcTemplate.query(MONTHLY_SUMMARY_SQL, rs -> {
+            int month = rs.getInt("month_no") - 1;
+            if (month < 0 || month > 11) {
+                return;
+            }
+            incomeList.set(month, decimal(rs.getBigDecimal("income")));
+            expenseList.set(month, decimal(rs.getBigDecimal("expense")));
+            profitList.set(month, decimal(rs.getBigDecimal("profit")));
+            salesOrderQuantityList.set(month, rs.getInt("sales_count"));
+            purchaseOrderQuantityList.set(month, rs.getInt("purchase_count"));
+            salesTotalAmountList.set(month, decimal(rs.getBigDecimal("sales_amount")));
+            purchaseTotalAmountList.set(month, decimal(rs.getBigDecimal("purchase_amount")));
+        }, start, end, start, end);
+
         Map<String, Object> result = new HashMap<>();
-        List<BigDecimal> incomeList = new ArrayList<>(12);
-        List<BigDecimal> expenseList = new ArrayList<>(12);
-        List<BigDecimal> profitList = new ArrayList<>(12);
-        
-        // 设置日期范围为整年
-        Calendar startCal = Calendar.getInstance();
-        startCal.set(year, Calendar.JANUARY, 1, 0, 0, 0);
-        startCal.set(Calendar.MILLISECOND, 0);
-        
-        Calendar endCal = Calendar.getInstance();
-        endCal.set(year, Calendar.DECEMBER, 31, 23, 59, 59);
-        endCal.set(Calendar.MILLISECOND, 999);
-        
-        // 获取全年数据
-        List<FinanceRecord> records = financeRecordRepository.findByRecordDateBetweenOrderByRecordDateAsc(
-                startCal.getTime(), endCal.getTime());
-        
-        // 初始化月度数据
-        for (int i = 0; i < 12; i++) {
-            incomeList.add(BigDecimal.ZERO);
-            expenseList.add(BigDecimal.ZERO);
-            profitList.add(BigDecimal.ZERO);
-        }
-        
-        // 按月汇总数据
-        for (FinanceRecord record : records) {
-            Calendar recordCal = Calendar.getInstance();
-            recordCal.setTime(record.getRecordDate());
-            int month = recordCal.get(Calendar.MONTH);
-            
-            // 累加当月数据
-            BigDecimal currentIncome = incomeList.get(month);
-            BigDecimal currentExpense = expenseList.get(month);
-            BigDecimal currentProfit = profitList.get(month);
-            
-            incomeList.set(month, currentIncome.add(record.getIncome()));
-            expenseList.set(month, currentExpense.add(record.getExpense()));
-            profitList.set(month, currentProfit.add(record.getProfit()));
-        }
-        
-        // Get monthly order data from OrderService
-        Map<String, List<?>> orderData = orderService.getMonthlyTypedOrderData(year);
-        
-        @SuppressWarnings("unchecked")
-        List<Integer> salesOrderQuantityList = (List<Integer>) orderData.get("salesOrderCounts");
-        @SuppressWarnings("unchecked")
-        List<Integer> purchaseOrderQuantityList = (List<Integer>) orderData.get("purchaseOrderCounts");
-        @SuppressWarnings("unchecked")
-        List<BigDecimal> salesTotalAmountList = (List<BigDecimal>) orderData.get("salesTotalAmounts");
-        @SuppressWarnings("unchecked")
-        List<BigDecimal> purchaseTotalAmountList = (List<BigDecimal>) orderData.get("purchaseTotalAmounts");
-        
         result.put("income", incomeList);
         result.put("expense", expenseList);
         result.put("profit", profitList);
@@ -158,7 +268,14 @@ public class FinanceServiceImpl implements FinanceService {
         result.put("purchaseOrderQuantity", purchaseOrderQuantityList);
         result.put("salesTotalAmounts", salesTotalAmountList);
         result.put("purchaseTotalAmounts", purchaseTotalAmountList);
-        
         return result;
     }
-} 
\ No newline at end of file
+
+    private static <T> List<T> zeros(T zero) {
+        return new ArrayList<>(Collections.nCopies(12, zero));
+    }
+
+    private static BigDecimal decimal(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
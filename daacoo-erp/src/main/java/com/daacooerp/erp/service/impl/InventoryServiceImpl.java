@@ -1,30 +1,78 @@
 package com.daacooerp.erp.service.impl;
 
+import com.daacooerp.erp.dto.BulkStockRequest;
+import com.daacooerp.erp.dto.BulkStockResult;
+import com.daacooerp.erp.entity.Goods;
 import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.entity.StockMovement;
+import com.daacooerp.erp.event.InventoryChangedEvent;
 import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.service.CodeSequenceService;
 import com.daacooerp.erp.service.InventoryService;
-import com.daacooerp.erp.common.CodeGenerator;
+import com.daacooerp.erp.service.StockLedgerService;
+import com.daacooerp.erp.service.StockReservationService;
+import com.daacooerp.erp.common.CursorPage;
+import com.daacooerp.erp.common.SeekCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.EntityNotFoundException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 public class InventoryServiceImpl implements InventoryService {
 
+    private static final int JDBC_BATCH_SIZE = 500;
+
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CodeSequenceService codeSequenceService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
     @Override
     public Page<Inventory> getInventoryList(Integer page, Integer size) {
         Pageable pageable = PageRequest.of(page, size);
         return inventoryRepository.findAll(pageable);
     }
 
+    @Override
+    public CursorPage<Inventory> getInventoryByCursor(String cursor, int size) {
+        SeekCursor seek = SeekCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<Inventory> rows = seek == null
+                ? inventoryRepository.findFirstByCursor(limit)
+                : inventoryRepository.findAfterCursor(seek.getDateTimeKey(), seek.getId(), limit);
+        return CursorPage.of(rows, size, last -> SeekCursor.of(last.getCreatedAt(), last.getId()));
+    }
+
     @Override
     public Inventory getInventoryById(Long id) {
         return inventoryRepository.findById(id)
@@ -36,18 +84,21 @@ public class InventoryServiceImpl implements InventoryService {
     public Inventory createInventory(Inventory inventory) {
         // 如果商品编码为空，自动生成
         if (inventory.getProductCode() == null || inventory.getProductCode().trim().isEmpty()) {
-            String generatedCode;
-            if (inventory.getCategory() != null && !inventory.getCategory().trim().isEmpty()) {
-                // 根据分类生成编码
-                generatedCode = CodeGenerator.generateProductCodeByCategory(inventory.getCategory());
-            } else {
-                // 使用默认编码格式
-                generatedCode = CodeGenerator.generateProductCode();
+            // 根据分类前缀从号段分配，无分类时使用默认前缀 P
+            inventory.setProductCode(codeSequenceService.nextProductCode(inventory.getCategory()));
+        }
+        // 未指定商品时关联同名商品，之后订单确认按商品ID定位库存
+        if (inventory.getGoodsId() == null && inventory.getProductName() != null) {
+            Long goodsId = inventoryRepository.findGoodsIdByName(inventory.getProductName());
+            if (goodsId != null && !inventoryRepository.existsByGoodsId(goodsId)) {
+                inventory.setGoodsId(goodsId);
             }
-            inventory.setProductCode(generatedCode);
         }
-        
-        return inventoryRepository.save(inventory);
+
+        Inventory saved = inventoryRepository.save(inventory);
+        recordMovement(saved, valueOf(saved.getQuantity()), StockMovement.REASON_CREATE, null);
+        publishChanged(saved.getId());
+        return saved;
     }
 
     @Override
@@ -57,7 +108,12 @@ public class InventoryServiceImpl implements InventoryService {
         if (!inventoryRepository.existsById(inventory.getId())) {
             throw new EntityNotFoundException("库存不存在，ID: " + inventory.getId());
         }
-        return inventoryRepository.save(inventory);
+        // 直接修改数量时按差额记录调整流水
+        int before = valueOf(inventoryRepository.findQuantityById(inventory.getId()));
+        Inventory saved = inventoryRepository.save(inventory);
+        recordMovement(saved, valueOf(saved.getQuantity()) - before, StockMovement.REASON_ADJUST, null);
+        publishChanged(saved.getId());
+        return saved;
     }
 
     @Override
@@ -67,46 +123,64 @@ public class InventoryServiceImpl implements InventoryService {
         if (!inventoryRepository.existsById(id)) {
             throw new EntityNotFoundException("库存不存在，ID: " + id);
         }
+        // 删除视为清零，流水保留
+        stockLedgerService.record(id, null, -valueOf(inventoryRepository.findQuantityById(id)),
+                StockMovement.REASON_DELETE, null);
         inventoryRepository.deleteById(id);
+        publishChanged(id);
     }
 
     @Override
     @Transactional
     public Inventory stockIn(Inventory inventoryData) {
-        // 获取现有库存
-        Inventory existingInventory = getInventoryById(inventoryData.getId());
-
-        // 增加库存数量
-        int newQuantity = existingInventory.getQuantity() + inventoryData.getQuantity();
-        existingInventory.setQuantity(newQuantity);
+        return stockIn(inventoryData, StockMovement.REASON_STOCK_IN, null);
+    }
 
-        // 更新其他可能变更的字段
-        if (inventoryData.getUnitPrice() != null) {
-            existingInventory.setUnitPrice(inventoryData.getUnitPrice());
-        }
-        if (inventoryData.getLocation() != null) {
-            existingInventory.setLocation(inventoryData.getLocation());
+    @Override
+    @Transactional
+    public Inventory stockIn(Inventory inventoryData, String reason, Long orderId) {
+        // 单条 UPDATE 原子累加，避免并发入库时读-改-写丢失更新
+        int updated = inventoryRepository.increment(inventoryData.getId(), inventoryData.getQuantity(),
+                inventoryData.getUnitPrice(), inventoryData.getLocation(), LocalDateTime.now());
+        if (updated == 0) {
+            throw new EntityNotFoundException("库存不存在，ID: " + inventoryData.getId());
         }
-
-        return inventoryRepository.save(existingInventory);
+        publishChanged(inventoryData.getId());
+        Inventory current = getInventoryById(inventoryData.getId());
+        recordMovement(current, valueOf(inventoryData.getQuantity()), reason, orderId);
+        return current;
     }
 
     @Override
     @Transactional
     public Inventory stockOut(Inventory inventoryData) {
-        // 获取现有库存
-        Inventory existingInventory = getInventoryById(inventoryData.getId());
+        return stockOut(inventoryData, StockMovement.REASON_STOCK_OUT, null);
+    }
 
-        // 检查库存是否足够
-        if (existingInventory.getQuantity() < inventoryData.getQuantity()) {
-            throw new IllegalArgumentException("库存不足，当前库存: " + existingInventory.getQuantity());
+    @Override
+    @Transactional
+    public Inventory stockOut(Inventory inventoryData, String reason, Long orderId) {
+        // 手工出库不能占用销售订单的预留；订单出库在确认订单时已按本订单预留校验过
+        int reserved = orderId == null ? reservedQuantity(getInventoryById(inventoryData.getId())) : 0;
+        // 条件扣减：quantity - 预留量 >= 出库数量时才更新，由数据库保证不会超卖
+        int updated = reserved > 0
+                ? inventoryRepository.decrementIfAvailable(inventoryData.getId(), inventoryData.getQuantity(), reserved,
+                        LocalDateTime.now())
+                : inventoryRepository.decrementIfSufficient(inventoryData.getId(), inventoryData.getQuantity(),
+                        LocalDateTime.now());
+        if (updated == 0) {
+            // 未更新时区分库存不存在和库存不足
+            Inventory existingInventory = getInventoryById(inventoryData.getId());
+            String message = "库存不足，当前库存: " + existingInventory.getQuantity();
+            if (reserved > 0) {
+                message += ", 销售订单已预留: " + reserved;
+            }
+            throw new IllegalArgumentException(message);
         }
-
-        // 减少库存数量
-        int newQuantity = existingInventory.getQuantity() - inventoryData.getQuantity();
-        existingInventory.setQuantity(newQuantity);
-
-        return inventoryRepository.save(existingInventory);
+        publishChanged(inventoryData.getId());
+        Inventory current = getInventoryById(inventoryData.getId());
+        recordMovement(current, -valueOf(inventoryData.getQuantity()), reason, orderId);
+        return current;
     }
 
     @Override
@@ -117,39 +191,285 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional
     public Inventory createOrUpdateInventoryFromGoods(String productName, String productCode, Integer quantity, Double unitPrice) {
-        // 先查找是否已存在该商品的库存
-        Inventory existingInventory = findByProductName(productName);
-
-        if (existingInventory != null) {
-            // 如果已存在，更新数量
-            existingInventory.setQuantity(existingInventory.getQuantity() + quantity);
-            if (unitPrice != null) {
-                existingInventory.setUnitPrice(unitPrice);
+        // 已存在的商品直接原子累加，不占用新的商品编码
+        int updated = inventoryRepository.incrementByProductName(productName, quantity, unitPrice, LocalDateTime.now());
+        if (updated == 0) {
+            // 不存在则按唯一键插入，并发创建同名商品时冲突行转为累加
+            String code = productCode == null || productCode.trim().isEmpty()
+                    ? codeSequenceService.nextProductCode(null)
+                    : productCode;
+            inventoryRepository.upsertReceipt(productName, code, quantity, unitPrice, LocalDateTime.now());
+        }
+        eventPublisher.publishEvent(InventoryChangedEvent.ofProductNames(List.of(productName)));
+        Inventory inventory = findByProductName(productName);
+        recordMovement(inventory, valueOf(quantity), StockMovement.REASON_STOCK_IN, null);
+        return inventory;
+    }
+
+    @Override
+    @Transactional
+    public Inventory createOrUpdateInventoryFromGoods(Goods goods, Integer quantity, Double unitPrice,
+                                                      String reason, Long orderId) {
+        if (goods == null || goods.getId() == null) {
+            throw new IllegalArgumentException("商品ID不能为空");
+        }
+        // 已关联的库存按商品ID原子累加，不再按名称匹配
+        int updated = inventoryRepository.incrementByGoodsId(goods.getId(), quantity, unitPrice, LocalDateTime.now());
+        if (updated == 0) {
+            String code = goods.getCode() == null || goods.getCode().trim().isEmpty()
+                    ? codeSequenceService.nextProductCode(null)
+                    : goods.getCode();
+            inventoryRepository.upsertReceiptForGoods(goods.getId(), goods.getName(), code, quantity, unitPrice,
+                    LocalDateTime.now());
+        }
+        // 同名库存已关联其他商品（历史重复商品）时按名称兜底
+        Inventory inventory = inventoryRepository.findByGoodsId(goods.getId())
+                .orElseGet(() -> findByProductName(goods.getName()));
+        if (inventory != null) {
+            publishChanged(inventory.getId());
+        }
+        recordMovement(inventory, valueOf(quantity), reason, orderId);
+        return inventory;
+    }
+
+    @Override
+    public Inventory findByGoodsId(Long goodsId) {
+        return inventoryRepository.findByGoodsId(goodsId).orElse(null);
+    }
+
+    @Override
+    @Transactional
+    public void linkGoods(List<Goods> goods) {
+        if (goods == null || goods.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "UPDATE inventory SET goods_id = ? WHERE product_name = ? AND goods_id IS NULL",
+                goods, JDBC_BATCH_SIZE, (ps, item) -> {
+                    ps.setLong(1, item.getId());
+                    ps.setString(2, item.getName());
+                });
+    }
+
+    @Override
+    public java.util.List<String> getAllProductNames() {
+        return inventoryRepository.findAllDistinctProductNames();
+    }
+
+    @Override
+    @Transactional
+    public void batchAdjustStock(List<Inventory> adjustments) {
+        if (adjustments == null || adjustments.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "UPDATE inventory SET quantity = quantity + ?, unit_price = COALESCE(?, unit_price), updated_at = ? WHERE id = ?",
+                adjustments, JDBC_BATCH_SIZE, (ps, adjustment) -> {
+                    ps.setInt(1, adjustment.getQuantity());
+                    ps.setObject(2, adjustment.getUnitPrice());
+                    ps.setTimestamp(3, now);
+                    ps.setLong(4, adjustment.getId());
+                });
+        List<Long> ids = new ArrayList<>();
+        for (Inventory adjustment : adjustments) {
+            ids.add(adjustment.getId());
+        }
+        eventPublisher.publishEvent(InventoryChangedEvent.ofIds(ids));
+    }
+
+    @Override
+    @Transactional
+    public void batchCreateInventory(List<Inventory> inventories) {
+        if (inventories == null || inventories.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Inventory inventory : inventories) {
+            if (inventory.getProductCode() == null || inventory.getProductCode().trim().isEmpty()) {
+                inventory.setProductCode(codeSequenceService.nextProductCode(inventory.getCategory()));
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO inventory (goods_id, product_name, product_code, quantity, unit, unit_price, location, category, " +
+                "description, warning_threshold, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), goods_id = COALESCE(goods_id, VALUES(goods_id)), " +
+                "unit_price = COALESCE(VALUES(unit_price), unit_price), updated_at = VALUES(updated_at)",
+                inventories, JDBC_BATCH_SIZE, (ps, inventory) -> {
+                    ps.setObject(1, inventory.getGoodsId());
+                    ps.setString(2, inventory.getProductName());
+                    ps.setString(3, inventory.getProductCode());
+                    ps.setInt(4, inventory.getQuantity());
+                    ps.setString(5, inventory.getUnit());
+                    ps.setObject(6, inventory.getUnitPrice());
+                    ps.setString(7, inventory.getLocation());
+                    ps.setString(8, inventory.getCategory());
+                    ps.setString(9, inventory.getDescription());
+                    ps.setObject(10, inventory.getWarningThreshold());
+                    ps.setTimestamp(11, now);
+                    ps.setTimestamp(12, now);
+                });
+        List<String> names = new ArrayList<>();
+        for (Inventory inventory : inventories) {
+            names.add(inventory.getProductName());
+        }
+        eventPublisher.publishEvent(InventoryChangedEvent.ofProductNames(names));
+    }
+
+    @Override
+    @Transactional
+    public List<BulkStockResult> bulkAdjustStock(BulkStockRequest request) {
+        String mode = request.getMode() == null ? BulkStockRequest.MODE_ALL_OR_NOTHING : request.getMode().trim().toUpperCase();
+        if (!BulkStockRequest.MODE_ALL_OR_NOTHING.equals(mode) && !BulkStockRequest.MODE_BEST_EFFORT.equals(mode)) {
+            throw new IllegalArgumentException("不支持的执行模式: " + request.getMode() + "，仅支持 ALL_OR_NOTHING 或 BEST_EFFORT");
+        }
+        List<BulkStockRequest.Line> lines = request.getLines() != null ? request.getLines() : new ArrayList<>();
+
+        // 1. 一次查询加载并按ID升序锁定所有涉及的库存行
+        Set<Long> ids = new LinkedHashSet<>();
+        Set<String> codes = new LinkedHashSet<>();
+        for (BulkStockRequest.Line line : lines) {
+            if (line.getId() != null) {
+                ids.add(line.getId());
+            } else if (line.getProductCode() != null && !line.getProductCode().trim().isEmpty()) {
+                codes.add(line.getProductCode().trim());
             }
-            return inventoryRepository.save(existingInventory);
-        } else {
-            // 如果不存在，创建新的库存记录
-            Inventory newInventory = new Inventory();
-            newInventory.setProductName(productName);
-            
-            // 如果没有提供编码或编码为空，自动生成
-            if (productCode == null || productCode.trim().isEmpty()) {
-                newInventory.setProductCode(CodeGenerator.generateProductCode());
+        }
+        Map<Long, Inventory> byId = new HashMap<>();
+        Map<String, List<Inventory>> byCode = new HashMap<>();
+        for (Inventory inventory : inventoryRepository.lockForBulkAdjust(ids, codes)) {
+            byId.put(inventory.getId(), inventory);
+            byCode.computeIfAbsent(inventory.getProductCode(), k -> new ArrayList<>()).add(inventory);
+        }
+
+        // 2. 内存中逐行校验，按请求顺序累计每个库存行的变动
+        List<BulkStockResult> results = new ArrayList<>();
+        Map<Long, Integer> available = new HashMap<>();       // 库存ID -> 考虑本批次已通过行后的库存
+        Map<Long, Inventory> changes = new TreeMap<>();      // 库存ID -> 累计增量、最新单价和位置
+        List<StockMovement> movements = new ArrayList<>();   // 校验通过的行，逐行记录流水
+        int failures = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            BulkStockRequest.Line line = lines.get(i);
+            int lineNo = i + 1;
+            Inventory inventory = null;
+            String error = null;
+            if (line.getId() != null) {
+                inventory = byId.get(line.getId());
+                if (inventory == null) {
+                    error = "库存不存在，ID: " + line.getId();
+                }
+            } else if (line.getProductCode() != null && !line.getProductCode().trim().isEmpty()) {
+                List<Inventory> matched = byCode.getOrDefault(line.getProductCode().trim(), List.of());
+                if (matched.isEmpty()) {
+                    error = "库存不存在，商品编码: " + line.getProductCode();
+                } else if (matched.size() > 1) {
+                    error = "商品编码对应多条库存，请使用库存ID: " + line.getProductCode();
+                } else {
+                    inventory = matched.get(0);
+                }
             } else {
-                newInventory.setProductCode(productCode);
+                error = "库存ID和商品编码不能同时为空";
+            }
+            if (error == null && (line.getDelta() == null || line.getDelta() == 0)) {
+                error = "数量变动不能为空或0";
+            }
+            if (error == null) {
+                int current = available.getOrDefault(inventory.getId(), inventory.getQuantity());
+                // 出库行不能占用销售订单的预留
+                int reserved = line.getDelta() < 0 ? reservedQuantity(inventory) : 0;
+                if (current - reserved + line.getDelta() < 0) {
+                    error = "库存不足，当前库存: " + current + (reserved > 0 ? ", 销售订单已预留: " + reserved : "");
+                } else {
+                    available.put(inventory.getId(), current + line.getDelta());
+                    Inventory change = changes.computeIfAbsent(inventory.getId(), id -> {
+                        Inventory c = new Inventory();
+                        c.setId(id);
+                        c.setQuantity(0);
+                        return c;
+                    });
+                    change.setQuantity(change.getQuantity() + line.getDelta());
+                    if (line.getUnitPrice() != null) {
+                        change.setUnitPrice(line.getUnitPrice());
+                    }
+                    if (line.getLocation() != null && !line.getLocation().trim().isEmpty()) {
+                        change.setLocation(line.getLocation().trim());
+                    }
+                    movements.add(StockMovement.of(inventory.getId(), inventory.getProductName(), line.getDelta(),
+                            StockMovement.REASON_BULK, null));
+                    results.add(BulkStockResult.success(lineNo, inventory.getId(), inventory.getProductCode(),
+                            inventory.getProductName(), current + line.getDelta()));
+                    continue;
+                }
             }
-            
-            newInventory.setQuantity(quantity);
-            newInventory.setUnitPrice(unitPrice);
-            newInventory.setUnit("个"); // 默认单位
-            newInventory.setLocation("默认仓库"); // 默认位置
-            // newInventory.setWarningThreshold(5); // 默认预警阈值 - 暂时注释掉
-            return inventoryRepository.save(newInventory);
+            failures++;
+            results.add(BulkStockResult.failure(lineNo, inventory != null ? inventory.getId() : line.getId(),
+                    inventory != null ? inventory.getProductCode() : line.getProductCode(), error));
         }
+
+        // 3. 整批模式下有失败行则全部不执行
+        if (failures > 0 && BulkStockRequest.MODE_ALL_OR_NOTHING.equals(mode)) {
+            for (BulkStockResult result : results) {
+                if (result.isSuccess()) {
+                    result.setSuccess(false);
+                    result.setQuantity(null);
+                    result.setMessage("批次中存在失败行，整批未执行");
+                }
+            }
+            return results;
+        }
+
+        // 4. JDBC批量写入（行已锁定，校验结果即为最终库存）
+        if (!changes.isEmpty()) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.batchUpdate(
+                    "UPDATE inventory SET quantity = quantity + ?, unit_price = COALESCE(?, unit_price), " +
+                    "location = COALESCE(?, location), updated_at = ? WHERE id = ?",
+                    new ArrayList<>(changes.values()), JDBC_BATCH_SIZE, (ps, change) -> {
+                        ps.setInt(1, change.getQuantity());
+                        ps.setObject(2, change.getUnitPrice());
+                        ps.setString(3, change.getLocation());
+                        ps.setTimestamp(4, now);
+                        ps.setLong(5, change.getId());
+                    });
+            stockLedgerService.recordAll(movements);
+            eventPublisher.publishEvent(InventoryChangedEvent.ofIds(changes.keySet()));
+        }
+        return results;
     }
 
     @Override
-    public java.util.List<String> getAllProductNames() {
-        return inventoryRepository.findAllDistinctProductNames();
+    public Page<Inventory> getLowStockList(Integer page, Integer size) {
+        return inventoryRepository.findLowStock(PageRequest.of(page, size));
+    }
+
+    /**
+     * 记录库存流水，与库存变动在同一事务内写入
+     */
+    private void recordMovement(Inventory inventory, int delta, String reason, Long orderId) {
+        if (inventory == null) {
+            return;
+        }
+        stockLedgerService.record(inventory.getId(), inventory.getProductName(), delta, reason, orderId);
+    }
+
+    /**
+     * 该库存行商品在销售订单中的未过期预留量，未关联商品时为0
+     */
+    private int reservedQuantity(Inventory inventory) {
+        return inventory.getGoodsId() != null ? stockReservationService.reservedQuantity(inventory.getGoodsId()) : 0;
+    }
+
+    private static int valueOf(Integer quantity) {
+        return quantity != null ? quantity : 0;
+    }
+
+    /**
+     * 发布库存变动事件，低库存清单在事务提交后更新
+     */
+    private void publishChanged(Long id) {
+        if (id == null) {
+            return;
+        }
+        eventPublisher.publishEvent(InventoryChangedEvent.ofIds(List.of(id)));
     }
 }
\ No newline at end of file
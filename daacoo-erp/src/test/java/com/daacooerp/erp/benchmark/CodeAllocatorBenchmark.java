@@ -0,0 +1,74 @@
+package com.daacooerp.erp.benchmark;
+
+import com.daacooerp.erp.common.CodeGenerator;
+import com.daacooerp.erp.common.SegmentCodeAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 编码生成基准：旧的 CodeGenerator（随机后缀） vs 号段分配器
+ * 运行：mvn test-compile 后在 IDE 中执行 main，或
+ * java -cp target/test-classes:target/classes:$CLASSPATH com.daacooerp.erp.benchmark.CodeAllocatorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class CodeAllocatorBenchmark {
+
+    private SegmentCodeAllocator allocator;
+
+    @Setup
+    public void setup() {
+        // 内存号段源，模拟 step=1000 的 code_sequence 表
+        AtomicLong max = new AtomicLong();
+        allocator = new SegmentCodeAllocator(prefix -> {
+            long end = max.addAndGet(1000);
+            return new SegmentCodeAllocator.Segment(end - 999, end + 1);
+        }, Runnable::run);
+    }
+
+    @Benchmark
+    public String codeGeneratorOrderCode() {
+        return CodeGenerator.generateOrderCode("sales");
+    }
+
+    @Benchmark
+    public String codeGeneratorProductCode() {
+        return CodeGenerator.generateProductCodeByCategory("电子产品");
+    }
+
+    @Benchmark
+    public String segmentOrderCode() {
+        return allocator.nextCode("SO");
+    }
+
+    @Benchmark
+    public long segmentSequenceOnly() {
+        return allocator.next("SO");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CodeAllocatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,181 @@
+package com.daacooerp.erp.benchmark;
+
+import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.service.impl.FinanceServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全年按月财务汇总基准：旧实现（加载全年记录后逐条用 Calendar 取月份、BigDecimal 累加，再单独查询订单统计）
+ * vs 数据库分组查询（FinanceServiceImpl.getMonthlyFinanceData，一条语句返回12行）
+ * 使用内存H2（MySQL兼容模式），每年 10k / 100k / 1M 条财务记录；旧实现这里用JDBC映射记录，
+ * 不含实际运行时 Hibernate 实体加载的开销，结果偏乐观。
+ * 运行：mvn test-compile 后在 IDE 中执行 main，或
+ * java -cp target/test-classes:target/classes:$CLASSPATH com.daacooerp.erp.benchmark.FinanceMonthlyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class FinanceMonthlyBenchmark {
+
+    private static final int YEAR = 2024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int recordsPerYear;
+
+    private SingleConnectionDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private FinanceServiceImpl financeService;
+
+    @Setup
+    public void setup() {
+        // 关闭H2的查询结果缓存，否则相同的分组查询会直接命中缓存
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:finance_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;QUERY_CACHE_SIZE=0", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE finance_record (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "record_date DATE NOT NULL, income DECIMAL(12,2), expense DECIMAL(12,2), profit DECIMAL(12,2), " +
+                "record_type VARCHAR(20), description VARCHAR(255))");
+        jdbcTemplate.execute("CREATE INDEX idx_finance_date_amounts ON finance_record (record_date, income, expense, profit)");
+        jdbcTemplate.execute("CREATE TABLE order_daily_rollup (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "stat_date DATE NOT NULL, order_type VARCHAR(20) NOT NULL, goods_id BIGINT NOT NULL, " +
+                "customer_name VARCHAR(255) NOT NULL DEFAULT '', order_count INT NOT NULL DEFAULT 0, " +
+                "quantity INT NOT NULL DEFAULT 0, amount DECIMAL(14,2) NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE INDEX idx_rollup_type_date ON order_daily_rollup (order_type, stat_date)");
+
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(10000);
+        LocalDate first = LocalDate.of(YEAR, 1, 1);
+        for (int i = 0; i < recordsPerYear; i++) {
+            BigDecimal income = BigDecimal.valueOf(random.nextInt(100000), 2);
+            BigDecimal expense = BigDecimal.valueOf(random.nextInt(100000), 2);
+            rows.add(new Object[]{Date.valueOf(first.plusDays(random.nextInt(366))), income, expense,
+                    income.subtract(expense), i % 2 == 0 ? "SALE" : "PURCHASE", "订单确认"});
+            if (rows.size() == 10000) {
+                insertRecords(rows);
+            }
+        }
+        insertRecords(rows);
+
+        List<Object[]> rollups = new ArrayList<>();
+        for (LocalDate day = first; day.getYear() == YEAR; day = day.plusDays(1)) {
+            for (long goodsId = 1; goodsId <= 20; goodsId++) {
+                rollups.add(new Object[]{Date.valueOf(day), goodsId % 2 == 0 ? "SALE" : "PURCHASE", goodsId,
+                        random.nextInt(5), BigDecimal.valueOf(random.nextInt(100000), 2)});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO order_daily_rollup (stat_date, order_type, goods_id, order_count, amount) " +
+                "VALUES (?, ?, ?, ?, ?)", rollups);
+
+        financeService = new FinanceServiceImpl();
+        ReflectionTestUtils.setField(financeService, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public Map<String, Object> groupedQuery() {
+        return financeService.getMonthlyFinanceData(YEAR);
+    }
+
+    @Benchmark
+    public Object legacyLoadAndLoop() {
+        Calendar startCal = Calendar.getInstance();
+        startCal.set(YEAR, Calendar.JANUARY, 1, 0, 0, 0);
+        startCal.set(Calendar.MILLISECOND, 0);
+        Calendar endCal = Calendar.getInstance();
+        endCal.set(YEAR, Calendar.DECEMBER, 31, 23, 59, 59);
+        endCal.set(Calendar.MILLISECOND, 999);
+
+        List<FinanceRecord> records = jdbcTemplate.query(
+                "SELECT id, record_date, income, expense, profit, record_type, description FROM finance_record " +
+                "WHERE record_date BETWEEN ? AND ? ORDER BY record_date ASC",
+                (rs, i) -> {
+                    FinanceRecord record = new FinanceRecord();
+                    record.setId(rs.getLong(1));
+                    record.setRecordDate(rs.getDate(2));
+                    record.setIncome(rs.getBigDecimal(3));
+                    record.setExpense(rs.getBigDecimal(4));
+                    record.setProfit(rs.getBigDecimal(5));
+                    record.setRecordType(rs.getString(6));
+                    record.setDescription(rs.getString(7));
+                    return record;
+                },
+                new Date(startCal.getTimeInMillis()), new Date(endCal.getTimeInMillis()));
+
+        List<BigDecimal> income = new ArrayList<>(12);
+        List<BigDecimal> expense = new ArrayList<>(12);
+        List<BigDecimal> profit = new ArrayList<>(12);
+        for (int i = 0; i < 12; i++) {
+            income.add(BigDecimal.ZERO);
+            expense.add(BigDecimal.ZERO);
+            profit.add(BigDecimal.ZERO);
+        }
+        for (FinanceRecord record : records) {
+            Calendar recordCal = Calendar.getInstance();
+            recordCal.setTime(record.getRecordDate());
+            int month = recordCal.get(Calendar.MONTH);
+            income.set(month, income.get(month).add(record.getIncome()));
+            expense.set(month, expense.get(month).add(record.getExpense()));
+            profit.set(month, profit.get(month).add(record.getProfit()));
+        }
+
+        List<Map<String, Object>> orderStats = jdbcTemplate.queryForList(
+                "SELECT MONTH(stat_date) AS `month`, order_type AS orderType, " +
+                "SUM(order_count) AS orderCount, SUM(amount) AS totalAmount " +
+                "FROM order_daily_rollup WHERE order_type IN ('SALE', 'PURCHASE') " +
+                "AND stat_date >= ? AND stat_date < ? GROUP BY MONTH(stat_date), order_type",
+                Date.valueOf(LocalDate.of(YEAR, 1, 1)), Date.valueOf(LocalDate.of(YEAR + 1, 1, 1)));
+        return new Object[]{income, expense, profit, orderStats};
+    }
+
+    private void insertRecords(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO finance_record (record_date, income, expense, profit, record_type, description) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FinanceMonthlyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
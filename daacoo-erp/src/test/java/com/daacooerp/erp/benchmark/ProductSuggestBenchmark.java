@@ -0,0 +1,80 @@
+package com.daacooerp.erp.benchmark;
+
+import com.daacooerp.erp.dto.ProductSuggestion;
+import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.service.ProductSuggestIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品补全基准：1万 / 10万个商品时 ProductSuggestIndex.suggest 的单次耗时
+ * query 覆盖名称前缀、拼音首字母前缀、编码前缀和包含匹配（目标为亚毫秒）；
+ * 索引由内存中的商品行构建，不经过数据库。
+ * 运行：mvn test-compile 后在 IDE 中执行 main，或
+ * java -cp target/test-classes:target/classes:$CLASSPATH com.daacooerp.erp.benchmark.ProductSuggestBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSuggestBenchmark {
+
+    @Param({"10000", "100000"})
+    public int products;
+
+    @Param({"办公", "bgyp", "sug12", "签字", "记本", "9笔"})
+    public String query;
+
+    private ProductSuggestIndex index;
+
+    @Setup
+    public void setup() {
+        List<Object[]> rows = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            rows.add(new Object[]{(long) i + 1, "办公用品" + i + (i % 2 == 0 ? "签字笔" : "笔记本"), "SUG" + i});
+        }
+        // 只需要 findAllSuggestKeys，其余方法在基准中不会被调用
+        InventoryRepository repository = (InventoryRepository) Proxy.newProxyInstance(
+                InventoryRepository.class.getClassLoader(), new Class<?>[]{InventoryRepository.class},
+                (proxy, method, args) -> {
+                    if ("findAllSuggestKeys".equals(method.getName())) {
+                        return rows;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        index = new ProductSuggestIndex();
+        ReflectionTestUtils.setField(index, "inventoryRepository", repository);
+        index.rebuild();
+    }
+
+    @Benchmark
+    public List<ProductSuggestion> suggest() {
+        return index.suggest(query, ProductSuggestIndex.DEFAULT_LIMIT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductSuggestBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package com.daacooerp.erp.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentCodeAllocatorTest {
+
+    /**
+     * 模拟 code_sequence 表：每次领取把 max_value 推进 step
+     */
+    private static class InMemorySequence implements SegmentCodeAllocator.SegmentLoader {
+        private final ConcurrentHashMap<String, AtomicLong> maxValues = new ConcurrentHashMap<>();
+        private final AtomicInteger loads = new AtomicInteger();
+        private final int step;
+
+        InMemorySequence(int step) {
+            this.step = step;
+        }
+
+        @Override
+        public SegmentCodeAllocator.Segment load(String prefix) {
+            loads.incrementAndGet();
+            long max = maxValues.computeIfAbsent(prefix, p -> new AtomicLong()).addAndGet(step);
+            return new SegmentCodeAllocator.Segment(max - step + 1, max + 1);
+        }
+    }
+
+    @Test
+    void testCodeFormatAndPerPrefixSequence() {
+        InMemorySequence sequence = new InMemorySequence(100);
+        SegmentCodeAllocator allocator = new SegmentCodeAllocator(sequence, Runnable::run);
+
+        String first = allocator.nextCode("SO");
+        String second = allocator.nextCode("SO");
+        String purchase = allocator.nextCode("PO");
+
+        assertTrue(first.matches("SO\\d{8}000001"), first);
+        assertTrue(second.endsWith("000002"), second);
+        assertTrue(purchase.matches("PO\\d{8}000001"), purchase);
+    }
+
+    @Test
+    void testPrefetchesNextSegmentBeforeExhaustion() {
+        InMemorySequence sequence = new InMemorySequence(10);
+        SegmentCodeAllocator allocator = new SegmentCodeAllocator(sequence, Runnable::run);
+
+        for (int i = 1; i <= 9; i++) {
+            assertEquals(i, allocator.next("E"));
+        }
+        // 剩余不足 20% 时已预取第二段
+        assertEquals(2, sequence.loads.get());
+        assertEquals(10, allocator.next("E"));
+        assertEquals(11, allocator.next("E"));
+        assertEquals(2, sequence.loads.get());
+    }
+
+    @Test
+    void testConcurrentNodesNeverCollide() throws Exception {
+        InMemorySequence sequence = new InMemorySequence(50);
+        ExecutorService prefetch = Executors.newFixedThreadPool(2);
+        // 两个分配器共享同一张序列表，相当于两个应用节点
+        List<SegmentCodeAllocator> nodes = List.of(
+                new SegmentCodeAllocator(sequence, prefetch),
+                new SegmentCodeAllocator(sequence, prefetch));
+
+        int threads = 16;
+        int perThread = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            SegmentCodeAllocator node = nodes.get(t % nodes.size());
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    codes.add(node.nextCode("SO"));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        prefetch.shutdown();
+
+        assertEquals(threads * perThread, codes.size());
+    }
+}
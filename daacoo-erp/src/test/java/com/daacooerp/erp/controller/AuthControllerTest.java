@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.daacooerp.erp.config.JwtConfig;
 import com.daacooerp.erp.config.TestConfig;
 import com.daacooerp.erp.entity.User;
+import com.daacooerp.erp.service.PrincipalCache;
 import com.daacooerp.erp.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -57,6 +58,9 @@ public class AuthControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
     private User testUser;
 
     @BeforeEach
@@ -65,6 +69,8 @@ public class AuthControllerTest {
         mockMvc = MockMvcBuilders
                 .webAppContextSetup(webApplicationContext)
                 .build();
+        // 认证缓存在测试之间共享，每个测试从空缓存开始
+        principalCache.clear();
         
         testUser = new User();
         testUser.setId(1L);
@@ -270,4 +276,68 @@ public class AuthControllerTest {
         verify(userService, never()).isUsernameExists(anyString());
         verify(userService, never()).createUser(any(User.class));
     }
-}
\ No newline at end of file
+
+    /**
+     * 测试管理员查看认证缓存统计，普通用户被拒绝
+     */
+    @Test
+    void testPrincipalCacheStatsRequiresAdmin() throws Exception {
+        User admin = new User();
+        admin.setUsername("admin");
+        admin.setRole("admin");
+        admin.setStatus(true);
+        when(userService.findByUsername("admin")).thenReturn(Optional.of(admin));
+        when(userService.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(jwtConfig.validateToken(anyString())).thenReturn(true);
+        when(jwtConfig.getUsernameFromToken("admin-token")).thenReturn("admin");
+        when(jwtConfig.getUsernameFromToken("valid-token")).thenReturn("testuser");
+
+        mockMvc.perform(get("/api/auth/cache/stats")
+                .header("Authorization", "Bearer admin-token")
+                .requestAttr("username", "admin"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data.hits").exists())
+                .andExpect(jsonPath("$.data.size").exists());
+
+        mockMvc.perform(get("/api/auth/cache/stats")
+                .header("Authorization", "Bearer valid-token")
+                .requestAttr("username", "testuser"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(403));
+    }
+
+    /**
+     * 测试管理员禁用用户，普通用户无权修改状态
+     */
+    @Test
+    void testUpdateUserStatusRequiresAdmin() throws Exception {
+        User admin = new User();
+        admin.setUsername("admin");
+        admin.setRole("admin");
+        admin.setStatus(true);
+        when(userService.findByUsername("admin")).thenReturn(Optional.of(admin));
+        when(userService.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userService.findById(1L)).thenReturn(Optional.of(testUser));
+        when(jwtConfig.validateToken(anyString())).thenReturn(true);
+        when(jwtConfig.getUsernameFromToken("admin-token")).thenReturn("admin");
+        when(jwtConfig.getUsernameFromToken("valid-token")).thenReturn("testuser");
+
+        mockMvc.perform(put("/api/auth/users/1/status")
+                .header("Authorization", "Bearer valid-token")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": false}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(403));
+        verify(userService, never()).updateStatus(any(User.class), anyBoolean());
+
+        mockMvc.perform(put("/api/auth/users/1/status")
+                .header("Authorization", "Bearer admin-token")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": false}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.message").value("用户已禁用"));
+        verify(userService).updateStatus(testUser, false);
+    }
+}
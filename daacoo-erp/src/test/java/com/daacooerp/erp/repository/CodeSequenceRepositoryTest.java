@@ -0,0 +1,36 @@
+package com.daacooerp.erp.repository;
+
+import com.daacooerp.erp.entity.CodeSequence;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 编码号段表测试：初始化幂等，每次推进一个号段
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+public class CodeSequenceRepositoryTest {
+
+    @Autowired
+    private CodeSequenceRepository codeSequenceRepository;
+
+    @Test
+    void initIsIdempotentAndAdvanceMovesOneStep() {
+        assertEquals(1, codeSequenceRepository.initIfAbsent("SO", 1000));
+        assertEquals(0, codeSequenceRepository.initIfAbsent("SO", 500));
+
+        assertEquals(1, codeSequenceRepository.advance("SO"));
+        assertEquals(1, codeSequenceRepository.advance("SO"));
+
+        CodeSequence sequence = codeSequenceRepository.findById("SO").orElseThrow();
+        assertEquals(2000L, sequence.getMaxValue());
+        assertEquals(1000, sequence.getStep());
+        assertEquals(0, codeSequenceRepository.advance("PO"));
+    }
+}
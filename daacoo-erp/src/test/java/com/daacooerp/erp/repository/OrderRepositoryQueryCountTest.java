@@ -0,0 +1,155 @@
+package com.daacooerp.erp.repository;
+
+import com.daacooerp.erp.common.CursorPage;
+import com.daacooerp.erp.common.SeekCursor;
+import com.daacooerp.erp.dto.OrderSummary;
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderGoods;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单列表查询次数测试
+ * 验证50条一页的订单列表所需SQL条数固定，不随订单数和明细数增长
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+public class OrderRepositoryQueryCountTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private QueryCounter queryCounter;
+
+    @BeforeEach
+    void setUp() {
+        queryCounter = new QueryCounter(entityManagerFactory);
+
+        List<Goods> goodsList = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Goods goods = new Goods();
+            goods.setCode("G" + i);
+            goods.setName("商品" + i);
+            entityManager.persist(goods);
+            goodsList.add(goods);
+        }
+
+        // 80个订单（60个销售单），每单3行明细，保证第一页满页
+        for (int i = 0; i < 80; i++) {
+            Order order = new Order();
+            order.setOrderNo("SO" + i);
+            order.setOrderType(i % 4 == 0 ? "PURCHASE" : "SALE");
+            order.setCustomerName("客户" + i);
+            order.setAmount(300.0f);
+            for (int j = 0; j < 3; j++) {
+                OrderGoods line = new OrderGoods();
+                line.setOrder(order);
+                line.setGoods(goodsList.get((i + j) % goodsList.size()));
+                line.setQuantity(1);
+                line.setUnitPrice(100.0f);
+                line.setTotalPrice(100.0f);
+                order.getGoods().add(line);
+            }
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void summaryPageUsesSelectPlusCount() {
+        queryCounter.reset();
+
+        Page<OrderSummary> page = orderRepository.findAllSummaries(PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(PAGE_SIZE, page.getContent().size());
+        assertEquals(80, page.getTotalElements());
+        assertEquals(2, queryCounter.count());
+    }
+
+    @Test
+    void summaryPageByTypeUsesSelectPlusCount() {
+        queryCounter.reset();
+
+        Page<OrderSummary> page = orderRepository.findSummariesByOrderType("SALE", PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(60, page.getTotalElements());
+        assertEquals(2, queryCounter.count());
+    }
+
+    @Test
+    void entityPageLoadsLinesInBatches() {
+        queryCounter.reset();
+
+        Page<Order> page = orderRepository.findAll(PageRequest.of(0, PAGE_SIZE));
+        page.getContent().forEach(order -> order.getGoods().forEach(OrderGoods::getName));
+
+        // 订单 + 计数 + 明细批量加载（商品随明细关联取回）
+        assertEquals(PAGE_SIZE, page.getContent().size());
+        assertEquals(3, queryCounter.count());
+    }
+
+    @Test
+    void detailUsesSingleStatement() {
+        Long id = orderRepository.findAllSummaries(PageRequest.of(0, 1)).getContent().get(0).getId();
+        entityManager.clear();
+        queryCounter.reset();
+
+        Order order = orderRepository.findDetailById(id).orElseThrow();
+        order.getGoods().forEach(OrderGoods::getName);
+
+        assertEquals(3, order.getGoods().size());
+        assertEquals(1, queryCounter.count());
+    }
+
+    @Test
+    void cursorPagesSkipCountAndCoverEveryRow() {
+        Set<Long> seen = new HashSet<>();
+        SeekCursor cursor = null;
+        int pages = 0;
+        do {
+            queryCounter.reset();
+            List<OrderSummary> rows = cursor == null
+                    ? orderRepository.findSummariesByOrderTypeFirst("SALE", Limit.of(PAGE_SIZE / 2 + 1))
+                    : orderRepository.findSummariesByOrderTypeAfter("SALE", cursor.getDateTimeKey(), cursor.getId(),
+                            Limit.of(PAGE_SIZE / 2 + 1));
+            CursorPage<OrderSummary> page = CursorPage.of(rows, PAGE_SIZE / 2,
+                    last -> SeekCursor.of(last.getCreatedAt(), last.getId()));
+
+            // 每页只有一条查询，没有COUNT
+            assertEquals(1, queryCounter.count());
+            page.getContent().forEach(summary -> assertTrue(seen.add(summary.getId())));
+            cursor = SeekCursor.decode(page.getNextCursor());
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(60, seen.size());
+        assertEquals(3, pages);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.BulkStockRequest;
+import com.daacooerp.erp.dto.BulkStockResult;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.service.impl.InventoryServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.inventory;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量出入库测试：一次查询定位全部行，整批模式有失败行时不执行，尽力模式只执行通过的行
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({InventoryServiceImpl.class, CodeSequenceService.class, StockLedgerService.class, StockReservationService.class})
+public class BulkStockServiceTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long firstId;
+
+    @BeforeEach
+    void setUp() {
+        List<Inventory> inventories = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            inventories.add(inventory("集装箱商品" + i, "BULK" + i, 10));
+        }
+        firstId = inventoryRepository.saveAllAndFlush(inventories).get(0).getId();
+    }
+
+    @Test
+    void receivesWholeContainerWithOneLookupQuery() {
+        BulkStockRequest request = new BulkStockRequest();
+        for (int i = 0; i < 800; i++) {
+            // 一半按ID、一半按商品编码定位
+            BulkStockRequest.Line line = i % 2 == 0
+                    ? new BulkStockRequest.Line(firstId + i, null, 5)
+                    : new BulkStockRequest.Line(null, "BULK" + i, 5);
+            line.setLocation("B区");
+            request.getLines().add(line);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        List<BulkStockResult> results = inventoryService.bulkAdjustStock(request);
+
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertEquals(800, results.size());
+        assertTrue(results.stream().allMatch(BulkStockResult::isSuccess));
+        assertEquals(15, results.get(0).getQuantity());
+        assertEquals(800 * 15, jdbcTemplate.queryForObject(
+                "SELECT SUM(quantity) FROM inventory WHERE product_code LIKE 'BULK%'", Integer.class));
+        assertEquals(800, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory WHERE location = 'B区'", Integer.class));
+    }
+
+    @Test
+    void allOrNothingAppliesNothingWhenAnyLineFails() {
+        BulkStockRequest request = new BulkStockRequest();
+        request.getLines().add(new BulkStockRequest.Line(firstId, null, 5));
+        request.getLines().add(new BulkStockRequest.Line(null, "BULK1", -11));
+        request.getLines().add(new BulkStockRequest.Line(null, "NOPE", 1));
+
+        List<BulkStockResult> results = inventoryService.bulkAdjustStock(request);
+
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("批次中存在失败行，整批未执行", results.get(0).getMessage());
+        assertEquals("库存不足，当前库存: 10", results.get(1).getMessage());
+        assertEquals("库存不存在，商品编码: NOPE", results.get(2).getMessage());
+        assertEquals(10, quantityOf(firstId));
+    }
+
+    @Test
+    void bestEffortAppliesValidLinesAndTracksRunningStock() {
+        BulkStockRequest request = new BulkStockRequest();
+        request.setMode(BulkStockRequest.MODE_BEST_EFFORT);
+        request.getLines().add(new BulkStockRequest.Line(firstId, null, -6));
+        // 同一库存第二次出库按前一行之后的库存校验：只剩4件
+        request.getLines().add(new BulkStockRequest.Line(firstId, null, -6));
+        request.getLines().add(new BulkStockRequest.Line(firstId, null, 20));
+        request.getLines().add(new BulkStockRequest.Line(null, null, 1));
+
+        List<BulkStockResult> results = inventoryService.bulkAdjustStock(request);
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("库存不足，当前库存: 4", results.get(1).getMessage());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(24, results.get(2).getQuantity());
+        assertEquals("库存ID和商品编码不能同时为空", results.get(3).getMessage());
+        assertEquals(24, quantityOf(firstId));
+    }
+
+    @Test
+    void rejectsUnknownMode() {
+        BulkStockRequest request = new BulkStockRequest();
+        request.setMode("SOMETIMES");
+        request.getLines().add(new BulkStockRequest.Line(firstId, null, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.bulkAdjustStock(request));
+    }
+
+    private int quantityOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM inventory WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,103 @@
+package com.daacooerp.erp.service;
+
+import cn.hutool.poi.excel.ExcelReader;
+import cn.hutool.poi.excel.ExcelUtil;
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Order;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.addLine;
+import static com.daacooerp.erp.service.ServiceTestFixtures.goods;
+import static com.daacooerp.erp.service.ServiceTestFixtures.inventory;
+import static com.daacooerp.erp.service.ServiceTestFixtures.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 导出测试：订单按明细展开、按类型和日期筛选，CSV 与 XLSX 内容一致
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(ExportService.class)
+public class ExportServiceTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Goods goods = goods("G1", "导出商品");
+        entityManager.persist(goods);
+
+        // 3个销售单各2行明细，1个采购单1行明细
+        for (int i = 0; i < 4; i++) {
+            Order order = order("EX" + i, i < 3 ? "SALE" : "PURCHASE", "客户, \"" + i + "\"");
+            order.setAmount(20.0f);
+            for (int j = 0; j < (i < 3 ? 2 : 1); j++) {
+                addLine(order, goods, 1, 10.0f);
+            }
+            entityManager.persist(order);
+        }
+
+        entityManager.persist(inventory("导出商品", "G1", 7));
+        entityManager.flush();
+    }
+
+    @Test
+    void exportsOrderLinesAsCsv() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.exportOrders("SALE", LocalDate.now().minusDays(1), LocalDate.now(), "csv", out);
+
+        assertEquals(6, rows);
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("\uFEFF订单编号,"));
+        List<String> lines = csv.lines().toList();
+        assertEquals(7, lines.size());
+        // 含逗号和引号的字段按CSV规则转义
+        assertTrue(lines.get(1).contains("\"客户, \"\"0\"\"\""));
+
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        assertEquals(0, exportService.exportOrders(null, LocalDate.now().minusYears(2),
+                LocalDate.now().minusYears(1), "csv", empty));
+    }
+
+    @Test
+    void exportsXlsxWithSameRows() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exportService.exportOrders(null, LocalDate.now(), LocalDate.now(), "xlsx", out);
+
+        assertEquals(7, rows);
+        try (ExcelReader reader = ExcelUtil.getReader(new ByteArrayInputStream(out.toByteArray()))) {
+            List<List<Object>> sheet = reader.read();
+            assertEquals(8, sheet.size());
+            assertEquals("订单编号", sheet.get(0).get(0));
+            assertEquals("EX0", sheet.get(1).get(0));
+        }
+    }
+
+    @Test
+    void exportsInventoryAndRejectsUnknownFormat() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(1, exportService.exportInventory("CSV", out));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("G1,导出商品,,7"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> exportService.exportInventory("pdf", new ByteArrayOutputStream()));
+    }
+}
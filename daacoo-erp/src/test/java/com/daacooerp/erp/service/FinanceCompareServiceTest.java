@@ -0,0 +1,111 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.service.impl.FinanceServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.financeRecord;
+import static com.daacooerp.erp.service.ServiceTestFixtures.insertFinanceRecord;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多年度财务对比测试：各年份结果合并返回，已结束年份读缓存并在财务数据变动后失效，当年不缓存
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({FinanceServiceImpl.class, FinanceSummaryService.class, FinanceCompareService.class})
+@TestPropertySource(properties = "erp.finance-summary.backfill-on-startup=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FinanceCompareServiceTest {
+
+    @Autowired
+    private FinanceCompareService financeCompareService;
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM finance_record");
+        jdbcTemplate.update("DELETE FROM finance_daily_summary");
+        jdbcTemplate.update("DELETE FROM order_daily_rollup");
+        financeCompareService.invalidate(IntStream.rangeClosed(2000, Year.now().getValue() + 1).boxed().toList());
+    }
+
+    @Test
+    void comparesYearsAndCachesClosedYearsUntilDataChanges() {
+        insertFinanceRecord(jdbcTemplate, "2022-03-01", "100.00", "40.00");
+        insertFinanceRecord(jdbcTemplate, "2023-07-15", "80.00", "0.00");
+        jdbcTemplate.update("INSERT INTO order_daily_rollup (stat_date, order_type, goods_id, customer_name, " +
+                "order_count, quantity, amount) VALUES ('2023-07-15', 'SALE', 1, '', 3, 3, 300.00)");
+
+        Map<String, Object> result = financeCompareService.compare(List.of(2023, 2022, 2023));
+        assertEquals(List.of(2023, 2022), result.get("years"));
+        assertTotal(result, "2022", "income", "100.00");
+        assertTotal(result, "2022", "profit", "60.00");
+        assertTotal(result, "2023", "salesTotalAmounts", "300.00");
+        assertEquals(3L, totals(result, "2023").get("salesOrderQuantity"));
+        List<?> march = (List<?>) monthly(result, "2022").get("income");
+        assertEquals(0, new BigDecimal("100.00").compareTo((BigDecimal) march.get(2)));
+
+        // 绕过服务直接写明细不发布事件，已结束年份仍返回缓存
+        insertFinanceRecord(jdbcTemplate, "2022-05-01", "1.00", "0.00");
+        assertTotal(financeCompareService.compare(List.of(2022)), "2022", "income", "100.00");
+
+        // 通过服务写入后事件使该年份缓存失效
+        financeService.createFinanceRecord(financeRecord("2022-12-31", "10.00", "0.00"));
+        assertTotal(financeCompareService.compare(List.of(2022, 2023)), "2022", "income", "111.00");
+    }
+
+    @Test
+    void currentYearIsAlwaysRecomputed() {
+        int year = Year.now().getValue();
+        insertFinanceRecord(jdbcTemplate, LocalDate.of(year, 1, 1).toString(), "5.00", "0.00");
+        assertTotal(financeCompareService.compare(List.of(year)), String.valueOf(year), "income", "5.00");
+
+        insertFinanceRecord(jdbcTemplate, LocalDate.of(year, 1, 2).toString(), "7.00", "0.00");
+        assertTotal(financeCompareService.compare(List.of(year)), String.valueOf(year), "income", "12.00");
+    }
+
+    @Test
+    void rejectsInvalidYearLists() {
+        assertThrows(IllegalArgumentException.class, () -> financeCompareService.compare(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> financeCompareService.compare(List.of(0)));
+        assertThrows(IllegalArgumentException.class, () -> financeCompareService.compare(
+                IntStream.rangeClosed(2000, 2010).boxed().toList()));
+    }
+
+    private void assertTotal(Map<String, Object> result, String year, String key, String expected) {
+        assertEquals(0, new BigDecimal(expected).compareTo((BigDecimal) totals(result, year).get(key)), year + " " + key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> totals(Map<String, Object> result, String year) {
+        return (Map<String, Object>) ((Map<String, Object>) result.get("totals")).get(year);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> monthly(Map<String, Object> result, String year) {
+        return (Map<String, Object>) ((Map<String, Object>) result.get("monthly")).get(year);
+    }
+}
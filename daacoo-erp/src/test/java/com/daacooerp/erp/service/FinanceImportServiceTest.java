@@ -0,0 +1,166 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.FinanceImportJob;
+import com.daacooerp.erp.service.impl.FinanceServiceImpl;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 财务记录导入测试：CSV/XLSX 逐行解析、分批写入并维护日汇总，行级错误跳过并记录行号，表头不符时任务失败
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({FinanceServiceImpl.class, FinanceSummaryService.class, FinanceImportService.class})
+@TestPropertySource(properties = {"erp.finance-summary.backfill-on-startup=false", "erp.finance-import.batch-size=2"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FinanceImportServiceTest {
+
+    @Autowired
+    private FinanceImportService financeImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM finance_record");
+        jdbcTemplate.update("DELETE FROM finance_daily_summary");
+    }
+
+    @Test
+    void csvImportSkipsInvalidRowsAndKeepsSummaryInSync() throws Exception {
+        // 与财务记录导出的表头一致（带 BOM，利润、创建时间列忽略）
+        String csv = "﻿记录日期,记录类型,收入,支出,利润,描述,来源订单号,创建人,创建时间\n" +
+                "2024-02-01,SALES,\"1,200.50\",0,1200.50,货款,,,\n" +
+                "2024/2/1,,0,300,,房租,,,\n" +
+                "2024-02-30,SALES,10,0,,日期无效,,,\n" +
+                "\n" +
+                "2024-02-02,SALARY,0,-5,,金额为负,,,\n" +
+                "2024-02-03,SALES,88,0,,订单收入,SO-1,张三,\n" +
+                "2024-02-03,SALES,88,0,,重复订单,SO-1,,\n" +
+                "2024-02-04,,,,,金额为空,,,\n" +
+                "2024-02-05,SALES_OF_SPARE_PARTS_X,1,0,,类型超长,,,\n" +
+                "2024-02-05,SALES,1,0,,创建人超长,,\"" + "x".repeat(51) + "\",\n";
+
+        FinanceImportJob job = awaitFinished(financeImportService.submit(
+                new MockMultipartFile("file", "bank.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)), "admin"));
+
+        assertEquals(FinanceImportJob.STATUS_COMPLETED, job.getStatus());
+        assertEquals(9, job.getProcessedRows());
+        assertEquals(3, job.getImportedRows());
+        assertEquals(1, job.getDuplicateRows());
+        assertEquals(5, job.getErrorCount());
+        assertEquals(List.of(4L, 6L, 9L, 10L, 11L), job.getErrors().stream().map(FinanceImportJob.RowError::getRowNo).toList());
+        assertTrue(job.getErrors().get(1).getMessage().contains("支出不能为负数"));
+        // 文本列按实际列宽校验：record_type 20、created_by 50
+        assertTrue(job.getErrors().get(3).getMessage().contains("记录类型超过 20 个字符"));
+        assertTrue(job.getErrors().get(4).getMessage().contains("创建人超过 50 个字符"));
+
+        // 来源订单号重复的行按幂等规则跳过
+        assertEquals(3, count("SELECT COUNT(*) FROM finance_record"));
+        assertEquals("OTHER_EXPENSE", jdbcTemplate.queryForObject(
+                "SELECT record_type FROM finance_record WHERE description = '房租'", String.class));
+        assertEquals("admin", jdbcTemplate.queryForObject(
+                "SELECT created_by FROM finance_record WHERE description = '货款'", String.class));
+        assertEquals("张三", jdbcTemplate.queryForObject(
+                "SELECT created_by FROM finance_record WHERE source_order_no = 'SO-1'", String.class));
+        assertEquals(0, new BigDecimal("900.50").compareTo(jdbcTemplate.queryForObject(
+                "SELECT profit FROM finance_daily_summary WHERE stat_date = ?", BigDecimal.class, Date.valueOf("2024-02-01"))));
+        assertEquals(3, count("SELECT SUM(record_count) FROM finance_daily_summary"));
+    }
+
+    @Test
+    void xlsxImportReadsEverySheet() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+            for (int s = 0; s < 2; s++) {
+                Sheet sheet = workbook.createSheet("Sheet" + (s + 1));
+                Row header = sheet.createRow(0);
+                header.createCell(0).setCellValue("date");
+                header.createCell(1).setCellValue("income");
+                header.createCell(2).setCellValue("expense");
+                header.createCell(3).setCellValue("description");
+                for (int r = 1; r <= 3; r++) {
+                    Row row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(java.sql.Date.valueOf("2024-03-0" + r));
+                    row.getCell(0).setCellStyle(dateStyle);
+                    row.createCell(1).setCellValue(10.25 * r);
+                    row.createCell(2).setCellValue(1);
+                    row.createCell(3).setCellValue("sheet" + (s + 1) + "-" + r);
+                }
+            }
+            sheet2InvalidRow(workbook.getSheetAt(1));
+            workbook.write(out);
+        }
+
+        FinanceImportJob job = awaitFinished(financeImportService.submit(new MockMultipartFile("file", "bank.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray()), null));
+
+        assertEquals(FinanceImportJob.STATUS_COMPLETED, job.getStatus());
+        assertEquals(6, job.getImportedRows());
+        assertEquals(1, job.getErrorCount());
+        assertEquals(2, job.getErrors().get(0).getSheet());
+        assertEquals(5, job.getErrors().get(0).getRowNo());
+        assertEquals(6, count("SELECT COUNT(*) FROM finance_record"));
+        assertEquals(0, new BigDecimal("20.50").compareTo(jdbcTemplate.queryForObject(
+                "SELECT income FROM finance_record WHERE description = 'sheet2-2'", BigDecimal.class)));
+        assertEquals(2, count("SELECT record_count FROM finance_daily_summary WHERE stat_date = '2024-03-03'"));
+    }
+
+    @Test
+    void rejectsUnsupportedFilesAndMissingColumns() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> financeImportService.submit(
+                new MockMultipartFile("file", "bank.txt", "text/plain", "x".getBytes(StandardCharsets.UTF_8)), null));
+
+        FinanceImportJob job = awaitFinished(financeImportService.submit(new MockMultipartFile("file", "bank.csv",
+                "text/csv", "收入,支出\n10,0\n".getBytes(StandardCharsets.UTF_8)), null));
+        assertEquals(FinanceImportJob.STATUS_FAILED, job.getStatus());
+        assertTrue(job.getMessage().contains("表头缺少记录日期列"));
+        assertEquals(0, count("SELECT COUNT(*) FROM finance_record"));
+    }
+
+    private void sheet2InvalidRow(Sheet sheet) {
+        Row row = sheet.createRow(4);
+        row.createCell(0).setCellValue("不是日期");
+        row.createCell(1).setCellValue(1);
+    }
+
+    private FinanceImportJob awaitFinished(FinanceImportJob submitted) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        FinanceImportJob job = financeImportService.getJob(submitted.getJobId());
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(job.isFinished(), "导入任务未在时限内完成");
+        return job;
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
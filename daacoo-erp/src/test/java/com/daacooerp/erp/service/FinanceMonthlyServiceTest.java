@@ -0,0 +1,88 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.service.impl.FinanceServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+import java.util.Map;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.insertFinanceRecord;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 财务按月汇总测试：一条分组查询同时返回财务金额和订单统计，只统计指定年份
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({FinanceServiceImpl.class, FinanceSummaryService.class})
+public class FinanceMonthlyServiceTest {
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void groupsFinanceRecordsAndOrderRollupByMonth() {
+        insertFinanceRecord(jdbcTemplate, "2024-01-01", "100.00", "40.00");
+        insertFinanceRecord(jdbcTemplate, "2024-01-31", "50.50", "0.00");
+        insertFinanceRecord(jdbcTemplate, "2024-12-31", "0.00", "30.00");
+        insertFinanceRecord(jdbcTemplate, "2023-12-31", "999.00", "0.00");
+        insertFinanceRecord(jdbcTemplate, "2025-01-01", "999.00", "0.00");
+        rollup("2024-03-05", "SALE", 1L, 2, "300.00");
+        rollup("2024-03-20", "SALE", 2L, 1, "50.00");
+        rollup("2024-03-20", "PURCHASE", 1L, 1, "120.00");
+        rollup("2025-03-20", "SALE", 1L, 7, "700.00");
+
+        Map<String, Object> data = financeService.getMonthlyFinanceData(2024);
+
+        List<BigDecimal> income = list(data, "income");
+        List<BigDecimal> expense = list(data, "expense");
+        List<BigDecimal> profit = list(data, "profit");
+        assertEquals(12, income.size());
+        assertEquals(0, new BigDecimal("150.50").compareTo(income.get(0)));
+        assertEquals(0, new BigDecimal("40.00").compareTo(expense.get(0)));
+        assertEquals(0, new BigDecimal("110.50").compareTo(profit.get(0)));
+        assertEquals(0, new BigDecimal("-30.00").compareTo(profit.get(11)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(income.get(5)));
+
+        List<Integer> salesCount = list(data, "salesOrderQuantity");
+        List<Integer> purchaseCount = list(data, "purchaseOrderQuantity");
+        List<BigDecimal> salesAmount = list(data, "salesTotalAmounts");
+        assertEquals(3, salesCount.get(2));
+        assertEquals(1, purchaseCount.get(2));
+        assertEquals(0, new BigDecimal("350.00").compareTo(salesAmount.get(2)));
+        assertEquals(0, salesCount.get(0));
+        assertEquals(0, new BigDecimal("120.00").compareTo(this.<BigDecimal>list(data, "purchaseTotalAmounts").get(2)));
+    }
+
+    @Test
+    void emptyYearReturnsTwelveZeros() {
+        Map<String, Object> data = financeService.getMonthlyFinanceData(2030);
+
+        assertEquals(12, this.<BigDecimal>list(data, "income").size());
+        assertTrue(this.<BigDecimal>list(data, "profit").stream().allMatch(v -> v.signum() == 0));
+        assertTrue(this.<Integer>list(data, "salesOrderQuantity").stream().allMatch(v -> v == 0));
+    }
+
+    private void rollup(String date, String orderType, Long goodsId, int orderCount, String amount) {
+        jdbcTemplate.update("INSERT INTO order_daily_rollup (stat_date, order_type, goods_id, customer_name, " +
+                "order_count, quantity, amount) VALUES (?, ?, ?, '', ?, 1, ?)",
+                Date.valueOf(date), orderType, goodsId, orderCount, new BigDecimal(amount));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> list(Map<String, Object> data, String key) {
+        return (List<T>) data.get(key);
+    }
+}
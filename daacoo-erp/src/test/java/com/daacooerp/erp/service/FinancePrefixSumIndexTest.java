@@ -0,0 +1,138 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.service.impl.FinanceServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.assertAmount;
+import static com.daacooerp.erp.service.ServiceTestFixtures.financeRecord;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 财务前缀和索引测试：区间合计与日汇总表一致，记录增删改（含日期前移、后移）提交后同步更新，重建后整体重载
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({FinanceServiceImpl.class, FinanceSummaryService.class, FinancePrefixSumIndex.class})
+@TestPropertySource(properties = "erp.finance-summary.backfill-on-startup=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FinancePrefixSumIndexTest {
+
+    @Autowired
+    private FinancePrefixSumIndex financePrefixSumIndex;
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Autowired
+    private FinanceSummaryService financeSummaryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        financePrefixSumIndex.reload();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM finance_record");
+        jdbcTemplate.update("DELETE FROM finance_daily_summary");
+    }
+
+    @Test
+    void rollingWindowsFollowCommittedChanges() {
+        FinanceRecord a = financeService.createFinanceRecord(financeRecord("2024-06-30", "100.00", "30.00"));
+        financeService.createFinanceRecord(financeRecord("2024-06-24", "50.25", "0.00"));
+        financeService.createFinanceRecord(financeRecord("2024-05-15", "10.00", "5.00"));
+
+        List<Map<String, Object>> windows = financePrefixSumIndex.getRollingWindows(
+                LocalDate.of(2024, 6, 30), List.of(7, 30, 90));
+        assertAmount("150.25", windows.get(0).get("income"));
+        assertAmount("120.25", windows.get(0).get("profit"));
+        assertEquals(2L, windows.get(0).get("recordCount"));
+        assertEquals(LocalDate.of(2024, 6, 24), windows.get(0).get("from"));
+        assertAmount("150.25", windows.get(1).get("income"));
+        assertAmount("160.25", windows.get(2).get("income"));
+        assertEquals(3L, windows.get(2).get("recordCount"));
+
+        // 改到索引起始日之前：索引向前扩展
+        financeService.updateFinanceRecord(a.getId(), financeRecord("2023-12-31", "100.00", "30.00"));
+        assertAmount("50.25", financePrefixSumIndex.getTotals(LocalDate.of(2024, 6, 24), LocalDate.of(2024, 6, 30)).get("income"));
+        assertAmount("70.00", financePrefixSumIndex.getTotals(LocalDate.of(2023, 12, 31), LocalDate.of(2023, 12, 31)).get("profit"));
+
+        // 改到最后日期之后：索引向后扩展
+        financeService.updateFinanceRecord(a.getId(), financeRecord("2024-08-15", "1.00", "0.00"));
+        assertAmount("0.00", financePrefixSumIndex.getTotals(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)).get("income"));
+        assertAmount("1.00", financePrefixSumIndex.getTotals(LocalDate.of(2024, 8, 1), LocalDate.of(2024, 8, 31)).get("income"));
+
+        financeService.deleteFinanceRecord(a.getId());
+        assertMatchesSummary(LocalDate.of(2023, 1, 1), LocalDate.of(2025, 1, 1));
+        assertEquals(0L, financePrefixSumIndex.getTotals(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 12, 31)).get("recordCount"));
+    }
+
+    @Test
+    void randomRangesMatchSummaryTable() {
+        Random random = new Random(7);
+        LocalDate first = LocalDate.of(2023, 1, 1);
+        List<FinanceRecord> records = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            records.add(financeRecord(first.plusDays(random.nextInt(500)).toString(),
+                    BigDecimal.valueOf(random.nextInt(100000), 2).toPlainString(),
+                    BigDecimal.valueOf(random.nextInt(100000), 2).toPlainString()));
+        }
+        financeService.batchCreateFinanceRecords(records.subList(0, 300));
+        // 另一半在重载之后增量写入，两种路径的结果应一致
+        financePrefixSumIndex.reload();
+        financeService.batchCreateFinanceRecords(records.subList(300, 600));
+
+        for (int i = 0; i < 50; i++) {
+            LocalDate from = first.plusDays(random.nextInt(520) - 10);
+            LocalDate to = from.plusDays(random.nextInt(200));
+            assertMatchesSummary(from, to);
+        }
+    }
+
+    @Test
+    void rebuildReloadsWholeIndex() {
+        financeService.createFinanceRecord(financeRecord("2024-01-10", "10.00", "0.00"));
+        jdbcTemplate.update("INSERT INTO finance_record (record_date, income, expense, profit, record_type) " +
+                "VALUES ('2024-01-11', 5.00, 1.00, 4.00, 'TEST')");
+        assertAmount("10.00", financePrefixSumIndex.getTotals(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).get("income"));
+
+        financeSummaryService.rebuildAll();
+        assertAmount("15.00", financePrefixSumIndex.getTotals(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).get("income"));
+        assertMatchesSummary(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+    }
+
+    private void assertMatchesSummary(LocalDate from, LocalDate to) {
+        Map<String, Object> expected = financeSummaryService.getStatistics(Date.valueOf(from), Date.valueOf(to));
+        Map<String, Object> actual = financePrefixSumIndex.getTotals(from, to);
+        String range = from + " ~ " + to;
+        assertEquals(0, ((BigDecimal) expected.get("totalIncome")).compareTo((BigDecimal) actual.get("income")), range);
+        assertEquals(0, ((BigDecimal) expected.get("totalExpense")).compareTo((BigDecimal) actual.get("expense")), range);
+        assertEquals(0, ((BigDecimal) expected.get("totalProfit")).compareTo((BigDecimal) actual.get("profit")), range);
+        assertEquals(expected.get("recordCount"), actual.get("recordCount"), range);
+    }
+}
@@ -0,0 +1,117 @@
+package com.daacooerp.erp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.assertAmount;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 财务图表序列测试：按天/周/月分桶并补零，maxPoints 降采样后点数固定、首尾保留且峰值不丢失
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(FinanceSeriesService.class)
+@TestPropertySource(properties = "erp.finance-summary.backfill-on-startup=false")
+public class FinanceSeriesServiceTest {
+
+    @Autowired
+    private FinanceSeriesService financeSeriesService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void bucketsByDayWeekAndMonth() {
+        summary("2024-01-30", "10.00", "1.00", 2);
+        summary("2024-02-01", "20.00", "2.00", 1);
+        summary("2024-02-05", "5.50", "0.00", 3);
+        summary("2024-03-31", "1.00", "1.00", 1);
+
+        List<Map<String, Object>> days = financeSeriesService.getSeries(
+                LocalDate.of(2024, 1, 30), LocalDate.of(2024, 2, 5), "day", null);
+        assertEquals(7, days.size());
+        assertEquals("2024-01-31", days.get(1).get("date"));
+        assertAmount("0", days.get(1).get("income"));
+        assertAmount("18.00", days.get(2).get("profit"));
+
+        // 2024-01-29 为周一；桶以周一为起点，但只统计区间内的日期
+        List<Map<String, Object>> weeks = financeSeriesService.getSeries(
+                LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 5), "week", null);
+        assertEquals(2, weeks.size());
+        assertEquals("2024-01-29", weeks.get(0).get("date"));
+        assertAmount("20.00", weeks.get(0).get("income"));
+        assertEquals(3L, weeks.get(1).get("recordCount"));
+
+        List<Map<String, Object>> months = financeSeriesService.getSeries(
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 4, 30), "MONTH", null);
+        assertEquals(List.of("2024-01-01", "2024-02-01", "2024-03-01", "2024-04-01"),
+                months.stream().map(point -> point.get("date")).toList());
+        assertAmount("25.50", months.get(1).get("income"));
+        assertEquals(4L, months.get(1).get("recordCount"));
+        assertAmount("0", months.get(2).get("profit"));
+        assertEquals(1L, months.get(2).get("recordCount"));
+        assertAmount("0", months.get(3).get("income"));
+    }
+
+    @Test
+    void downsamplesToFixedSizeAndKeepsPeaks() {
+        LocalDate first = LocalDate.of(2023, 1, 1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 730; i++) {
+            BigDecimal income = BigDecimal.valueOf(100 + (i % 7) * 10);
+            if (i == 400) {
+                income = BigDecimal.valueOf(100000);
+            }
+            rows.add(new Object[]{Date.valueOf(first.plusDays(i)), income, BigDecimal.TEN, income.subtract(BigDecimal.TEN), 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO finance_daily_summary (stat_date, income, expense, profit, record_count, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)", rows);
+
+        for (int maxPoints : new int[]{3, 50, 200}) {
+            List<Map<String, Object>> series = financeSeriesService.getSeries(
+                    first, first.plusDays(729), "day", maxPoints);
+            assertEquals(maxPoints, series.size());
+            assertEquals("2023-01-01", series.get(0).get("date"));
+            assertEquals(first.plusDays(729).toString(), series.get(maxPoints - 1).get("date"));
+            assertTrue(series.stream().anyMatch(point -> first.plusDays(400).toString().equals(point.get("date"))),
+                    "峰值点应被保留: maxPoints=" + maxPoints);
+            List<String> dates = series.stream().map(point -> (String) point.get("date")).toList();
+            assertEquals(dates.stream().sorted().distinct().toList(), dates);
+        }
+
+        // 点数不超过 maxPoints 时原样返回
+        assertEquals(106, financeSeriesService.getSeries(first, first.plusDays(729), "week", 200).size());
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> financeSeriesService.getSeries(day, day, "hour", null));
+        assertThrows(IllegalArgumentException.class, () -> financeSeriesService.getSeries(day, day, "day", 2));
+        assertThrows(IllegalArgumentException.class, () -> financeSeriesService.getSeries(day, day.minusDays(1), null, null));
+        assertThrows(IllegalArgumentException.class, () -> financeSeriesService.getSeries(day, day.plusYears(200), "day", 100));
+        assertEquals(1, financeSeriesService.getSeries(day, day, null, null).size());
+    }
+
+    private void summary(String date, String income, String expense, int count) {
+        BigDecimal in = new BigDecimal(income);
+        BigDecimal out = new BigDecimal(expense);
+        jdbcTemplate.update("INSERT INTO finance_daily_summary (stat_date, income, expense, profit, record_count, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)", Date.valueOf(date), in, out, in.subtract(out), count);
+    }
+}
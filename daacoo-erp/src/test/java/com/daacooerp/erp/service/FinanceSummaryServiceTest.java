@@ -0,0 +1,181 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.service.impl.FinanceServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.financeRecord;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 财务日汇总测试：新增、修改、删除、批量重复投递（与驱动返回的影响行数无关）后汇总与明细一致，区间统计读汇总表，可按明细重建
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({FinanceServiceImpl.class, FinanceSummaryService.class})
+@TestPropertySource(properties = "erp.finance-summary.backfill-on-startup=false")
+public class FinanceSummaryServiceTest {
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Autowired
+    private FinanceSummaryService financeSummaryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void createUpdateDeleteKeepSummaryInSync() {
+        FinanceRecord first = financeService.createFinanceRecord(financeRecord("2024-05-01", "100.00", "30.00", null));
+        financeService.createFinanceRecord(financeRecord("2024-05-01", "20.00", "0.00", null));
+        FinanceRecord other = financeService.createFinanceRecord(financeRecord("2024-05-03", "0.00", "15.50", null));
+
+        assertSummary("2024-05-01", "120.00", "30.00", 2);
+        assertSummary("2024-05-03", "0.00", "15.50", 1);
+
+        // 修改金额并改到另一天：原日期扣减，新日期累加
+        financeService.updateFinanceRecord(first.getId(), financeRecord("2024-05-03", "60.00", "10.00", null));
+        assertSummary("2024-05-01", "20.00", "0.00", 1);
+        assertSummary("2024-05-03", "60.00", "25.50", 2);
+
+        financeService.deleteFinanceRecord(other.getId());
+        assertSummary("2024-05-03", "60.00", "10.00", 1);
+        assertMatchesDetail();
+    }
+
+    @Test
+    void batchRedeliveryDoesNotDoubleCount() {
+        List<FinanceRecord> batch = List.of(
+                financeRecord("2024-06-10", "200.00", "80.00", "SO-1"),
+                financeRecord("2024-06-10", "50.00", "20.00", "SO-2"),
+                financeRecord("2024-06-11", "10.00", "0.00", "SO-3"));
+        assertEquals(3, financeService.batchCreateFinanceRecords(batch));
+        // 已存在的 SO-1 与批次内重复的 SO-4 都不再写入
+        assertEquals(1, financeService.batchCreateFinanceRecords(List.of(
+                financeRecord("2024-06-10", "200.00", "80.00", "SO-1"),
+                financeRecord("2024-06-12", "5.00", "1.00", "SO-4"),
+                financeRecord("2024-06-12", "5.00", "1.00", "SO-4"))));
+
+        assertSummary("2024-06-10", "250.00", "100.00", 2);
+        assertSummary("2024-06-11", "10.00", "0.00", 1);
+        assertSummary("2024-06-12", "5.00", "1.00", 1);
+        assertMatchesDetail();
+    }
+
+    @Test
+    void redeliveryIsSkippedEvenWhenDriverReportsFoundRows() {
+        // 模拟 MySQL 默认的 CLIENT_FOUND_ROWS：批量语句每行都返回1，重复行不能再靠影响行数识别
+        Object target = AopTestUtils.getTargetObject(financeService);
+        JdbcTemplate original = (JdbcTemplate) ReflectionTestUtils.getField(target, "jdbcTemplate");
+        ReflectionTestUtils.setField(target, "jdbcTemplate", new JdbcTemplate(original.getDataSource()) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                int[][] counts = super.batchUpdate(sql, batchArgs, batchSize, pss);
+                for (int[] batch : counts) {
+                    Arrays.fill(batch, 1);
+                }
+                return counts;
+            }
+        });
+        try {
+            financeService.batchCreateFinanceRecords(List.of(financeRecord("2024-06-10", "200.00", "80.00", "SO-1")));
+            assertEquals(0, financeService.batchCreateFinanceRecords(List.of(
+                    financeRecord("2024-06-10", "200.00", "80.00", "SO-1"))));
+
+            assertSummary("2024-06-10", "200.00", "80.00", 1);
+            assertMatchesDetail();
+        } finally {
+            ReflectionTestUtils.setField(target, "jdbcTemplate", original);
+        }
+    }
+
+    @Test
+    void statisticsFollowBetweenSemanticsOfRecordDate() {
+        financeService.createFinanceRecord(financeRecord("2024-01-01", "10.00", "1.00", null));
+        financeService.createFinanceRecord(financeRecord("2024-01-02", "20.00", "2.00", null));
+        financeService.createFinanceRecord(financeRecord("2024-03-31", "30.00", "3.00", null));
+        financeService.createFinanceRecord(financeRecord("2024-04-01", "40.00", "4.00", null));
+
+        // 起始时间不在零点时当天不计入，截止时间所在日期计入
+        Map<String, Object> statistics = financeService.getFinanceStatistics(
+                Timestamp.valueOf("2024-01-01 08:00:00"), Timestamp.valueOf("2024-03-31 09:30:00"));
+        assertEquals(0, new BigDecimal("50.00").compareTo((BigDecimal) statistics.get("totalIncome")));
+        assertEquals(0, new BigDecimal("5.00").compareTo((BigDecimal) statistics.get("totalExpense")));
+        assertEquals(0, new BigDecimal("45.00").compareTo((BigDecimal) statistics.get("totalProfit")));
+        assertEquals(2L, statistics.get("recordCount"));
+
+        Map<String, Object> all = financeService.getFinanceStatistics(
+                Date.valueOf("2024-01-01"), Date.valueOf("2024-12-31"));
+        assertEquals(4L, all.get("recordCount"));
+
+        Map<String, Object> empty = financeService.getFinanceStatistics(
+                Date.valueOf("2030-01-01"), Date.valueOf("2030-12-31"));
+        assertEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) empty.get("totalIncome")));
+        assertEquals(0L, empty.get("recordCount"));
+    }
+
+    @Test
+    void rebuildRecomputesFromDetail() {
+        financeService.createFinanceRecord(financeRecord("2024-07-01", "10.00", "0.00", null));
+        // 绕过服务直接写明细，汇总此时不一致
+        jdbcTemplate.update("INSERT INTO finance_record (record_date, income, expense, profit, record_type) " +
+                "VALUES ('2024-07-02', 5.00, 1.00, 4.00, 'TEST')");
+        jdbcTemplate.update("UPDATE finance_daily_summary SET income = 999 WHERE stat_date = '2024-07-01'");
+
+        assertEquals(2, financeSummaryService.rebuildAll());
+        assertSummary("2024-07-01", "10.00", "0.00", 1);
+        assertSummary("2024-07-02", "5.00", "1.00", 1);
+        assertMatchesDetail();
+    }
+
+    private void assertSummary(String date, String income, String expense, int count) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT income, expense, profit, record_count FROM finance_daily_summary WHERE stat_date = ?",
+                Date.valueOf(LocalDate.parse(date)));
+        BigDecimal in = new BigDecimal(income);
+        BigDecimal out = new BigDecimal(expense);
+        assertEquals(0, in.compareTo((BigDecimal) row.get("income")), date + " income");
+        assertEquals(0, out.compareTo((BigDecimal) row.get("expense")), date + " expense");
+        assertEquals(0, in.subtract(out).compareTo((BigDecimal) row.get("profit")), date + " profit");
+        assertEquals(count, ((Number) row.get("record_count")).intValue(), date + " count");
+    }
+
+    private void assertMatchesDetail() {
+        entityManager.flush();
+        Map<String, Object> detail = jdbcTemplate.queryForMap(
+                "SELECT COALESCE(SUM(income), 0) AS income, COALESCE(SUM(profit), 0) AS profit, COUNT(*) AS cnt " +
+                "FROM finance_record");
+        Map<String, Object> summary = jdbcTemplate.queryForMap(
+                "SELECT COALESCE(SUM(income), 0) AS income, COALESCE(SUM(profit), 0) AS profit, " +
+                "COALESCE(SUM(record_count), 0) AS cnt FROM finance_daily_summary");
+        assertEquals(0, ((BigDecimal) detail.get("income")).compareTo((BigDecimal) summary.get("income")));
+        assertEquals(0, ((BigDecimal) detail.get("profit")).compareTo((BigDecimal) summary.get("profit")));
+        assertEquals(((Number) detail.get("cnt")).longValue(), ((Number) summary.get("cnt")).longValue());
+    }
+}
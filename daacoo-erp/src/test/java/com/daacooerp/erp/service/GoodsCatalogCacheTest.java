@@ -0,0 +1,165 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderGoods;
+import com.daacooerp.erp.repository.GoodsRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.goods;
+import static com.daacooerp.erp.service.ServiceTestFixtures.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 创建订单时的商品批量解析测试：一次IN查询解析整单商品，新商品批量插入，
+ * 之后同名商品走名称缓存，不再查询商品表
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({OrderService.class, GoodsCatalogCache.class, CodeSequenceService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class GoodsCatalogCacheTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private GoodsRepository goodsRepository;
+
+    @Autowired
+    private GoodsCatalogCache goodsCatalogCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private InventoryService inventoryService;
+
+    @MockBean
+    private OrderRollupService orderRollupService;
+
+    @MockBean
+    private OrderSearchService orderSearchService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    @MockBean
+    private OrderArchiveService orderArchiveService;
+
+    @MockBean
+    private StockLedgerService stockLedgerService;
+
+    @MockBean
+    private StockReservationService stockReservationService;
+
+    @BeforeEach
+    void setUp() {
+        List<Goods> existing = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Goods goods = goods("EXIST" + i, "已有商品" + i);
+            goods.setStock(100);
+            existing.add(goods);
+        }
+        goodsRepository.saveAll(existing);
+        goodsCatalogCache.clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM order_goods");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM goods");
+        jdbcTemplate.update("DELETE FROM code_sequence");
+        goodsCatalogCache.clear();
+    }
+
+    @Test
+    void resolvesWholeOrderInOneQueryAndBatchInsertsNewGoods() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        // 30行：10个已有商品、18个新商品，另有2行重复的新商品名称
+        Order first = orderService.createOrder(purchaseOrder(), lines());
+        assertEquals(30, first.getGoods().size());
+        assertEquals(28, goodsRepository.count());
+
+        Set<String> codes = new HashSet<>();
+        for (Goods goods : goodsRepository.findAll()) {
+            assertTrue(codes.add(goods.getCode()), "商品编码重复: " + goods.getCode());
+        }
+        for (OrderGoods line : first.getGoods()) {
+            assertNotNull(line.getGoods().getId());
+        }
+        Long duplicateA = first.getGoods().get(10).getGoods().getId();
+        Long duplicateB = first.getGoods().get(28).getGoods().getId();
+        assertEquals(duplicateA, duplicateB);
+
+        // 第二张订单全部命中名称缓存，不再查询商品表，也不再新建商品
+        statistics.clear();
+        Order second = orderService.createOrder(purchaseOrder(), lines());
+        assertEquals(0, statistics.getQueryExecutionCount());
+        assertEquals(28, goodsRepository.count());
+        assertEquals(first.getGoods().get(0).getGoods().getId(), second.getGoods().get(0).getGoods().getId());
+        assertEquals(28L, goodsCatalogCache.getStats().get("size"));
+    }
+
+    @Test
+    void evictByIdsRemovesOnlyThoseGoods() {
+        orderService.createOrder(purchaseOrder(), lines());
+        Goods goods = goodsRepository.findByName("已有商品0").get(0);
+
+        goodsCatalogCache.evictByIds(List.of(goods.getId()));
+
+        assertTrue(goodsCatalogCache.getAll(List.of("已有商品0")).isEmpty());
+        assertEquals(1, goodsCatalogCache.getAll(List.of("已有商品1")).size());
+    }
+
+    private Order purchaseOrder() {
+        return order(null, "PURCHASE", "供应商");
+    }
+
+    private List<OrderGoods> lines() {
+        List<OrderGoods> lines = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String name;
+            if (i < 10) {
+                name = "已有商品" + i;
+            } else if (i < 28) {
+                name = "新商品" + i;
+            } else {
+                name = "新商品" + (i - 18); // 与第10、11行同名
+            }
+            Goods goods = goods(null, name);
+            OrderGoods line = new OrderGoods();
+            line.setGoods(goods);
+            line.setQuantity(2);
+            line.setUnitPrice(10.0f);
+            lines.add(line);
+        }
+        return lines;
+    }
+}
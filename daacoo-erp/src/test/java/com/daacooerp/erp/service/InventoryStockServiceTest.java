@@ -0,0 +1,185 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.service.impl.InventoryServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.inventory;
+import static com.daacooerp.erp.service.ServiceTestFixtures.stockChange;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 库存原子增减测试：32 线程并发出库不超卖，并与加锁读-改-写方式对比吞吐
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({InventoryServiceImpl.class, CodeSequenceService.class, StockLedgerService.class, StockReservationService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class InventoryStockServiceTest {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InventoryStockServiceTest.class);
+
+    private static final int THREADS = 32;
+    private static final int INITIAL_STOCK = 2000;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        inventoryRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void concurrentStockOutNeverOversells() throws Exception {
+        // 预热两条路径，避免首轮的类加载和JIT影响吞吐对比
+        sellAll(createInventory("预热商品", 200).getId(), this::atomicStockOut);
+        sellAll(createInventory("预热对照商品", 200).getId(), this::lockedStockOut);
+
+        Long id = createInventory("并发商品", INITIAL_STOCK).getId();
+        long start = System.nanoTime();
+        int sold = sellAll(id, this::atomicStockOut);
+        long atomicNanos = System.nanoTime() - start;
+
+        assertEquals(INITIAL_STOCK, sold);
+        assertEquals(0, inventoryService.getInventoryById(id).getQuantity());
+
+        // 对照组：原来的读-改-写加上行锁才不会超卖，持锁期间多一次读取和脏检查
+        Long lockedId = createInventory("加锁对照商品", INITIAL_STOCK).getId();
+        start = System.nanoTime();
+        int lockedSold = sellAll(lockedId, this::lockedStockOut);
+        long lockedNanos = System.nanoTime() - start;
+
+        assertEquals(INITIAL_STOCK, lockedSold);
+        assertEquals(0, inventoryService.getInventoryById(lockedId).getQuantity());
+        log.info("{} 线程出库 {} 件：原子条件更新 {} ops/s，加锁读-改-写 {} ops/s", THREADS, INITIAL_STOCK,
+                opsPerSecond(atomicNanos), opsPerSecond(lockedNanos));
+    }
+
+    @Test
+    void concurrentReceiptsOfNewProductCreateSingleRow() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    ready.await();
+                    return inventoryService.createOrUpdateInventoryFromGoods("新采购商品", "NEW001", 5, 3.5);
+                }));
+            }
+            ready.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Inventory inventory = inventoryRepository.findByProductName("新采购商品").orElseThrow();
+        assertEquals(THREADS * 5, inventory.getQuantity());
+        assertEquals(1L, inventoryRepository.count());
+    }
+
+    @Test
+    void stockOutRejectsInsufficientQuantity() {
+        Long id = createInventory("少量商品", 3).getId();
+        Inventory out = stockChange(id, 5);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> inventoryService.stockOut(out));
+        assertEquals("库存不足，当前库存: 3", exception.getMessage());
+        assertEquals(3, inventoryService.getInventoryById(id).getQuantity());
+    }
+
+    private Inventory createInventory(String name, int quantity) {
+        return inventoryRepository.save(inventory(name, "T-" + name.hashCode(), quantity));
+    }
+
+    private boolean atomicStockOut(Long id) {
+        Inventory out = stockChange(id, 1);
+        try {
+            inventoryService.stockOut(out);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean lockedStockOut(Long id) {
+        return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+            Inventory inventory = entityManager.find(Inventory.class, id, LockModeType.PESSIMISTIC_WRITE);
+            if (inventory.getQuantity() < 1) {
+                return false;
+            }
+            inventory.setQuantity(inventory.getQuantity() - 1);
+            return true;
+        }));
+    }
+
+    /**
+     * 多线程反复出库1件直到售罄，返回成功出库次数
+     */
+    private int sellAll(Long id, Predicate<Long> sellOne) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    ready.await();
+                    int count = 0;
+                    while (sellOne.test(id)) {
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            ready.countDown();
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get(120, TimeUnit.SECONDS);
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private long opsPerSecond(long nanos) {
+        return INITIAL_STOCK * 1_000_000_000L / Math.max(nanos, 1);
+    }
+}
@@ -0,0 +1,111 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.InventoryValuation;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.service.impl.InventoryServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.inventory;
+import static com.daacooerp.erp.service.ServiceTestFixtures.stockChange;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 库存估值测试：按分类、库位汇总数量与金额，结果缓存到库存变动提交后才重新汇总
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({InventoryServiceImpl.class, CodeSequenceService.class, StockLedgerService.class, StockReservationService.class, InventoryValuationService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class InventoryValuationServiceTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryValuationService inventoryValuationService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM stock_movement");
+        inventoryRepository.deleteAllInBatch();
+        inventoryValuationService.invalidate();
+    }
+
+    @Test
+    void groupsByCategoryAndLocation() {
+        save("签字笔", "文具", "A区", 10, 2.5);
+        save("笔记本", "文具", "A区", 4, 6.0);
+        save("订书机", "文具", "B区", 3, 20.0);
+        save("打印纸", "耗材", "A区", 5, null);
+
+        Map<String, Object> report = inventoryValuationService.getValuation();
+
+        List<InventoryValuation> groups = groups(report);
+        assertEquals(3, groups.size());
+        InventoryValuation stationeryA = find(groups, "文具", "A区");
+        assertEquals(2L, stationeryA.getItemCount());
+        assertEquals(14L, stationeryA.getTotalQuantity());
+        assertEquals(49.0, stationeryA.getTotalValue(), 0.001);
+        // 未设置单价的按0计
+        assertEquals(0.0, find(groups, "耗材", "A区").getTotalValue(), 0.001);
+        assertEquals(22L, report.get("totalQuantity"));
+        assertEquals(109.0, (Double) report.get("totalValue"), 0.001);
+    }
+
+    @Test
+    void cachedUntilInventoryChanges() {
+        Long id = save("签字笔", "文具", "A区", 10, 2.5);
+        Map<String, Object> first = inventoryValuationService.getValuation();
+
+        // 绕过服务直接改库不产生事件，继续返回缓存
+        jdbcTemplate.update("UPDATE inventory SET quantity = 100 WHERE id = ?", id);
+        assertSame(first, inventoryValuationService.getValuation());
+
+        Inventory in = stockChange(id, 5);
+        inventoryService.stockIn(in);
+
+        Map<String, Object> second = inventoryValuationService.getValuation();
+        assertNotSame(first, second);
+        assertEquals(105L, second.get("totalQuantity"));
+        assertEquals(262.5, (Double) second.get("totalValue"), 0.001);
+    }
+
+    private Long save(String name, String category, String location, int quantity, Double unitPrice) {
+        Inventory inventory = inventory(name, "V-" + name.hashCode(), quantity);
+        inventory.setCategory(category);
+        inventory.setLocation(location);
+        inventory.setUnitPrice(unitPrice);
+        return inventoryRepository.save(inventory).getId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<InventoryValuation> groups(Map<String, Object> report) {
+        return (List<InventoryValuation>) report.get("groups");
+    }
+
+    private InventoryValuation find(List<InventoryValuation> groups, String category, String location) {
+        return groups.stream()
+                .filter(g -> category.equals(g.getCategory()) && location.equals(g.getLocation()))
+                .findFirst().orElseThrow();
+    }
+}
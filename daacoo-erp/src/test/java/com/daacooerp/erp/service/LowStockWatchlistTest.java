@@ -0,0 +1,116 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.LowStockItem;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.service.impl.InventoryServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.inventory;
+import static com.daacooerp.erp.service.ServiceTestFixtures.stockChange;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 低库存测试：生成列 low_stock 的索引查询，以及库存变动提交后内存低库存清单的增量维护
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({InventoryServiceImpl.class, CodeSequenceService.class, StockLedgerService.class, StockReservationService.class, LowStockWatchlist.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LowStockWatchlistTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private LowStockWatchlist lowStockWatchlist;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        lowStockWatchlist.load();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        inventoryRepository.deleteAllInBatch();
+        jdbcTemplate.update("DELETE FROM code_sequence");
+        lowStockWatchlist.load();
+    }
+
+    @Test
+    void lowStockQueryUsesGeneratedColumn() {
+        createInventory("充足商品", 100, 10);
+        createInventory("临界商品", 10, 10);
+        createInventory("缺货商品", 0, 5);
+
+        Page<Inventory> page = inventoryRepository.findLowStock(PageRequest.of(0, 10));
+
+        assertEquals(2, page.getTotalElements());
+        assertEquals("缺货商品", page.getContent().get(0).getProductName());
+        assertEquals("临界商品", page.getContent().get(1).getProductName());
+    }
+
+    @Test
+    void stockMutationsMaintainWatchlist() {
+        Inventory inventory = createInventory("看板商品", 12, 10);
+        assertTrue(lowStockWatchlist.getItems().isEmpty());
+
+        // 出库后低于阈值：进入清单
+        inventoryService.stockOut(stockChange(inventory.getId(), 5));
+        List<LowStockItem> items = lowStockWatchlist.getItems();
+        assertEquals(1, items.size());
+        assertEquals(7, items.get(0).getQuantity());
+
+        // 继续出库：清单中的数量随之更新
+        inventoryService.stockOut(stockChange(inventory.getId(), 2));
+        assertEquals(5, lowStockWatchlist.getItems().get(0).getQuantity());
+
+        // 入库恢复：移出清单
+        inventoryService.stockIn(stockChange(inventory.getId(), 20));
+        assertTrue(lowStockWatchlist.getItems().isEmpty());
+
+        // 按商品名称入库的新商品低于默认阈值：进入清单；删除后移出
+        Inventory created = inventoryService.createOrUpdateInventoryFromGoods("新商品", null, 2, 1.0);
+        assertEquals(1, lowStockWatchlist.size());
+        inventoryService.deleteInventory(created.getId());
+        assertEquals(0, lowStockWatchlist.size());
+    }
+
+    @Test
+    void resyncPicksUpChangesMadeOutsideTheService() {
+        Inventory inventory = createInventory("直接改库商品", 50, 10);
+        jdbcTemplate.update("UPDATE inventory SET quantity = 1 WHERE id = ?", inventory.getId());
+
+        lowStockWatchlist.resync();
+
+        assertEquals(1, lowStockWatchlist.size());
+        assertEquals(1, lowStockWatchlist.getItems().get(0).getQuantity());
+    }
+
+    private Inventory createInventory(String name, int quantity, int threshold) {
+        Inventory inventory = inventory(name, "LS-" + name.hashCode(), quantity);
+        inventory.setWarningThreshold(threshold);
+        return inventoryRepository.save(inventory);
+    }
+}
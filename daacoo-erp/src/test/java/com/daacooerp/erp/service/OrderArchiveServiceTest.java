@@ -0,0 +1,103 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.repository.GoodsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单冷归档测试：只归档超过保留期的已完成/已取消订单，按块移动并保留原ID，归档后可按ID读取详情
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(OrderArchiveService.class)
+@TestPropertySource(properties = {"erp.archive.chunk-size=2", "erp.archive.pause-ms=0"})
+public class OrderArchiveServiceTest {
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private GoodsRepository goodsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long goodsId;
+
+    @BeforeEach
+    void setUp() {
+        Goods goods = new Goods();
+        goods.setCode("G-ARCHIVE");
+        goods.setName("归档商品");
+        goodsId = goodsRepository.saveAndFlush(goods).getId();
+    }
+
+    @Test
+    void archivesOnlyOldFinishedOrdersInChunks() {
+        LocalDateTime old = LocalDateTime.now().minusYears(2);
+        insertOrder(1001L, "SO-OLD-1", "COMPLETED", old);
+        insertOrder(1002L, "SO-OLD-2", "CANCELLED", old);
+        insertOrder(1003L, "SO-OLD-3", "COMPLETED", old);
+        insertOrder(1004L, "SO-OLD-4", "PENDING", old);
+        insertOrder(1005L, "SO-NEW-1", "COMPLETED", LocalDateTime.now());
+
+        // 块大小为2：3个可归档订单分两块完成
+        assertEquals(3, orderArchiveService.archiveOlderThan(LocalDateTime.now().minusYears(1)));
+
+        assertEquals(3L, orderArchiveService.countArchived());
+        assertEquals(2, count("SELECT COUNT(*) FROM orders"));
+        assertEquals(4, count("SELECT COUNT(*) FROM order_goods"));
+        assertEquals(6, count("SELECT COUNT(*) FROM order_goods_archive"));
+        assertEquals(1, count("SELECT COUNT(*) FROM orders WHERE id = 1004"));
+        assertEquals(1, count("SELECT COUNT(*) FROM orders WHERE id = 1005"));
+
+        // 再次执行没有可归档订单
+        assertEquals(0, orderArchiveService.archiveOlderThan(LocalDateTime.now().minusYears(1)));
+    }
+
+    @Test
+    void archivedOrderCanBeReadById() {
+        insertOrder(2001L, "SO-ARCH-1", "COMPLETED", LocalDateTime.now().minusYears(2));
+        orderArchiveService.archiveOlderThan(LocalDateTime.now().minusYears(1));
+
+        Order order = orderArchiveService.findArchivedOrder(2001L);
+        assertNotNull(order);
+        assertEquals("SO-ARCH-1", order.getOrderNo());
+        assertEquals("COMPLETED", order.getStatus());
+        assertEquals(2, order.getGoods().size());
+        assertEquals("归档商品", order.getGoods().get(0).getName());
+        assertEquals(20.0f, order.getGoods().get(0).getTotalPrice());
+
+        assertNull(orderArchiveService.findArchivedOrder(9999L));
+    }
+
+    private void insertOrder(Long id, String orderNo, String status, LocalDateTime createdAt) {
+        Timestamp time = Timestamp.valueOf(createdAt);
+        jdbcTemplate.update("INSERT INTO orders (id, order_no, order_type, customer_name, amount, freight, status, " +
+                "created_at, updated_at) VALUES (?, ?, 'SALE', '客户', 40, 0, ?, ?, ?)", id, orderNo, status, time, time);
+        for (int i = 0; i < 2; i++) {
+            jdbcTemplate.update("INSERT INTO order_goods (order_id, goods_id, quantity, unit_price, total_price, " +
+                    "created_at, updated_at) VALUES (?, ?, 2, 10, 20, ?, ?)", id, goodsId, time, time);
+        }
+    }
+
+    private int count(String sql) {
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class);
+        return count != null ? count : 0;
+    }
+}
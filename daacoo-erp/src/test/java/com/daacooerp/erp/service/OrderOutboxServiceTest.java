@@ -0,0 +1,125 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderOutbox;
+import com.daacooerp.erp.repository.FinanceRecordRepository;
+import com.daacooerp.erp.repository.OrderOutboxRepository;
+import com.daacooerp.erp.service.impl.FinanceServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.addLine;
+import static com.daacooerp.erp.service.ServiceTestFixtures.order;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+
+/**
+ * 订单确认发件箱测试：批量投递、按订单号幂等、失败重试与死信
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({OrderOutboxService.class, FinanceServiceImpl.class, FinanceSummaryService.class})
+@TestPropertySource(properties = {"erp.outbox.dispatcher-enabled=false", "erp.outbox.max-attempts=2"})
+public class OrderOutboxServiceTest {
+
+    @Autowired
+    private OrderOutboxService orderOutboxService;
+
+    @Autowired
+    private OrderOutboxRepository orderOutboxRepository;
+
+    @Autowired
+    private FinanceRecordRepository financeRecordRepository;
+
+    @Autowired
+    private FinanceService financeService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void dispatchCreatesOneFinanceRecordPerOrder() {
+        orderOutboxService.enqueue(List.of(pendingOrder(1L, "SO1", "SALE", 120f), pendingOrder(2L, "PO1", "PURCHASE", 80f)));
+
+        assertEquals(2, orderOutboxService.dispatchBatch());
+        assertEquals(0, orderOutboxService.dispatchBatch());
+
+        List<FinanceRecord> records = financeRecordRepository.findAll();
+        assertEquals(2, records.size());
+        FinanceRecord sale = records.stream().filter(r -> "SO1".equals(r.getSourceOrderNo())).findFirst().orElseThrow();
+        assertEquals(0, new BigDecimal("120").compareTo(sale.getIncome()));
+        assertEquals(2L, orderOutboxService.getStatusCounts().get(OrderOutbox.STATUS_DONE));
+    }
+
+    @Test
+    void redeliveryIsIdempotent() {
+        FinanceRecord existing = new FinanceRecord();
+        existing.setRecordDate(new Date());
+        existing.setIncome(new BigDecimal("120"));
+        existing.setSourceOrderNo("SO1");
+        financeService.createFinanceRecord(existing);
+
+        orderOutboxService.enqueue(List.of(pendingOrder(1L, "SO1", "SALE", 120f)));
+        orderOutboxService.dispatchBatch();
+
+        assertEquals(1, financeRecordRepository.count());
+        assertEquals(1L, orderOutboxService.getStatusCounts().get(OrderOutbox.STATUS_DONE));
+    }
+
+    @Test
+    void failuresBackOffThenDeadLetterAndCanBeRetried() {
+        // 订单号为 BAD 的记录写入时总是失败
+        FinanceService failing = Mockito.mock(FinanceService.class);
+        Mockito.doAnswer(invocation -> {
+            List<FinanceRecord> records = invocation.getArgument(0);
+            if (records.stream().anyMatch(r -> "BAD".equals(r.getSourceOrderNo()))) {
+                throw new IllegalStateException("写入失败");
+            }
+            return financeService.batchCreateFinanceRecords(records);
+        }).when(failing).batchCreateFinanceRecords(anyList());
+        ReflectionTestUtils.setField(orderOutboxService, "financeService", failing);
+        try {
+            orderOutboxService.enqueue(List.of(pendingOrder(1L, "SO1", "SALE", 10f), pendingOrder(2L, "BAD", "SALE", 10f)));
+
+            orderOutboxService.dispatchBatch();
+            assertEquals(1, financeRecordRepository.count());
+            OrderOutbox bad = orderOutboxRepository.findAll().stream()
+                    .filter(o -> "BAD".equals(o.getOrderNo())).findFirst().orElseThrow();
+            assertEquals(OrderOutbox.STATUS_PENDING, bad.getStatus());
+            assertEquals("写入失败", bad.getLastError());
+
+            // 退避期未到不会被领取；到期后再次失败进入死信
+            assertEquals(0, orderOutboxService.dispatchBatch());
+            jdbcTemplate.update("UPDATE order_outbox SET next_attempt_at = CURRENT_TIMESTAMP WHERE order_no = 'BAD'");
+            assertEquals(1, orderOutboxService.dispatchBatch());
+            assertEquals(1, orderOutboxService.getDeadLetters(0, 20).getTotalElements());
+
+            orderOutboxService.retryDeadLetter(bad.getId());
+            assertEquals(0L, orderOutboxService.getStatusCounts().get(OrderOutbox.STATUS_DEAD));
+            assertEquals(1L, orderOutboxService.getStatusCounts().get(OrderOutbox.STATUS_PENDING));
+        } finally {
+            ReflectionTestUtils.setField(orderOutboxService, "financeService", financeService);
+        }
+    }
+
+    private Order pendingOrder(Long id, String orderNo, String type, float amount) {
+        Order order = order(orderNo, type, null);
+        order.setId(id);
+        addLine(order, null, 1, amount);
+        return order;
+    }
+}
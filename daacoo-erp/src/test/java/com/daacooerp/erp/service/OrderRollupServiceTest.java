@@ -0,0 +1,128 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Order;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.addLine;
+import static com.daacooerp.erp.service.ServiceTestFixtures.goods;
+import static com.daacooerp.erp.service.ServiceTestFixtures.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单日汇总测试：确认时的增量写入与重建结果一致
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(OrderRollupService.class)
+@TestPropertySource(properties = "erp.rollup.backfill-on-startup=false")
+public class OrderRollupServiceTest {
+
+    private static final String ROWS_SQL =
+            "SELECT stat_date, order_type, goods_id, customer_name, order_count, quantity, amount " +
+            "FROM order_daily_rollup ORDER BY stat_date, order_type, goods_id, customer_name";
+
+    @Autowired
+    private OrderRollupService orderRollupService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long saleA;
+    private Long saleB;
+    private Long purchaseC;
+    private Long saleD;
+
+    @BeforeEach
+    void setUp() {
+        Goods g1 = saveGoods("G1", "螺丝");
+        Goods g2 = saveGoods("G2", "螺母");
+
+        saleA = saveOrder("SO1", "SALE", "客户甲", "COMPLETED", "2024-03-05", g1, 2, 100f, g2, 1, 50f);
+        saleB = saveOrder("SO2", "SALE", "客户甲", "COMPLETED", "2024-03-05", g1, 1, 100f);
+        purchaseC = saveOrder("PO1", "PURCHASE", "供应商乙", "COMPLETED", "2024-07-01", g2, 5, 50f);
+        saveOrder("SO3", "SALE", "客户甲", "PENDING", "2024-03-05", g1, 9, 100f);
+        // 首个明细没有关联商品，订单数应记在下一个有商品的明细上
+        saleD = saveOrder("SO4", "SALE", "客户丙", "COMPLETED", "2024-03-06", null, 1, 10f, g1, 3, 100f);
+        entityManager.clear();
+    }
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        orderRollupService.recordConfirmedOrders(List.of(load(saleA), load(saleB), load(purchaseC), load(saleD)));
+        List<Map<String, Object>> incremental = jdbcTemplate.queryForList(ROWS_SQL);
+
+        int rows = orderRollupService.rebuild(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        List<Map<String, Object>> rebuilt = jdbcTemplate.queryForList(ROWS_SQL);
+
+        assertEquals(4, rows);
+        assertEquals(rebuilt.toString(), incremental.toString());
+    }
+
+    @Test
+    void monthlyStatisticsCountEachOrderOnce() {
+        orderRollupService.rebuild(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+
+        Map<String, Number[]> stats = monthly(2024);
+        assertEquals(3, stats.get("3|SALE")[0].intValue());
+        assertEquals(0, new java.math.BigDecimal("650.00").compareTo(new java.math.BigDecimal(stats.get("3|SALE")[1].toString())));
+        assertEquals(1, stats.get("7|PURCHASE")[0].intValue());
+        assertTrue(monthly(2023).isEmpty());
+
+        // 删除已完成订单后扣减
+        orderRollupService.removeConfirmedOrder(load(saleB));
+        assertEquals(2, monthly(2024).get("3|SALE")[0].intValue());
+    }
+
+    private Map<String, Number[]> monthly(int year) {
+        Map<String, Number[]> result = new java.util.HashMap<>();
+        for (Map<String, Object> row : orderRollupService.getMonthlyStatistics(year)) {
+            if (((Number) row.get("orderCount")).intValue() == 0) {
+                continue;
+            }
+            result.put(((Number) row.get("month")).intValue() + "|" + row.get("orderType"),
+                    new Number[]{(Number) row.get("orderCount"), (Number) row.get("totalAmount")});
+        }
+        return result;
+    }
+
+    private Goods saveGoods(String code, String name) {
+        Goods goods = goods(code, name);
+        entityManager.persist(goods);
+        return goods;
+    }
+
+    private Long saveOrder(String no, String type, String customer, String status, String date, Object... lines) {
+        Order order = order(no, type, customer);
+        order.setStatus(status);
+        for (int i = 0; i < lines.length; i += 3) {
+            addLine(order, (Goods) lines[i], (Integer) lines[i + 1], (Float) lines[i + 2]);
+        }
+        entityManager.persist(order);
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?",
+                java.sql.Timestamp.valueOf(LocalDate.parse(date).atTime(10, 0)), order.getId());
+        return order.getId();
+    }
+
+    private Order load(Long id) {
+        return entityManager.find(Order.class, id);
+    }
+}
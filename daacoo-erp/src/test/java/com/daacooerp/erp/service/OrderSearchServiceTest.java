@@ -0,0 +1,102 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.OrderSearchHit;
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Order;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.addLine;
+import static com.daacooerp.erp.service.ServiceTestFixtures.goods;
+import static com.daacooerp.erp.service.ServiceTestFixtures.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单搜索文档测试（H2 无全文索引，走模糊匹配降级路径）
+ * 验证文档补建、增量写入、类型过滤、多词匹配与删除
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(OrderSearchService.class)
+public class OrderSearchServiceTest {
+
+    @Autowired
+    private OrderSearchService orderSearchService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Goods screw;
+    private Goods nut;
+
+    @BeforeEach
+    void setUp() {
+        screw = saveGoods("G1", "不锈钢螺丝");
+        nut = saveGoods("G2", "六角螺母");
+        // 历史订单：早于任何分页窗口，只能通过索引找到
+        for (int i = 0; i < 30; i++) {
+            saveOrder("SO-OLD-" + i, "SALE", "华东贸易公司", "王经理", nut);
+        }
+        saveOrder("SO-OLD-X", "SALE", "华南五金", "李工", screw);
+        entityManager.flush();
+        orderSearchService.backfill();
+    }
+
+    @Test
+    void backfilledDocsAreSearchable() {
+        Page<OrderSearchHit> hits = orderSearchService.search("螺丝", null, 0, 10);
+
+        assertEquals(1, hits.getTotalElements());
+        assertEquals("SO-OLD-X", hits.getContent().get(0).getOrderNo());
+        assertEquals("不锈钢螺丝", hits.getContent().get(0).getProductNames());
+    }
+
+    @Test
+    void indexOnCreateAndRemoveOnDelete() {
+        Order created = saveOrder("PO-NEW-1", "PURCHASE", "华南五金", "李工", screw, nut);
+        entityManager.flush();
+        orderSearchService.index(created);
+
+        assertEquals(2, orderSearchService.search("华南五金", null, 0, 10).getTotalElements());
+        assertEquals(1, orderSearchService.search("华南五金", "purchase", 0, 10).getTotalElements());
+        assertEquals(1, orderSearchService.search("李工 六角", null, 0, 10).getTotalElements());
+
+        orderSearchService.remove(created.getId());
+        assertEquals(0, orderSearchService.search("华南五金", "PURCHASE", 0, 10).getTotalElements());
+    }
+
+    @Test
+    void resultsArePaged() {
+        Page<OrderSearchHit> first = orderSearchService.search("华东", "SALE", 0, 20);
+        Page<OrderSearchHit> last = orderSearchService.search("华东", "SALE", 1, 20);
+
+        assertEquals(30, first.getTotalElements());
+        assertEquals(20, first.getContent().size());
+        assertEquals(10, last.getContent().size());
+        assertTrue(orderSearchService.search("  ", null, 0, 20).isEmpty());
+    }
+
+    private Goods saveGoods(String code, String name) {
+        Goods goods = goods(code, name);
+        entityManager.persist(goods);
+        return goods;
+    }
+
+    private Order saveOrder(String no, String type, String customer, String contact, Goods... items) {
+        Order order = order(no, type, customer);
+        order.setContactPerson(contact);
+        for (Goods item : items) {
+            addLine(order, item, 1, 10f);
+        }
+        entityManager.persist(order);
+        return order;
+    }
+}
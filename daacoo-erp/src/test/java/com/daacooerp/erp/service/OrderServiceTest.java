@@ -1,11 +1,14 @@
 package com.daacooerp.erp.service;
 
+import com.daacooerp.erp.dto.BatchConfirmRequest;
+import com.daacooerp.erp.dto.BatchConfirmResult;
+import com.daacooerp.erp.dto.OrderSummary;
 import com.daacooerp.erp.entity.Goods;
 import com.daacooerp.erp.entity.Order;
 import com.daacooerp.erp.entity.OrderGoods;
 import com.daacooerp.erp.entity.User;
 import com.daacooerp.erp.entity.Inventory;
-import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.entity.StockMovement;
 import com.daacooerp.erp.repository.GoodsRepository;
 import com.daacooerp.erp.repository.OrderRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,10 +21,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ArrayList;
 
@@ -42,7 +50,31 @@ public class OrderServiceTest {
     private InventoryService inventoryService;
 
     @Mock
-    private FinanceService financeService;
+    private OrderOutboxService orderOutboxService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CodeSequenceService codeSequenceService;
+
+    @Mock
+    private OrderRollupService orderRollupService;
+
+    @Mock
+    private OrderSearchService orderSearchService;
+
+    @Mock
+    private GoodsCatalogCache goodsCatalogCache;
+
+    @Mock
+    private OrderArchiveService orderArchiveService;
+
+    @Mock
+    private StockLedgerService stockLedgerService;
+
+    @Mock
+    private StockReservationService stockReservationService;
 
     @InjectMocks
     private OrderService orderService;
@@ -154,8 +186,16 @@ public class OrderServiceTest {
         order.setGoods(goods);
 
         // 模拟仓库层行为
-        when(goodsRepository.findByName(anyString())).thenReturn(new ArrayList<>());
-        when(goodsRepository.save(any(Goods.class))).thenReturn(goodsItem);
+        when(goodsRepository.findByNameIn(anyCollection())).thenReturn(new ArrayList<>());
+        // 新商品批量插入后回填自增ID
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class))).thenAnswer(invocation -> {
+            KeyHolder keyHolder = invocation.getArgument(2);
+            keyHolder.getKeyList().add(Map.of("id", 5L));
+            return new int[]{1};
+        });
+        when(codeSequenceService.nextOrderNo("SALE")).thenReturn("SO20241125000001");
+        when(codeSequenceService.nextGoodsCode()).thenReturn("G20241125000001");
         when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
             Order savedOrder = invocation.getArgument(0);
             savedOrder.setId(1L);
@@ -168,7 +208,14 @@ public class OrderServiceTest {
         // 验证结果
         assertNotNull(result);
         assertEquals("SALE", result.getOrderType()); // 验证类型转换
-        assertNotNull(result.getOrderNo()); // 验证生成订单编号
+        assertEquals("SO20241125000001", result.getOrderNo()); // 验证生成订单编号
+        assertEquals("G20241125000001", goodsItem.getCode()); // 新商品编码来自号段
+        assertEquals(5L, result.getGoods().get(0).getGoods().getId()); // 批量插入回填ID
+        verify(goodsRepository, never()).save(any(Goods.class));
+        verify(goodsCatalogCache).putAll(argThat(created -> created.size() == 1 && created.contains(goodsItem)));
+        verify(inventoryService).linkGoods(argThat(created -> created.size() == 1 && created.get(0).getId() == 5L));
+        verify(orderSearchService, times(1)).index(result); // 创建时写入搜索文档
+        verify(stockReservationService, times(1)).reserve(result); // 销售订单创建时预留库存
         assertEquals(1L, result.getId()); // 验证ID设置
 
         // 验证调用
@@ -240,16 +287,11 @@ public class OrderServiceTest {
         updatedInventory.setProductName("测试商品");
         updatedInventory.setQuantity(8); // 10 - 2 = 8
         
-        // 创建财务记录对象
-        FinanceRecord financeRecord = new FinanceRecord();
-        financeRecord.setId(1L);
-
         // 模拟仓库层行为
         when(orderRepository.findById(anyLong())).thenReturn(Optional.of(order));
-        when(inventoryService.findByProductName(anyString())).thenReturn(inventory);
-        when(inventoryService.stockOut(any(Inventory.class))).thenReturn(updatedInventory);
-        when(goodsRepository.save(any(Goods.class))).thenReturn(goodsItem);
-        when(financeService.createFinanceRecord(any(FinanceRecord.class))).thenReturn(financeRecord);
+        when(inventoryService.findByGoodsId(1L)).thenReturn(inventory);
+        when(inventoryService.stockOut(any(Inventory.class), eq(StockMovement.REASON_SALE_ORDER), eq(1L)))
+                .thenReturn(updatedInventory);
         when(orderRepository.save(any(Order.class))).thenReturn(order);
 
         // 执行测试
@@ -262,11 +304,111 @@ public class OrderServiceTest {
 
         // 验证调用
         verify(orderRepository, times(1)).findById(anyLong());
-        verify(inventoryService, times(2)).findByProductName(anyString());
-        verify(inventoryService, times(1)).stockOut(any(Inventory.class));
+        verify(inventoryService, times(2)).findByGoodsId(1L);
+        verify(inventoryService, never()).findByProductName(anyString());
+        // 商品库存由库存表派生，确认时不再写商品表
+        verify(goodsRepository, never()).save(any(Goods.class));
+        verify(inventoryService, times(1)).stockOut(any(Inventory.class), eq(StockMovement.REASON_SALE_ORDER), eq(1L));
+        verify(stockReservationService, times(1)).consume(List.of(1L)); // 预留转为出库
+        verify(orderRollupService, times(1)).recordConfirmedOrders(argThat(orders -> orders.size() == 1));
+        verify(orderOutboxService, times(1)).enqueue(argThat(orders -> orders.size() == 1)); // 财务记录改由发件箱生成
         verify(orderRepository, times(1)).save(any(Order.class));
     }
 
+    @Test
+    public void testConfirmOrder_RejectsStockReservedByOtherOrders() {
+        Order order = new Order();
+        order.setId(2L);
+        order.setOrderType("SALE");
+        order.setStatus("PENDING");
+        Goods goodsItem = new Goods();
+        goodsItem.setId(1L);
+        goodsItem.setName("测试商品");
+        OrderGoods orderGoods = new OrderGoods();
+        orderGoods.setGoods(goodsItem);
+        orderGoods.setQuantity(2);
+        order.setGoods(new ArrayList<>(List.of(orderGoods)));
+
+        Inventory inventory = new Inventory();
+        inventory.setId(1L);
+        inventory.setQuantity(10);
+
+        when(orderRepository.findById(2L)).thenReturn(Optional.of(order));
+        when(inventoryService.findByGoodsId(1L)).thenReturn(inventory);
+        // 本订单的预留已过期，10件中有9件被其他订单预留
+        when(stockReservationService.findActiveByOrderIds(List.of(2L))).thenReturn(Map.of());
+        when(stockReservationService.reservedQuantity(1L)).thenReturn(9);
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> orderService.confirmOrder(2L, 0.0f));
+
+        assertEquals("库存不足，无法确认订单。商品: 测试商品, 当前库存: 10, 需要: 2, 其他订单已预留: 9",
+                exception.getMessage());
+        verify(inventoryService, never()).stockOut(any(Inventory.class), anyString(), anyLong());
+        verify(stockReservationService, never()).consume(anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConfirmOrders_Batch() {
+        // 两个销售订单共用同一商品，库存只够第一个订单
+        Goods goodsItem = new Goods();
+        goodsItem.setId(1L);
+        goodsItem.setName("测试商品");
+        goodsItem.setStock(3);
+
+        Order first = buildSaleOrder(1L, "SO001", goodsItem, 2);
+        Order second = buildSaleOrder(2L, "SO002", goodsItem, 2);
+
+        Inventory inventory = new Inventory();
+        inventory.setId(10L);
+        inventory.setProductName("测试商品");
+        inventory.setQuantity(3);
+
+        when(orderRepository.findAllWithGoodsByIdIn(anyCollection())).thenReturn(Arrays.asList(first, second));
+        List<Object[]> lockedRows = new ArrayList<>();
+        lockedRows.add(new Object[]{goodsItem, inventory});
+        when(goodsRepository.lockWithInventoryByIdIn(anyCollection())).thenReturn(lockedRows);
+
+        List<BatchConfirmResult> results = orderService.confirmOrders(Arrays.asList(
+                new BatchConfirmRequest.Item(1L, 10.0f),
+                new BatchConfirmRequest.Item(2L, 10.0f),
+                new BatchConfirmRequest.Item(3L, 0.0f)));
+
+        // 验证逐单结果
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getMessage().contains("库存不足"));
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("订单不存在", results.get(2).getMessage());
+
+        // 验证只对成功订单批量写入一次库存变动和发件箱事件
+        verify(orderRepository, times(1)).lockIdsForUpdate(anyCollection());
+        verify(inventoryService, times(1)).batchAdjustStock(argThat(list ->
+                list.size() == 1 && list.get(0).getId() == 10L && list.get(0).getQuantity() == -2));
+        verify(orderOutboxService, times(1)).enqueue(argThat(orders -> orders.size() == 1));
+        verify(orderRollupService, times(1)).recordConfirmedOrders(argThat(orders ->
+                orders.size() == 1 && orders.iterator().next().getId() == 1L));
+        verify(inventoryService, never()).findByProductName(anyString());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    private Order buildSaleOrder(Long id, String orderNo, Goods goodsItem, int quantity) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderNo(orderNo);
+        order.setOrderType("SALE");
+        order.setStatus("PENDING");
+        OrderGoods orderGoods = new OrderGoods();
+        orderGoods.setGoods(goodsItem);
+        orderGoods.setQuantity(quantity);
+        orderGoods.setUnitPrice(100.0f);
+        orderGoods.setTotalPrice(100.0f * quantity);
+        orderGoods.setOrder(order);
+        order.setGoods(new ArrayList<>(Arrays.asList(orderGoods)));
+        return order;
+    }
+
     @Test
     public void testGetOrderById() {
         // 准备测试数据
@@ -276,7 +418,7 @@ public class OrderServiceTest {
         order.setOrderType("SALE");
 
         // 模拟仓库层行为
-        when(orderRepository.findById(anyLong())).thenReturn(Optional.of(order));
+        when(orderRepository.findDetailById(anyLong())).thenReturn(Optional.of(order));
 
         // 执行测试
         Order result = orderService.getOrderById(1L);
@@ -288,6 +430,50 @@ public class OrderServiceTest {
         assertEquals("SALE", result.getOrderType());
 
         // 验证调用
-        verify(orderRepository, times(1)).findById(anyLong());
+        verify(orderRepository, times(1)).findDetailById(anyLong());
+        verify(orderArchiveService, never()).findArchivedOrder(anyLong());
+    }
+
+    @Test
+    public void testGetOrderByIdFallsBackToArchive() {
+        // 准备测试数据：订单已归档，订单表中不存在
+        Order archived = new Order();
+        archived.setId(2L);
+        archived.setOrderNo("ORD2023");
+        archived.setStatus("COMPLETED");
+
+        when(orderRepository.findDetailById(2L)).thenReturn(Optional.empty());
+        when(orderArchiveService.findArchivedOrder(2L)).thenReturn(archived);
+
+        Order result = orderService.getOrderById(2L);
+
+        assertNotNull(result);
+        assertEquals("ORD2023", result.getOrderNo());
+        verify(orderArchiveService, times(1)).findArchivedOrder(2L);
+    }
+
+    @Test
+    public void testGetOrderSummariesByType() {
+        // 准备测试数据
+        OrderSummary summary = new OrderSummary(1L, "ORD123456", "PURCHASE", "测试供应商", null, null,
+                100.0f, 0.0f, "PENDING", LocalDateTime.now(), LocalDateTime.now());
+        Page<OrderSummary> summaryPage = new PageImpl<>(Arrays.asList(summary));
+
+        // 模拟仓库层行为
+        when(orderRepository.findSummariesByOrderType(anyString(), any(Pageable.class))).thenReturn(summaryPage);
+
+        // 执行测试
+        Page<OrderSummary> result = orderService.getOrderSummariesByType("purchase", 0, 10);
+
+        // 验证结果
+        assertEquals(1, result.getTotalElements());
+        assertEquals(100.0f, result.getContent().get(0).getTotalAmount());
+
+        // 验证调用：列表接口不加载订单实体
+        verify(orderRepository, times(1)).findSummariesByOrderType(eq("PURCHASE"), any(Pageable.class));
+        verify(orderRepository, never()).findByOrderType(anyString(), any(Pageable.class));
+
+        // 未知类型返回空页
+        assertTrue(orderService.getOrderSummariesByType("unknown", 0, 10).isEmpty());
     }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户认证缓存测试
+ * 测试命中、过期、失效、容量淘汰和命中率指标
+ */
+public class PrincipalCacheTest {
+
+    private SimpleMeterRegistry registry;
+
+    private AtomicInteger loads;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+        testUser = user(1L, "testuser", true);
+    }
+
+    /**
+     * 测试命中后不再查询用户，指标记录命中和未命中
+     */
+    @Test
+    void testHitAvoidsLookupAndRecordsMetrics() {
+        PrincipalCache cache = cache(100, 60000);
+
+        Optional<PrincipalCache.Principal> first = cache.get("testuser", loader(testUser));
+        Optional<PrincipalCache.Principal> second = cache.get("testuser", loader(testUser));
+
+        assertTrue(first.isPresent());
+        assertEquals(1L, second.get().getUserId());
+        assertTrue(second.get().isActive());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.get("erp.principal.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("erp.principal.cache.requests").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get("erp.principal.cache.size").gauge().value());
+    }
+
+    /**
+     * 测试禁用用户后失效缓存，下一次读取到禁用状态
+     */
+    @Test
+    void testEvictReflectsDisabledUser() {
+        PrincipalCache cache = cache(100, 60000);
+        cache.get("testuser", loader(testUser));
+
+        testUser.setStatus(false);
+        cache.evict(testUser);
+
+        assertFalse(cache.get("testuser", loader(testUser)).get().isActive());
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    /**
+     * 测试修改用户名后按用户ID失效旧条目
+     */
+    @Test
+    void testEvictByIdAfterRename() {
+        PrincipalCache cache = cache(100, 60000);
+        cache.get("testuser", loader(testUser));
+
+        cache.evict(user(1L, "renamed", true));
+
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * 测试条目过期后重新查询
+     */
+    @Test
+    void testExpiredEntryIsReloaded() throws InterruptedException {
+        PrincipalCache cache = cache(100, 20);
+        cache.get("testuser", loader(testUser));
+
+        Thread.sleep(40);
+        cache.get("testuser", loader(testUser));
+
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * 测试不存在的用户不缓存
+     */
+    @Test
+    void testMissingUserIsNotCached() {
+        PrincipalCache cache = cache(100, 60000);
+
+        assertTrue(cache.get("nobody", loader(null)).isEmpty());
+        assertTrue(cache.get("nobody", loader(null)).isEmpty());
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * 测试加载期间发生失效时不放入旧数据
+     */
+    @Test
+    void testEvictDuringLoadSkipsPut() {
+        PrincipalCache cache = cache(100, 60000);
+
+        cache.get("testuser", username -> {
+            loads.incrementAndGet();
+            cache.evict(testUser);
+            return Optional.of(testUser);
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * 测试超过容量时淘汰最久未使用的条目
+     */
+    @Test
+    void testLeastRecentlyUsedIsEvictedWhenFull() {
+        PrincipalCache cache = cache(2, 60000);
+        cache.get("a", loader(user(1L, "a", true)));
+        cache.get("b", loader(user(2L, "b", true)));
+        cache.get("a", loader(user(1L, "a", true)));
+        cache.get("c", loader(user(3L, "c", true)));
+
+        assertEquals(2, cache.size());
+        int before = loads.get();
+        cache.get("a", loader(user(1L, "a", true)));
+        cache.get("b", loader(user(2L, "b", true)));
+        assertEquals(before + 1, loads.get());
+    }
+
+    private PrincipalCache cache(int maxSize, long ttlMillis) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", registry);
+        ObjectProvider<MeterRegistry> provider = beanFactory.getBeanProvider(MeterRegistry.class);
+        return new PrincipalCache(maxSize, ttlMillis, provider);
+    }
+
+    private Function<String, Optional<User>> loader(User user) {
+        return username -> {
+            loads.incrementAndGet();
+            return Optional.ofNullable(user);
+        };
+    }
+
+    private User user(Long id, String username, boolean status) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setStatus(status);
+        return user;
+    }
+}
@@ -0,0 +1,126 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.ProductSuggestion;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.service.impl.InventoryServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.inventory;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 商品补全索引测试：名称/编码/拼音首字母前缀、包含匹配，以及库存增删改提交后的增量更新
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({InventoryServiceImpl.class, CodeSequenceService.class, StockLedgerService.class, StockReservationService.class, ProductSuggestIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProductSuggestIndexTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        inventoryRepository.deleteAllInBatch();
+        jdbcTemplate.update("DELETE FROM code_sequence");
+        productSuggestIndex.rebuild();
+    }
+
+    @Test
+    void matchesNameCodeAndPinyinPrefixes() {
+        save("打印纸", "P1001");
+        save("打印机", "P1002");
+        save("A4打印纸", "P2001");
+        productSuggestIndex.rebuild();
+
+        List<ProductSuggestion> byName = productSuggestIndex.suggest("打印", 10);
+        assertEquals(List.of("打印机", "打印纸", "A4打印纸"), names(byName));
+        assertEquals(ProductSuggestIndex.MATCH_NAME_PREFIX, byName.get(0).getMatchType());
+        assertEquals(ProductSuggestIndex.MATCH_INFIX, byName.get(2).getMatchType());
+
+        List<ProductSuggestion> byCode = productSuggestIndex.suggest("p100", 10);
+        assertEquals(2, byCode.size());
+        assertEquals(ProductSuggestIndex.MATCH_CODE_PREFIX, byCode.get(0).getMatchType());
+
+        List<ProductSuggestion> byPinyin = productSuggestIndex.suggest("DYZ", 10);
+        assertEquals("打印纸", byPinyin.get(0).getProductName());
+        assertEquals(ProductSuggestIndex.MATCH_PINYIN_PREFIX, byPinyin.get(0).getMatchType());
+
+        assertEquals(List.of("A4打印纸"), names(productSuggestIndex.suggest("4打", 10)));
+        assertEquals(1, productSuggestIndex.suggest("打印", 1).size());
+        assertTrue(productSuggestIndex.suggest("  ", 10).isEmpty());
+        assertTrue(productSuggestIndex.suggest("扫描仪", 10).isEmpty());
+    }
+
+    @Test
+    void inventoryMutationsUpdateIndex() {
+        productSuggestIndex.rebuild();
+        Inventory created = inventoryService.createInventory(inventory("订书机", null, 5));
+        assertEquals(List.of("订书机"), names(productSuggestIndex.suggest("dsj", 10)));
+
+        Inventory update = inventoryService.getInventoryById(created.getId());
+        update.setProductName("订书钉");
+        inventoryService.updateInventory(update);
+        assertTrue(productSuggestIndex.suggest("订书机", 10).isEmpty());
+        assertEquals(List.of("订书钉"), names(productSuggestIndex.suggest("dsd", 10)));
+
+        inventoryService.createOrUpdateInventoryFromGoods("回形针", null, 10, 0.5);
+        assertEquals(List.of("回形针"), names(productSuggestIndex.suggest("形针", 10)));
+
+        inventoryService.deleteInventory(created.getId());
+        assertTrue(productSuggestIndex.suggest("订书", 10).isEmpty());
+        assertEquals(1, productSuggestIndex.size());
+    }
+
+    @Test
+    void suggestsAcrossTenThousandProducts() {
+        List<Inventory> inventories = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            inventories.add(inventory("办公用品" + i + (i % 2 == 0 ? "签字笔" : "笔记本"), "SUG" + i, 1));
+        }
+        inventoryRepository.saveAll(inventories);
+        productSuggestIndex.rebuild();
+        assertEquals(10000, productSuggestIndex.size());
+
+        // 耗时见 benchmark.ProductSuggestBenchmark，这里只校验结果
+        for (String query : new String[]{"办公", "bgyp", "签字", "记本"}) {
+            assertEquals(10, productSuggestIndex.suggest(query, 10).size(), query);
+        }
+        assertEquals("办公用品12签字笔", names(productSuggestIndex.suggest("sug12", 10)).get(0));
+        List<String> infix = names(productSuggestIndex.suggest("9笔", 10));
+        assertEquals(10, infix.size());
+        assertTrue(infix.stream().allMatch(name -> name.contains("9笔")), infix.toString());
+    }
+
+    private void save(String name, String code) {
+        inventoryRepository.save(inventory(name, code, 1));
+    }
+
+    private List<String> names(List<ProductSuggestion> suggestions) {
+        return suggestions.stream().map(ProductSuggestion::getProductName).toList();
+    }
+}
@@ -0,0 +1,96 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.FinanceRecord;
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.OrderGoods;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 服务集成测试共用的测试数据：财务记录、商品、库存、订单
+ * 实体方法只构造不保存，由测试通过仓库或 EntityManager 保存；insert 方法直接写表，不经过服务，也不发布事件
+ */
+final class ServiceTestFixtures {
+
+    private ServiceTestFixtures() {
+    }
+
+    static FinanceRecord financeRecord(String date, String income, String expense) {
+        FinanceRecord record = new FinanceRecord();
+        record.setRecordDate(Date.valueOf(date));
+        record.setIncome(new BigDecimal(income));
+        record.setExpense(new BigDecimal(expense));
+        record.setRecordType("TEST");
+        return record;
+    }
+
+    static FinanceRecord financeRecord(String date, String income, String expense, String sourceOrderNo) {
+        FinanceRecord record = financeRecord(date, income, expense);
+        record.setSourceOrderNo(sourceOrderNo);
+        return record;
+    }
+
+    static void insertFinanceRecord(JdbcTemplate jdbcTemplate, String date, String income, String expense) {
+        BigDecimal in = new BigDecimal(income);
+        BigDecimal out = new BigDecimal(expense);
+        jdbcTemplate.update("INSERT INTO finance_record (record_date, income, expense, profit, record_type) " +
+                "VALUES (?, ?, ?, ?, 'TEST')", Date.valueOf(date), in, out, in.subtract(out));
+    }
+
+    static Goods goods(String code, String name) {
+        Goods goods = new Goods();
+        goods.setCode(code);
+        goods.setName(name);
+        return goods;
+    }
+
+    static Inventory inventory(String name, String code, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setProductName(name);
+        inventory.setProductCode(code);
+        inventory.setQuantity(quantity);
+        return inventory;
+    }
+
+    /**
+     * 出入库请求体：只有库存ID和数量
+     */
+    static Inventory stockChange(Long id, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setId(id);
+        inventory.setQuantity(quantity);
+        return inventory;
+    }
+
+    static Order order(String orderNo, String orderType, String customer) {
+        Order order = new Order();
+        order.setOrderNo(orderNo);
+        order.setOrderType(orderType);
+        order.setCustomerName(customer);
+        return order;
+    }
+
+    /**
+     * 为订单添加一行明细，小计 = 单价 * 数量
+     */
+    static OrderGoods addLine(Order order, Goods goods, int quantity, float unitPrice) {
+        OrderGoods line = new OrderGoods();
+        line.setOrder(order);
+        line.setGoods(goods);
+        line.setQuantity(quantity);
+        line.setUnitPrice(unitPrice);
+        line.setTotalPrice(unitPrice * quantity);
+        order.getGoods().add(line);
+        return line;
+    }
+
+    static void assertAmount(String expected, Object actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo((BigDecimal) actual), expected + " vs " + actual);
+    }
+}
@@ -0,0 +1,170 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.entity.StockMovement;
+import com.daacooerp.erp.repository.GoodsRepository;
+import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.repository.StockMovementRepository;
+import com.daacooerp.erp.service.impl.InventoryServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.goods;
+import static com.daacooerp.erp.service.ServiceTestFixtures.inventory;
+import static com.daacooerp.erp.service.ServiceTestFixtures.stockChange;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 库存流水测试：库存变动追加流水，快照按流水生成，历史库存 = 最近快照 + 之后的流水
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({InventoryServiceImpl.class, CodeSequenceService.class, StockLedgerService.class, StockReservationService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StockLedgerServiceTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private GoodsRepository goodsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM stock_snapshot");
+        jdbcTemplate.update("DELETE FROM stock_movement");
+        inventoryRepository.deleteAllInBatch();
+        goodsRepository.deleteAllInBatch();
+        jdbcTemplate.update("DELETE FROM code_sequence");
+    }
+
+    @Test
+    void stockChangesAppendMovements() {
+        Goods goods = saveGoods("账本商品");
+        Long id = inventoryService.createInventory(inventory("账本商品", null, 10)).getId();
+        // 新建库存自动关联同名商品
+        assertEquals(goods.getId(), inventoryRepository.findById(id).orElseThrow().getGoodsId());
+
+        inventoryService.stockIn(stockChange(id, 5));
+        inventoryService.stockOut(stockChange(id, 3), StockMovement.REASON_SALE_ORDER, 42L);
+        inventoryService.createOrUpdateInventoryFromGoods(goods, 4, 2.0, StockMovement.REASON_PURCHASE_ORDER, 43L);
+
+        List<StockMovement> movements = stockMovementRepository
+                .findByInventoryIdOrderByCreatedAtDescIdDesc(id, PageRequest.of(0, 10)).getContent();
+        assertEquals(List.of(StockMovement.REASON_PURCHASE_ORDER, StockMovement.REASON_SALE_ORDER,
+                StockMovement.REASON_STOCK_IN, StockMovement.REASON_CREATE),
+                movements.stream().map(StockMovement::getReason).toList());
+        assertEquals(List.of(4, -3, 5, 10), movements.stream().map(StockMovement::getDelta).toList());
+        assertEquals(42L, movements.get(1).getOrderId());
+        assertEquals(16, inventoryService.getInventoryById(id).getQuantity());
+        assertEquals(16, stockLedgerService.getStockAt(id, LocalDateTime.now().plusMinutes(1)));
+        // 商品库存由库存表派生
+        assertEquals(16, goodsRepository.findById(goods.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void purchaseReceiptCreatesInventoryLinkedToGoods() {
+        Goods goods = saveGoods("采购新品");
+
+        Inventory received = inventoryService.createOrUpdateInventoryFromGoods(goods, 6, 1.5,
+                StockMovement.REASON_PURCHASE_ORDER, 44L);
+        inventoryService.createOrUpdateInventoryFromGoods(goods, 2, 1.5, StockMovement.REASON_PURCHASE_ORDER, 45L);
+
+        assertEquals(goods.getId(), received.getGoodsId());
+        assertEquals(goods.getCode(), received.getProductCode());
+        assertEquals(8, inventoryService.findByGoodsId(goods.getId()).getQuantity());
+        assertEquals(8, goodsRepository.findById(goods.getId()).orElseThrow().getStock());
+        assertEquals(1L, inventoryRepository.count());
+    }
+
+    @Test
+    void linkGoodsBackfillsUnlinkedInventory() {
+        Long id = saveInventory("历史商品");
+        Goods goods = saveGoods("历史商品");
+        assertEquals(0, goodsRepository.findById(goods.getId()).orElseThrow().getStock());
+
+        inventoryService.linkGoods(List.of(goods));
+
+        assertEquals(goods.getId(), inventoryRepository.findById(id).orElseThrow().getGoodsId());
+    }
+
+    @Test
+    void batchMovementsResolveNewInventoryByName() {
+        inventoryService.batchCreateInventory(List.of(inventory("批量新品", null, 7)));
+
+        stockLedgerService.recordAll(List.of(
+                StockMovement.of(null, "批量新品", 7, StockMovement.REASON_PURCHASE_ORDER, 99L)));
+
+        Long id = inventoryRepository.findByProductName("批量新品").orElseThrow().getId();
+        List<StockMovement> movements = stockMovementRepository
+                .findByInventoryIdOrderByCreatedAtDescIdDesc(id, PageRequest.of(0, 10)).getContent();
+        assertEquals(1, movements.size());
+        assertEquals(99L, movements.get(0).getOrderId());
+    }
+
+    @Test
+    void pointInTimeReadsSnapshotPlusTail() {
+        Long id = saveInventory("快照商品A");
+        Long other = saveInventory("快照商品B");
+        movement(id, 10, "2025-01-01T09:00:00");
+        movement(id, -4, "2025-01-02T09:00:00");
+        movement(other, 3, "2025-01-01T10:00:00");
+        movement(id, 6, "2025-01-05T09:00:00");
+
+        assertEquals(2, stockLedgerService.takeSnapshot(LocalDateTime.parse("2025-01-03T00:00:00")));
+        movement(id, -1, "2025-01-06T09:00:00");
+        // 只为上次快照之后有流水的商品生成快照
+        assertEquals(1, stockLedgerService.takeSnapshot(LocalDateTime.parse("2025-01-07T00:00:00")));
+        assertEquals(0, stockLedgerService.takeSnapshot(LocalDateTime.parse("2025-01-06T00:00:00")));
+        assertEquals(11, jdbcTemplate.queryForObject(
+                "SELECT quantity FROM stock_snapshot WHERE inventory_id = ? AND snapshot_at = ?", Integer.class,
+                id, Timestamp.valueOf("2025-01-07 00:00:00")));
+
+        assertEquals(0, stockLedgerService.getStockAt(id, LocalDateTime.parse("2024-12-31T00:00:00")));
+        assertEquals(10, stockLedgerService.getStockAt(id, LocalDateTime.parse("2025-01-01T12:00:00")));
+        assertEquals(6, stockLedgerService.getStockAt(id, LocalDateTime.parse("2025-01-03T00:00:00")));
+        assertEquals(12, stockLedgerService.getStockAt(id, LocalDateTime.parse("2025-01-05T12:00:00")));
+        assertEquals(11, stockLedgerService.getStockAt(id, LocalDateTime.parse("2025-01-08T00:00:00")));
+        assertEquals(3, stockLedgerService.getStockAt(other, LocalDateTime.parse("2025-01-08T00:00:00")));
+    }
+
+    private Long saveInventory(String name) {
+        return inventoryRepository.save(inventory(name, "SL-" + name.hashCode(), 0)).getId();
+    }
+
+    private Goods saveGoods(String name) {
+        return goodsRepository.save(goods("G-" + Math.abs(name.hashCode()), name));
+    }
+
+    private void movement(Long inventoryId, int delta, String time) {
+        jdbcTemplate.update("INSERT INTO stock_movement (inventory_id, delta, reason, created_at) VALUES (?, ?, ?, ?)",
+                inventoryId, delta, StockMovement.REASON_ADJUST, Timestamp.valueOf(LocalDateTime.parse(time)));
+    }
+}
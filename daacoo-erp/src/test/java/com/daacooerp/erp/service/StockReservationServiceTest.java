@@ -0,0 +1,196 @@
+package com.daacooerp.erp.service;
+
+import com.daacooerp.erp.dto.BulkStockRequest;
+import com.daacooerp.erp.dto.BulkStockResult;
+import com.daacooerp.erp.entity.Goods;
+import com.daacooerp.erp.entity.Inventory;
+import com.daacooerp.erp.entity.Order;
+import com.daacooerp.erp.entity.StockMovement;
+import com.daacooerp.erp.entity.StockReservation;
+import com.daacooerp.erp.repository.GoodsRepository;
+import com.daacooerp.erp.repository.InventoryRepository;
+import com.daacooerp.erp.service.impl.InventoryServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.daacooerp.erp.service.ServiceTestFixtures.addLine;
+import static com.daacooerp.erp.service.ServiceTestFixtures.goods;
+import static com.daacooerp.erp.service.ServiceTestFixtures.inventory;
+import static com.daacooerp.erp.service.ServiceTestFixtures.order;
+import static com.daacooerp.erp.service.ServiceTestFixtures.stockChange;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 库存预留测试：按可承诺量预留、超额拒绝，确认转出库、超时过期后释放，库存变动后重新加载现存量，负数计数按明细校正
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({InventoryServiceImpl.class, CodeSequenceService.class, StockLedgerService.class, StockReservationService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StockReservationServiceTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private GoodsRepository goodsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+        jdbcTemplate.update("DELETE FROM stock_movement");
+        inventoryRepository.deleteAllInBatch();
+        goodsRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void reservesAgainstAvailableToPromiseAndConsumesOnConfirm() {
+        Goods goods = saveGoodsWithStock("预留商品", 10);
+
+        stockReservationService.reserve(saleOrder(101L, goods, 6));
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> stockReservationService.reserve(saleOrder(102L, goods, 5)));
+        assertEquals("可用库存不足，商品: 预留商品, 可用: 4, 需要: 5", exception.getMessage());
+
+        assertEquals(6, stockReservationService.reservedQuantity(goods.getId()));
+        assertEquals(4, stockReservationService.getAvailability(goods.getId()).get("available"));
+        assertEquals(1, count(StockReservation.STATUS_ACTIVE));
+
+        stockReservationService.flush();
+        assertEquals(6, reservedColumn(goods.getId()));
+
+        stockReservationService.consume(List.of(101L));
+        assertEquals(0, stockReservationService.reservedQuantity(goods.getId()));
+        assertEquals(1, count(StockReservation.STATUS_CONSUMED));
+        // 已转出库的预留不会再被释放
+        stockReservationService.release(List.of(101L));
+        assertEquals(0, count(StockReservation.STATUS_RELEASED));
+
+        stockReservationService.flush();
+        assertEquals(0, reservedColumn(goods.getId()));
+    }
+
+    @Test
+    void expiredReservationsReturnToAvailable() {
+        Goods goods = saveGoodsWithStock("过期商品", 5);
+        stockReservationService.reserve(saleOrder(201L, goods, 5));
+        assertThrows(IllegalArgumentException.class, () -> stockReservationService.reserve(saleOrder(202L, goods, 1)));
+
+        jdbcTemplate.update("UPDATE stock_reservation SET expires_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP)");
+        assertEquals(1, stockReservationService.expireDue());
+        assertEquals(0, stockReservationService.expireDue());
+
+        assertEquals(0, stockReservationService.reservedQuantity(goods.getId()));
+        stockReservationService.reserve(saleOrder(202L, goods, 5));
+        assertEquals(1, count(StockReservation.STATUS_EXPIRED));
+        assertTrue(stockReservationService.findActiveByOrderIds(List.of(201L)).isEmpty());
+        assertEquals(5, stockReservationService.findActiveByOrderIds(List.of(202L)).get(202L).get(goods.getId()));
+    }
+
+    @Test
+    void stockChangesInvalidateCachedOnHand() {
+        Goods goods = saveGoodsWithStock("出库商品", 10);
+        stockReservationService.reserve(saleOrder(301L, goods, 1));
+
+        Inventory out = stockChange(inventoryService.findByGoodsId(goods.getId()).getId(), 8);
+        inventoryService.stockOut(out);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> stockReservationService.reserve(saleOrder(302L, goods, 2)));
+        assertEquals("可用库存不足，商品: 出库商品, 可用: 1, 需要: 2", exception.getMessage());
+    }
+
+    @Test
+    void negativeReservedCountIsRecountedOnFlush() {
+        Goods goods = saveGoodsWithStock("校正商品", 10);
+        stockReservationService.reserve(saleOrder(501L, goods, 4));
+        // 计数不知道的预留明细被释放，计数减为负数
+        jdbcTemplate.update("INSERT INTO stock_reservation (order_id, goods_id, quantity, status, expires_at, created_at) " +
+                "VALUES (502, ?, 6, ?, DATEADD('MINUTE', 30, CURRENT_TIMESTAMP), CURRENT_TIMESTAMP)",
+                goods.getId(), StockReservation.STATUS_ACTIVE);
+        stockReservationService.release(List.of(502L));
+
+        assertEquals(-2, stockReservationService.reservedQuantity(goods.getId()));
+        assertEquals(10, stockReservationService.getAvailability(goods.getId()).get("available"));
+
+        stockReservationService.flush();
+        assertEquals(4, stockReservationService.reservedQuantity(goods.getId()));
+        assertEquals(4, reservedColumn(goods.getId()));
+        assertEquals(6, stockReservationService.getAvailability(goods.getId()).get("available"));
+    }
+
+    @Test
+    void manualAndBulkStockOutCannotTakeReservedQuantity() {
+        Goods goods = saveGoodsWithStock("手工出库商品", 10);
+        Long inventoryId = inventoryService.findByGoodsId(goods.getId()).getId();
+        stockReservationService.reserve(saleOrder(401L, goods, 6));
+
+        Inventory out = stockChange(inventoryId, 5);
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> inventoryService.stockOut(out));
+        assertEquals("库存不足，当前库存: 10, 销售订单已预留: 6", exception.getMessage());
+
+        BulkStockRequest request = new BulkStockRequest();
+        request.setMode(BulkStockRequest.MODE_BEST_EFFORT);
+        request.setLines(List.of(bulkLine(inventoryId, -3), bulkLine(inventoryId, -2)));
+        List<BulkStockResult> results = inventoryService.bulkAdjustStock(request);
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("库存不足，当前库存: 7, 销售订单已预留: 6", results.get(1).getMessage());
+
+        out.setQuantity(1);
+        assertEquals(6, inventoryService.stockOut(out).getQuantity());
+        // 订单确认出库可以使用本订单的预留
+        out.setQuantity(6);
+        assertEquals(0, inventoryService.stockOut(out, StockMovement.REASON_SALE_ORDER, 401L).getQuantity());
+    }
+
+    private BulkStockRequest.Line bulkLine(Long id, int delta) {
+        BulkStockRequest.Line line = new BulkStockRequest.Line();
+        line.setId(id);
+        line.setDelta(delta);
+        return line;
+    }
+
+    private Goods saveGoodsWithStock(String name, int quantity) {
+        Goods goods = goodsRepository.save(goods("R-" + Math.abs(name.hashCode()), name));
+        Inventory inventory = inventory(name, goods.getCode(), quantity);
+        inventory.setGoodsId(goods.getId());
+        inventoryRepository.save(inventory);
+        return goods;
+    }
+
+    private Order saleOrder(Long id, Goods goods, int quantity) {
+        Order order = order("SO-" + id, "SALE", null);
+        order.setId(id);
+        addLine(order, goods, quantity, 0f);
+        return order;
+    }
+
+    private int count(String status) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservation WHERE status = ?", Integer.class, status);
+    }
+
+    private int reservedColumn(Long goodsId) {
+        return jdbcTemplate.queryForObject("SELECT reserved_quantity FROM inventory WHERE goods_id = ?", Integer.class, goodsId);
+    }
+}
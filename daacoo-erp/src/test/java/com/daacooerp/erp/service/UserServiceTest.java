@@ -29,6 +29,9 @@ public class UserServiceTest {
     @Mock
     private PasswordService passwordService;
 
+    @Mock
+    private PrincipalCache principalCache;
+
     @InjectMocks
     private UserService userService;
 
@@ -207,8 +210,40 @@ public class UserServiceTest {
         assertEquals("13800138001", result.getTel());
         assertEquals("updated@example.com", result.getEmail());
 
-        // 验证仓库方法调用
+        // 验证仓库方法调用，并失效认证缓存
         verify(userRepository).save(updatedUser);
+        verify(principalCache).evict(updatedUser);
+    }
+
+    /**
+     * 测试禁用用户 - 失效认证缓存
+     */
+    @Test
+    void testUpdateStatusEvictsPrincipal() {
+        // 模拟仓库行为
+        when(userRepository.save(testUser)).thenReturn(testUser);
+
+        // 执行测试
+        User result = userService.updateStatus(testUser, false);
+
+        // 验证结果
+        assertFalse(result.getStatus());
+        verify(userRepository).save(testUser);
+        verify(principalCache).evict(testUser);
+    }
+
+    /**
+     * 测试更新头像 - 失效认证缓存
+     */
+    @Test
+    void testUpdateAvatarEvictsPrincipal() {
+        // 执行测试
+        userService.updateAvatar(testUser, "/uploads/avatar.png");
+
+        // 验证结果
+        assertEquals("/uploads/avatar.png", testUser.getAvatar());
+        verify(userRepository).save(testUser);
+        verify(principalCache).evict(testUser);
     }
 
     /**